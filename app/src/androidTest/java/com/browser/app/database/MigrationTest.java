@@ -0,0 +1,215 @@
+package com.browser.app.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
+
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.browser.app.database.entities.DownloadItem;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Every migration against the exported schema of the version it starts from. The helper
+ * checks the migrated tables, indices and FTS options against the target schema.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+    
+    private static final String DB_NAME = "migration-test";
+    private static final double DELTA = 1e-9;
+    
+    @Rule
+    public final MigrationTestHelper helper = new MigrationTestHelper(
+        InstrumentationRegistry.getInstrumentation(), BrowserDatabase.class);
+    
+    @Test
+    public void migrate1To2IndexesExistingRows() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(DB_NAME, 1)) {
+            insertHistory(db, 1, "Example Domain", "https://example.com/", 100, 1);
+            db.execSQL("INSERT INTO bookmarks (id, title, url, timestamp) VALUES (1, 'Android', " +
+                "'https://developer.android.com/', 100)");
+        }
+        
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(DB_NAME, 2, true,
+            BrowserDatabase.MIGRATION_1_2);
+        assertEquals(1, count(db, "SELECT docid FROM history_fts WHERE history_fts MATCH 'exam*'"));
+        assertEquals(1, count(db, "SELECT docid FROM bookmarks_fts WHERE bookmarks_fts MATCH 'andr*'"));
+        
+        // The content sync triggers keep the index current from here on.
+        insertHistory(db, 2, "Wikipedia", "https://en.wikipedia.org/", 200, 1);
+        assertEquals(1, count(db, "SELECT docid FROM history_fts WHERE history_fts MATCH 'wiki*'"));
+    }
+    
+    @Test
+    public void migrate2To3FoldsDuplicateUrls() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(DB_NAME, 2)) {
+            insertHistory(db, 1, "Old", "https://example.com/", 100, 2);
+            insertHistory(db, 2, "Other", "https://other.com/", 150, 1);
+            insertHistory(db, 3, "New", "https://example.com/", 300, 3);
+            insertHistory(db, 4, "Middle", "https://example.com/", 200, 1);
+            db.execSQL("INSERT INTO bookmarks (id, title, url, timestamp) VALUES " +
+                "(1, 'A', 'https://example.com/', 100), (2, 'B', 'https://example.com/', 200)");
+        }
+        
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(DB_NAME, 3, true,
+            BrowserDatabase.MIGRATION_2_3);
+        assertEquals(2, count(db, "SELECT id FROM history"));
+        try (Cursor cursor = db.query("SELECT id, visitCount, timestamp FROM history " +
+                "WHERE url = 'https://example.com/'")) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(4, cursor.getInt(0));
+            assertEquals(6, cursor.getInt(1));
+            assertEquals(300, cursor.getLong(2));
+            assertFalse(cursor.moveToNext());
+        }
+        try (Cursor cursor = db.query("SELECT id FROM bookmarks")) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(2, cursor.getInt(0));
+            assertFalse(cursor.moveToNext());
+        }
+        
+        try {
+            insertHistory(db, 5, "Again", "https://example.com/", 400, 1);
+            fail("history.url should be unique");
+        } catch (SQLiteConstraintException expected) {
+        }
+    }
+    
+    @Test
+    public void migrate3To4SeedsFrecencyFromVisits() throws IOException {
+        long timestamp = 1700000000000L;
+        try (SupportSQLiteDatabase db = helper.createDatabase(DB_NAME, 3)) {
+            insertHistory(db, 1, "Example", "https://example.com/", timestamp, 5);
+        }
+        
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(DB_NAME, 4, true,
+            BrowserDatabase.MIGRATION_3_4);
+        try (Cursor cursor = db.query("SELECT frecency FROM history WHERE id = 1")) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(5 * Frecency.visitScore(Frecency.VISIT_LINK, timestamp), cursor.getDouble(0), DELTA);
+        }
+    }
+    
+    @Test
+    public void migrate4To5MarksOldDownloads() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(DB_NAME, 4)) {
+            insertDownload(db, 1, 2048, true);
+            insertDownload(db, 2, 4096, false);
+        }
+        
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(DB_NAME, 5, true,
+            BrowserDatabase.MIGRATION_4_5);
+        try (Cursor cursor = db.query("SELECT status, downloadedBytes FROM downloads ORDER BY id")) {
+            assertTrue(cursor.moveToNext());
+            assertEquals(DownloadItem.STATUS_COMPLETED, cursor.getInt(0));
+            assertEquals(2048, cursor.getLong(1));
+            assertTrue(cursor.moveToNext());
+            assertEquals(DownloadItem.STATUS_FAILED, cursor.getInt(0));
+            assertEquals(0, cursor.getLong(1));
+        }
+    }
+    
+    @Test
+    public void migrate5To6AddsHashColumns() throws IOException {
+        helper.createDatabase(DB_NAME, 5).close();
+        helper.runMigrationsAndValidate(DB_NAME, 6, true, BrowserDatabase.MIGRATION_5_6);
+    }
+    
+    @Test
+    public void migrate6To7QueuesInIdOrder() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(DB_NAME, 6)) {
+            insertDownload(db, 3, 10, false);
+            insertDownload(db, 7, 10, false);
+        }
+        
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(DB_NAME, 7, true,
+            BrowserDatabase.MIGRATION_6_7);
+        try (Cursor cursor = db.query("SELECT id, queuePosition FROM downloads")) {
+            while (cursor.moveToNext()) {
+                assertEquals(cursor.getLong(0), cursor.getLong(1));
+            }
+        }
+    }
+    
+    @Test
+    public void migrate7To8DropsFrecencyIndex() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(DB_NAME, 7)) {
+            assertEquals(1, count(db, "SELECT name FROM sqlite_master WHERE name = 'index_history_frecency'"));
+        }
+        
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(DB_NAME, 8, true,
+            BrowserDatabase.MIGRATION_7_8);
+        assertEquals(0, count(db, "SELECT name FROM sqlite_master WHERE name = 'index_history_frecency'"));
+    }
+    
+    @Test
+    public void migrate8To9RestoresFrecencyIndex() throws IOException {
+        helper.createDatabase(DB_NAME, 8).close();
+        
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(DB_NAME, 9, true,
+            BrowserDatabase.MIGRATION_8_9);
+        assertEquals(1, count(db, "SELECT name FROM sqlite_master WHERE name = 'index_history_frecency'"));
+        // Top sites walk the index backwards instead of sorting the table.
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN SELECT id FROM history ORDER BY frecency DESC LIMIT 10")) {
+            assertTrue(cursor.moveToFirst());
+            assertTrue(cursor.getString(3).contains("index_history_frecency"));
+        }
+    }
+    
+    @Test
+    public void migrateAllKeepsData() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(DB_NAME, 1)) {
+            insertHistory(db, 1, "Example", "https://example.com/", 100, 2);
+            insertHistory(db, 2, "Example", "https://example.com/", 200, 1);
+            insertDownload(db, 1, 512, true);
+        }
+        
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(DB_NAME, 9, true,
+            BrowserDatabase.MIGRATION_1_2, BrowserDatabase.MIGRATION_2_3, BrowserDatabase.MIGRATION_3_4,
+            BrowserDatabase.MIGRATION_4_5, BrowserDatabase.MIGRATION_5_6, BrowserDatabase.MIGRATION_6_7,
+            BrowserDatabase.MIGRATION_7_8, BrowserDatabase.MIGRATION_8_9);
+        assertEquals(1, count(db, "SELECT docid FROM history_fts WHERE history_fts MATCH 'exam*'"));
+        assertEquals(1, count(db, "SELECT name FROM sqlite_master WHERE name = 'index_history_frecency'"));
+        try (Cursor cursor = db.query("SELECT visitCount, frecency FROM history")) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(3, cursor.getInt(0));
+            assertTrue(cursor.getDouble(1) > 0);
+        }
+        try (Cursor cursor = db.query("SELECT status, queuePosition FROM downloads")) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(DownloadItem.STATUS_COMPLETED, cursor.getInt(0));
+            assertEquals(1, cursor.getLong(1));
+        }
+    }
+    
+    private static void insertHistory(SupportSQLiteDatabase db, int id, String title, String url,
+                                      long timestamp, int visits) {
+        db.execSQL("INSERT INTO history (id, title, url, timestamp, visitCount) VALUES (?, ?, ?, ?, ?)",
+            new Object[] {id, title, url, timestamp, visits});
+    }
+    
+    private static void insertDownload(SupportSQLiteDatabase db, int id, long size, boolean completed) {
+        db.execSQL("INSERT INTO downloads (id, fileName, url, filePath, timestamp, fileSize, mimeType, " +
+            "isCompleted) VALUES (?, 'file.bin', 'https://example.com/file.bin', '/sdcard/file.bin', 100, ?, " +
+            "'application/octet-stream', ?)", new Object[] {id, size, completed ? 1 : 0});
+    }
+    
+    private static int count(SupportSQLiteDatabase db, String query) {
+        try (Cursor cursor = db.query(query)) {
+            return cursor.getCount();
+        }
+    }
+}
@@ -11,44 +11,73 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SearchView;
 import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.browser.app.adapters.BookmarkAdapter;
+import com.browser.app.adapters.KeysetPagedList;
+import com.browser.app.adapters.SearchResultAdapter;
+import com.browser.app.adapters.SharedRowPool;
+import com.browser.app.database.BookmarkIndex;
 import com.browser.app.database.BrowserDatabase;
+import com.browser.app.database.async.AsyncBookmarkDao;
+import com.browser.app.database.async.AsyncSearch;
 import com.browser.app.database.entities.Bookmark;
+import com.browser.app.favicon.FaviconCache;
+import com.browser.app.search.AutocompleteEngine;
+import com.browser.app.search.BrowserSearch;
+import com.browser.app.search.SearchResult;
+import com.browser.app.utils.DateLabels;
+import com.browser.app.utils.TaskScheduler;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-public class BookmarksActivity extends AppCompatActivity implements BookmarkAdapter.OnBookmarkClickListener {
+public class BookmarksActivity extends AppCompatActivity
+        implements BookmarkAdapter.OnBookmarkClickListener, SearchResultAdapter.OnResultClickListener {
+    
+    private static final int SEARCH_LIMIT = 100;
     
     private RecyclerView recyclerView;
     private TextView emptyView;
     private BookmarkAdapter adapter;
     private BrowserDatabase database;
-    private ExecutorService executor;
-    private List<Bookmark> bookmarks;
+    private TaskScheduler.Scope tasks;
+    private AsyncBookmarkDao bookmarkDao;
+    private KeysetPagedList<BookmarkAdapter.Row> bookmarks;
+    private AsyncSearch search;
+    private SearchResultAdapter searchAdapter;
+    // The text being searched for, or null while all bookmarks are shown.
+    private String searchQuery;
+    private Future<List<SearchResult>> pendingSearch;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_bookmarks);
         
+        database = BrowserDatabase.getInstance(this);
+        tasks = TaskScheduler.getInstance().scope(this);
+        bookmarkDao = new AsyncBookmarkDao(database.bookmarkDao(), BookmarkIndex.getInstance(database), tasks);
+        search = new AsyncSearch(new BrowserSearch(database), tasks);
+        
         setupToolbar();
         initializeViews();
         setupRecyclerView();
         
-        database = BrowserDatabase.getInstance(this);
-        executor = Executors.newSingleThreadExecutor();
-        bookmarks = new ArrayList<>();
-        
         loadBookmarks();
     }
     
+    @Override
+    protected void onDestroy() {
+        SharedRowPool.detach(recyclerView);
+        super.onDestroy();
+    }
+    
     private void setupToolbar() {
         Toolbar toolbar = findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
@@ -64,31 +93,91 @@ public class BookmarksActivity extends AppCompatActivity implements BookmarkAdap
     }
     
     private void setupRecyclerView() {
-        adapter = new BookmarkAdapter(bookmarks, this);
+        DateLabels dates = new DateLabels(this);
+        bookmarks = new KeysetPagedList<>(new KeysetPagedList.Source<BookmarkAdapter.Row>() {
+            @Override
+            public int count() {
+                return database.bookmarkDao().getBookmarkCount();
+            }
+            
+            @Override
+            public List<BookmarkAdapter.Row> loadPage(long beforeTimestamp, int beforeId, int limit) {
+                List<Bookmark> page = database.bookmarkDao().getBookmarksPage(beforeTimestamp, beforeId, limit);
+                return BookmarkAdapter.rows(page, dates);
+            }
+            
+            @Override
+            public long timestampOf(BookmarkAdapter.Row row) {
+                return row.bookmark.timestamp;
+            }
+            
+            @Override
+            public int idOf(BookmarkAdapter.Row row) {
+                return row.bookmark.id;
+            }
+            
+            @Override
+            public boolean contentsEqual(BookmarkAdapter.Row oldRow, BookmarkAdapter.Row newRow) {
+                return oldRow.contentsEqual(newRow);
+            }
+        }, tasks.executor(TaskScheduler.Lane.READ));
+        bookmarks.setCallback(this::updateEmptyState);
+        
+        adapter = new BookmarkAdapter(bookmarks, this, FaviconCache.getInstance(this));
+        bookmarks.setUpdateCallback(new AdapterListUpdateCallback(adapter));
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        SharedRowPool.attach(recyclerView);
         recyclerView.setAdapter(adapter);
+        searchAdapter = new SearchResultAdapter(this, FaviconCache.getInstance(this));
     }
     
     private void loadBookmarks() {
-        executor.execute(() -> {
-            List<Bookmark> loadedBookmarks = database.bookmarkDao().getAllBookmarks();
-            runOnUiThread(() -> {
-                bookmarks.clear();
-                bookmarks.addAll(loadedBookmarks);
-                adapter.notifyDataSetChanged();
-                
-                if (bookmarks.isEmpty()) {
-                    recyclerView.setVisibility(View.GONE);
-                    emptyView.setVisibility(View.VISIBLE);
-                    emptyView.setText(R.string.no_bookmarks);
-                } else {
-                    recyclerView.setVisibility(View.VISIBLE);
-                    emptyView.setVisibility(View.GONE);
-                }
-            });
+        bookmarks.refresh();
+    }
+    
+    /** Shows full-text matches for {@code query} in place of the list; empty text restores it. */
+    private void search(String query) {
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+            pendingSearch = null;
+        }
+        if (query.trim().isEmpty()) {
+            searchQuery = null;
+            searchAdapter.setResults(Collections.emptyList());
+            if (recyclerView.getAdapter() != adapter) {
+                // Swapped as compatible so the shared row pool keeps its rows.
+                recyclerView.swapAdapter(adapter, true);
+            }
+            updateEmptyState();
+            return;
+        }
+        
+        searchQuery = query;
+        pendingSearch = search.searchBookmarks(query, SEARCH_LIMIT, results -> {
+            if (!query.equals(searchQuery)) return;
+            searchAdapter.setResults(results);
+            if (recyclerView.getAdapter() != searchAdapter) {
+                recyclerView.swapAdapter(searchAdapter, true);
+            }
+            updateEmptyState();
         });
     }
     
+    private void updateEmptyState() {
+        if (searchQuery != null && searchAdapter.getItemCount() == 0) {
+            recyclerView.setVisibility(View.GONE);
+            emptyView.setVisibility(View.VISIBLE);
+            emptyView.setText(R.string.no_search_results);
+        } else if (searchQuery == null && bookmarks.isEmpty()) {
+            recyclerView.setVisibility(View.GONE);
+            emptyView.setVisibility(View.VISIBLE);
+            emptyView.setText(R.string.no_bookmarks);
+        } else {
+            recyclerView.setVisibility(View.VISIBLE);
+            emptyView.setVisibility(View.GONE);
+        }
+    }
+    
     @Override
     public void onBookmarkClick(Bookmark bookmark) {
         Intent intent = new Intent();
@@ -102,6 +191,22 @@ public class BookmarksActivity extends AppCompatActivity implements BookmarkAdap
         showBookmarkOptionsDialog(bookmark);
     }
     
+    @Override
+    public void onResultClick(SearchResult result) {
+        onBookmarkClick(toBookmark(result));
+    }
+    
+    @Override
+    public void onResultLongClick(SearchResult result) {
+        showBookmarkOptionsDialog(toBookmark(result));
+    }
+    
+    private static Bookmark toBookmark(SearchResult result) {
+        Bookmark bookmark = new Bookmark(result.title, result.url, result.timestamp);
+        bookmark.id = result.id;
+        return bookmark;
+    }
+    
     private void showBookmarkOptionsDialog(Bookmark bookmark) {
         String[] options = {"Open", "Edit", "Delete"};
         
@@ -138,20 +243,20 @@ public class BookmarksActivity extends AppCompatActivity implements BookmarkAdap
         builder.setTitle("Delete Bookmark")
                .setMessage("Are you sure you want to delete this bookmark?")
                .setPositiveButton("Delete", (dialog, which) -> {
-                   executor.execute(() -> {
-                       database.bookmarkDao().delete(bookmark);
-                       runOnUiThread(() -> {
-                           bookmarks.remove(bookmark);
-                           adapter.notifyDataSetChanged();
-                           
-                           if (bookmarks.isEmpty()) {
-                               recyclerView.setVisibility(View.GONE);
-                               emptyView.setVisibility(View.VISIBLE);
-                               emptyView.setText(R.string.no_bookmarks);
-                           }
-                           
-                           Toast.makeText(this, "Bookmark deleted", Toast.LENGTH_SHORT).show();
-                       });
+                   AutocompleteEngine.getInstance(database).removeBookmark(bookmark.url);
+                   bookmarkDao.delete(bookmark, result -> {
+                       int position = bookmarks.positionOf(bookmark.id);
+                       if (position >= 0) {
+                           bookmarks.removeAt(position);
+                       } else {
+                           bookmarks.refresh();
+                       }
+                       if (searchQuery != null) {
+                           search(searchQuery);
+                       }
+                       updateEmptyState();
+                       
+                       Toast.makeText(this, "Bookmark deleted", Toast.LENGTH_SHORT).show();
                    });
                })
                .setNegativeButton("Cancel", null)
@@ -161,6 +266,20 @@ public class BookmarksActivity extends AppCompatActivity implements BookmarkAdap
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.bookmarks_menu, menu);
+        SearchView searchView = (SearchView) menu.findItem(R.id.menu_search).getActionView();
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                searchView.clearFocus();
+                return true;
+            }
+            
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                search(newText);
+                return true;
+            }
+        });
         return true;
     }
     
@@ -182,27 +301,17 @@ public class BookmarksActivity extends AppCompatActivity implements BookmarkAdap
         builder.setTitle("Clear All Bookmarks")
                .setMessage("Are you sure you want to delete all bookmarks?")
                .setPositiveButton("Clear All", (dialog, which) -> {
-                   executor.execute(() -> {
-                       database.bookmarkDao().deleteAll();
-                       runOnUiThread(() -> {
-                           bookmarks.clear();
-                           adapter.notifyDataSetChanged();
-                           recyclerView.setVisibility(View.GONE);
-                           emptyView.setVisibility(View.VISIBLE);
-                           emptyView.setText(R.string.no_bookmarks);
-                           Toast.makeText(this, "All bookmarks cleared", Toast.LENGTH_SHORT).show();
-                       });
+                   bookmarkDao.deleteAll(result -> {
+                       AutocompleteEngine.getInstance(database).reload();
+                       bookmarks.clear();
+                       if (searchQuery != null) {
+                           search(searchQuery);
+                       }
+                       updateEmptyState();
+                       Toast.makeText(this, "All bookmarks cleared", Toast.LENGTH_SHORT).show();
                    });
                })
                .setNegativeButton("Cancel", null)
                .show();
     }
-    
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (executor != null) {
-            executor.shutdown();
-        }
-    }
 }
@@ -0,0 +1,28 @@
+package com.browser.app;
+
+import android.app.Application;
+
+import com.browser.app.blocker.ContentBlocker;
+import com.browser.app.download.DownloadEngine;
+import com.browser.app.utils.StrictModeLog;
+import com.browser.app.utils.TaskScheduler;
+
+import java.io.File;
+
+public class BrowserApplication extends Application {
+    
+    // Filter lists (EasyList syntax or hosts files) are read from files/filters/*.txt.
+    private static final String FILTERS_DIR = "filters";
+    
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        if (BuildConfig.DEBUG) {
+            StrictModeLog.install(this);
+        }
+        ContentBlocker.getInstance().loadAsync(new File(getFilesDir(), FILTERS_DIR),
+            TaskScheduler.getInstance().executor(TaskScheduler.Lane.BACKGROUND));
+        // Picks up downloads the last process left unfinished.
+        DownloadEngine.getInstance(this).resumeInterrupted();
+    }
+}
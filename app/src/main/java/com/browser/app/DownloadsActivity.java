@@ -10,22 +10,31 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.SimpleItemAnimator;
 
+import com.browser.app.adapters.DownloadAdapter;
 import com.browser.app.database.BrowserDatabase;
+import com.browser.app.database.async.AsyncDownloadDao;
 import com.browser.app.database.entities.DownloadItem;
+import com.browser.app.download.DownloadEngine;
+import com.browser.app.download.ProgressTracker;
+import com.browser.app.utils.TaskScheduler;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
-public class DownloadsActivity extends AppCompatActivity {
+public class DownloadsActivity extends AppCompatActivity
+        implements DownloadAdapter.OnDownloadClickListener, ProgressTracker.Listener {
     
     private RecyclerView recyclerView;
     private TextView emptyView;
+    private DownloadAdapter adapter;
     private BrowserDatabase database;
-    private ExecutorService executor;
-    private List<DownloadItem> downloadItems;
+    private AsyncDownloadDao downloads;
+    private DownloadEngine engine;
+    private boolean loading;
+    // Progress of rows the list did not have yet, applied again once it is reloaded.
+    private final List<ProgressTracker.Progress> missed = new ArrayList<>();
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -37,10 +46,21 @@ public class DownloadsActivity extends AppCompatActivity {
         setupRecyclerView();
         
         database = BrowserDatabase.getInstance(this);
-        executor = Executors.newSingleThreadExecutor();
-        downloadItems = new ArrayList<>();
-        
+        downloads = new AsyncDownloadDao(database.downloadDao(), TaskScheduler.getInstance().scope(this));
+        engine = DownloadEngine.getInstance(this);
+    }
+    
+    @Override
+    protected void onStart() {
+        super.onStart();
         loadDownloads();
+        engine.getProgressTracker().addListener(this);
+    }
+    
+    @Override
+    protected void onStop() {
+        engine.getProgressTracker().removeListener(this);
+        super.onStop();
     }
     
     private void setupToolbar() {
@@ -58,33 +78,56 @@ public class DownloadsActivity extends AppCompatActivity {
     }
     
     private void setupRecyclerView() {
+        adapter = new DownloadAdapter(this);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        // For simplicity, we'll just show empty state
-        recyclerView.setVisibility(View.GONE);
-        emptyView.setVisibility(View.VISIBLE);
-        emptyView.setText("Downloads will appear here");
+        recyclerView.setAdapter(adapter);
+        // Rows change several times a second while downloading; cross-fading each would flicker.
+        RecyclerView.ItemAnimator animator = recyclerView.getItemAnimator();
+        if (animator instanceof SimpleItemAnimator) {
+            ((SimpleItemAnimator) animator).setSupportsChangeAnimations(false);
+        }
     }
     
     private void loadDownloads() {
-        executor.execute(() -> {
-            List<DownloadItem> loadedDownloads = database.downloadDao().getAllDownloads();
-            runOnUiThread(() -> {
-                downloadItems.clear();
-                downloadItems.addAll(loadedDownloads);
-                
-                if (downloadItems.isEmpty()) {
-                    recyclerView.setVisibility(View.GONE);
-                    emptyView.setVisibility(View.VISIBLE);
-                    emptyView.setText("No downloads yet");
-                } else {
-                    recyclerView.setVisibility(View.VISIBLE);
-                    emptyView.setVisibility(View.GONE);
-                    // Here you would set up the adapter
-                }
-            });
+        if (loading) return;
+        loading = true;
+        downloads.getAllDownloads(loadedDownloads -> {
+            loading = false;
+            adapter.setDownloads(loadedDownloads);
+            // The read can predate the last save of a download that just finished.
+            adapter.applyProgress(missed);
+            missed.clear();
+            
+            if (loadedDownloads.isEmpty()) {
+                recyclerView.setVisibility(View.GONE);
+                emptyView.setVisibility(View.VISIBLE);
+                emptyView.setText(R.string.no_downloads);
+            } else {
+                recyclerView.setVisibility(View.VISIBLE);
+                emptyView.setVisibility(View.GONE);
+            }
         });
     }
     
+    @Override
+    public void onProgress(List<ProgressTracker.Progress> changed) {
+        // A download queued since the list was read; rows come from the database.
+        if (!adapter.applyProgress(changed)) {
+            missed.addAll(changed);
+            loadDownloads();
+        }
+    }
+    
+    @Override
+    public void onPauseDownload(DownloadItem downloadItem) {
+        engine.pause(downloadItem.id);
+    }
+    
+    @Override
+    public void onResumeDownload(DownloadItem downloadItem) {
+        engine.resume(downloadItem.id);
+    }
+    
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         if (item.getItemId() == android.R.id.home) {
@@ -94,12 +137,4 @@ public class DownloadsActivity extends AppCompatActivity {
         
         return super.onOptionsItemSelected(item);
     }
-    
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (executor != null) {
-            executor.shutdown();
-        }
-    }
 }
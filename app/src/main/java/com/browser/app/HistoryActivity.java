@@ -11,44 +11,72 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SearchView;
 import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.browser.app.adapters.HistoryAdapter;
+import com.browser.app.adapters.KeysetPagedList;
+import com.browser.app.adapters.SearchResultAdapter;
+import com.browser.app.adapters.SharedRowPool;
 import com.browser.app.database.BrowserDatabase;
+import com.browser.app.database.async.AsyncHistoryDao;
+import com.browser.app.database.async.AsyncSearch;
 import com.browser.app.database.entities.HistoryItem;
+import com.browser.app.favicon.FaviconCache;
+import com.browser.app.search.AutocompleteEngine;
+import com.browser.app.search.BrowserSearch;
+import com.browser.app.search.SearchResult;
+import com.browser.app.utils.DateLabels;
+import com.browser.app.utils.TaskScheduler;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-public class HistoryActivity extends AppCompatActivity implements HistoryAdapter.OnHistoryClickListener {
+public class HistoryActivity extends AppCompatActivity
+        implements HistoryAdapter.OnHistoryClickListener, SearchResultAdapter.OnResultClickListener {
+    
+    private static final int SEARCH_LIMIT = 100;
     
     private RecyclerView recyclerView;
     private TextView emptyView;
     private HistoryAdapter adapter;
     private BrowserDatabase database;
-    private ExecutorService executor;
-    private List<HistoryItem> historyItems;
+    private TaskScheduler.Scope tasks;
+    private AsyncHistoryDao history;
+    private KeysetPagedList<HistoryAdapter.Row> historyItems;
+    private AsyncSearch search;
+    private SearchResultAdapter searchAdapter;
+    // The text being searched for, or null while the full history is shown.
+    private String searchQuery;
+    private Future<List<SearchResult>> pendingSearch;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_history);
         
+        database = BrowserDatabase.getInstance(this);
+        tasks = TaskScheduler.getInstance().scope(this);
+        history = new AsyncHistoryDao(database.historyDao(), tasks);
+        search = new AsyncSearch(new BrowserSearch(database), tasks);
+        
         setupToolbar();
         initializeViews();
         setupRecyclerView();
         
-        database = BrowserDatabase.getInstance(this);
-        executor = Executors.newSingleThreadExecutor();
-        historyItems = new ArrayList<>();
-        
         loadHistory();
     }
     
+    @Override
+    protected void onDestroy() {
+        SharedRowPool.detach(recyclerView);
+        super.onDestroy();
+    }
+    
     private void setupToolbar() {
         Toolbar toolbar = findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
@@ -64,31 +92,91 @@ public class HistoryActivity extends AppCompatActivity implements HistoryAdapter
     }
     
     private void setupRecyclerView() {
-        adapter = new HistoryAdapter(historyItems, this);
+        DateLabels dates = new DateLabels(this);
+        historyItems = new KeysetPagedList<>(new KeysetPagedList.Source<HistoryAdapter.Row>() {
+            @Override
+            public int count() {
+                return database.historyDao().getHistoryCount();
+            }
+            
+            @Override
+            public List<HistoryAdapter.Row> loadPage(long beforeTimestamp, int beforeId, int limit) {
+                List<HistoryItem> items = database.historyDao().getHistoryPage(beforeTimestamp, beforeId, limit);
+                return HistoryAdapter.rows(items, dates, getResources());
+            }
+            
+            @Override
+            public long timestampOf(HistoryAdapter.Row row) {
+                return row.item.timestamp;
+            }
+            
+            @Override
+            public int idOf(HistoryAdapter.Row row) {
+                return row.item.id;
+            }
+            
+            @Override
+            public boolean contentsEqual(HistoryAdapter.Row oldRow, HistoryAdapter.Row newRow) {
+                return oldRow.contentsEqual(newRow);
+            }
+        }, tasks.executor(TaskScheduler.Lane.READ));
+        historyItems.setCallback(this::updateEmptyState);
+        
+        adapter = new HistoryAdapter(historyItems, this, FaviconCache.getInstance(this));
+        historyItems.setUpdateCallback(new AdapterListUpdateCallback(adapter));
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        SharedRowPool.attach(recyclerView);
         recyclerView.setAdapter(adapter);
+        searchAdapter = new SearchResultAdapter(this, FaviconCache.getInstance(this));
     }
     
     private void loadHistory() {
-        executor.execute(() -> {
-            List<HistoryItem> loadedHistory = database.historyDao().getAllHistory();
-            runOnUiThread(() -> {
-                historyItems.clear();
-                historyItems.addAll(loadedHistory);
-                adapter.notifyDataSetChanged();
-                
-                if (historyItems.isEmpty()) {
-                    recyclerView.setVisibility(View.GONE);
-                    emptyView.setVisibility(View.VISIBLE);
-                    emptyView.setText(R.string.no_history);
-                } else {
-                    recyclerView.setVisibility(View.VISIBLE);
-                    emptyView.setVisibility(View.GONE);
-                }
-            });
+        historyItems.refresh();
+    }
+    
+    /** Shows full-text matches for {@code query} in place of the list; empty text restores it. */
+    private void search(String query) {
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+            pendingSearch = null;
+        }
+        if (query.trim().isEmpty()) {
+            searchQuery = null;
+            searchAdapter.setResults(Collections.emptyList());
+            if (recyclerView.getAdapter() != adapter) {
+                // Swapped as compatible so the shared row pool keeps its rows.
+                recyclerView.swapAdapter(adapter, true);
+            }
+            updateEmptyState();
+            return;
+        }
+        
+        searchQuery = query;
+        pendingSearch = search.searchHistory(query, SEARCH_LIMIT, results -> {
+            if (!query.equals(searchQuery)) return;
+            searchAdapter.setResults(results);
+            if (recyclerView.getAdapter() != searchAdapter) {
+                recyclerView.swapAdapter(searchAdapter, true);
+            }
+            updateEmptyState();
         });
     }
     
+    private void updateEmptyState() {
+        if (searchQuery != null && searchAdapter.getItemCount() == 0) {
+            recyclerView.setVisibility(View.GONE);
+            emptyView.setVisibility(View.VISIBLE);
+            emptyView.setText(R.string.no_search_results);
+        } else if (searchQuery == null && historyItems.isEmpty()) {
+            recyclerView.setVisibility(View.GONE);
+            emptyView.setVisibility(View.VISIBLE);
+            emptyView.setText(R.string.no_history);
+        } else {
+            recyclerView.setVisibility(View.VISIBLE);
+            emptyView.setVisibility(View.GONE);
+        }
+    }
+    
     @Override
     public void onHistoryClick(HistoryItem historyItem) {
         Intent intent = new Intent();
@@ -102,6 +190,22 @@ public class HistoryActivity extends AppCompatActivity implements HistoryAdapter
         showHistoryOptionsDialog(historyItem);
     }
     
+    @Override
+    public void onResultClick(SearchResult result) {
+        onHistoryClick(toHistoryItem(result));
+    }
+    
+    @Override
+    public void onResultLongClick(SearchResult result) {
+        showHistoryOptionsDialog(toHistoryItem(result));
+    }
+    
+    private static HistoryItem toHistoryItem(SearchResult result) {
+        HistoryItem item = new HistoryItem(result.title, result.url, result.timestamp);
+        item.id = result.id;
+        return item;
+    }
+    
     private void showHistoryOptionsDialog(HistoryItem historyItem) {
         String[] options = {"Open", "Delete"};
         
@@ -125,20 +229,20 @@ public class HistoryActivity extends AppCompatActivity implements HistoryAdapter
         builder.setTitle("Delete History Item")
                .setMessage("Are you sure you want to delete this history item?")
                .setPositiveButton("Delete", (dialog, which) -> {
-                   executor.execute(() -> {
-                       database.historyDao().delete(historyItem);
-                       runOnUiThread(() -> {
-                           historyItems.remove(historyItem);
-                           adapter.notifyDataSetChanged();
-                           
-                           if (historyItems.isEmpty()) {
-                               recyclerView.setVisibility(View.GONE);
-                               emptyView.setVisibility(View.VISIBLE);
-                               emptyView.setText(R.string.no_history);
-                           }
-                           
-                           Toast.makeText(this, "History item deleted", Toast.LENGTH_SHORT).show();
-                       });
+                   AutocompleteEngine.getInstance(database).removeHistory(historyItem.url);
+                   history.delete(historyItem, result -> {
+                       int position = historyItems.positionOf(historyItem.id);
+                       if (position >= 0) {
+                           historyItems.removeAt(position);
+                       } else {
+                           historyItems.refresh();
+                       }
+                       if (searchQuery != null) {
+                           search(searchQuery);
+                       }
+                       updateEmptyState();
+                       
+                       Toast.makeText(this, "History item deleted", Toast.LENGTH_SHORT).show();
                    });
                })
                .setNegativeButton("Cancel", null)
@@ -148,6 +252,20 @@ public class HistoryActivity extends AppCompatActivity implements HistoryAdapter
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.history_menu, menu);
+        SearchView searchView = (SearchView) menu.findItem(R.id.menu_search).getActionView();
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                searchView.clearFocus();
+                return true;
+            }
+            
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                search(newText);
+                return true;
+            }
+        });
         return true;
     }
     
@@ -169,27 +287,17 @@ public class HistoryActivity extends AppCompatActivity implements HistoryAdapter
         builder.setTitle("Clear History")
                .setMessage("Are you sure you want to clear all browsing history?")
                .setPositiveButton("Clear All", (dialog, which) -> {
-                   executor.execute(() -> {
-                       database.historyDao().deleteAll();
-                       runOnUiThread(() -> {
-                           historyItems.clear();
-                           adapter.notifyDataSetChanged();
-                           recyclerView.setVisibility(View.GONE);
-                           emptyView.setVisibility(View.VISIBLE);
-                           emptyView.setText(R.string.no_history);
-                           Toast.makeText(this, "History cleared", Toast.LENGTH_SHORT).show();
-                       });
+                   history.deleteAll(result -> {
+                       AutocompleteEngine.getInstance(database).reload();
+                       historyItems.clear();
+                       if (searchQuery != null) {
+                           search(searchQuery);
+                       }
+                       updateEmptyState();
+                       Toast.makeText(this, "History cleared", Toast.LENGTH_SHORT).show();
                    });
                })
                .setNegativeButton("Cancel", null)
                .show();
     }
-    
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (executor != null) {
-            executor.shutdown();
-        }
-    }
 }
@@ -1,15 +1,13 @@
 package com.browser.app;
 
 import android.Manifest;
-import android.app.DownloadManager;
-import android.content.Context;
 import android.content.Intent;
-import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.Environment;
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.view.KeyEvent;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -22,11 +20,14 @@ import android.webkit.PermissionRequest;
 import android.webkit.URLUtil;
 import android.webkit.WebChromeClient;
 import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 import android.widget.EditText;
+import android.widget.FrameLayout;
 import android.widget.ImageButton;
+import android.widget.ListPopupWindow;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -36,24 +37,56 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.core.app.ActivityCompat;
-import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
+import com.browser.app.adapters.SuggestionAdapter;
+import com.browser.app.adapters.TabSwitcherAdapter;
+import com.browser.app.blocker.ContentBlocker;
+import com.browser.app.database.BookmarkIndex;
 import com.browser.app.database.BrowserDatabase;
+import com.browser.app.database.Frecency;
+import com.browser.app.database.HistoryWriter;
+import com.browser.app.database.async.AsyncBookmarkDao;
+import com.browser.app.database.async.AsyncSearch;
 import com.browser.app.database.entities.Bookmark;
-import com.browser.app.database.entities.HistoryItem;
+import com.browser.app.database.entities.DownloadItem;
+import com.browser.app.download.DownloadEngine;
+import com.browser.app.favicon.FaviconCache;
+import com.browser.app.network.SubresourceLoader;
+import com.browser.app.search.AutocompleteEngine;
+import com.browser.app.search.BrowserSearch;
+import com.browser.app.search.SearchResult;
+import com.browser.app.settings.Settings;
+import com.browser.app.settings.SettingsStore;
+import com.browser.app.tabs.SessionStore;
+import com.browser.app.tabs.Tab;
+import com.browser.app.tabs.TabManager;
+import com.browser.app.thumbnail.ThumbnailCache;
 import com.browser.app.utils.BrowserUtils;
+import com.browser.app.utils.TaskScheduler;
+import com.browser.app.utils.UrlParser;
 
-import java.net.URLEncoder;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Future;
 
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements TabManager.Host, SettingsStore.Listener {
 
     private static final int PERMISSION_REQUEST_CODE = 1001;
-    private static final String DEFAULT_URL = "https://www.google.com";
+    private static final int MAX_COMPLETIONS = 8;
+    private static final int MAX_SUGGESTIONS = 6;
+    private static final byte[] EMPTY_RESPONSE = new byte[0];
+    // Lets late layout and images settle before the tab is snapshotted.
+    private static final long THUMBNAIL_DELAY_MS = 1000;
     
+    // The selected tab's WebView.
     private WebView webView;
+    private FrameLayout webViewContainer;
+    private TabManager tabManager;
+    private SessionStore sessionStore;
     private EditText urlEditText;
     private ImageButton backButton, forwardButton, refreshButton, homeButton, bookmarkButton;
     private ProgressBar progressBar;
@@ -61,36 +94,72 @@ public class MainActivity extends AppCompatActivity {
     private TextView pageTitle;
     
     private BrowserDatabase database;
-    private ExecutorService executor;
+    private AsyncBookmarkDao bookmarks;
+    private FaviconCache favicons;
+    private ThumbnailCache thumbnails;
+    private SettingsStore settingsStore;
+    private HistoryWriter historyWriter;
+    private BookmarkIndex bookmarkIndex;
+    private AutocompleteEngine autocomplete;
+    private boolean applyingCompletion = false;
+    private AsyncSearch search;
+    private ListPopupWindow suggestions;
+    private SuggestionAdapter suggestionAdapter;
+    // The address bar text suggestions were last requested for, or null when hidden.
+    private String suggestionQuery;
+    private Future<List<SearchResult>> pendingSuggestions;
+    // How the next finished page load was started, for frecency.
+    private int nextVisitType = Frecency.VISIT_LINK;
     private boolean isBookmarked = false;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        settingsStore = SettingsStore.getInstance(this);
         
         initializeViews();
         setupToolbar();
-        setupWebView();
         setupControls();
+        tabManager = new TabManager(webViewContainer, this, TabManager.defaultMemoryBudget(this));
+        sessionStore = new SessionStore(this, tabManager);
         
         database = BrowserDatabase.getInstance(this);
-        executor = Executors.newFixedThreadPool(2);
+        TaskScheduler scheduler = TaskScheduler.getInstance();
+        historyWriter = new HistoryWriter(database.historyDao(), scheduler.executor(TaskScheduler.Lane.WRITE));
+        bookmarkIndex = BookmarkIndex.getInstance(database);
+        TaskScheduler.Scope tasks = scheduler.scope(this);
+        bookmarks = new AsyncBookmarkDao(database.bookmarkDao(), bookmarkIndex, tasks);
+        search = new AsyncSearch(new BrowserSearch(database), tasks);
+        bookmarkIndex.loadAsync(scheduler.executor(TaskScheduler.Lane.READ));
+        autocomplete = AutocompleteEngine.getInstance(database);
+        favicons = FaviconCache.getInstance(this);
+        thumbnails = ThumbnailCache.getInstance(this);
+        setupAutocomplete();
+        settingsStore.addListener(this);
+        
+        // Restored tabs stay hibernated; only the one selected below creates a WebView.
+        SessionStore.Session session = sessionStore.load();
+        if (session != null) {
+            tabManager.restoreTabs(session.tabs);
+        }
         
         // Check for URL intent
         Intent intent = getIntent();
         String url = intent.getDataString();
         if (url != null) {
-            loadUrl(url);
+            tabManager.newTab(url);
+        } else if (session != null && session.getSelectedTab() != null) {
+            tabManager.selectTab(session.getSelectedTab());
         } else {
-            loadUrl(DEFAULT_URL);
+            tabManager.newTab(settingsStore.get().homepage);
         }
         
         requestPermissions();
     }
     
     private void initializeViews() {
-        webView = findViewById(R.id.webView);
+        webViewContainer = findViewById(R.id.webViewContainer);
         urlEditText = findViewById(R.id.urlEditText);
         backButton = findViewById(R.id.backButton);
         forwardButton = findViewById(R.id.forwardButton);
@@ -110,11 +179,28 @@ public class MainActivity extends AppCompatActivity {
         }
     }
     
-    private void setupWebView() {
-        WebSettings webSettings = webView.getSettings();
+    @Override
+    public WebView createWebView() {
+        WebView view = new WebView(this);
+        setupWebView(view);
+        return view;
+    }
+    
+    @Override
+    public void onTabSelected(Tab tab) {
+        webView = tab.getWebView();
+        urlEditText.setText(tab.url);
+        pageTitle.setText(tab.title != null ? tab.title : getString(R.string.app_name));
+        progressBar.setVisibility(webView.getProgress() < 100 ? View.VISIBLE : View.GONE);
+        swipeRefreshLayout.setRefreshing(false);
+        updateNavigationButtons();
+        checkBookmarkStatus(tab.url);
+        sessionStore.scheduleSave();
+    }
+    
+    private void setupWebView(WebView tabView) {
+        WebSettings webSettings = tabView.getSettings();
         
-        // Enable JavaScript
-        webSettings.setJavaScriptEnabled(true);
         webSettings.setJavaScriptCanOpenWindowsAutomatically(true);
         
         // Enable DOM storage
@@ -148,21 +234,62 @@ public class MainActivity extends AppCompatActivity {
         webSettings.setAllowFileAccessFromFileURLs(true);
         webSettings.setAllowUniversalAccessFromFileURLs(true);
         
-        // Enable cookies
-        CookieManager cookieManager = CookieManager.getInstance();
-        cookieManager.setAcceptCookie(true);
-        cookieManager.setAcceptThirdPartyCookies(webView, true);
+        // JavaScript and cookies follow the settings, now and whenever they change
+        applySettings(tabView, settingsStore.get());
         
         // Set cache mode
         webSettings.setCacheMode(WebSettings.LOAD_DEFAULT);
         
-        setupWebViewClient();
-        setupWebChromeClient();
-        setupDownloadListener();
+        setupWebViewClient(tabView);
+        setupWebChromeClient(tabView);
+        setupDownloadListener(tabView);
+    }
+    
+    private void applySettings(WebView tabView, Settings settings) {
+        tabView.getSettings().setJavaScriptEnabled(settings.javaScriptEnabled);
+        CookieManager cookieManager = CookieManager.getInstance();
+        cookieManager.setAcceptCookie(settings.cookiesEnabled);
+        cookieManager.setAcceptThirdPartyCookies(tabView, settings.cookiesEnabled);
+    }
+    
+    // Hibernated tabs have no WebView; theirs is set up from the settings when it is created.
+    @Override
+    public void onSettingsChanged(Settings previous, Settings current) {
+        for (Tab tab : tabManager.getTabs()) {
+            WebView tabView = tab.getWebView();
+            if (tabView != null) {
+                applySettings(tabView, current);
+            }
+        }
+        // Scripts already running keep running; reloading is what turns them off or on.
+        if (previous.javaScriptEnabled != current.javaScriptEnabled && webView != null) {
+            webView.reload();
+        }
     }
     
-    private void setupWebViewClient() {
-        webView.setWebViewClient(new WebViewClient() {
+    // Callbacks arrive from background tabs too; only the selected tab drives the toolbar.
+    private void setupWebViewClient(WebView tabView) {
+        ContentBlocker contentBlocker = ContentBlocker.getInstance();
+        SettingsStore settings = settingsStore;
+        tabView.setWebViewClient(new WebViewClient() {
+            // Host of this tab's current page, read on WebView's network threads.
+            private volatile String documentHost;
+            
+            @Override
+            public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+                if (request.isForMainFrame()) {
+                    documentHost = request.getUrl().getHost();
+                    return null;
+                }
+                if (contentBlocker.shouldBlock(request.getUrl().toString(), documentHost)) {
+                    return new WebResourceResponse("text/plain", "utf-8", new ByteArrayInputStream(EMPTY_RESPONSE));
+                }
+                if (settings.get().networkCacheEnabled) {
+                    return SubresourceLoader.getInstance(MainActivity.this).load(request);
+                }
+                return null;
+            }
+            
             @Override
             public boolean shouldOverrideUrlLoading(WebView view, WebResourceRequest request) {
                 String url = request.getUrl().toString();
@@ -177,6 +304,16 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onPageStarted(WebView view, String url, Bitmap favicon) {
                 super.onPageStarted(view, url, favicon);
+                // Back/forward and restored pages may not pass through shouldInterceptRequest.
+                UrlParser parser = UrlParser.forThread();
+                documentHost = parser.parse(url) == UrlParser.TYPE_URL ? parser.host() : null;
+                favicons.put(url, favicon);
+                Tab tab = tabManager.findTab(view);
+                if (tab != null) {
+                    tab.url = url;
+                }
+                if (view != webView) return;
+                DownloadEngine.getInstance(MainActivity.this).setForegroundLoading(true);
                 urlEditText.setText(url);
                 progressBar.setVisibility(View.VISIBLE);
                 updateNavigationButtons();
@@ -186,28 +323,41 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onPageFinished(WebView view, String url) {
                 super.onPageFinished(view, url);
+                
+                // Save to history
+                saveToHistory(view.getTitle(), url, view == webView);
+                tabManager.onPageFinished(view);
+                sessionStore.scheduleSave();
+                
+                if (view != webView) return;
+                DownloadEngine.getInstance(MainActivity.this).setForegroundLoading(false);
                 progressBar.setVisibility(View.GONE);
                 swipeRefreshLayout.setRefreshing(false);
                 updateNavigationButtons();
-                
-                // Save to history
-                saveToHistory(view.getTitle(), url);
+                view.postDelayed(() -> {
+                    if (view == webView && url.equals(view.getUrl())) {
+                        thumbnails.capture(view, url);
+                    }
+                }, THUMBNAIL_DELAY_MS);
             }
             
             @Override
             public void onReceivedError(WebView view, int errorCode, String description, String failingUrl) {
                 super.onReceivedError(view, errorCode, description, failingUrl);
+                if (view != webView) return;
+                DownloadEngine.getInstance(MainActivity.this).setForegroundLoading(false);
                 progressBar.setVisibility(View.GONE);
                 swipeRefreshLayout.setRefreshing(false);
             }
         });
     }
     
-    private void setupWebChromeClient() {
-        webView.setWebChromeClient(new WebChromeClient() {
+    private void setupWebChromeClient(WebView tabView) {
+        tabView.setWebChromeClient(new WebChromeClient() {
             @Override
             public void onProgressChanged(WebView view, int newProgress) {
                 super.onProgressChanged(view, newProgress);
+                if (view != webView) return;
                 progressBar.setProgress(newProgress);
                 if (newProgress == 100) {
                     progressBar.setVisibility(View.GONE);
@@ -217,9 +367,20 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onReceivedTitle(WebView view, String title) {
                 super.onReceivedTitle(view, title);
+                Tab tab = tabManager.findTab(view);
+                if (tab != null) {
+                    tab.title = title;
+                }
+                if (view != webView) return;
                 pageTitle.setText(title);
             }
             
+            @Override
+            public void onReceivedIcon(WebView view, Bitmap icon) {
+                super.onReceivedIcon(view, icon);
+                favicons.put(view.getUrl(), icon);
+            }
+            
             @Override
             public void onPermissionRequest(PermissionRequest request) {
                 runOnUiThread(() -> request.grant(request.getResources()));
@@ -232,30 +393,26 @@ public class MainActivity extends AppCompatActivity {
         });
     }
     
-    private void setupDownloadListener() {
-        webView.setDownloadListener(new DownloadListener() {
+    private void setupDownloadListener(WebView tabView) {
+        tabView.setDownloadListener(new DownloadListener() {
             @Override
             public void onDownloadStart(String url, String userAgent, String contentDisposition, String mimeType, long contentLength) {
-                if (ContextCompat.checkSelfPermission(MainActivity.this, Manifest.permission.WRITE_EXTERNAL_STORAGE) 
-                    != PackageManager.PERMISSION_GRANTED) {
-                    ActivityCompat.requestPermissions(MainActivity.this, 
-                        new String[]{Manifest.permission.WRITE_EXTERNAL_STORAGE}, PERMISSION_REQUEST_CODE);
-                    return;
-                }
-                
-                DownloadManager.Request request = new DownloadManager.Request(Uri.parse(url));
-                request.setMimeType(mimeType);
-                
+                // Saved to the app's own download directory, which needs no storage permission.
                 String fileName = URLUtil.guessFileName(url, contentDisposition, mimeType);
-                request.setDestinationInExternalPublicDir(Environment.DIRECTORY_DOWNLOADS, fileName);
-                request.setNotificationVisibility(DownloadManager.Request.VISIBILITY_VISIBLE_NOTIFY_COMPLETED);
-                request.setAllowedOverMetered(true);
-                request.setAllowedOverRoaming(true);
-                
-                DownloadManager downloadManager = (DownloadManager) getSystemService(Context.DOWNLOAD_SERVICE);
-                downloadManager.enqueue(request);
-                
-                Toast.makeText(MainActivity.this, "Download started: " + fileName, Toast.LENGTH_SHORT).show();
+                DownloadEngine.getInstance(MainActivity.this).enqueue(url, fileName, mimeType, userAgent,
+                    contentLength, new DownloadEngine.EnqueueCallback() {
+                        @Override
+                        public void onQueued(DownloadItem item) {
+                            Toast.makeText(MainActivity.this, "Download started: " + item.fileName,
+                                Toast.LENGTH_SHORT).show();
+                        }
+                        
+                        @Override
+                        public void onFailed(IOException error) {
+                            Toast.makeText(MainActivity.this, "Download failed: " + error.getMessage(),
+                                Toast.LENGTH_LONG).show();
+                        }
+                    });
             }
         });
     }
@@ -265,6 +422,8 @@ public class MainActivity extends AppCompatActivity {
             if (actionId == EditorInfo.IME_ACTION_GO || 
                 (event != null && event.getKeyCode() == KeyEvent.KEYCODE_ENTER)) {
                 String url = urlEditText.getText().toString().trim();
+                nextVisitType = Frecency.VISIT_TYPED;
+                hideSuggestions();
                 loadUrl(url);
                 return true;
             }
@@ -285,26 +444,113 @@ public class MainActivity extends AppCompatActivity {
         
         refreshButton.setOnClickListener(v -> webView.reload());
         
-        homeButton.setOnClickListener(v -> loadUrl(DEFAULT_URL));
+        homeButton.setOnClickListener(v -> loadUrl(settingsStore.get().homepage));
         
         bookmarkButton.setOnClickListener(v -> toggleBookmark());
         
         swipeRefreshLayout.setOnRefreshListener(() -> webView.reload());
+        // The container itself never scrolls, so ask the selected WebView instead.
+        swipeRefreshLayout.setOnChildScrollUpCallback((parent, child) ->
+            webView != null && webView.canScrollVertically(-1));
     }
     
-    private void loadUrl(String url) {
-        if (TextUtils.isEmpty(url)) {
+    private void setupAutocomplete() {
+        suggestionAdapter = new SuggestionAdapter();
+        suggestions = new ListPopupWindow(this);
+        suggestions.setAnchorView(urlEditText);
+        suggestions.setAdapter(suggestionAdapter);
+        // Typing goes on in the address bar while the list is up.
+        suggestions.setInputMethodMode(ListPopupWindow.INPUT_METHOD_NEEDED);
+        suggestions.setOnItemClickListener((parent, view, position, id) -> {
+            String url = suggestionAdapter.getItem(position).url;
+            nextVisitType = Frecency.VISIT_TYPED;
+            hideSuggestions();
+            urlEditText.clearFocus();
+            loadUrl(url);
+        });
+        urlEditText.setOnFocusChangeListener((v, hasFocus) -> {
+            if (!hasFocus) hideSuggestions();
+        });
+        
+        urlEditText.addTextChangedListener(new TextWatcher() {
+            private boolean deleting;
+            
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                deleting = after < count;
+            }
+            
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+            
+            @Override
+            public void afterTextChanged(Editable s) {
+                if (applyingCompletion || !urlEditText.hasFocus()) return;
+                querySuggestions(s.toString());
+                if (deleting || s.length() == 0) {
+                    autocomplete.cancelQueries();
+                    return;
+                }
+                autocomplete.query(s.toString(), MAX_COMPLETIONS, MainActivity.this::showInlineCompletion);
+            }
+        });
+    }
+    
+    /** Full-text matches from history and bookmarks, listed under the address bar. */
+    private void querySuggestions(String text) {
+        if (pendingSuggestions != null) {
+            pendingSuggestions.cancel(false);
+        }
+        if (text.trim().isEmpty()) {
+            hideSuggestions();
             return;
         }
         
-        // If not a URL, search with Google
-        if (!url.startsWith("http://") && !url.startsWith("https://") && !url.contains(".")) {
-            url = "https://www.google.com/search?q=" + URLEncoder.encode(url);
-        } else if (!url.startsWith("http://") && !url.startsWith("https://")) {
-            url = "https://" + url;
+        suggestionQuery = text;
+        pendingSuggestions = search.search(text, MAX_SUGGESTIONS, results -> {
+            if (!text.equals(suggestionQuery) || !urlEditText.hasFocus()) return;
+            if (results.isEmpty()) {
+                suggestions.dismiss();
+                return;
+            }
+            suggestionAdapter.setResults(results);
+            suggestions.show();
+        });
+    }
+    
+    private void hideSuggestions() {
+        if (pendingSuggestions != null) {
+            pendingSuggestions.cancel(false);
+            pendingSuggestions = null;
+        }
+        suggestionQuery = null;
+        if (suggestions.isShowing()) {
+            suggestions.dismiss();
+        }
+    }
+    
+    private void showInlineCompletion(String query, List<AutocompleteEngine.Completion> completions) {
+        String completion = AutocompleteEngine.inlineCompletion(completions);
+        Editable text = urlEditText.getText();
+        // Skip if the user has moved on since this query was issued.
+        if (completion == null || !TextUtils.equals(text, query)
+                || urlEditText.getSelectionEnd() != query.length()) {
+            return;
+        }
+        
+        applyingCompletion = true;
+        text.append(completion);
+        urlEditText.setSelection(query.length(), text.length());
+        applyingCompletion = false;
+    }
+    
+    private void loadUrl(String url) {
+        if (TextUtils.isEmpty(url)) {
+            return;
         }
         
-        webView.loadUrl(url);
+        webView.loadUrl(BrowserUtils.formatUrl(url));
     }
     
     private void updateNavigationButtons() {
@@ -316,14 +562,20 @@ public class MainActivity extends AppCompatActivity {
     }
     
     private void checkBookmarkStatus(String url) {
-        executor.execute(() -> {
-            Bookmark bookmark = database.bookmarkDao().getBookmarkByUrl(url);
-            runOnUiThread(() -> {
-                isBookmarked = bookmark != null;
-                bookmarkButton.setImageResource(isBookmarked ? 
-                    R.drawable.ic_bookmark_filled : R.drawable.ic_bookmark_border);
-            });
-        });
+        if (bookmarkIndex.isLoaded()) {
+            setBookmarked(bookmarkIndex.contains(url));
+            return;
+        }
+        
+        // Index still loading right after launch: ask the database this once.
+        bookmarks.getBookmarkByUrl(url, bookmark -> setBookmarked(bookmark != null));
+    }
+    
+    private void setBookmarked(boolean bookmarked) {
+        if (bookmarked == isBookmarked) return;
+        isBookmarked = bookmarked;
+        bookmarkButton.setImageResource(isBookmarked ? 
+            R.drawable.ic_bookmark_filled : R.drawable.ic_bookmark_border);
     }
     
     private void toggleBookmark() {
@@ -332,40 +584,37 @@ public class MainActivity extends AppCompatActivity {
         
         if (url == null) return;
         
-        executor.execute(() -> {
-            if (isBookmarked) {
-                database.bookmarkDao().deleteByUrl(url);
-                runOnUiThread(() -> {
-                    isBookmarked = false;
-                    bookmarkButton.setImageResource(R.drawable.ic_bookmark_border);
-                    Toast.makeText(this, "Bookmark removed", Toast.LENGTH_SHORT).show();
-                });
-            } else {
-                Bookmark bookmark = new Bookmark();
-                bookmark.title = title != null ? title : url;
-                bookmark.url = url;
-                bookmark.timestamp = System.currentTimeMillis();
-                database.bookmarkDao().insert(bookmark);
-                
-                runOnUiThread(() -> {
-                    isBookmarked = true;
-                    bookmarkButton.setImageResource(R.drawable.ic_bookmark_filled);
-                    Toast.makeText(this, "Bookmark added", Toast.LENGTH_SHORT).show();
-                });
-            }
-        });
+        if (isBookmarked) {
+            autocomplete.removeBookmark(url);
+            bookmarks.deleteByUrl(url, result -> {
+                setBookmarked(false);
+                Toast.makeText(this, "Bookmark removed", Toast.LENGTH_SHORT).show();
+            });
+        } else {
+            Bookmark bookmark = new Bookmark();
+            bookmark.title = title != null ? title : url;
+            bookmark.url = url;
+            bookmark.timestamp = System.currentTimeMillis();
+            autocomplete.recordBookmark(url, bookmark.title);
+            bookmarks.insert(bookmark, result -> {
+                setBookmarked(true);
+                Toast.makeText(this, "Bookmark added", Toast.LENGTH_SHORT).show();
+            });
+        }
     }
     
-    private void saveToHistory(String title, String url) {
+    private void saveToHistory(String title, String url, boolean selectedTab) {
         if (url == null || url.equals("about:blank")) return;
-        
-        executor.execute(() -> {
-            HistoryItem historyItem = new HistoryItem();
-            historyItem.title = title != null ? title : url;
-            historyItem.url = url;
-            historyItem.timestamp = System.currentTimeMillis();
-            database.historyDao().insert(historyItem);
-        });
+        int visitType = Frecency.VISIT_LINK;
+        if (selectedTab) {
+            visitType = nextVisitType;
+            nextVisitType = Frecency.VISIT_LINK;
+        }
+        if (visitType == Frecency.VISIT_LINK && bookmarkIndex.isLoaded() && bookmarkIndex.contains(url)) {
+            visitType = Frecency.VISIT_BOOKMARK;
+        }
+        historyWriter.recordVisit(title, url, visitType);
+        autocomplete.recordVisit(url, title, visitType);
     }
     
     private void requestPermissions() {
@@ -402,8 +651,10 @@ public class MainActivity extends AppCompatActivity {
             startActivity(new Intent(this, SettingsActivity.class));
             return true;
         } else if (id == R.id.menu_new_tab) {
-            // For simplicity, just load home page
-            loadUrl(DEFAULT_URL);
+            tabManager.newTab(settingsStore.get().homepage);
+            return true;
+        } else if (id == R.id.menu_tabs) {
+            showTabsDialog();
             return true;
         } else if (id == R.id.menu_share) {
             shareCurrentPage();
@@ -429,6 +680,49 @@ public class MainActivity extends AppCompatActivity {
         }
     }
     
+    private void showTabsDialog() {
+        // Snapshot the page as it is now, so its card does not show where it was at load.
+        Tab current = tabManager.getCurrentTab();
+        if (current != null && webView != null) {
+            thumbnails.capture(webView, webView.getUrl());
+        }
+        
+        List<Tab> tabs = tabManager.getTabs();
+        RecyclerView grid = new RecyclerView(this);
+        grid.setLayoutManager(new GridLayoutManager(this, 2));
+        grid.setItemViewCacheSize(tabs.size());
+        
+        AlertDialog[] dialog = new AlertDialog[1];
+        TabSwitcherAdapter[] adapter = new TabSwitcherAdapter[1];
+        adapter[0] = new TabSwitcherAdapter(tabs, current, new TabSwitcherAdapter.OnTabClickListener() {
+            @Override
+            public void onTabClick(Tab tab) {
+                tabManager.selectTab(tab);
+                dialog[0].dismiss();
+            }
+            
+            @Override
+            public void onTabClose(Tab tab) {
+                int position = tabs.indexOf(tab);
+                if (!tabManager.closeTab(tab)) {
+                    tabManager.newTab(settingsStore.get().homepage);
+                    dialog[0].dismiss();
+                } else if (position >= 0) {
+                    adapter[0].onTabRemoved(position, tabManager.getCurrentTab());
+                }
+                sessionStore.scheduleSave();
+            }
+        }, thumbnails);
+        grid.setAdapter(adapter[0]);
+        
+        dialog[0] = new AlertDialog.Builder(this)
+            .setTitle(R.string.tabs)
+            .setView(grid)
+            .setNeutralButton(R.string.new_tab, (d, which) -> tabManager.newTab(settingsStore.get().homepage))
+            .setNegativeButton(R.string.cancel, null)
+            .show();
+    }
+    
     private void showFindInPageDialog() {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Find in page");
@@ -456,11 +750,40 @@ public class MainActivity extends AppCompatActivity {
         }
     }
     
+    @Override
+    protected void onResume() {
+        super.onResume();
+        tabManager.onResume();
+    }
+    
+    @Override
+    protected void onPause() {
+        super.onPause();
+        tabManager.onPause();
+        DownloadEngine.getInstance(this).setForegroundLoading(false);
+        sessionStore.saveNow();
+        historyWriter.flush();
+    }
+    
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        tabManager.onTrimMemory(level);
+        thumbnails.onTrimMemory(level);
+    }
+    
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (executor != null) {
-            executor.shutdown();
+        if (settingsStore != null) {
+            settingsStore.removeListener(this);
+        }
+        if (tabManager != null) {
+            tabManager.destroy();
+        }
+        // Writes outlive the activity on the shared scheduler, so this batch is not lost.
+        if (historyWriter != null) {
+            historyWriter.flush();
         }
     }
 }
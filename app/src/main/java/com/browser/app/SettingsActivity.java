@@ -2,24 +2,34 @@ package com.browser.app;
 
 import android.os.Bundle;
 import android.view.MenuItem;
+import android.view.View;
 import android.widget.Switch;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
+import com.browser.app.network.SubresourceLoader;
+import com.browser.app.settings.Settings;
+import com.browser.app.settings.SettingsStore;
 import com.browser.app.utils.BrowserUtils;
 
 public class SettingsActivity extends AppCompatActivity {
     
     private Switch javascriptSwitch;
     private Switch cookiesSwitch;
+    private Switch networkCacheSwitch;
+    private Switch unmeteredDownloadsSwitch;
+    private TextView networkCacheStats;
+    private SettingsStore settingsStore;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_settings);
+        settingsStore = SettingsStore.getInstance(this);
         
         setupToolbar();
         initializeViews();
@@ -39,25 +49,52 @@ public class SettingsActivity extends AppCompatActivity {
     private void initializeViews() {
         javascriptSwitch = findViewById(R.id.javascriptSwitch);
         cookiesSwitch = findViewById(R.id.cookiesSwitch);
+        networkCacheSwitch = findViewById(R.id.networkCacheSwitch);
+        unmeteredDownloadsSwitch = findViewById(R.id.unmeteredDownloadsSwitch);
+        networkCacheStats = findViewById(R.id.networkCacheStats);
     }
     
     private void loadSettings() {
-        javascriptSwitch.setChecked(BrowserUtils.isJavaScriptEnabled(this));
-        cookiesSwitch.setChecked(BrowserUtils.areCookiesEnabled(this));
+        Settings settings = settingsStore.get();
+        javascriptSwitch.setChecked(settings.javaScriptEnabled);
+        cookiesSwitch.setChecked(settings.cookiesEnabled);
+        networkCacheSwitch.setChecked(settings.networkCacheEnabled);
+        unmeteredDownloadsSwitch.setChecked(settings.largeDownloadsUnmeteredOnly);
+        updateNetworkCacheStats();
+    }
+    
+    private void updateNetworkCacheStats() {
+        if (!settingsStore.get().networkCacheEnabled) {
+            networkCacheStats.setVisibility(View.GONE);
+            return;
+        }
+        SubresourceLoader.Stats stats = SubresourceLoader.getInstance(this).getStats();
+        networkCacheStats.setText(getString(R.string.network_cache_stats, stats.hits, stats.revalidated,
+            stats.misses, BrowserUtils.formatFileSize(stats.bytesSaved)));
+        networkCacheStats.setVisibility(View.VISIBLE);
     }
     
     private void setupListeners() {
         javascriptSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            BrowserUtils.setJavaScriptEnabled(this, isChecked);
+            settingsStore.update(settingsStore.get().withJavaScriptEnabled(isChecked));
             Toast.makeText(this, isChecked ? "JavaScript enabled" : "JavaScript disabled", 
                 Toast.LENGTH_SHORT).show();
         });
         
         cookiesSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            BrowserUtils.setCookiesEnabled(this, isChecked);
+            settingsStore.update(settingsStore.get().withCookiesEnabled(isChecked));
             Toast.makeText(this, isChecked ? "Cookies enabled" : "Cookies disabled", 
                 Toast.LENGTH_SHORT).show();
         });
+        
+        networkCacheSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            settingsStore.update(settingsStore.get().withNetworkCacheEnabled(isChecked));
+            updateNetworkCacheStats();
+        });
+        
+        unmeteredDownloadsSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            settingsStore.update(settingsStore.get().withLargeDownloadsUnmeteredOnly(isChecked));
+        });
     }
     
     @Override
@@ -1,65 +1,128 @@
 package com.browser.app.adapters;
 
-import android.view.LayoutInflater;
+import android.text.TextUtils;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.browser.app.R;
 import com.browser.app.database.entities.Bookmark;
-import com.browser.app.utils.BrowserUtils;
+import com.browser.app.favicon.FaviconCache;
+import com.browser.app.utils.DateLabels;
 
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Bookmark rows. Like {@link HistoryAdapter}, display strings are built on the loader
+ * thread with the page that holds them.
+ */
 public class BookmarkAdapter extends RecyclerView.Adapter<BookmarkAdapter.BookmarkViewHolder> {
     
-    private List<Bookmark> bookmarks;
+    private KeysetPagedList<Row> bookmarks;
     private OnBookmarkClickListener listener;
+    private final FaviconCache favicons;
     
     public interface OnBookmarkClickListener {
         void onBookmarkClick(Bookmark bookmark);
         void onBookmarkLongClick(Bookmark bookmark);
     }
     
-    public BookmarkAdapter(List<Bookmark> bookmarks, OnBookmarkClickListener listener) {
+    /** A bookmark with its display strings. */
+    public static final class Row {
+        public final Bookmark bookmark;
+        final String date;
+        
+        Row(Bookmark bookmark, String date) {
+            this.bookmark = bookmark;
+            this.date = date;
+        }
+        
+        public boolean contentsEqual(Row other) {
+            return bookmark.timestamp == other.bookmark.timestamp
+                && TextUtils.equals(bookmark.title, other.bookmark.title)
+                && TextUtils.equals(bookmark.url, other.bookmark.url)
+                && date.equals(other.date);
+        }
+    }
+    
+    /** Wraps a freshly loaded page of bookmarks in rows. */
+    @WorkerThread
+    public static List<Row> rows(List<Bookmark> bookmarks, DateLabels dates) {
+        List<Row> rows = new ArrayList<>(bookmarks.size());
+        for (Bookmark bookmark : bookmarks) {
+            rows.add(new Row(bookmark, dates.format(bookmark.timestamp)));
+        }
+        return rows;
+    }
+    
+    public BookmarkAdapter(KeysetPagedList<Row> bookmarks, OnBookmarkClickListener listener, FaviconCache favicons) {
         this.bookmarks = bookmarks;
         this.listener = listener;
+        this.favicons = favicons;
+        setHasStableIds(true);
+    }
+    
+    @Override
+    public int getItemViewType(int position) {
+        return R.layout.item_bookmark;
     }
     
     @NonNull
     @Override
     public BookmarkViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_bookmark, parent, false);
-        return new BookmarkViewHolder(view);
+        return new BookmarkViewHolder(SharedRowPool.inflate(parent, R.layout.item_bookmark));
     }
     
     @Override
     public void onBindViewHolder(@NonNull BookmarkViewHolder holder, int position) {
-        Bookmark bookmark = bookmarks.get(position);
+        holder.adapter = this;
+        Row row = bookmarks.get(position);
+        if (row == null) {
+            bindPlaceholder(holder);
+            return;
+        }
         
+        Bookmark bookmark = row.bookmark;
         holder.titleTextView.setText(bookmark.title);
         holder.urlTextView.setText(bookmark.url);
-        holder.dateTextView.setText(BrowserUtils.formatDate(bookmark.timestamp));
-        
-        // Set a default favicon
-        holder.faviconImageView.setImageResource(R.drawable.ic_bookmark_filled);
+        holder.dateTextView.setText(row.date);
         
-        holder.itemView.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onBookmarkClick(bookmark);
-            }
-        });
-        
-        holder.itemView.setOnLongClickListener(v -> {
-            if (listener != null) {
-                listener.onBookmarkLongClick(bookmark);
-            }
-            return true;
-        });
+        favicons.bind(holder.faviconImageView, bookmark.url, R.drawable.ic_bookmark_filled);
+    }
+    
+    // Row whose page is still loading; it is rebound once the page arrives.
+    private void bindPlaceholder(BookmarkViewHolder holder) {
+        holder.titleTextView.setText(null);
+        holder.urlTextView.setText(null);
+        holder.dateTextView.setText(null);
+        favicons.bind(holder.faviconImageView, null, R.drawable.ic_bookmark_filled);
+    }
+    
+    @Override
+    public void onViewRecycled(@NonNull BookmarkViewHolder holder) {
+        // Pooled rows may next serve another screen; drop the link to this one.
+        holder.adapter = null;
+    }
+    
+    private void onRowClick(int position, boolean longClick) {
+        Row row = position != RecyclerView.NO_POSITION ? bookmarks.peek(position) : null;
+        if (row == null || listener == null) return;
+        if (longClick) {
+            listener.onBookmarkLongClick(row.bookmark);
+        } else {
+            listener.onBookmarkClick(row.bookmark);
+        }
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        return bookmarks.itemId(position);
     }
     
     @Override
@@ -67,11 +130,13 @@ public class BookmarkAdapter extends RecyclerView.Adapter<BookmarkAdapter.Bookma
         return bookmarks.size();
     }
     
-    static class BookmarkViewHolder extends RecyclerView.ViewHolder {
+    static class BookmarkViewHolder extends RecyclerView.ViewHolder
+            implements View.OnClickListener, View.OnLongClickListener {
         ImageView faviconImageView;
         TextView titleTextView;
         TextView urlTextView;
         TextView dateTextView;
+        BookmarkAdapter adapter;
         
         BookmarkViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -79,6 +144,23 @@ public class BookmarkAdapter extends RecyclerView.Adapter<BookmarkAdapter.Bookma
             titleTextView = itemView.findViewById(R.id.titleTextView);
             urlTextView = itemView.findViewById(R.id.urlTextView);
             dateTextView = itemView.findViewById(R.id.dateTextView);
+            itemView.setOnClickListener(this);
+            itemView.setOnLongClickListener(this);
+        }
+        
+        @Override
+        public void onClick(View v) {
+            if (adapter != null) {
+                adapter.onRowClick(getBindingAdapterPosition(), false);
+            }
+        }
+        
+        @Override
+        public boolean onLongClick(View v) {
+            if (adapter != null) {
+                adapter.onRowClick(getBindingAdapterPosition(), true);
+            }
+            return true;
         }
     }
 }
@@ -0,0 +1,247 @@
+package com.browser.app.adapters;
+
+import android.content.Context;
+import android.util.SparseIntArray;
+import android.util.SparseLongArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.browser.app.R;
+import com.browser.app.database.entities.DownloadItem;
+import com.browser.app.download.ProgressTracker;
+import com.browser.app.utils.BrowserUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Downloads with live progress. Progress updates rebind only the bar and status line of
+ * the rows they touch, through {@link #PAYLOAD_PROGRESS}, instead of whole rows.
+ */
+public class DownloadAdapter extends RecyclerView.Adapter<DownloadAdapter.DownloadViewHolder> {
+    
+    private static final Object PAYLOAD_PROGRESS = new Object();
+    private static final int PROGRESS_MAX = 1000;
+    
+    private final List<DownloadItem> downloads = new ArrayList<>();
+    // Row id to position, and the latest speed of running rows.
+    private final SparseIntArray positions = new SparseIntArray();
+    private final SparseLongArray speeds = new SparseLongArray();
+    private final OnDownloadClickListener listener;
+    
+    public interface OnDownloadClickListener {
+        void onPauseDownload(DownloadItem downloadItem);
+        void onResumeDownload(DownloadItem downloadItem);
+    }
+    
+    public DownloadAdapter(OnDownloadClickListener listener) {
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+    
+    /** Replaces the list, animating only the rows that were added, removed or changed. */
+    public void setDownloads(List<DownloadItem> items) {
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DownloadDiff(downloads, items));
+        downloads.clear();
+        downloads.addAll(items);
+        positions.clear();
+        for (int i = 0; i < downloads.size(); i++) {
+            positions.put(downloads.get(i).id, i);
+        }
+        diff.dispatchUpdatesTo(this);
+    }
+    
+    /**
+     * Updates the rows in {@code changed} in place. Returns false if some of them are not in
+     * the list yet, in which case the list should be reloaded.
+     */
+    public boolean applyProgress(List<ProgressTracker.Progress> changed) {
+        boolean allKnown = true;
+        for (int i = 0; i < changed.size(); i++) {
+            ProgressTracker.Progress progress = changed.get(i);
+            int position = positions.get(progress.id, -1);
+            if (position < 0) {
+                allKnown = false;
+                continue;
+            }
+            DownloadItem item = downloads.get(position);
+            item.status = progress.status;
+            item.downloadedBytes = progress.downloadedBytes;
+            item.isCompleted = progress.status == DownloadItem.STATUS_COMPLETED;
+            if (progress.totalBytes > 0) {
+                item.fileSize = progress.totalBytes;
+            }
+            speeds.put(progress.id, progress.bytesPerSecond);
+            notifyItemChanged(position, PAYLOAD_PROGRESS);
+        }
+        return allKnown;
+    }
+    
+    @NonNull
+    @Override
+    public DownloadViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_download, parent, false);
+        DownloadViewHolder holder = new DownloadViewHolder(view);
+        holder.actionButton.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) return;
+            DownloadItem item = downloads.get(position);
+            if (isActive(item.status)) {
+                listener.onPauseDownload(item);
+            } else {
+                listener.onResumeDownload(item);
+            }
+        });
+        return holder;
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull DownloadViewHolder holder, int position) {
+        DownloadItem item = downloads.get(position);
+        holder.fileNameTextView.setText(item.fileName);
+        bindProgress(holder, item);
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull DownloadViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            bindProgress(holder, downloads.get(position));
+        }
+    }
+    
+    private void bindProgress(DownloadViewHolder holder, DownloadItem item) {
+        Context context = holder.itemView.getContext();
+        boolean completed = item.isCompleted || item.status == DownloadItem.STATUS_COMPLETED;
+        boolean sizeKnown = item.fileSize > 0;
+        
+        holder.progressBar.setVisibility(completed ? View.GONE : View.VISIBLE);
+        holder.progressBar.setIndeterminate(!sizeKnown && item.status == DownloadItem.STATUS_RUNNING);
+        holder.progressBar.setProgress(sizeKnown
+            ? (int) (Math.min(item.downloadedBytes, item.fileSize) * PROGRESS_MAX / item.fileSize)
+            : 0);
+        
+        String size = sizeKnown
+            ? context.getString(R.string.download_progress, BrowserUtils.formatFileSize(item.downloadedBytes),
+                BrowserUtils.formatFileSize(item.fileSize))
+            : BrowserUtils.formatFileSize(item.downloadedBytes);
+        if (completed) {
+            holder.statusTextView.setText(BrowserUtils.formatFileSize(sizeKnown ? item.fileSize : item.downloadedBytes));
+        } else if (item.status == DownloadItem.STATUS_RUNNING) {
+            long speed = speeds.get(item.id);
+            holder.statusTextView.setText(speed > 0
+                ? context.getString(R.string.download_speed, size, BrowserUtils.formatFileSize(speed))
+                : size);
+        } else {
+            holder.statusTextView.setText(context.getString(R.string.download_status,
+                context.getString(statusLabel(item.status)), size));
+        }
+        
+        holder.actionButton.setVisibility(completed ? View.GONE : View.VISIBLE);
+        holder.actionButton.setText(isActive(item.status) ? R.string.pause : R.string.resume);
+    }
+    
+    // Downloads that will go on by themselves; the button pauses them.
+    private static boolean isActive(int status) {
+        return status == DownloadItem.STATUS_RUNNING || status == DownloadItem.STATUS_QUEUED
+            || status == DownloadItem.STATUS_WAITING_FOR_UNMETERED;
+    }
+    
+    private static int statusLabel(int status) {
+        switch (status) {
+            case DownloadItem.STATUS_QUEUED:
+                return R.string.download_queued;
+            case DownloadItem.STATUS_PAUSED:
+                return R.string.download_paused;
+            case DownloadItem.STATUS_WAITING_FOR_NETWORK:
+                return R.string.download_waiting;
+            case DownloadItem.STATUS_CORRUPTED:
+                return R.string.download_corrupted;
+            case DownloadItem.STATUS_WAITING_FOR_UNMETERED:
+                return R.string.download_waiting_unmetered;
+            default:
+                return R.string.download_failed;
+        }
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        return downloads.get(position).id;
+    }
+    
+    @Override
+    public int getItemCount() {
+        return downloads.size();
+    }
+    
+    // Rows whose progress alone changed get the progress payload, like live updates.
+    private static class DownloadDiff extends DiffUtil.Callback {
+        private final List<DownloadItem> oldItems;
+        private final List<DownloadItem> newItems;
+        
+        DownloadDiff(List<DownloadItem> oldItems, List<DownloadItem> newItems) {
+            this.oldItems = oldItems;
+            this.newItems = newItems;
+        }
+        
+        @Override
+        public int getOldListSize() {
+            return oldItems.size();
+        }
+        
+        @Override
+        public int getNewListSize() {
+            return newItems.size();
+        }
+        
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            return oldItems.get(oldPosition).id == newItems.get(newPosition).id;
+        }
+        
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            DownloadItem oldItem = oldItems.get(oldPosition);
+            DownloadItem newItem = newItems.get(newPosition);
+            return sameProgress(oldItem, newItem) && oldItem.fileName.equals(newItem.fileName);
+        }
+        
+        @Nullable
+        @Override
+        public Object getChangePayload(int oldPosition, int newPosition) {
+            DownloadItem oldItem = oldItems.get(oldPosition);
+            DownloadItem newItem = newItems.get(newPosition);
+            return oldItem.fileName.equals(newItem.fileName) ? PAYLOAD_PROGRESS : null;
+        }
+        
+        private static boolean sameProgress(DownloadItem a, DownloadItem b) {
+            return a.status == b.status && a.isCompleted == b.isCompleted
+                && a.downloadedBytes == b.downloadedBytes && a.fileSize == b.fileSize;
+        }
+    }
+    
+    static class DownloadViewHolder extends RecyclerView.ViewHolder {
+        TextView fileNameTextView;
+        ProgressBar progressBar;
+        TextView statusTextView;
+        Button actionButton;
+        
+        DownloadViewHolder(@NonNull View itemView) {
+            super(itemView);
+            fileNameTextView = itemView.findViewById(R.id.fileNameTextView);
+            progressBar = itemView.findViewById(R.id.progressBar);
+            statusTextView = itemView.findViewById(R.id.statusTextView);
+            actionButton = itemView.findViewById(R.id.actionButton);
+        }
+    }
+}
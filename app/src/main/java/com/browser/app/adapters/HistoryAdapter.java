@@ -1,73 +1,146 @@
 package com.browser.app.adapters;
 
-import android.view.LayoutInflater;
+import android.content.res.Resources;
+import android.text.TextUtils;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.browser.app.R;
 import com.browser.app.database.entities.HistoryItem;
-import com.browser.app.utils.BrowserUtils;
+import com.browser.app.favicon.FaviconCache;
+import com.browser.app.utils.DateLabels;
 
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * History rows. Display strings are built with the page that holds them, on the loader
+ * thread, so binding only hands prepared text to the views.
+ */
 public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.HistoryViewHolder> {
     
-    private List<HistoryItem> historyItems;
+    private KeysetPagedList<Row> historyItems;
     private OnHistoryClickListener listener;
+    private final FaviconCache favicons;
     
     public interface OnHistoryClickListener {
         void onHistoryClick(HistoryItem historyItem);
         void onHistoryLongClick(HistoryItem historyItem);
     }
     
-    public HistoryAdapter(List<HistoryItem> historyItems, OnHistoryClickListener listener) {
+    /** A history entry with its display strings. */
+    public static final class Row {
+        public final HistoryItem item;
+        final String date;
+        // Null for a single visit.
+        @Nullable
+        final String visits;
+        
+        Row(HistoryItem item, String date, @Nullable String visits) {
+            this.item = item;
+            this.date = date;
+            this.visits = visits;
+        }
+        
+        public boolean contentsEqual(Row other) {
+            return item.timestamp == other.item.timestamp
+                && item.visitCount == other.item.visitCount
+                && TextUtils.equals(item.title, other.item.title)
+                && TextUtils.equals(item.url, other.item.url)
+                && date.equals(other.date);
+        }
+    }
+    
+    /** Wraps a freshly loaded page of history in rows. */
+    @WorkerThread
+    public static List<Row> rows(List<HistoryItem> items, DateLabels dates, Resources resources) {
+        List<Row> rows = new ArrayList<>(items.size());
+        for (HistoryItem item : items) {
+            String visits = item.visitCount > 1
+                ? resources.getQuantityString(R.plurals.history_visit_count, item.visitCount, item.visitCount)
+                : null;
+            rows.add(new Row(item, dates.format(item.timestamp), visits));
+        }
+        return rows;
+    }
+    
+    public HistoryAdapter(KeysetPagedList<Row> historyItems, OnHistoryClickListener listener, FaviconCache favicons) {
         this.historyItems = historyItems;
         this.listener = listener;
+        this.favicons = favicons;
+        setHasStableIds(true);
+    }
+    
+    @Override
+    public int getItemViewType(int position) {
+        return R.layout.item_history;
     }
     
     @NonNull
     @Override
     public HistoryViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_history, parent, false);
-        return new HistoryViewHolder(view);
+        return new HistoryViewHolder(SharedRowPool.inflate(parent, R.layout.item_history));
     }
     
     @Override
     public void onBindViewHolder(@NonNull HistoryViewHolder holder, int position) {
-        HistoryItem historyItem = historyItems.get(position);
+        holder.adapter = this;
+        Row row = historyItems.get(position);
+        if (row == null) {
+            bindPlaceholder(holder);
+            return;
+        }
         
+        HistoryItem historyItem = row.item;
         holder.titleTextView.setText(historyItem.title);
         holder.urlTextView.setText(historyItem.url);
-        holder.dateTextView.setText(BrowserUtils.formatDate(historyItem.timestamp));
+        holder.dateTextView.setText(row.date);
         
-        // Set visit count if greater than 1
-        if (historyItem.visitCount > 1) {
-            holder.visitCountTextView.setText("Visited " + historyItem.visitCount + " times");
+        if (row.visits != null) {
+            holder.visitCountTextView.setText(row.visits);
             holder.visitCountTextView.setVisibility(View.VISIBLE);
         } else {
             holder.visitCountTextView.setVisibility(View.GONE);
         }
         
-        // Set a default favicon
-        holder.faviconImageView.setImageResource(R.drawable.ic_history);
-        
-        holder.itemView.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onHistoryClick(historyItem);
-            }
-        });
-        
-        holder.itemView.setOnLongClickListener(v -> {
-            if (listener != null) {
-                listener.onHistoryLongClick(historyItem);
-            }
-            return true;
-        });
+        favicons.bind(holder.faviconImageView, historyItem.url, R.drawable.ic_history);
+    }
+    
+    // Row whose page is still loading; it is rebound once the page arrives.
+    private void bindPlaceholder(HistoryViewHolder holder) {
+        holder.titleTextView.setText(null);
+        holder.urlTextView.setText(null);
+        holder.dateTextView.setText(null);
+        holder.visitCountTextView.setVisibility(View.GONE);
+        favicons.bind(holder.faviconImageView, null, R.drawable.ic_history);
+    }
+    
+    @Override
+    public void onViewRecycled(@NonNull HistoryViewHolder holder) {
+        // Pooled rows may next serve another screen; drop the link to this one.
+        holder.adapter = null;
+    }
+    
+    private void onRowClick(int position, boolean longClick) {
+        Row row = position != RecyclerView.NO_POSITION ? historyItems.peek(position) : null;
+        if (row == null || listener == null) return;
+        if (longClick) {
+            listener.onHistoryLongClick(row.item);
+        } else {
+            listener.onHistoryClick(row.item);
+        }
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        return historyItems.itemId(position);
     }
     
     @Override
@@ -75,12 +148,14 @@ public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.HistoryV
         return historyItems.size();
     }
     
-    static class HistoryViewHolder extends RecyclerView.ViewHolder {
+    static class HistoryViewHolder extends RecyclerView.ViewHolder
+            implements View.OnClickListener, View.OnLongClickListener {
         ImageView faviconImageView;
         TextView titleTextView;
         TextView urlTextView;
         TextView dateTextView;
         TextView visitCountTextView;
+        HistoryAdapter adapter;
         
         HistoryViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -89,6 +164,23 @@ public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.HistoryV
             urlTextView = itemView.findViewById(R.id.urlTextView);
             dateTextView = itemView.findViewById(R.id.dateTextView);
             visitCountTextView = itemView.findViewById(R.id.visitCountTextView);
+            itemView.setOnClickListener(this);
+            itemView.setOnLongClickListener(this);
+        }
+        
+        @Override
+        public void onClick(View v) {
+            if (adapter != null) {
+                adapter.onRowClick(getBindingAdapterPosition(), false);
+            }
+        }
+        
+        @Override
+        public boolean onLongClick(View v) {
+            if (adapter != null) {
+                adapter.onRowClick(getBindingAdapterPosition(), true);
+            }
+            return true;
         }
     }
 }
@@ -0,0 +1,421 @@
+package com.browser.app.adapters;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Sparse, page-windowed view over a table ordered by {@code timestamp DESC, id DESC}.
+ * Pages are fetched with keyset predicates (the key of the last row of the previous page)
+ * so loading page N never scans the N-1 pages before it. Only the pages around the most
+ * recently bound position stay resident; everything else is dropped and re-fetched on demand.
+ *
+ * Row changes are reported as fine-grained events through a {@link ListUpdateCallback};
+ * when a resident page is re-fetched its old and new rows are diffed on the loader thread.
+ * All state is confined to the main thread. Loads run on the supplied executor.
+ */
+public class KeysetPagedList<T> {
+    
+    public static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_PAGES = 1;
+    private static final int RESIDENT_PAGES = 2;
+    
+    public interface Source<T> {
+        int count();
+        List<T> loadPage(long beforeTimestamp, int beforeId, int limit);
+        long timestampOf(T item);
+        int idOf(T item);
+        boolean contentsEqual(T oldItem, T newItem);
+    }
+    
+    public interface Callback {
+        void onRefreshed();
+    }
+    
+    private final Source<T> source;
+    private final Executor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Callback callback;
+    private ListUpdateCallback updateCallback;
+    
+    private int totalCount;
+    private List<List<T>> pages = new ArrayList<>();
+    private boolean[] loading = new boolean[0];
+    // Keyset boundary of each page: the sort key of the last row of the page before it.
+    private long[] boundaryTimestamps = new long[0];
+    private int[] boundaryIds = new int[0];
+    private boolean[] boundaryKnown = new boolean[0];
+    private int generation;
+    private int centerPage;
+    
+    public KeysetPagedList(Source<T> source, Executor executor) {
+        this.source = source;
+        this.executor = executor;
+    }
+    
+    public void setCallback(Callback callback) {
+        this.callback = callback;
+    }
+    
+    public void setUpdateCallback(ListUpdateCallback updateCallback) {
+        this.updateCallback = updateCallback;
+    }
+    
+    public void refresh() {
+        final int requestGeneration = ++generation;
+        final List<T> oldFirstPage = !pages.isEmpty() ? pages.get(0) : null;
+        final List<T> oldRows = oldFirstPage != null ? new ArrayList<>(oldFirstPage) : null;
+        executor.execute(() -> {
+            int count = source.count();
+            List<T> firstPage = count > 0
+                ? source.loadPage(Long.MAX_VALUE, Integer.MAX_VALUE, PAGE_SIZE)
+                : new ArrayList<>();
+            DiffUtil.DiffResult diff = oldRows != null
+                ? DiffUtil.calculateDiff(new PageDiff(oldRows, firstPage, oldRows.size(), firstPage.size()), false)
+                : null;
+            mainHandler.post(() -> {
+                if (requestGeneration != generation) return;
+                int previousCount = totalCount;
+                // A first page replaced since the diff was taken cannot be diffed against.
+                boolean diffable = diff != null && !pages.isEmpty() && pages.get(0) == oldFirstPage;
+                boolean wasResident = !pages.isEmpty() && pages.get(0) != null;
+                int window = centerPage;
+                reset(count);
+                centerPage = Math.min(window, Math.max(0, pages.size() - 1));
+                if (!firstPage.isEmpty()) {
+                    onPageLoaded(0, firstPage);
+                }
+                if (updateCallback != null) {
+                    int adapterCount = previousCount;
+                    if (diffable) {
+                        diff.dispatchUpdatesTo(updateCallback);
+                        adapterCount += firstPage.size() - oldRows.size();
+                    } else if (wasResident) {
+                        updateCallback.onChanged(0, Math.min(previousCount, firstPage.size()), null);
+                    }
+                    dispatchCountChange(adapterCount, count);
+                }
+                loadAround(centerPage);
+                if (callback != null) {
+                    callback.onRefreshed();
+                }
+            });
+        });
+    }
+    
+    public int size() {
+        return totalCount;
+    }
+    
+    public boolean isEmpty() {
+        return totalCount == 0;
+    }
+    
+    /** Like {@link #get(int)} but never moves the resident window or starts a load. */
+    @Nullable
+    public T peek(int position) {
+        List<T> rows = pages.get(position / PAGE_SIZE);
+        int offset = position % PAGE_SIZE;
+        return rows != null && offset < rows.size() ? rows.get(offset) : null;
+    }
+    
+    /**
+     * Returns the row at {@code position}, or null while its page is still being fetched.
+     * Also moves the resident window so the surrounding pages get loaded.
+     */
+    @Nullable
+    public T get(int position) {
+        int page = position / PAGE_SIZE;
+        if (page != centerPage) {
+            centerPage = page;
+            evictOutsideWindow();
+        }
+        loadAround(page);
+        
+        List<T> rows = pages.get(page);
+        int offset = position % PAGE_SIZE;
+        return rows != null && offset < rows.size() ? rows.get(offset) : null;
+    }
+    
+    /**
+     * Stable id for adapter {@code position}: the row's own id once its page is loaded.
+     * Placeholders get negative ids, which no row has; a placeholder only takes its row's
+     * id through the change event that rebinds it.
+     */
+    public long itemId(int position) {
+        T row = peek(position);
+        return row != null ? source.idOf(row) : -1L - position;
+    }
+    
+    /** Position of a resident row with the given id, or -1 if it is not in memory. */
+    public int positionOf(int id) {
+        for (int page = 0; page < pages.size(); page++) {
+            List<T> rows = pages.get(page);
+            if (rows == null) continue;
+            for (int i = 0; i < rows.size(); i++) {
+                if (source.idOf(rows.get(i)) == id) {
+                    return page * PAGE_SIZE + i;
+                }
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Removes a row that has already been deleted from the table. Resident pages after it
+     * shift up by one so positions stay consistent with what a fresh query would return.
+     */
+    public void removeAt(int position) {
+        int page = position / PAGE_SIZE;
+        List<T> rows = pages.get(page);
+        if (rows == null) return;
+        
+        rows.remove(position % PAGE_SIZE);
+        totalCount--;
+        if (updateCallback != null) {
+            updateCallback.onRemoved(position, 1);
+        }
+        generation++;
+        Arrays.fill(loading, false);
+        
+        for (int next = page + 1; next < pages.size(); next++) {
+            List<T> previous = pages.get(next - 1);
+            List<T> current = pages.get(next);
+            if (current == null || current.isEmpty()) {
+                // The row that should move up is not in memory: drop the boundaries after
+                // this point and re-fetch the now short page, which chains the rest back in.
+                invalidateBoundariesFrom(next);
+                loadPage(next - 1);
+                break;
+            }
+            previous.add(current.remove(0));
+            setBoundary(next, previous.get(previous.size() - 1));
+        }
+        
+        resize(pageCount(totalCount));
+        loadAround(centerPage);
+    }
+    
+    public void clear() {
+        generation++;
+        int previousCount = totalCount;
+        reset(0);
+        if (updateCallback != null && previousCount > 0) {
+            updateCallback.onRemoved(0, previousCount);
+        }
+    }
+    
+    private void reset(int count) {
+        totalCount = count;
+        centerPage = 0;
+        pages = new ArrayList<>();
+        loading = new boolean[0];
+        boundaryTimestamps = new long[0];
+        boundaryIds = new int[0];
+        boundaryKnown = new boolean[0];
+        resize(pageCount(count));
+        if (boundaryKnown.length > 0) {
+            boundaryTimestamps[0] = Long.MAX_VALUE;
+            boundaryIds[0] = Integer.MAX_VALUE;
+            boundaryKnown[0] = true;
+        }
+    }
+    
+    private void loadAround(int page) {
+        int last = Math.min(page + PREFETCH_PAGES, pages.size() - 1);
+        for (int p = Math.max(0, page - PREFETCH_PAGES); p <= last; p++) {
+            if (pages.get(p) != null || loading[p]) continue;
+            
+            // Walk back to the nearest page whose boundary is known and load from there;
+            // the pages in between are chained in by onPageLoaded.
+            int start = p;
+            while (!boundaryKnown[start]) {
+                start--;
+            }
+            if (!loading[start]) {
+                loadPage(start);
+            }
+        }
+    }
+    
+    private void loadPage(int page) {
+        loading[page] = true;
+        final int requestGeneration = generation;
+        final long beforeTimestamp = boundaryTimestamps[page];
+        final int beforeId = boundaryIds[page];
+        final int segmentLength = segmentLength(page);
+        final List<T> oldRows = pages.get(page) != null ? new ArrayList<>(pages.get(page)) : null;
+        executor.execute(() -> {
+            List<T> rows = source.loadPage(beforeTimestamp, beforeId, PAGE_SIZE);
+            DiffUtil.DiffResult diff = oldRows != null
+                ? DiffUtil.calculateDiff(new PageDiff(oldRows, rows, segmentLength, segmentLength), false)
+                : null;
+            mainHandler.post(() -> {
+                if (requestGeneration != generation || page >= pages.size()) return;
+                loading[page] = false;
+                boolean wasResident = pages.get(page) != null;
+                onPageLoaded(page, rows);
+                if (updateCallback != null) {
+                    if (diff != null && wasResident) {
+                        diff.dispatchUpdatesTo(new OffsetCallback(page * PAGE_SIZE, updateCallback));
+                    } else if (!rows.isEmpty()) {
+                        // Rows were placeholders until now.
+                        updateCallback.onChanged(page * PAGE_SIZE, Math.min(rows.size(), segmentLength), null);
+                    }
+                }
+                loadAround(centerPage);
+            });
+        });
+    }
+    
+    private void onPageLoaded(int page, List<T> rows) {
+        pages.set(page, new ArrayList<>(rows));
+        if (page + 1 < pages.size() && !rows.isEmpty()) {
+            setBoundary(page + 1, rows.get(rows.size() - 1));
+        }
+        evictOutsideWindow();
+    }
+    
+    private void evictOutsideWindow() {
+        int windowStart = centerPage - RESIDENT_PAGES;
+        int windowEnd = centerPage + RESIDENT_PAGES;
+        for (int p = 0; p < pages.size(); p++) {
+            if ((p < windowStart || p > windowEnd) && pages.get(p) != null) {
+                pages.set(p, null);
+            }
+        }
+    }
+    
+    private void setBoundary(int page, T lastRowOfPreviousPage) {
+        boundaryTimestamps[page] = source.timestampOf(lastRowOfPreviousPage);
+        boundaryIds[page] = source.idOf(lastRowOfPreviousPage);
+        boundaryKnown[page] = true;
+    }
+    
+    private void invalidateBoundariesFrom(int page) {
+        for (int p = page; p < pages.size(); p++) {
+            boundaryKnown[p] = false;
+            pages.set(p, null);
+        }
+    }
+    
+    private void resize(int pageCount) {
+        while (pages.size() > pageCount) {
+            pages.remove(pages.size() - 1);
+        }
+        while (pages.size() < pageCount) {
+            pages.add(null);
+        }
+        loading = Arrays.copyOf(loading, pageCount);
+        boundaryTimestamps = Arrays.copyOf(boundaryTimestamps, pageCount);
+        boundaryIds = Arrays.copyOf(boundaryIds, pageCount);
+        boundaryKnown = Arrays.copyOf(boundaryKnown, pageCount);
+    }
+    
+    // Number of adapter positions page covers: a full page except possibly the last one.
+    private int segmentLength(int page) {
+        return Math.min(PAGE_SIZE, totalCount - page * PAGE_SIZE);
+    }
+    
+    // Rows past the first page are placeholders until loaded, so only the tail changes.
+    private void dispatchCountChange(int previousCount, int count) {
+        if (count > previousCount) {
+            updateCallback.onInserted(previousCount, count - previousCount);
+        } else if (count < previousCount) {
+            updateCallback.onRemoved(count, previousCount - count);
+        }
+    }
+    
+    private static int pageCount(int count) {
+        return (count + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+    
+    /**
+     * Diffs one page segment. Rows past the end of a side, up to its length, are
+     * placeholders; a re-fetched page pads both sides to the segment length so the diff
+     * never changes the adapter's item count.
+     */
+    private class PageDiff extends DiffUtil.Callback {
+        private final List<T> oldRows;
+        private final List<T> newRows;
+        private final int oldLength;
+        private final int newLength;
+        
+        PageDiff(List<T> oldRows, List<T> newRows, int oldLength, int newLength) {
+            this.oldRows = oldRows;
+            this.newRows = newRows;
+            this.oldLength = oldLength;
+            this.newLength = newLength;
+        }
+        
+        @Override
+        public int getOldListSize() {
+            return oldLength;
+        }
+        
+        @Override
+        public int getNewListSize() {
+            return newLength;
+        }
+        
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            T oldItem = rowAt(oldRows, oldPosition);
+            T newItem = rowAt(newRows, newPosition);
+            if (oldItem == null || newItem == null) {
+                return oldItem == newItem;
+            }
+            return source.idOf(oldItem) == source.idOf(newItem);
+        }
+        
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            T oldItem = rowAt(oldRows, oldPosition);
+            T newItem = rowAt(newRows, newPosition);
+            return oldItem == null || source.contentsEqual(oldItem, newItem);
+        }
+        
+        @Nullable
+        private T rowAt(List<T> rows, int position) {
+            return position < rows.size() ? rows.get(position) : null;
+        }
+    }
+    
+    private static class OffsetCallback implements ListUpdateCallback {
+        private final int offset;
+        private final ListUpdateCallback delegate;
+        
+        OffsetCallback(int offset, ListUpdateCallback delegate) {
+            this.offset = offset;
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public void onInserted(int position, int count) {
+            delegate.onInserted(offset + position, count);
+        }
+        
+        @Override
+        public void onRemoved(int position, int count) {
+            delegate.onRemoved(offset + position, count);
+        }
+        
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            delegate.onMoved(offset + fromPosition, offset + toPosition);
+        }
+        
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            delegate.onChanged(offset + position, count, payload);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.browser.app.adapters;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.browser.app.R;
+import com.browser.app.favicon.FaviconCache;
+import com.browser.app.search.SearchResult;
+
+import java.util.Collections;
+import java.util.List;
+
+/** Full-text search matches on the history and bookmark screens, best first. */
+public class SearchResultAdapter extends RecyclerView.Adapter<SearchResultAdapter.ResultViewHolder> {
+    
+    private List<SearchResult> results = Collections.emptyList();
+    private final OnResultClickListener listener;
+    private final FaviconCache favicons;
+    
+    public interface OnResultClickListener {
+        void onResultClick(SearchResult result);
+        void onResultLongClick(SearchResult result);
+    }
+    
+    public SearchResultAdapter(OnResultClickListener listener, FaviconCache favicons) {
+        this.listener = listener;
+        this.favicons = favicons;
+    }
+    
+    /** Replaces the results; each search yields a new ranking, so there is nothing to diff. */
+    public void setResults(List<SearchResult> results) {
+        this.results = results;
+        notifyDataSetChanged();
+    }
+    
+    @Override
+    public int getItemViewType(int position) {
+        return R.layout.item_search_result;
+    }
+    
+    @NonNull
+    @Override
+    public ResultViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        return new ResultViewHolder(SharedRowPool.inflate(parent, R.layout.item_search_result));
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull ResultViewHolder holder, int position) {
+        holder.adapter = this;
+        SearchResult result = results.get(position);
+        holder.titleTextView.setText(result.title);
+        holder.urlTextView.setText(result.url);
+        favicons.bind(holder.faviconImageView, result.url,
+            result.isBookmark() ? R.drawable.ic_bookmark_filled : R.drawable.ic_history);
+    }
+    
+    @Override
+    public void onViewRecycled(@NonNull ResultViewHolder holder) {
+        holder.adapter = null;
+    }
+    
+    private void onRowClick(int position, boolean longClick) {
+        if (position == RecyclerView.NO_POSITION || position >= results.size()) return;
+        SearchResult result = results.get(position);
+        if (longClick) {
+            listener.onResultLongClick(result);
+        } else {
+            listener.onResultClick(result);
+        }
+    }
+    
+    @Override
+    public int getItemCount() {
+        return results.size();
+    }
+    
+    static class ResultViewHolder extends RecyclerView.ViewHolder
+            implements View.OnClickListener, View.OnLongClickListener {
+        ImageView faviconImageView;
+        TextView titleTextView;
+        TextView urlTextView;
+        SearchResultAdapter adapter;
+        
+        ResultViewHolder(@NonNull View itemView) {
+            super(itemView);
+            faviconImageView = itemView.findViewById(R.id.faviconImageView);
+            titleTextView = itemView.findViewById(R.id.titleTextView);
+            urlTextView = itemView.findViewById(R.id.urlTextView);
+            itemView.setOnClickListener(this);
+            itemView.setOnLongClickListener(this);
+        }
+        
+        @Override
+        public void onClick(View v) {
+            if (adapter != null) {
+                adapter.onRowClick(getBindingAdapterPosition(), false);
+            }
+        }
+        
+        @Override
+        public boolean onLongClick(View v) {
+            if (adapter != null) {
+                adapter.onRowClick(getBindingAdapterPosition(), true);
+            }
+            return true;
+        }
+    }
+}
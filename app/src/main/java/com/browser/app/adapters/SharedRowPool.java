@@ -0,0 +1,57 @@
+package com.browser.app.adapters;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.MainThread;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.browser.app.R;
+
+/**
+ * One {@link RecyclerView.RecycledViewPool} for the history and bookmark screens, so opening
+ * either reuses the rows the last one inflated. Adapters use their row layout as the view
+ * type. Rows are inflated against the application context rather than an activity, so a
+ * pooled row never keeps a finished screen alive.
+ */
+@MainThread
+public final class SharedRowPool {
+    
+    // Enough rows of one type to cover a fast fling without inflating.
+    private static final int MAX_ROWS_PER_TYPE = 20;
+    
+    private static RecyclerView.RecycledViewPool pool;
+    private static Context inflationContext;
+    
+    private SharedRowPool() {
+    }
+    
+    public static void attach(RecyclerView recyclerView) {
+        if (pool == null) {
+            pool = new RecyclerView.RecycledViewPool();
+            pool.setMaxRecycledViews(R.layout.item_history, MAX_ROWS_PER_TYPE);
+            pool.setMaxRecycledViews(R.layout.item_bookmark, MAX_ROWS_PER_TYPE);
+        }
+        recyclerView.setRecycledViewPool(pool);
+    }
+    
+    /**
+     * Moves the screen's rows into the pool; call from onDestroy. Swapping the adapter out
+     * as compatible keeps RecyclerView from clearing the pool when its last user leaves.
+     */
+    public static void detach(RecyclerView recyclerView) {
+        recyclerView.swapAdapter(null, true);
+    }
+    
+    static View inflate(ViewGroup parent, @LayoutRes int layout) {
+        if (inflationContext == null) {
+            inflationContext = new ContextThemeWrapper(parent.getContext().getApplicationContext(),
+                R.style.Theme_AndroidBrowser);
+        }
+        return LayoutInflater.from(inflationContext).inflate(layout, parent, false);
+    }
+}
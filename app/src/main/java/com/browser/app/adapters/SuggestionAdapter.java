@@ -0,0 +1,53 @@
+package com.browser.app.adapters;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import com.browser.app.search.SearchResult;
+
+import java.util.Collections;
+import java.util.List;
+
+/** Address bar suggestions from history and bookmarks: the title over the URL. */
+public class SuggestionAdapter extends BaseAdapter {
+    
+    private List<SearchResult> results = Collections.emptyList();
+    
+    public void setResults(List<SearchResult> results) {
+        this.results = results;
+        notifyDataSetChanged();
+    }
+    
+    @Override
+    public int getCount() {
+        return results.size();
+    }
+    
+    @Override
+    public SearchResult getItem(int position) {
+        return results.get(position);
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+    
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        View view = convertView;
+        if (view == null) {
+            view = LayoutInflater.from(parent.getContext())
+                .inflate(android.R.layout.simple_list_item_2, parent, false);
+        }
+        SearchResult result = results.get(position);
+        TextView title = view.findViewById(android.R.id.text1);
+        TextView url = view.findViewById(android.R.id.text2);
+        title.setText(result.title != null ? result.title : result.url);
+        url.setText(result.url);
+        return view;
+    }
+}
@@ -0,0 +1,106 @@
+package com.browser.app.adapters;
+
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageButton;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.browser.app.R;
+import com.browser.app.tabs.Tab;
+import com.browser.app.thumbnail.ThumbnailCache;
+
+import java.util.List;
+
+/** Grid of open tabs with their page thumbnails. */
+public class TabSwitcherAdapter extends RecyclerView.Adapter<TabSwitcherAdapter.TabViewHolder> {
+    
+    private final List<Tab> tabs;
+    private final OnTabClickListener listener;
+    private final ThumbnailCache thumbnails;
+    private Tab currentTab;
+    
+    public interface OnTabClickListener {
+        void onTabClick(Tab tab);
+        void onTabClose(Tab tab);
+    }
+    
+    public TabSwitcherAdapter(List<Tab> tabs, @Nullable Tab currentTab, OnTabClickListener listener, ThumbnailCache thumbnails) {
+        this.tabs = tabs;
+        this.currentTab = currentTab;
+        this.listener = listener;
+        this.thumbnails = thumbnails;
+        setHasStableIds(true);
+    }
+    
+    @NonNull
+    @Override
+    public TabViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_tab, parent, false);
+        TabViewHolder holder = new TabViewHolder(view);
+        holder.itemView.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                listener.onTabClick(tabs.get(position));
+            }
+        });
+        holder.closeButton.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                listener.onTabClose(tabs.get(position));
+            }
+        });
+        return holder;
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull TabViewHolder holder, int position) {
+        Tab tab = tabs.get(position);
+        holder.titleTextView.setText(!TextUtils.isEmpty(tab.title) ? tab.title : tab.url);
+        holder.titleTextView.setTextColor(ContextCompat.getColor(holder.itemView.getContext(),
+            tab == currentTab ? R.color.accent_blue : R.color.text_primary));
+        thumbnails.bind(holder.thumbnailImageView, tab.url, R.drawable.ic_tabs);
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        return tabs.get(position).id;
+    }
+    
+    @Override
+    public int getItemCount() {
+        return tabs.size();
+    }
+    
+    /** Call after the tab at {@code position} was removed from the list. */
+    public void onTabRemoved(int position, @Nullable Tab newCurrentTab) {
+        notifyItemRemoved(position);
+        if (newCurrentTab != currentTab) {
+            currentTab = newCurrentTab;
+            int index = tabs.indexOf(newCurrentTab);
+            if (index >= 0) {
+                notifyItemChanged(index);
+            }
+        }
+    }
+    
+    static class TabViewHolder extends RecyclerView.ViewHolder {
+        ImageView thumbnailImageView;
+        TextView titleTextView;
+        ImageButton closeButton;
+        
+        TabViewHolder(@NonNull View itemView) {
+            super(itemView);
+            thumbnailImageView = itemView.findViewById(R.id.thumbnailImageView);
+            titleTextView = itemView.findViewById(R.id.titleTextView);
+            closeButton = itemView.findViewById(R.id.closeButton);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.browser.app.database;
+
+import androidx.annotation.WorkerThread;
+
+import com.browser.app.database.dao.BookmarkDao;
+import com.browser.app.database.entities.Bookmark;
+import com.browser.app.utils.BrowserUtils;
+import com.browser.app.utils.FingerprintSet;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Process-wide membership index of bookmarked URLs, held as 64-bit fingerprints so the
+ * star state can be answered on the UI thread without a query or an allocation.
+ * Bookmark writes go through this class so the DAO and the index never disagree, and
+ * store URLs in {@link BrowserUtils#normalizeUrl} form.
+ */
+public class BookmarkIndex {
+    
+    private static BookmarkIndex instance;
+    
+    private final BookmarkDao bookmarkDao;
+    private final FingerprintSet fingerprints = new FingerprintSet();
+    // Serializes DAO writes with the initial load so no mutation is applied twice or lost.
+    private final Object writeLock = new Object();
+    private volatile boolean loaded;
+    private boolean loadStarted;
+    
+    // Tests pass a DAO of their own.
+    BookmarkIndex(BookmarkDao bookmarkDao) {
+        this.bookmarkDao = bookmarkDao;
+    }
+    
+    public static synchronized BookmarkIndex getInstance(BrowserDatabase database) {
+        if (instance == null) {
+            instance = new BookmarkIndex(database.bookmarkDao());
+        }
+        return instance;
+    }
+    
+    public void loadAsync(Executor executor) {
+        synchronized (this) {
+            if (loadStarted) return;
+            loadStarted = true;
+        }
+        executor.execute(() -> {
+            synchronized (writeLock) {
+                List<String> urls = bookmarkDao.getAllBookmarkUrls();
+                synchronized (this) {
+                    fingerprints.clear();
+                    for (String url : urls) {
+                        if (url != null) {
+                            fingerprints.add(FingerprintSet.fingerprint(BrowserUtils.normalizeUrl(url)));
+                        }
+                    }
+                }
+            }
+            loaded = true;
+        });
+    }
+    
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    /** Always false until the initial load has finished; check {@link #isLoaded()} first. */
+    public boolean contains(String url) {
+        if (!loaded || url == null) return false;
+        long fingerprint = FingerprintSet.fingerprint(BrowserUtils.normalizeUrl(url));
+        synchronized (this) {
+            return fingerprints.contains(fingerprint);
+        }
+    }
+    
+    @WorkerThread
+    public void insert(Bookmark bookmark) {
+        bookmark.url = BrowserUtils.normalizeUrl(bookmark.url);
+        synchronized (writeLock) {
+            bookmarkDao.insert(bookmark);
+            if (bookmark.url != null) {
+                long fingerprint = FingerprintSet.fingerprint(bookmark.url);
+                synchronized (this) {
+                    fingerprints.add(fingerprint);
+                }
+            }
+        }
+    }
+    
+    @WorkerThread
+    public void delete(Bookmark bookmark) {
+        synchronized (writeLock) {
+            bookmarkDao.delete(bookmark);
+            if (bookmark.url != null) {
+                // Rows saved before URLs were normalized are indexed by their normalized form.
+                long fingerprint = FingerprintSet.fingerprint(BrowserUtils.normalizeUrl(bookmark.url));
+                synchronized (this) {
+                    fingerprints.remove(fingerprint);
+                }
+            }
+        }
+    }
+    
+    @WorkerThread
+    public void deleteByUrl(String url) {
+        url = BrowserUtils.normalizeUrl(url);
+        synchronized (writeLock) {
+            bookmarkDao.deleteByUrl(url);
+            long fingerprint = FingerprintSet.fingerprint(url);
+            synchronized (this) {
+                fingerprints.remove(fingerprint);
+            }
+        }
+    }
+    
+    @WorkerThread
+    public void deleteAll() {
+        synchronized (writeLock) {
+            bookmarkDao.deleteAll();
+            synchronized (this) {
+                fingerprints.clear();
+            }
+        }
+    }
+}
@@ -1,28 +1,144 @@
 package com.browser.app.database;
 
 import android.content.Context;
+import android.database.Cursor;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
 
 import com.browser.app.database.dao.BookmarkDao;
 import com.browser.app.database.dao.DownloadDao;
 import com.browser.app.database.dao.HistoryDao;
+import com.browser.app.database.dao.SearchDao;
 import com.browser.app.database.entities.Bookmark;
+import com.browser.app.database.entities.BookmarkFts;
 import com.browser.app.database.entities.DownloadItem;
+import com.browser.app.database.entities.HistoryFts;
 import com.browser.app.database.entities.HistoryItem;
 
 @Database(
-    entities = {Bookmark.class, HistoryItem.class, DownloadItem.class},
-    version = 1,
-    exportSchema = false
+    entities = {Bookmark.class, HistoryItem.class, DownloadItem.class, HistoryFts.class, BookmarkFts.class},
+    version = 9,
+    exportSchema = true
 )
 public abstract class BrowserDatabase extends RoomDatabase {
     
     private static final String DATABASE_NAME = "browser_database";
     private static BrowserDatabase instance;
     
+    // v2: FTS4 shadow tables for history and bookmarks. The DDL and triggers mirror what
+    // Room generates for @Fts4(contentEntity = ...) so schema validation passes after upgrade.
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            createContentFtsTable(db, "history_fts", "history");
+            createContentFtsTable(db, "bookmarks_fts", "bookmarks");
+        }
+    };
+    
+    // v3: indices for the url lookups and timestamp ordering. history.url and bookmarks.url
+    // become unique, so duplicate rows are folded into the newest one first; for history
+    // the surviving row carries the summed visit count and the latest timestamp.
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TEMP TABLE history_merge (id INTEGER PRIMARY KEY, visits INTEGER, latest INTEGER)");
+            db.execSQL("INSERT INTO history_merge SELECT MAX(id), SUM(visitCount), MAX(timestamp) FROM history " +
+                "WHERE url IS NOT NULL GROUP BY url HAVING COUNT(*) > 1");
+            db.execSQL("UPDATE history SET " +
+                "visitCount = (SELECT visits FROM history_merge WHERE history_merge.id = history.id), " +
+                "timestamp = (SELECT latest FROM history_merge WHERE history_merge.id = history.id) " +
+                "WHERE id IN (SELECT id FROM history_merge)");
+            db.execSQL("DROP TABLE history_merge");
+            db.execSQL("DELETE FROM history WHERE url IS NOT NULL AND id NOT IN " +
+                "(SELECT MAX(id) FROM history WHERE url IS NOT NULL GROUP BY url)");
+            db.execSQL("DELETE FROM bookmarks WHERE url IS NOT NULL AND id NOT IN " +
+                "(SELECT MAX(id) FROM bookmarks WHERE url IS NOT NULL GROUP BY url)");
+            
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_history_url` ON `history` (`url`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_history_timestamp` ON `history` (`timestamp`)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_bookmarks_url` ON `bookmarks` (`url`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_bookmarks_timestamp` ON `bookmarks` (`timestamp`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_downloads_timestamp` ON `downloads` (`timestamp`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_downloads_isCompleted_timestamp` " +
+                "ON `downloads` (`isCompleted`, `timestamp`)");
+        }
+    };
+    
+    // v4: history.frecency. Existing rows are seeded once from their visit count, all
+    // counted as link visits at the last visit time; from then on visits only add to it.
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `history` ADD COLUMN `frecency` REAL NOT NULL DEFAULT 0");
+            
+            SupportSQLiteStatement update = db.compileStatement("UPDATE history SET frecency = ? WHERE id = ?");
+            try (Cursor cursor = db.query("SELECT id, visitCount, timestamp FROM history")) {
+                while (cursor.moveToNext()) {
+                    double score = cursor.getInt(1) * Frecency.visitScore(Frecency.VISIT_LINK, cursor.getLong(2));
+                    update.bindDouble(1, score);
+                    update.bindLong(2, cursor.getInt(0));
+                    update.executeUpdateDelete();
+                }
+            }
+            
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_history_frecency` ON `history` (`frecency`)");
+        }
+    };
+    
+    // v5: download engine state. Rows from before it ran through the system download
+    // manager and cannot be resumed, so unfinished ones are marked failed.
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `downloads` ADD COLUMN `status` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `downloads` ADD COLUMN `downloadedBytes` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `downloads` ADD COLUMN `segments` TEXT");
+            db.execSQL("ALTER TABLE `downloads` ADD COLUMN `validator` TEXT");
+            db.execSQL("UPDATE downloads SET status = " + DownloadItem.STATUS_COMPLETED +
+                ", downloadedBytes = fileSize WHERE isCompleted = 1");
+            db.execSQL("UPDATE downloads SET status = " + DownloadItem.STATUS_FAILED + " WHERE isCompleted = 0");
+        }
+    };
+    
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `downloads` ADD COLUMN `sha256` TEXT");
+            db.execSQL("ALTER TABLE `downloads` ADD COLUMN `expectedSha256` TEXT");
+            db.execSQL("ALTER TABLE `downloads` ADD COLUMN `hashState` TEXT");
+        }
+    };
+    
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `downloads` ADD COLUMN `queuePosition` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE downloads SET queuePosition = id");
+        }
+    };
+    
+    // v8: dropped the frecency index while no query read it; v9 puts it back.
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DROP INDEX IF EXISTS `index_history_frecency`");
+        }
+    };
+    
+    // v9: top sites and ranked history lookups read the frecency index again.
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_history_frecency` ON `history` (`frecency`)");
+        }
+    };
+    
     public static synchronized BrowserDatabase getInstance(Context context) {
         if (instance == null) {
             instance = Room.databaseBuilder(
@@ -30,8 +146,12 @@ public abstract class BrowserDatabase extends RoomDatabase {
                 BrowserDatabase.class,
                 DATABASE_NAME
             )
-            .allowMainThreadQueries()
-            .fallbackToDestructiveMigration()
+            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7,
+                MIGRATION_7_8, MIGRATION_8_9)
+            .fallbackToDestructiveMigrationOnDowngrade()
+            // WAL lets the framework's connection pool serve reads on other threads while
+            // a history batch is being committed, instead of serializing them behind it.
+            .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
             .build();
         }
         return instance;
@@ -40,4 +160,21 @@ public abstract class BrowserDatabase extends RoomDatabase {
     public abstract BookmarkDao bookmarkDao();
     public abstract HistoryDao historyDao();
     public abstract DownloadDao downloadDao();
+    public abstract SearchDao searchDao();
+    
+    private static void createContentFtsTable(SupportSQLiteDatabase db, String ftsTable, String contentTable) {
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `" + ftsTable + "` USING FTS4(`title` TEXT, `url` TEXT, " +
+            "tokenize=unicode61, content=`" + contentTable + "`, prefix=`2,3`)");
+        
+        String trigger = "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_" + ftsTable;
+        String deleteRow = " BEGIN DELETE FROM `" + ftsTable + "` WHERE `docid`=OLD.`rowid`; END";
+        String insertRow = " BEGIN INSERT INTO `" + ftsTable + "`(`docid`, `title`, `url`) " +
+            "VALUES (NEW.`rowid`, NEW.`title`, NEW.`url`); END";
+        db.execSQL(trigger + "_BEFORE_UPDATE BEFORE UPDATE ON `" + contentTable + "`" + deleteRow);
+        db.execSQL(trigger + "_BEFORE_DELETE BEFORE DELETE ON `" + contentTable + "`" + deleteRow);
+        db.execSQL(trigger + "_AFTER_UPDATE AFTER UPDATE ON `" + contentTable + "`" + insertRow);
+        db.execSQL(trigger + "_AFTER_INSERT AFTER INSERT ON `" + contentTable + "`" + insertRow);
+        
+        db.execSQL("INSERT INTO `" + ftsTable + "`(`" + ftsTable + "`) VALUES('rebuild')");
+    }
 }
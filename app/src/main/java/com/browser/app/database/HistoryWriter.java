@@ -0,0 +1,99 @@
+package com.browser.app.database;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.browser.app.database.dao.HistoryDao;
+import com.browser.app.database.entities.HistoryItem;
+import com.browser.app.utils.BrowserUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Buffers page visits and writes them to {@link HistoryDao} in batches. Repeat visits to
+ * the same URL inside one batch collapse into a single row update, so a redirect chain or a
+ * single-page app firing onPageFinished many times a second costs one transaction.
+ */
+public class HistoryWriter {
+    
+    private static final int MAX_PENDING_URLS = 32;
+    private static final long FLUSH_DELAY_MS = 2000;
+    
+    private final HistoryDao historyDao;
+    private final Executor executor;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+    
+    private final Object lock = new Object();
+    private LinkedHashMap<String, HistoryItem> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    
+    public HistoryWriter(HistoryDao historyDao, Executor executor) {
+        this.historyDao = historyDao;
+        this.executor = executor;
+    }
+    
+    public void recordVisit(String title, String url) {
+        recordVisit(title, url, Frecency.VISIT_LINK);
+    }
+    
+    /** Records a visit; {@code visitType} is one of the {@link Frecency} VISIT_ constants. */
+    public void recordVisit(String title, String url, int visitType) {
+        if (url == null || url.equals("about:blank")) return;
+        // Collapses spellings of one address, such as an explicit default port, into one row.
+        url = BrowserUtils.normalizeUrl(url);
+        
+        long now = System.currentTimeMillis();
+        double score = Frecency.visitScore(visitType, now);
+        boolean flushNow;
+        boolean scheduleFlush = false;
+        synchronized (lock) {
+            HistoryItem visit = pending.get(url);
+            if (visit == null) {
+                visit = new HistoryItem(title, url, now);
+                visit.frecency = score;
+                pending.put(url, visit);
+            } else {
+                visit.visitCount++;
+                visit.timestamp = now;
+                visit.frecency += score;
+                if (title != null) {
+                    visit.title = title;
+                }
+            }
+            
+            flushNow = pending.size() >= MAX_PENDING_URLS;
+            if (!flushNow && !flushScheduled) {
+                flushScheduled = true;
+                scheduleFlush = true;
+            }
+        }
+        
+        if (flushNow) {
+            flush();
+        } else if (scheduleFlush) {
+            handler.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+        }
+    }
+    
+    /**
+     * Hands everything buffered so far to the executor as one transaction. Call from
+     * onPause/onDestroy so no visit is left behind in memory.
+     */
+    public void flush() {
+        handler.removeCallbacks(flushRunnable);
+        
+        final List<HistoryItem> batch;
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pending.isEmpty()) return;
+            batch = new ArrayList<>(pending.values());
+            pending = new LinkedHashMap<>();
+        }
+        
+        executor.execute(() -> historyDao.recordVisits(batch));
+    }
+}
@@ -0,0 +1,59 @@
+package com.browser.app.database.async;
+
+import androidx.annotation.Nullable;
+
+import com.browser.app.database.BookmarkIndex;
+import com.browser.app.database.dao.BookmarkDao;
+import com.browser.app.database.entities.Bookmark;
+import com.browser.app.utils.BrowserUtils;
+import com.browser.app.utils.TaskScheduler;
+
+import java.util.concurrent.Future;
+
+/**
+ * Off-main-thread access to {@link BookmarkDao}. Writes go through {@link BookmarkIndex}
+ * so the bookmark fingerprint index stays in sync with the table.
+ */
+public class AsyncBookmarkDao extends AsyncDao {
+    
+    private final BookmarkDao dao;
+    private final BookmarkIndex index;
+    
+    public AsyncBookmarkDao(BookmarkDao dao, BookmarkIndex index, @Nullable TaskScheduler.Scope scope) {
+        super(scope);
+        this.dao = dao;
+        this.index = index;
+    }
+    
+    public Future<Bookmark> getBookmarkByUrl(String url, @Nullable Callback<Bookmark> callback) {
+        return read(() -> dao.getBookmarkByUrl(BrowserUtils.normalizeUrl(url)), callback);
+    }
+    
+    public Future<Void> insert(Bookmark bookmark, @Nullable Callback<Void> callback) {
+        return write(() -> {
+            index.insert(bookmark);
+            return null;
+        }, callback);
+    }
+    
+    public Future<Void> delete(Bookmark bookmark, @Nullable Callback<Void> callback) {
+        return write(() -> {
+            index.delete(bookmark);
+            return null;
+        }, callback);
+    }
+    
+    public Future<Void> deleteByUrl(String url, @Nullable Callback<Void> callback) {
+        return write(() -> {
+            index.deleteByUrl(url);
+            return null;
+        }, callback);
+    }
+    
+    public Future<Void> deleteAll(@Nullable Callback<Void> callback) {
+        return write(() -> {
+            index.deleteAll();
+            return null;
+        }, callback);
+    }
+}
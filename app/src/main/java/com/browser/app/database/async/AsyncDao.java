@@ -0,0 +1,86 @@
+package com.browser.app.database.async;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+
+import com.browser.app.utils.TaskScheduler;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Base of the async DAO facades. Queries run on the {@link TaskScheduler} READ lane and
+ * writes on its WRITE lane; every call returns a {@link Future} and optionally delivers
+ * its result to a callback on the main thread. With a scope, callbacks stop once the
+ * screen is destroyed and its pending reads are cancelled. A failed query or write is
+ * reported to the callback's {@link Callback#onError}.
+ */
+public abstract class AsyncDao {
+    
+    public interface Callback<T> {
+        @MainThread
+        void onResult(T result);
+        
+        @MainThread
+        default void onError(Throwable error) {
+            Log.e(TAG, "Database call failed", error);
+        }
+    }
+    
+    private static final String TAG = "AsyncDao";
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    
+    @Nullable
+    private final TaskScheduler.Scope scope;
+    
+    protected AsyncDao(@Nullable TaskScheduler.Scope scope) {
+        this.scope = scope;
+    }
+    
+    protected <T> Future<T> read(Callable<T> query, @Nullable Callback<T> callback) {
+        return submit(TaskScheduler.Lane.READ, query, callback);
+    }
+    
+    protected <T> Future<T> write(Callable<T> update, @Nullable Callback<T> callback) {
+        return submit(TaskScheduler.Lane.WRITE, update, callback);
+    }
+    
+    private <T> Future<T> submit(TaskScheduler.Lane lane, Callable<T> work, @Nullable Callback<T> callback) {
+        FutureTask<T> future = new FutureTask<T>(work) {
+            @Override
+            protected void done() {
+                if (callback != null && !isCancelled()) {
+                    deliver(this, callback);
+                }
+            }
+        };
+        if (scope != null) {
+            scope.executor(lane).execute(future);
+        } else {
+            TaskScheduler.getInstance().submit(lane, future);
+        }
+        return future;
+    }
+    
+    private <T> void deliver(Future<T> future, Callback<T> callback) {
+        mainHandler.post(() -> {
+            if (scope != null && scope.isDestroyed()) return;
+            T result;
+            try {
+                result = future.get();
+            } catch (ExecutionException e) {
+                callback.onError(e.getCause());
+                return;
+            } catch (InterruptedException e) {
+                return;
+            }
+            callback.onResult(result);
+        });
+    }
+}
@@ -0,0 +1,25 @@
+package com.browser.app.database.async;
+
+import androidx.annotation.Nullable;
+
+import com.browser.app.database.dao.DownloadDao;
+import com.browser.app.database.entities.DownloadItem;
+import com.browser.app.utils.TaskScheduler;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+/** Off-main-thread access to {@link DownloadDao}. */
+public class AsyncDownloadDao extends AsyncDao {
+    
+    private final DownloadDao dao;
+    
+    public AsyncDownloadDao(DownloadDao dao, @Nullable TaskScheduler.Scope scope) {
+        super(scope);
+        this.dao = dao;
+    }
+    
+    public Future<List<DownloadItem>> getAllDownloads(@Nullable Callback<List<DownloadItem>> callback) {
+        return read(dao::getAllDownloads, callback);
+    }
+}
@@ -0,0 +1,39 @@
+package com.browser.app.database.async;
+
+import androidx.annotation.Nullable;
+
+import com.browser.app.database.dao.HistoryDao;
+import com.browser.app.database.entities.HistoryItem;
+import com.browser.app.utils.TaskScheduler;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+/** Off-main-thread access to {@link HistoryDao}. Visits are recorded by {@code HistoryWriter}. */
+public class AsyncHistoryDao extends AsyncDao {
+    
+    private final HistoryDao dao;
+    
+    public AsyncHistoryDao(HistoryDao dao, @Nullable TaskScheduler.Scope scope) {
+        super(scope);
+        this.dao = dao;
+    }
+    
+    public Future<List<HistoryItem>> getTopSites(int limit, @Nullable Callback<List<HistoryItem>> callback) {
+        return read(() -> dao.getTopSites(limit), callback);
+    }
+    
+    public Future<Void> delete(HistoryItem historyItem, @Nullable Callback<Void> callback) {
+        return write(() -> {
+            dao.delete(historyItem);
+            return null;
+        }, callback);
+    }
+    
+    public Future<Void> deleteAll(@Nullable Callback<Void> callback) {
+        return write(() -> {
+            dao.deleteAll();
+            return null;
+        }, callback);
+    }
+}
@@ -0,0 +1,37 @@
+package com.browser.app.database.async;
+
+import androidx.annotation.Nullable;
+
+import com.browser.app.search.BrowserSearch;
+import com.browser.app.search.SearchResult;
+import com.browser.app.utils.TaskScheduler;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Off-main-thread access to {@link BrowserSearch}. Searches run as the user types: callers
+ * cancel the previous Future before issuing the next, and drop a result whose query is no
+ * longer the current text, since one may already be on its way to the main thread.
+ */
+public class AsyncSearch extends AsyncDao {
+    
+    private final BrowserSearch search;
+    
+    public AsyncSearch(BrowserSearch search, @Nullable TaskScheduler.Scope scope) {
+        super(scope);
+        this.search = search;
+    }
+    
+    public Future<List<SearchResult>> search(String query, int limit, @Nullable Callback<List<SearchResult>> callback) {
+        return read(() -> search.search(query, limit), callback);
+    }
+    
+    public Future<List<SearchResult>> searchHistory(String query, int limit, @Nullable Callback<List<SearchResult>> callback) {
+        return read(() -> search.searchHistory(query, limit), callback);
+    }
+    
+    public Future<List<SearchResult>> searchBookmarks(String query, int limit, @Nullable Callback<List<SearchResult>> callback) {
+        return read(() -> search.searchBookmarks(query, limit), callback);
+    }
+}
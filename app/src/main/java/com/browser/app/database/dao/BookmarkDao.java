@@ -5,6 +5,7 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RoomWarnings;
 import androidx.room.Update;
 
 import com.browser.app.database.entities.Bookmark;
@@ -17,6 +18,20 @@ public interface BookmarkDao {
     @Query("SELECT * FROM bookmarks ORDER BY timestamp DESC")
     List<Bookmark> getAllBookmarks();
     
+    // Keyset page for the bookmarks list: only the columns item_bookmark shows, never the favicon blob.
+    @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
+    @Query("SELECT id, title, url, timestamp FROM bookmarks " +
+           "WHERE timestamp <= :beforeTimestamp AND (timestamp < :beforeTimestamp OR id < :beforeId) " +
+           "ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<Bookmark> getBookmarksPage(long beforeTimestamp, int beforeId, int limit);
+    
+    @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
+    @Query("SELECT url, title FROM bookmarks")
+    List<Bookmark> getCompletionEntries();
+    
+    @Query("SELECT url FROM bookmarks")
+    List<String> getAllBookmarkUrls();
+    
     @Query("SELECT * FROM bookmarks WHERE url = :url LIMIT 1")
     Bookmark getBookmarkByUrl(String url);
     
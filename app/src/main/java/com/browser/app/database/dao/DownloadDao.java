@@ -5,6 +5,7 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
 import com.browser.app.database.entities.DownloadItem;
@@ -21,7 +22,7 @@ public interface DownloadDao {
     DownloadItem getDownloadById(int id);
     
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insert(DownloadItem downloadItem);
+    long insert(DownloadItem downloadItem);
     
     @Update
     void update(DownloadItem downloadItem);
@@ -40,4 +41,40 @@ public interface DownloadDao {
     
     @Query("SELECT * FROM downloads WHERE isCompleted = 0 ORDER BY timestamp DESC")
     List<DownloadItem> getPendingDownloads();
+    
+    @Query("SELECT * FROM downloads WHERE isCompleted = 0 AND status IN (:statuses) ORDER BY queuePosition, id")
+    List<DownloadItem> getDownloadsWithStatus(int... statuses);
+    
+    @Query("SELECT COALESCE(MAX(queuePosition), 0) FROM downloads")
+    long getLastQueuePosition();
+    
+    /** Inserts {@code downloadItem} at the end of the queue and returns its id. */
+    @Transaction
+    default long enqueue(DownloadItem downloadItem) {
+        downloadItem.queuePosition = getLastQueuePosition() + 1;
+        return insert(downloadItem);
+    }
+    
+    @Query("UPDATE downloads SET queuePosition = (SELECT MIN(queuePosition) FROM downloads) - 1 WHERE id = :id")
+    void moveToFront(int id);
+    
+    @Query("UPDATE downloads SET status = :status WHERE id = :id")
+    void updateStatus(int id, int status);
+    
+    @Query("UPDATE downloads SET status = :to WHERE status = :from")
+    void replaceStatus(int from, int to);
+    
+    // Checkpoint of a running download; cheaper than rewriting the whole row.
+    @Query("UPDATE downloads SET status = :status, downloadedBytes = :downloadedBytes, segments = :segments, " +
+        "hashState = :hashState WHERE id = :id")
+    void updateProgress(int id, int status, long downloadedBytes, String segments, String hashState);
+    
+    /** Applies a batch of checkpoints, each carrying id, status, downloadedBytes, segments and hashState. */
+    @Transaction
+    default void updateProgress(List<DownloadItem> checkpoints) {
+        for (DownloadItem checkpoint : checkpoints) {
+            updateProgress(checkpoint.id, checkpoint.status, checkpoint.downloadedBytes, checkpoint.segments,
+                checkpoint.hashState);
+        }
+    }
 }
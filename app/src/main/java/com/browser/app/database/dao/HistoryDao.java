@@ -5,6 +5,8 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RoomWarnings;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
 import com.browser.app.database.entities.HistoryItem;
@@ -17,18 +19,57 @@ public interface HistoryDao {
     @Query("SELECT * FROM history ORDER BY timestamp DESC")
     List<HistoryItem> getAllHistory();
     
+    // Keyset page for the history list: only the columns item_history shows, never the favicon blob.
+    @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
+    @Query("SELECT id, title, url, timestamp, visitCount FROM history " +
+           "WHERE timestamp <= :beforeTimestamp AND (timestamp < :beforeTimestamp OR id < :beforeId) " +
+           "ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<HistoryItem> getHistoryPage(long beforeTimestamp, int beforeId, int limit);
+    
+    @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
+    @Query("SELECT url, title, visitCount, frecency FROM history")
+    List<HistoryItem> getCompletionEntries();
+    
+    // Frecency-ranked queries, served by index_history_frecency scanned backwards.
+    @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
+    @Query("SELECT id, title, url, timestamp, visitCount, frecency FROM history " +
+           "ORDER BY frecency DESC LIMIT :limit")
+    List<HistoryItem> getTopSites(int limit);
+    
+    @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
+    @Query("SELECT id, title, url, timestamp, visitCount, frecency FROM history " +
+           "WHERE title LIKE :query OR url LIKE :query ORDER BY frecency DESC LIMIT :limit")
+    List<HistoryItem> searchHistoryByFrecency(String query, int limit);
+    
     @Query("SELECT * FROM history WHERE url = :url LIMIT 1")
     HistoryItem getHistoryByUrl(String url);
     
-    @Query("SELECT * FROM history WHERE title LIKE :query OR url LIKE :query ORDER BY timestamp DESC")
-    List<HistoryItem> searchHistory(String query);
-    
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(HistoryItem historyItem);
     
     @Update
     void update(HistoryItem historyItem);
     
+    @Query("UPDATE history SET visitCount = visitCount + :visits, timestamp = MAX(timestamp, :timestamp), " +
+           "frecency = frecency + :frecency, title = COALESCE(:title, title) WHERE url = :url")
+    int addVisits(String url, String title, int visits, long timestamp, double frecency);
+    
+    /**
+     * Applies a batch of coalesced visits in one transaction: existing URLs get their
+     * visit count, timestamp and frecency bumped, new URLs are inserted with the batched values.
+     */
+    @Transaction
+    default void recordVisits(List<HistoryItem> visits) {
+        for (HistoryItem visit : visits) {
+            if (addVisits(visit.url, visit.title, visit.visitCount, visit.timestamp, visit.frecency) == 0) {
+                if (visit.title == null) {
+                    visit.title = visit.url;
+                }
+                insert(visit);
+            }
+        }
+    }
+    
     @Delete
     void delete(HistoryItem historyItem);
     
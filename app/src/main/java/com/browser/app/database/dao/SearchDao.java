@@ -0,0 +1,30 @@
+package com.browser.app.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import com.browser.app.search.SearchResult;
+
+import java.util.List;
+
+@Dao
+public interface SearchDao {
+    
+    // History candidates are the most frecent of all matches. Every match is joined, since
+    // any of them may be the top one, but the LIMIT keeps the sort to a bounded top-N heap.
+    @Query("SELECT " + SearchResult.SOURCE_HISTORY + " AS source, history.id, history.title, history.url, " +
+           "history.timestamp, history.frecency, matchinfo(history_fts, 'pcnx') AS matchInfo " +
+           "FROM history_fts JOIN history ON history.id = history_fts.docid " +
+           "WHERE history_fts MATCH :match ORDER BY history.frecency DESC LIMIT :limit")
+    List<SearchResult> searchHistory(String match, int limit);
+    
+    // ORDER BY docid DESC is served by the FTS doclist itself, so no sort step over the matches.
+    // Bookmarks borrow the frecency of their history row, looked up through index_history_url.
+    @Query("SELECT " + SearchResult.SOURCE_BOOKMARK + " AS source, bookmarks.id, bookmarks.title, bookmarks.url, " +
+           "bookmarks.timestamp, COALESCE(history.frecency, 0) AS frecency, " +
+           "matchinfo(bookmarks_fts, 'pcnx') AS matchInfo " +
+           "FROM bookmarks_fts JOIN bookmarks ON bookmarks.id = bookmarks_fts.docid " +
+           "LEFT JOIN history ON history.url = bookmarks.url " +
+           "WHERE bookmarks_fts MATCH :match ORDER BY bookmarks_fts.docid DESC LIMIT :limit")
+    List<SearchResult> searchBookmarks(String match, int limit);
+}
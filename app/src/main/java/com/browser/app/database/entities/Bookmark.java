@@ -1,9 +1,16 @@
 package com.browser.app.database.entities;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "bookmarks")
+@Entity(
+    tableName = "bookmarks",
+    indices = {
+        @Index(value = "url", unique = true),
+        @Index(value = "timestamp")
+    }
+)
 public class Bookmark {
     @PrimaryKey(autoGenerate = true)
     public int id;
@@ -0,0 +1,13 @@
+package com.browser.app.database.entities;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+// External-content FTS index over bookmarks; Room keeps it in sync with triggers on `bookmarks`.
+@Fts4(contentEntity = Bookmark.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61, prefix = {2, 3})
+@Entity(tableName = "bookmarks_fts")
+public class BookmarkFts {
+    public String title;
+    public String url;
+}
@@ -1,10 +1,29 @@
 package com.browser.app.database.entities;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "downloads")
+@Entity(
+    tableName = "downloads",
+    indices = {
+        @Index(value = "timestamp"),
+        @Index(value = {"isCompleted", "timestamp"})
+    }
+)
 public class DownloadItem {
+    public static final int STATUS_QUEUED = 0;
+    public static final int STATUS_RUNNING = 1;
+    public static final int STATUS_PAUSED = 2;
+    public static final int STATUS_WAITING_FOR_NETWORK = 3;
+    public static final int STATUS_FAILED = 4;
+    public static final int STATUS_COMPLETED = 5;
+    // Downloaded in full, but the contents do not match expectedSha256.
+    public static final int STATUS_CORRUPTED = 6;
+    // Too large for a metered network; starts once an unmetered one is available.
+    public static final int STATUS_WAITING_FOR_UNMETERED = 7;
+    
     @PrimaryKey(autoGenerate = true)
     public int id;
     
@@ -16,6 +35,25 @@ public class DownloadItem {
     public String mimeType;
     public boolean isCompleted;
     
+    @ColumnInfo(defaultValue = "0")
+    public int status;
+    // Bytes on disk as of the last checkpoint; fileSize is -1 while unknown.
+    @ColumnInfo(defaultValue = "0")
+    public long downloadedBytes;
+    // Per-segment progress of a ranged download, see com.browser.app.download.Segment.
+    public String segments;
+    // ETag or Last-Modified of the file, sent as If-Range when resuming.
+    public String validator;
+    // Lowercase hex SHA-256 of the finished file, hashed while it downloaded.
+    public String sha256;
+    // Digest the file should have, from the server or the user; checked on completion.
+    public String expectedSha256;
+    // Hash state covering a prefix of the file, see com.browser.app.download.Sha256.
+    public String hashState;
+    // Order in the download queue, lowest first.
+    @ColumnInfo(defaultValue = "0")
+    public long queuePosition;
+    
     public DownloadItem() {}
     
     public DownloadItem(String fileName, String url, String filePath, long timestamp, long fileSize, String mimeType) {
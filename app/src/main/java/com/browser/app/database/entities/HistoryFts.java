@@ -0,0 +1,13 @@
+package com.browser.app.database.entities;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+// External-content FTS index over history; Room keeps it in sync with triggers on `history`.
+@Fts4(contentEntity = HistoryItem.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61, prefix = {2, 3})
+@Entity(tableName = "history_fts")
+public class HistoryFts {
+    public String title;
+    public String url;
+}
@@ -1,9 +1,21 @@
 package com.browser.app.database.entities;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "history")
+// An ascending timestamp index scanned backwards yields (timestamp DESC, id DESC), the
+// order every list and keyset page uses; declaring it DESC would flip the id tiebreak.
+// The frecency index serves the ranked queries the same way.
+@Entity(
+    tableName = "history",
+    indices = {
+        @Index(value = "url", unique = true),
+        @Index(value = "timestamp"),
+        @Index(value = "frecency")
+    }
+)
 public class HistoryItem {
     @PrimaryKey(autoGenerate = true)
     public int id;
@@ -13,6 +25,9 @@ public class HistoryItem {
     public long timestamp;
     public String favicon;
     public int visitCount;
+    // See Frecency: stored on the shared epoch scale, only ever incremented.
+    @ColumnInfo(defaultValue = "0")
+    public double frecency;
     
     public HistoryItem() {
         this.visitCount = 1;
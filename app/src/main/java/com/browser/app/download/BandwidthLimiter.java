@@ -0,0 +1,110 @@
+package com.browser.app.download;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket shared by every download connection. Bytes are paid for after they are
+ * read, so a connection over budget simply stops reading and TCP slows the server down.
+ * While a page loads in the foreground the rate drops to {@link #FOREGROUND_BYTES_PER_SECOND},
+ * leaving the link to the page. Waiting downloads take turns, one grant each, so a download
+ * gets the same share whether it has one connection or four.
+ */
+final class BandwidthLimiter {
+    
+    private static final long FOREGROUND_BYTES_PER_SECOND = 256 * 1024;
+    // A page load whose end is never reported stops holding downloads back after this.
+    private static final long FOREGROUND_HOLD_NS = TimeUnit.SECONDS.toNanos(30);
+    // Idle time that may be made up for with a burst.
+    private static final long BURST_NS = TimeUnit.MILLISECONDS.toNanos(100);
+    
+    // All guarded by this. 0 means unlimited.
+    private long bytesPerSecond;
+    private long foregroundUntilNs;
+    private boolean foreground;
+    private double tokens;
+    private long refilledAtNs = System.nanoTime();
+    // Downloads with a connection waiting, in turn order, and how many of theirs wait.
+    private final ArrayDeque<Object> turns = new ArrayDeque<>();
+    private final Map<Object, int[]> waiting = new HashMap<>();
+    
+    synchronized void setRate(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        notifyAll();
+    }
+    
+    /** Throttles downloads while {@code loading} is true, for at most {@link #FOREGROUND_HOLD_NS}. */
+    synchronized void setForegroundLoading(boolean loading) {
+        foreground = loading;
+        foregroundUntilNs = System.nanoTime() + FOREGROUND_HOLD_NS;
+        notifyAll();
+    }
+    
+    /** Pays for {@code bytes} read on behalf of {@code owner}, waiting for its turn and budget. */
+    void acquire(Object owner, int bytes) throws InterruptedException {
+        synchronized (this) {
+            if (rate(System.nanoTime()) == 0 && turns.isEmpty()) return;
+            
+            int[] count = waiting.get(owner);
+            if (count == null) {
+                count = new int[1];
+                waiting.put(owner, count);
+                turns.addLast(owner);
+            }
+            count[0]++;
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    long rate = rate(now);
+                    if (rate == 0) break;
+                    if (turns.peekFirst() != owner) {
+                        wait();
+                        continue;
+                    }
+                    refill(now, rate);
+                    if (tokens >= 0) break;
+                    long waitNs = (long) (-tokens * 1e9 / rate);
+                    if (foreground) {
+                        // Wake up when the hold runs out, as the rate changes then.
+                        waitNs = Math.max(1, Math.min(waitNs, foregroundUntilNs - now));
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, waitNs);
+                }
+                tokens -= bytes;
+            } finally {
+                count[0]--;
+                boolean hadTurn = turns.peekFirst() == owner;
+                if (hadTurn) {
+                    turns.pollFirst();
+                } else if (count[0] == 0) {
+                    turns.remove(owner);
+                }
+                if (count[0] == 0) {
+                    waiting.remove(owner);
+                } else if (hadTurn) {
+                    turns.addLast(owner);
+                }
+                notifyAll();
+            }
+        }
+    }
+    
+    // Guarded by this.
+    private long rate(long now) {
+        if (foreground && now - foregroundUntilNs < 0) {
+            return bytesPerSecond == 0
+                ? FOREGROUND_BYTES_PER_SECOND
+                : Math.min(bytesPerSecond, FOREGROUND_BYTES_PER_SECOND);
+        }
+        return bytesPerSecond;
+    }
+    
+    // Guarded by this.
+    private void refill(long now, long rate) {
+        double capacity = rate * (BURST_NS / 1e9);
+        tokens = Math.min(capacity, tokens + (now - refilledAtNs) * (rate / 1e9));
+        refilledAtNs = now;
+    }
+}
@@ -0,0 +1,400 @@
+package com.browser.app.download;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.webkit.WebSettings;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.browser.app.database.BrowserDatabase;
+import com.browser.app.database.dao.DownloadDao;
+import com.browser.app.database.entities.DownloadItem;
+import com.browser.app.network.WebViewCookieJar;
+import com.browser.app.settings.SettingsStore;
+import com.browser.app.utils.TaskScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+/**
+ * Runs downloads inside the app instead of handing them to the system download manager,
+ * recording each one as a {@link DownloadItem}. Every download is a {@link DownloadTask};
+ * unfinished ones are picked up again on the next app start and whenever a network comes
+ * back, continuing from their last checkpoint.
+ *
+ * Downloads wait in a queue whose order is kept in the database. Only
+ * {@link #MAX_ACTIVE_DOWNLOADS} run at once, connections to one host are capped across
+ * all of them, and their bandwidth is shaped by a {@link BandwidthLimiter} that yields to
+ * page loads. Large files can be held back until the network is unmetered.
+ *
+ * Downloads block on the network for minutes, so they get their own threads instead of
+ * the shared {@link com.browser.app.utils.TaskScheduler} lanes.
+ */
+public class DownloadEngine implements DownloadTask.Callback {
+    
+    /** Tells the caller of {@link #enqueue} whether the download made it into the queue. */
+    public interface EnqueueCallback {
+        @MainThread
+        void onQueued(DownloadItem item);
+        
+        @MainThread
+        void onFailed(IOException error);
+    }
+    
+    private static final String TAG = "DownloadEngine";
+    private static final String DIR_NAME = "downloads";
+    private static final long READ_TIMEOUT_SECONDS = 30;
+    private static final int MAX_ACTIVE_DOWNLOADS = 3;
+    // Across all downloads from one host; many servers throttle more than this.
+    private static final int MAX_CONNECTIONS_PER_HOST = 6;
+    private static final long LARGE_DOWNLOAD_BYTES = 50L * 1024 * 1024;
+    
+    private static DownloadEngine instance;
+    
+    private final Context context;
+    private final DownloadDao dao;
+    private final OkHttpClient client;
+    private final ProgressTracker tracker;
+    private final SettingsStore settings;
+    // Progress is saved on this serial lane; rows are read back on it too, behind any
+    // save still queued, so a resumed download never starts from a stale checkpoint.
+    private final Executor writer;
+    private final ExecutorService threads;
+    private final BandwidthLimiter limiter = new BandwidthLimiter();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    @Nullable
+    private final ConnectivityManager connectivity;
+    // Guarded by running, like the two maps below it.
+    private final Map<Integer, DownloadTask> running = new HashMap<>();
+    private final Map<String, Integer> hostConnections = new HashMap<>();
+    // User agents of queued downloads, kept until they start.
+    private final Map<Integer, String> userAgents = new HashMap<>();
+    private volatile String defaultUserAgent;
+    private volatile boolean metered;
+    
+    private DownloadEngine(Context context) {
+        this.context = context;
+        dao = BrowserDatabase.getInstance(context).downloadDao();
+        writer = TaskScheduler.getInstance().executor(TaskScheduler.Lane.WRITE);
+        tracker = new ProgressTracker(dao, writer);
+        settings = SettingsStore.getInstance(context);
+        settings.addListener((previous, current) -> {
+            if (previous.largeDownloadsUnmeteredOnly != current.largeDownloadsUnmeteredOnly) {
+                onNetworkPolicyChanged();
+            }
+        });
+        client = new OkHttpClient.Builder()
+            .cookieJar(new WebViewCookieJar())
+            .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .build();
+        
+        AtomicInteger count = new AtomicInteger();
+        threads = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), runnable -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "download-" + count.incrementAndGet()));
+        
+        connectivity = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity != null) {
+            metered = connectivity.isActiveNetworkMetered();
+            NetworkRequest request = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build();
+            connectivity.registerNetworkCallback(request, new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    resumeInterrupted();
+                }
+                
+                // Also fires for signal strength changes; only a change of meteredness matters.
+                @Override
+                public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities capabilities) {
+                    boolean nowMetered = connectivity.isActiveNetworkMetered();
+                    if (nowMetered != metered) {
+                        metered = nowMetered;
+                        onNetworkPolicyChanged();
+                    }
+                }
+            });
+        }
+    }
+    
+    public static synchronized DownloadEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new DownloadEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    /**
+     * Queues {@code url} for download into the app's download directory. {@code callback}
+     * hears back once its row exists, or why no file could be created for it.
+     */
+    public void enqueue(String url, String fileName, @Nullable String mimeType, @Nullable String userAgent,
+                        long contentLength, @Nullable EnqueueCallback callback) {
+        writer.execute(() -> {
+            File file;
+            try {
+                file = createFile(fileName);
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot create a file for " + fileName, e);
+                if (callback != null) {
+                    mainHandler.post(() -> callback.onFailed(e));
+                }
+                return;
+            }
+            DownloadItem item = new DownloadItem(file.getName(), url, file.getPath(),
+                System.currentTimeMillis(), contentLength > 0 ? contentLength : -1, mimeType);
+            item.status = DownloadItem.STATUS_QUEUED;
+            item.id = (int) dao.enqueue(item);
+            tracker.publishStatus(item);
+            if (callback != null) {
+                mainHandler.post(() -> callback.onQueued(item));
+            }
+            if (userAgent != null) {
+                synchronized (running) {
+                    userAgents.put(item.id, userAgent);
+                }
+            }
+            schedule();
+        });
+    }
+    
+    public ProgressTracker getProgressTracker() {
+        return tracker;
+    }
+    
+    /** Stops download {@code id}, or keeps it from starting; it stays paused until {@link #resume}d. */
+    public void pause(int id) {
+        if (stopRunning(id, DownloadItem.STATUS_PAUSED)) return;
+        // Queued ones only start on the writer lane, so none can start meanwhile.
+        writer.execute(() -> {
+            if (stopRunning(id, DownloadItem.STATUS_PAUSED)) return;
+            DownloadItem item = dao.getDownloadById(id);
+            if (item != null && !item.isCompleted && item.status != DownloadItem.STATUS_FAILED
+                    && item.status != DownloadItem.STATUS_CORRUPTED) {
+                item.status = DownloadItem.STATUS_PAUSED;
+                dao.updateStatus(id, item.status);
+                tracker.publishStatus(item);
+            }
+        });
+    }
+    
+    /** Puts download {@code id} back in the queue, at its old place. */
+    public void resume(int id) {
+        writer.execute(() -> {
+            DownloadItem item = dao.getDownloadById(id);
+            if (item == null || item.isCompleted) return;
+            if (item.status != DownloadItem.STATUS_QUEUED) {
+                item.status = DownloadItem.STATUS_QUEUED;
+                dao.updateStatus(id, item.status);
+                tracker.publishStatus(item);
+            }
+            schedule();
+        });
+    }
+    
+    /** Moves download {@code id} to the front of the queue. */
+    public void prioritize(int id) {
+        writer.execute(() -> {
+            dao.moveToFront(id);
+            schedule();
+        });
+    }
+    
+    /** Requeues downloads cut off by a lost network, and restarts those cut off by process death. */
+    public void resumeInterrupted() {
+        writer.execute(() -> {
+            List<DownloadItem> waiting = dao.getDownloadsWithStatus(DownloadItem.STATUS_WAITING_FOR_NETWORK);
+            dao.replaceStatus(DownloadItem.STATUS_WAITING_FOR_NETWORK, DownloadItem.STATUS_QUEUED);
+            for (DownloadItem item : waiting) {
+                item.status = DownloadItem.STATUS_QUEUED;
+                tracker.publishStatus(item);
+            }
+            schedule();
+        });
+    }
+    
+    /** Caps the combined speed of all downloads; 0 lifts the cap. */
+    public void setBandwidthLimit(long bytesPerSecond) {
+        limiter.setRate(bytesPerSecond);
+    }
+    
+    /**
+     * Throttles downloads while the foreground page loads, so they do not compete with it;
+     * call with false once it has finished.
+     */
+    public void setForegroundLoading(boolean loading) {
+        limiter.setForegroundLoading(loading);
+    }
+    
+    /** Applies a change of network or of the large-download setting to queued and running downloads. */
+    private void onNetworkPolicyChanged() {
+        List<DownloadTask> tasks;
+        synchronized (running) {
+            tasks = new ArrayList<>(running.values());
+        }
+        for (DownloadTask task : tasks) {
+            if (!isAllowedOnNetwork(task.item.fileSize)) {
+                task.stop(DownloadItem.STATUS_WAITING_FOR_UNMETERED);
+            }
+        }
+        writer.execute(this::schedule);
+    }
+    
+    /**
+     * Checks download {@code id} against a SHA-256 in hex: on completion if it is still
+     * running, right away if it is done. A mismatch marks it {@link DownloadItem#STATUS_CORRUPTED}.
+     */
+    public void verify(int id, String sha256) {
+        String expected = sha256.trim().toLowerCase(Locale.US);
+        synchronized (running) {
+            DownloadTask task = running.get(id);
+            if (task != null && task.expectSha256(expected)) return;
+        }
+        // Behind the final save of a task that just finished.
+        writer.execute(() -> {
+            DownloadItem item = dao.getDownloadById(id);
+            if (item == null) return;
+            item.expectedSha256 = expected;
+            if (item.sha256 != null) {
+                item.isCompleted = expected.equals(item.sha256);
+                item.status = item.isCompleted ? DownloadItem.STATUS_COMPLETED : DownloadItem.STATUS_CORRUPTED;
+            }
+            dao.update(item);
+            tracker.publishStatus(item);
+        });
+    }
+    
+    @Override
+    public void onFinished(DownloadTask task) {
+        synchronized (running) {
+            running.remove(task.item.id);
+            String host = hostOf(task.item.url);
+            int connections = hostConnections.get(host) - task.maxConnections;
+            if (connections > 0) {
+                hostConnections.put(host, connections);
+            } else {
+                hostConnections.remove(host);
+            }
+        }
+        // Behind the task's final save, so its row is read back as it ended.
+        writer.execute(this::schedule);
+    }
+    
+    @Override
+    public boolean isAllowedOnNetwork(long fileSize) {
+        return fileSize < LARGE_DOWNLOAD_BYTES || !metered
+            || !settings.get().largeDownloadsUnmeteredOnly;
+    }
+    
+    // Loading it can start up WebView's provider, so it is only fetched on a download thread.
+    @Override
+    public String defaultUserAgent() {
+        String userAgent = defaultUserAgent;
+        if (userAgent == null) {
+            userAgent = WebSettings.getDefaultUserAgent(context);
+            defaultUserAgent = userAgent;
+        }
+        return userAgent;
+    }
+    
+    // Starts queued downloads in queue order while there is room for them. Writer lane only,
+    // which makes it the only place downloads start.
+    private void schedule() {
+        List<DownloadItem> queued = dao.getDownloadsWithStatus(DownloadItem.STATUS_QUEUED,
+            DownloadItem.STATUS_RUNNING, DownloadItem.STATUS_WAITING_FOR_UNMETERED);
+        List<DownloadItem> held = new ArrayList<>();
+        List<DownloadTask> started = new ArrayList<>();
+        synchronized (running) {
+            for (DownloadItem item : queued) {
+                if (running.size() >= MAX_ACTIVE_DOWNLOADS) break;
+                // Rows still marked running without a task were cut off by process death.
+                if (running.containsKey(item.id)) continue;
+                if (!isAllowedOnNetwork(item.fileSize)) {
+                    held.add(item);
+                    continue;
+                }
+                String host = hostOf(item.url);
+                Integer used = hostConnections.get(host);
+                int free = MAX_CONNECTIONS_PER_HOST - (used != null ? used : 0);
+                if (free <= 0) continue;
+                int connections = Math.min(DownloadTask.MAX_CONNECTIONS, free);
+                hostConnections.put(host, MAX_CONNECTIONS_PER_HOST - free + connections);
+                DownloadTask task = new DownloadTask(item, client, threads, tracker, limiter, connections,
+                    userAgents.remove(item.id), this);
+                running.put(item.id, task);
+                started.add(task);
+            }
+        }
+        for (DownloadItem item : held) {
+            if (item.status != DownloadItem.STATUS_WAITING_FOR_UNMETERED) {
+                item.status = DownloadItem.STATUS_WAITING_FOR_UNMETERED;
+                dao.updateStatus(item.id, item.status);
+                tracker.publishStatus(item);
+            }
+        }
+        for (DownloadTask task : started) {
+            threads.execute(task);
+        }
+    }
+    
+    private boolean stopRunning(int id, int status) {
+        DownloadTask task;
+        synchronized (running) {
+            task = running.get(id);
+        }
+        if (task == null) return false;
+        task.stop(status);
+        return true;
+    }
+    
+    private static String hostOf(String url) {
+        HttpUrl parsed = HttpUrl.parse(url);
+        return parsed != null ? parsed.host() : "";
+    }
+    
+    // Claims a name in the download directory, numbering it if the plain one is taken.
+    private File createFile(String fileName) throws IOException {
+        File directory = context.getExternalFilesDir(Environment.DIRECTORY_DOWNLOADS);
+        if (directory == null) {
+            directory = new File(context.getFilesDir(), DIR_NAME);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = dot > 0 ? fileName.substring(dot) : "";
+        File file = new File(directory, fileName);
+        for (int i = 1; !file.createNewFile(); i++) {
+            file = new File(directory, base + " (" + i + ")" + extension);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,747 @@
+package com.browser.app.download;
+
+import android.util.Base64;
+
+import androidx.annotation.Nullable;
+
+import com.browser.app.database.entities.DownloadItem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * One run of one download. When the server supports ranges, the file is preallocated and
+ * fetched over several connections at once, each writing its segment in place through
+ * positional {@link FileChannel} writes. A connection that finishes early takes over the
+ * back half of the largest segment still in flight, so one slow connection does not hold
+ * up the end of the download. A dropped connection is retried from where its segment
+ * stopped.
+ *
+ * Every read is paid for through the shared {@link BandwidthLimiter}. Workers count written
+ * bytes into the {@link ProgressTracker}. Only the coordinating
+ * thread reports checkpoints: every {@link #CHECKPOINT_INTERVAL_MS} it flushes the file and
+ * then records how far each segment got, so a resumed download never trusts bytes that
+ * were not on disk.
+ *
+ * The file is hashed with SHA-256 as it arrives. The hash follows the end of the gapless
+ * prefix of the file: the connection writing there feeds its bytes straight in, and bytes
+ * other connections wrote further ahead are read back once the prefix reaches them,
+ * usually while they are still in the page cache. The hash state is checkpointed with the
+ * segments, so a resumed download does not re-read what it already hashed.
+ */
+final class DownloadTask implements Runnable {
+    
+    interface Callback {
+        /** Sent when the caller of enqueue did not pass one, e.g. after a restart. */
+        String defaultUserAgent();
+        
+        /** Whether a file of {@code fileSize} bytes, -1 if unknown, may download on the current network. */
+        boolean isAllowedOnNetwork(long fileSize);
+        
+        void onFinished(DownloadTask task);
+    }
+    
+    static final int MAX_CONNECTIONS = 4;
+    // Smaller pieces are not worth another connection's handshake and slow start.
+    private static final long MIN_SEGMENT_BYTES = 1024 * 1024;
+    private static final int MAX_RETRIES = 5;
+    private static final long RETRY_BASE_DELAY_MS = 1000;
+    private static final long CHECKPOINT_INTERVAL_MS = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long UNKNOWN_END = Long.MAX_VALUE - 1;
+    
+    private static final int FAILURE_NONE = 0;
+    private static final int FAILURE_NETWORK = 1;
+    private static final int FAILURE_FATAL = 2;
+    // The file changed on the server since the download started.
+    private static final int FAILURE_CHANGED = 3;
+    
+    /** A failure that retrying the same request cannot fix. */
+    private static class DownloadException extends IOException {
+        final int failure;
+        
+        DownloadException(int failure, String message) {
+            super(message);
+            this.failure = failure;
+        }
+    }
+    
+    final DownloadItem item;
+    // Most connections this download may open at once.
+    final int maxConnections;
+    private final OkHttpClient client;
+    private final Executor executor;
+    private final ProgressTracker tracker;
+    private final BandwidthLimiter limiter;
+    @Nullable
+    private String userAgent;
+    private final Callback callback;
+    
+    private final Object lock = new Object();
+    // Guarded by lock.
+    private List<Segment> segments;
+    private final List<Segment> claimed = new ArrayList<>();
+    private final List<Call> calls = new ArrayList<>();
+    private int activeWorkers;
+    private int failure = FAILURE_NONE;
+    private int stopStatus = -1;
+    
+    // Set once the outcome is decided; expectSha256 then has to go through the database.
+    private boolean verified;
+    
+    private final Object hashLock = new Object();
+    // Guarded by hashLock; covers [0, hashed) of the file, null once finished. Never taken
+    // while holding lock.
+    private Sha256 hash;
+    private ByteBuffer hashBuffer;
+    private volatile long hashed;
+    
+    private boolean rangesSupported;
+    private FileChannel channel;
+    private ProgressTracker.Counter counter;
+    
+    DownloadTask(DownloadItem item, OkHttpClient client, Executor executor, ProgressTracker tracker,
+                 BandwidthLimiter limiter, int maxConnections, @Nullable String userAgent, Callback callback) {
+        this.item = item;
+        this.client = client;
+        this.executor = executor;
+        this.tracker = tracker;
+        this.limiter = limiter;
+        this.maxConnections = maxConnections;
+        this.userAgent = userAgent;
+        this.callback = callback;
+        segments = Segment.decode(item.segments);
+        // Only ranged downloads are ever split or checkpointed with progress.
+        rangesSupported = segments != null && item.fileSize > 0;
+        // Without a saved state the hash is rebuilt from the file as the prefix grows.
+        hash = rangesSupported ? Sha256.restore(item.hashState) : null;
+        if (hash == null) {
+            hash = new Sha256();
+        }
+        hashed = hash.count();
+    }
+    
+    /**
+     * Stops the download; it ends with {@code status} once in-flight writes are done.
+     * Safe to call from any thread.
+     */
+    void stop(int status) {
+        List<Call> toCancel;
+        synchronized (lock) {
+            if (stopStatus >= 0) return;
+            stopStatus = status;
+            toCancel = new ArrayList<>(calls);
+            lock.notifyAll();
+        }
+        for (Call call : toCancel) {
+            call.cancel();
+        }
+    }
+    
+    /**
+     * Sets the digest the file must have. Returns false if the download has already
+     * finished, in which case the caller checks the stored row instead.
+     */
+    boolean expectSha256(String sha256) {
+        synchronized (lock) {
+            if (verified) return false;
+            item.expectedSha256 = sha256;
+            return true;
+        }
+    }
+    
+    @Override
+    public void run() {
+        counter = tracker.track(item);
+        if (userAgent == null) {
+            userAgent = callback.defaultUserAgent();
+        }
+        int status;
+        try {
+            status = download();
+            if (status == DownloadItem.STATUS_QUEUED) {
+                // Changed on the server: start over once against the new version.
+                resetProgress();
+                status = download();
+                if (status == DownloadItem.STATUS_QUEUED) {
+                    status = DownloadItem.STATUS_FAILED;
+                }
+            }
+        } catch (DownloadException e) {
+            status = DownloadItem.STATUS_FAILED;
+        } catch (IOException e) {
+            status = DownloadItem.STATUS_WAITING_FOR_NETWORK;
+        } finally {
+            closeFile();
+        }
+        synchronized (lock) {
+            if (stopStatus >= 0 && status != DownloadItem.STATUS_COMPLETED) {
+                status = stopStatus;
+            }
+            verified = true;
+            if (status == DownloadItem.STATUS_COMPLETED && item.expectedSha256 != null
+                    && !item.expectedSha256.equals(item.sha256)) {
+                status = DownloadItem.STATUS_CORRUPTED;
+            }
+        }
+        item.status = status;
+        item.isCompleted = status == DownloadItem.STATUS_COMPLETED;
+        if (item.isCompleted || status == DownloadItem.STATUS_CORRUPTED) {
+            item.segments = null;
+            item.hashState = null;
+        }
+        tracker.finish(item, counter);
+        callback.onFinished(this);
+    }
+    
+    // Returns the final status; STATUS_QUEUED means the download must restart from zero.
+    private int download() throws IOException {
+        if (segments == null) {
+            probeWithRetries();
+        }
+        // The size may only be known now; resumed downloads are checked again too.
+        if (!callback.isAllowedOnNetwork(item.fileSize)) return DownloadItem.STATUS_WAITING_FOR_UNMETERED;
+        openFile();
+        
+        int workers;
+        synchronized (lock) {
+            if (stopStatus >= 0) return stopStatus;
+            workers = rangesSupported
+                ? (int) Math.max(1, Math.min(maxConnections, remainingBytes() / MIN_SEGMENT_BYTES))
+                : 1;
+            activeWorkers = workers;
+            failure = FAILURE_NONE;
+            claimed.clear();
+        }
+        item.status = DownloadItem.STATUS_RUNNING;
+        checkpoint();
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+        
+        boolean interrupted = false;
+        while (true) {
+            synchronized (lock) {
+                if (activeWorkers == 0) break;
+                try {
+                    lock.wait(CHECKPOINT_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    stop(DownloadItem.STATUS_PAUSED);
+                }
+            }
+            checkpoint();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        
+        boolean done;
+        int outcome;
+        synchronized (lock) {
+            done = true;
+            for (Segment segment : segments) {
+                done &= segment.isDone();
+            }
+            outcome = failure;
+        }
+        if (done) {
+            if (!rangesSupported) {
+                if (item.fileSize <= 0) {
+                    item.fileSize = segments.get(0).end + 1;
+                }
+                channel.truncate(item.fileSize);
+            }
+            channel.force(true);
+            finishHash();
+            checkpoint();
+            return DownloadItem.STATUS_COMPLETED;
+        }
+        checkpoint();
+        if (outcome == FAILURE_CHANGED) return DownloadItem.STATUS_QUEUED;
+        if (outcome == FAILURE_FATAL) return DownloadItem.STATUS_FAILED;
+        if (outcome == FAILURE_NETWORK) return DownloadItem.STATUS_WAITING_FOR_NETWORK;
+        return DownloadItem.STATUS_PAUSED;
+    }
+    
+    private void probeWithRetries() throws IOException {
+        for (int attempts = 1; ; attempts++) {
+            try {
+                probe();
+                return;
+            } catch (DownloadException e) {
+                throw e;
+            } catch (IOException e) {
+                synchronized (lock) {
+                    if (attempts > MAX_RETRIES || !backOff(RETRY_BASE_DELAY_MS << (attempts - 1))) throw e;
+                }
+            }
+        }
+    }
+    
+    // Asks for the first byte to learn the size, the validator and whether ranges work.
+    private void probe() throws IOException {
+        Call call = newCall(newRequest().header("Range", "bytes=0-0").build());
+        try (Response response = call.execute()) {
+            int code = response.code();
+            checkStatus(code);
+            long total = -1;
+            String contentRange = response.header("Content-Range");
+            if (code == 206 && contentRange != null) {
+                int slash = contentRange.lastIndexOf('/');
+                try {
+                    total = Long.parseLong(contentRange.substring(slash + 1).trim());
+                } catch (NumberFormatException e) {
+                    total = -1;
+                }
+            } else if (code == 200 && response.body() != null) {
+                total = response.body().contentLength();
+            }
+            
+            rangesSupported = code == 206 && total > 0;
+            item.fileSize = total;
+            String etag = response.header("ETag");
+            // Weak validators are not allowed in If-Range.
+            item.validator = etag != null && !etag.startsWith("W/") ? etag : response.header("Last-Modified");
+            String advertised = advertisedSha256(response);
+            synchronized (lock) {
+                if (item.expectedSha256 == null) {
+                    item.expectedSha256 = advertised;
+                }
+            }
+        } finally {
+            finishCall(call);
+        }
+        
+        List<Segment> initial;
+        if (rangesSupported) {
+            int count = (int) Math.max(1, Math.min(maxConnections, item.fileSize / MIN_SEGMENT_BYTES));
+            initial = Segment.split(item.fileSize, count);
+        } else {
+            initial = new ArrayList<>(1);
+            initial.add(new Segment(0, 0, item.fileSize > 0 ? item.fileSize - 1 : UNKNOWN_END));
+        }
+        synchronized (lock) {
+            segments = initial;
+        }
+        resetHash();
+        item.segments = rangesSupported ? Segment.encode(initial) : null;
+        item.hashState = null;
+        item.sha256 = null;
+        item.downloadedBytes = 0;
+        tracker.save(item);
+        counter.setTotal(item.fileSize);
+        counter.reset();
+    }
+    
+    private void resetProgress() {
+        synchronized (lock) {
+            segments = null;
+            failure = FAILURE_NONE;
+        }
+        item.segments = null;
+        item.validator = null;
+        item.downloadedBytes = 0;
+        counter.reset();
+    }
+    
+    private void openFile() throws IOException {
+        File file = new File(item.filePath);
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new DownloadException(FAILURE_FATAL, "Cannot create " + parent);
+        }
+        closeFile();
+        RandomAccessFile raf;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+        } catch (IOException e) {
+            throw new DownloadException(FAILURE_FATAL, e.getMessage());
+        }
+        channel = raf.getChannel();
+        if (rangesSupported && raf.length() != item.fileSize) {
+            // Reserve the space up front, so a full disk fails now and not at 90%.
+            raf.setLength(item.fileSize);
+        }
+    }
+    
+    private void closeFile() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        channel = null;
+    }
+    
+    // Flushes the file, then records the progress it now safely holds.
+    private void checkpoint() throws IOException {
+        String hashState = null;
+        // Taken before the segments, so it never covers more than they say is written.
+        synchronized (hashLock) {
+            if (rangesSupported && hash != null) {
+                hashState = hash.save();
+            }
+        }
+        String encoded;
+        long downloaded;
+        synchronized (lock) {
+            encoded = rangesSupported ? Segment.encode(segments) : null;
+            downloaded = 0;
+            for (Segment segment : segments) {
+                downloaded += segment.next - segment.start;
+            }
+        }
+        if (channel != null) {
+            channel.force(false);
+        }
+        item.segments = encoded;
+        item.hashState = hashState;
+        item.downloadedBytes = downloaded;
+        tracker.checkpoint(item);
+    }
+    
+    private void resetHash() {
+        synchronized (hashLock) {
+            hash = new Sha256();
+            hashed = 0;
+        }
+    }
+    
+    // Feeds bytes just written at from into the hash if they extend the hashed prefix;
+    // bytes further ahead are left for catchUpHash.
+    private void hashWritten(long from, byte[] buffer, int count) throws IOException {
+        if (from != hashed) return;
+        synchronized (hashLock) {
+            if (from != hashed || hash == null) return;
+            hash.update(buffer, 0, count);
+            hashed = from + count;
+            catchUpHash();
+        }
+    }
+    
+    // Guarded by hashLock. Reads back and hashes whatever other connections already wrote
+    // right after the hashed prefix. Loops until nothing is left, so a write that raced past
+    // the check in hashWritten is picked up here.
+    private void catchUpHash() throws IOException {
+        while (true) {
+            long reach;
+            synchronized (lock) {
+                reach = writtenFrom(hashed);
+            }
+            if (reach <= hashed) return;
+            if (hashBuffer == null) {
+                hashBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+            }
+            long position = hashed;
+            while (position < reach) {
+                hashBuffer.clear();
+                hashBuffer.limit((int) Math.min(BUFFER_SIZE, reach - position));
+                int read = channel.read(hashBuffer, position);
+                if (read < 0) throw new DownloadException(FAILURE_FATAL, "File shorter than written");
+                hash.update(hashBuffer.array(), 0, read);
+                position += read;
+                hashed = position;
+            }
+        }
+    }
+    
+    private void finishHash() throws IOException {
+        synchronized (hashLock) {
+            catchUpHash();
+            if (hashed == item.fileSize) {
+                item.sha256 = hash.digestHex();
+            }
+            hash = null;
+        }
+    }
+    
+    // Guarded by lock. End of the bytes on disk that follow position without a gap.
+    private long writtenFrom(long position) {
+        for (Segment segment : segments) {
+            if (segment.end < position) continue;
+            if (segment.start > position || segment.next <= position) break;
+            position = segment.next;
+            if (!segment.isDone()) break;
+        }
+        return position;
+    }
+    
+    private void work() {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+            Segment segment;
+            while ((segment = claim()) != null) {
+                if (!fetchWithRetries(segment, buffer)) break;
+            }
+        } finally {
+            synchronized (lock) {
+                activeWorkers--;
+                lock.notifyAll();
+            }
+        }
+    }
+    
+    // Next unfinished segment nobody is fetching, else the back half of the largest one
+    // in flight; null when there is nothing left worth a connection.
+    @Nullable
+    private Segment claim() {
+        synchronized (lock) {
+            if (stopStatus >= 0 || failure != FAILURE_NONE) return null;
+            Segment largest = null;
+            for (int i = 0; i < segments.size(); i++) {
+                Segment segment = segments.get(i);
+                if (segment.isDone()) continue;
+                if (!claimed.contains(segment)) {
+                    claimed.add(segment);
+                    return segment;
+                }
+                if (largest == null || segment.remaining() > largest.remaining()) {
+                    largest = segment;
+                }
+            }
+            if (!rangesSupported || largest == null || largest.remaining() < 2 * MIN_SEGMENT_BYTES) {
+                return null;
+            }
+            long middle = largest.next + largest.remaining() / 2;
+            Segment back = new Segment(middle, middle, largest.end);
+            largest.end = middle - 1;
+            segments.add(segments.indexOf(largest) + 1, back);
+            claimed.add(back);
+            return back;
+        }
+    }
+    
+    // Returns false if the whole task has to stop.
+    private boolean fetchWithRetries(Segment segment, byte[] buffer) {
+        int attempts = 0;
+        while (true) {
+            long before;
+            synchronized (lock) {
+                if (stopStatus >= 0 || failure != FAILURE_NONE) return false;
+                before = segment.next;
+            }
+            try {
+                fetch(segment, buffer);
+                synchronized (lock) {
+                    if (segment.isDone()) return true;
+                    if (stopStatus >= 0) return false;
+                }
+                throw new IOException("Connection closed early");
+            } catch (DownloadException e) {
+                fail(e.failure);
+                return false;
+            } catch (IOException e) {
+                synchronized (lock) {
+                    if (stopStatus >= 0) return false;
+                    if (segment.next > before) {
+                        attempts = 0;
+                    }
+                    if (++attempts > MAX_RETRIES) {
+                        failure = FAILURE_NETWORK;
+                        lock.notifyAll();
+                        return false;
+                    }
+                    if (!backOff(RETRY_BASE_DELAY_MS << (attempts - 1))) return false;
+                }
+            }
+        }
+    }
+    
+    // Waits under lock; returns false if the task was stopped or failed meanwhile.
+    private boolean backOff(long delayMs) {
+        long deadline = System.currentTimeMillis() + delayMs;
+        long remaining = delayMs;
+        while (stopStatus < 0 && failure == FAILURE_NONE && remaining > 0) {
+            try {
+                lock.wait(remaining);
+            } catch (InterruptedException e) {
+                return false;
+            }
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return stopStatus < 0 && failure == FAILURE_NONE;
+    }
+    
+    private void fetch(Segment segment, byte[] buffer) throws IOException {
+        long position;
+        long end;
+        synchronized (lock) {
+            if (!rangesSupported) {
+                // Without ranges every attempt starts over.
+                counter.add(-segment.next);
+                segment.next = 0;
+            }
+            position = segment.next;
+            end = segment.end;
+        }
+        if (!rangesSupported) {
+            resetHash();
+        }
+        if (position > end) return;
+        
+        Request.Builder builder = newRequest();
+        if (rangesSupported) {
+            builder.header("Range", "bytes=" + position + "-" + end);
+            if (item.validator != null) {
+                builder.header("If-Range", item.validator);
+            }
+        }
+        Call call = newCall(builder.build());
+        try (Response response = call.execute()) {
+            int code = response.code();
+            checkStatus(code);
+            if (rangesSupported) {
+                // If-Range answers a changed file with the whole new version.
+                if (code != 206) throw new DownloadException(FAILURE_CHANGED, "File changed on server");
+                String contentRange = response.header("Content-Range");
+                if (contentRange == null || !contentRange.startsWith("bytes " + position + "-")) {
+                    throw new DownloadException(FAILURE_FATAL, "Unexpected range " + contentRange);
+                }
+            }
+            if (response.body() == null) throw new IOException("Empty body");
+            
+            InputStream input = response.body().byteStream();
+            int count;
+            while ((count = input.read(buffer)) >= 0) {
+                try {
+                    limiter.acquire(this, count);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                int allowed;
+                synchronized (lock) {
+                    if (stopStatus >= 0) return;
+                    // The segment may have been split since the request went out.
+                    allowed = (int) Math.min(count, segment.end - position + 1);
+                }
+                if (allowed > 0) {
+                    long from = position;
+                    ByteBuffer source = ByteBuffer.wrap(buffer, 0, allowed);
+                    while (source.hasRemaining()) {
+                        position += channel.write(source, position);
+                    }
+                    synchronized (lock) {
+                        segment.next = position;
+                    }
+                    counter.add(allowed);
+                    hashWritten(from, buffer, allowed);
+                }
+                if (allowed < count) return;
+            }
+            synchronized (lock) {
+                if (segment.end == UNKNOWN_END) {
+                    segment.end = position - 1;
+                }
+            }
+        } finally {
+            finishCall(call);
+        }
+    }
+    
+    private Request.Builder newRequest() throws DownloadException {
+        Request.Builder builder;
+        try {
+            builder = new Request.Builder().url(item.url);
+        } catch (IllegalArgumentException e) {
+            throw new DownloadException(FAILURE_FATAL, e.getMessage());
+        }
+        if (userAgent != null) {
+            builder.header("User-Agent", userAgent);
+        }
+        // The file must hold the bytes the server describes, for sizes, ranges and digests.
+        return builder.header("Accept-Encoding", "identity");
+    }
+    
+    // Registers the call until finishCall, so stop() can abort a stalled body read too.
+    private Call newCall(Request request) throws IOException {
+        Call call = client.newCall(request);
+        synchronized (lock) {
+            if (stopStatus >= 0 || failure != FAILURE_NONE) throw new IOException("Stopped");
+            calls.add(call);
+        }
+        return call;
+    }
+    
+    private void finishCall(Call call) {
+        synchronized (lock) {
+            calls.remove(call);
+        }
+    }
+    
+    // From Repr-Digest (RFC 9530) or the older Digest header, as lowercase hex.
+    @Nullable
+    private static String advertisedSha256(Response response) {
+        for (String name : new String[] {"Repr-Digest", "Digest"}) {
+            String header = response.header(name);
+            if (header == null) continue;
+            for (String entry : header.split(",")) {
+                int equals = entry.indexOf('=');
+                if (equals < 0 || !entry.substring(0, equals).trim().equalsIgnoreCase("sha-256")) continue;
+                String value = entry.substring(equals + 1).trim();
+                if (value.length() > 1 && value.startsWith(":") && value.endsWith(":")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                byte[] digest;
+                try {
+                    digest = Base64.decode(value, Base64.DEFAULT);
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                if (digest.length != 32) continue;
+                StringBuilder hex = new StringBuilder(64);
+                for (byte b : digest) {
+                    hex.append(String.format(Locale.US, "%02x", b & 0xff));
+                }
+                return hex.toString();
+            }
+        }
+        return null;
+    }
+    
+    // Server errors and throttling are worth retrying; other client errors are not.
+    private static void checkStatus(int code) throws IOException {
+        if (code == 200 || code == 206) return;
+        if (code >= 500 || code == 408 || code == 429) throw new IOException("HTTP " + code);
+        throw new DownloadException(FAILURE_FATAL, "HTTP " + code);
+    }
+    
+    private void fail(int reason) {
+        List<Call> toCancel;
+        synchronized (lock) {
+            if (failure == FAILURE_NONE) {
+                failure = reason;
+            }
+            toCancel = new ArrayList<>(calls);
+            lock.notifyAll();
+        }
+        for (Call call : toCancel) {
+            call.cancel();
+        }
+    }
+    
+    // Guarded by lock.
+    private long remainingBytes() {
+        long remaining = 0;
+        for (Segment segment : segments) {
+            if (!segment.isDone()) {
+                remaining += segment.remaining();
+            }
+        }
+        return remaining;
+    }
+}
@@ -0,0 +1,292 @@
+package com.browser.app.download;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import androidx.annotation.MainThread;
+
+import com.browser.app.database.dao.DownloadDao;
+import com.browser.app.database.entities.DownloadItem;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects progress from running downloads and hands it out at two fixed rates, however
+ * fast bytes arrive. Download threads only bump an atomic counter per write; the screen
+ * gets a snapshot of what changed every {@link #PUBLISH_INTERVAL_NS}, taken on a vsync
+ * callback; the database gets the latest checkpoint of every download in one transaction
+ * at most every {@link #FLUSH_DELAY_MS}.
+ */
+public class ProgressTracker {
+    
+    /** What one download looked like at a snapshot. */
+    public static final class Progress {
+        public final int id;
+        public final int status;
+        public final long downloadedBytes;
+        // -1 while unknown.
+        public final long totalBytes;
+        public final long bytesPerSecond;
+        
+        Progress(int id, int status, long downloadedBytes, long totalBytes, long bytesPerSecond) {
+            this.id = id;
+            this.status = status;
+            this.downloadedBytes = downloadedBytes;
+            this.totalBytes = totalBytes;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+    }
+    
+    public interface Listener {
+        /** Downloads whose progress or status changed since the previous call. */
+        @MainThread
+        void onProgress(List<Progress> changed);
+    }
+    
+    /** Live state of one running download, written by its threads without locking. */
+    static final class Counter {
+        final int id;
+        private final AtomicLong downloaded;
+        private volatile long total;
+        private volatile int status = DownloadItem.STATUS_RUNNING;
+        private volatile boolean finished;
+        
+        // Main thread only.
+        private long publishedBytes = -1;
+        private int publishedStatus = -1;
+        private long sampledBytes;
+        private long sampledAtNs;
+        private long bytesPerSecond;
+        
+        Counter(int id, long downloaded, long total) {
+            this.id = id;
+            this.downloaded = new AtomicLong(downloaded);
+            this.total = total;
+            sampledBytes = downloaded;
+        }
+        
+        void add(long bytes) {
+            downloaded.addAndGet(bytes);
+        }
+        
+        void reset() {
+            downloaded.set(0);
+        }
+        
+        void setTotal(long total) {
+            this.total = total;
+        }
+        
+        void setStatus(int status) {
+            this.status = status;
+        }
+    }
+    
+    // About ten updates a second: smooth for a progress bar, cheap for a list.
+    private static final long PUBLISH_INTERVAL_NS = 100_000_000L;
+    // Speed is averaged over roughly the last second of samples.
+    private static final double SPEED_SMOOTHING = 0.3;
+    private static final long FLUSH_DELAY_MS = 3000;
+    
+    private final DownloadDao dao;
+    private final Executor writer;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+    private final ConcurrentHashMap<Integer, Counter> counters = new ConcurrentHashMap<>();
+    
+    private final Object lock = new Object();
+    // Guarded by lock.
+    private LinkedHashMap<Integer, DownloadItem> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    
+    // Main thread only.
+    private final List<Listener> listeners = new ArrayList<>();
+    private boolean frameScheduled;
+    private long lastPublishNs;
+    private final Choreographer.FrameCallback frameCallback = this::onFrame;
+    
+    ProgressTracker(DownloadDao dao, Executor writer) {
+        this.dao = dao;
+        this.writer = writer;
+    }
+    
+    /** Starts listening; {@code listener} first gets the state of every running download. */
+    @MainThread
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        List<Progress> all = new ArrayList<>(counters.size());
+        for (Counter counter : counters.values()) {
+            // Leaves the published state alone; the other listeners have not seen this.
+            all.add(new Progress(counter.id, counter.status, counter.downloaded.get(), counter.total,
+                counter.bytesPerSecond));
+        }
+        if (!all.isEmpty()) {
+            listener.onProgress(all);
+        }
+        scheduleFrame();
+    }
+    
+    @MainThread
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+    
+    Counter track(DownloadItem item) {
+        Counter counter = new Counter(item.id, item.downloadedBytes, item.fileSize);
+        counters.put(item.id, counter);
+        handler.post(this::scheduleFrame);
+        return counter;
+    }
+    
+    /**
+     * Queues a checkpoint of a running download; only its latest one is written. Call once
+     * the bytes it counts are flushed to disk.
+     */
+    void checkpoint(DownloadItem item) {
+        DownloadItem copy = new DownloadItem();
+        copy.id = item.id;
+        copy.status = item.status;
+        copy.downloadedBytes = item.downloadedBytes;
+        copy.segments = item.segments;
+        copy.hashState = item.hashState;
+        boolean scheduleFlush = false;
+        synchronized (lock) {
+            pending.put(item.id, copy);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                scheduleFlush = true;
+            }
+        }
+        if (scheduleFlush) {
+            handler.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+        }
+    }
+    
+    /**
+     * Writes the whole row right away, replacing any queued checkpoint. It goes through the
+     * same serial writer as the batches, so an older checkpoint can never land after it.
+     */
+    void save(DownloadItem item) {
+        DownloadItem copy = copyOf(item);
+        synchronized (lock) {
+            pending.remove(item.id);
+            writer.execute(() -> dao.update(copy));
+        }
+    }
+    
+    /** Saves the final state of a run and publishes it once more. */
+    void finish(DownloadItem item, Counter counter) {
+        counter.setStatus(item.status);
+        counter.finished = true;
+        save(item);
+        handler.post(this::scheduleFrame);
+    }
+    
+    /**
+     * Publishes the new status of a download that is not running, such as one paused or
+     * resumed while queued. Running ones publish theirs through {@link #finish}.
+     */
+    void publishStatus(DownloadItem item) {
+        Counter current = counters.get(item.id);
+        if (current != null && !current.finished) return;
+        Counter counter = new Counter(item.id, item.downloadedBytes, item.fileSize);
+        counter.setStatus(item.status);
+        counter.finished = true;
+        counters.put(item.id, counter);
+        handler.post(this::scheduleFrame);
+    }
+    
+    /** Hands every queued checkpoint to the writer as one transaction. */
+    public void flush() {
+        handler.removeCallbacks(flushRunnable);
+        
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pending.isEmpty()) return;
+            List<DownloadItem> batch = new ArrayList<>(pending.values());
+            pending = new LinkedHashMap<>();
+            // Enqueued under the lock, so it cannot overtake a save() of the same row.
+            writer.execute(() -> dao.updateProgress(batch));
+        }
+    }
+    
+    @MainThread
+    private void scheduleFrame() {
+        if (frameScheduled || listeners.isEmpty() || counters.isEmpty()) return;
+        frameScheduled = true;
+        Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+    
+    // Runs on vsync while anyone is listening and anything is running; publishes on the
+    // first frame after each interval, so updates land on frame boundaries.
+    private void onFrame(long frameTimeNs) {
+        frameScheduled = false;
+        if (frameTimeNs - lastPublishNs >= PUBLISH_INTERVAL_NS) {
+            lastPublishNs = frameTimeNs;
+            publish(frameTimeNs);
+        }
+        scheduleFrame();
+    }
+    
+    private void publish(long nowNs) {
+        List<Progress> changed = null;
+        for (Counter counter : counters.values()) {
+            boolean finished = counter.finished;
+            long bytes = counter.downloaded.get();
+            int status = counter.status;
+            if (bytes != counter.publishedBytes || status != counter.publishedStatus) {
+                if (changed == null) {
+                    changed = new ArrayList<>();
+                }
+                changed.add(snapshot(counter, nowNs));
+            }
+            if (finished) {
+                counters.remove(counter.id, counter);
+            }
+        }
+        if (changed == null) return;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onProgress(changed);
+        }
+    }
+    
+    private Progress snapshot(Counter counter, long nowNs) {
+        long bytes = counter.downloaded.get();
+        int status = counter.status;
+        if (status != DownloadItem.STATUS_RUNNING) {
+            counter.bytesPerSecond = 0;
+        } else if (counter.sampledAtNs != 0 && nowNs > counter.sampledAtNs) {
+            double instant = (bytes - counter.sampledBytes) * 1e9 / (nowNs - counter.sampledAtNs);
+            counter.bytesPerSecond = counter.bytesPerSecond == 0
+                ? (long) instant
+                : (long) (counter.bytesPerSecond + SPEED_SMOOTHING * (instant - counter.bytesPerSecond));
+        }
+        counter.sampledBytes = bytes;
+        counter.sampledAtNs = nowNs;
+        counter.publishedBytes = bytes;
+        counter.publishedStatus = status;
+        return new Progress(counter.id, status, bytes, counter.total, Math.max(0, counter.bytesPerSecond));
+    }
+    
+    private static DownloadItem copyOf(DownloadItem item) {
+        DownloadItem copy = new DownloadItem(item.fileName, item.url, item.filePath, item.timestamp,
+            item.fileSize, item.mimeType);
+        copy.id = item.id;
+        copy.isCompleted = item.isCompleted;
+        copy.status = item.status;
+        copy.downloadedBytes = item.downloadedBytes;
+        copy.segments = item.segments;
+        copy.validator = item.validator;
+        copy.sha256 = item.sha256;
+        copy.expectedSha256 = item.expectedSha256;
+        copy.hashState = item.hashState;
+        copy.queuePosition = item.queuePosition;
+        return copy;
+    }
+}
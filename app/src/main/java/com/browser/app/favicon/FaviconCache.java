@@ -0,0 +1,199 @@
+package com.browser.app.favicon;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LongSparseArray;
+import android.widget.ImageView;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+
+import com.browser.app.R;
+import com.browser.app.utils.FingerprintSet;
+import com.browser.app.utils.LongLruCache;
+import com.browser.app.utils.TaskScheduler;
+import com.browser.app.utils.UrlParser;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Site icons, one per host. Icons captured from pages are scaled down to the list row size
+ * and written to {@code files/favicons}, named after a fingerprint of the host. Lists bind
+ * them through {@link #bind}, which only ever reads memory: a missing icon is decoded on a
+ * worker, and rows asking for an icon that is already being decoded wait for that decode
+ * instead of starting another. Decoded icons stay in an LRU bounded by bytes, and hosts
+ * known to have no icon are remembered, so scrolling back never touches the disk again.
+ */
+public class FaviconCache {
+    
+    // Matches the favicon ImageView in item_history and item_bookmark.
+    private static final int ICON_SIZE_DP = 24;
+    private static final String DIR_NAME = "favicons";
+    private static final int MAX_MEMORY_BYTES = 8 * 1024 * 1024;
+    
+    private static FaviconCache instance;
+    
+    private final File directory;
+    private final int iconSize;
+    private final LongLruCache<Bitmap> memory;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final TaskScheduler scheduler = TaskScheduler.getInstance();
+    
+    // Main thread only.
+    private final LongSparseArray<ArrayList<WeakReference<ImageView>>> pending = new LongSparseArray<>();
+    private final FingerprintSet missing = new FingerprintSet();
+    private final FingerprintSet storedThisSession = new FingerprintSet();
+    
+    private FaviconCache(Context context) {
+        directory = new File(context.getFilesDir(), DIR_NAME);
+        iconSize = Math.round(ICON_SIZE_DP * context.getResources().getDisplayMetrics().density);
+        int maxBytes = (int) Math.min(MAX_MEMORY_BYTES, Runtime.getRuntime().maxMemory() / 32);
+        memory = new LongLruCache<Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(long key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+    
+    public static synchronized FaviconCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new FaviconCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    /**
+     * Saves the icon WebView reported for {@code pageUrl}. Only the first icon per host in
+     * a session is kept; pages of one site report the same icon over and over.
+     */
+    @MainThread
+    public void put(@Nullable String pageUrl, @Nullable Bitmap icon) {
+        if (pageUrl == null || icon == null) return;
+        long key = hostKey(pageUrl);
+        if (key == 0 || !storedThisSession.add(key)) return;
+        
+        scheduler.submit(TaskScheduler.Lane.BACKGROUND, () -> {
+            Bitmap scaled = icon.getWidth() > iconSize || icon.getHeight() > iconSize
+                ? Bitmap.createScaledBitmap(icon, iconSize, iconSize, true)
+                : icon;
+            memory.put(key, scaled);
+            boolean written = write(key, scaled);
+            mainHandler.post(() -> {
+                if (written) {
+                    missing.remove(key);
+                }
+                deliver(key, scaled);
+            });
+        });
+    }
+    
+    /**
+     * Shows the icon for {@code pageUrl}'s host in {@code view}, or {@code placeholder}
+     * until it has been decoded. Never blocks.
+     */
+    @MainThread
+    public void bind(ImageView view, @Nullable String pageUrl, @DrawableRes int placeholder) {
+        long key = pageUrl != null ? hostKey(pageUrl) : 0;
+        // The key lives in a holder the view keeps, so rebinding does not box a Long.
+        long[] boundKey = (long[]) view.getTag(R.id.favicon_key);
+        if (boundKey == null) {
+            boundKey = new long[1];
+            view.setTag(R.id.favicon_key, boundKey);
+        }
+        boundKey[0] = key;
+        
+        Bitmap icon = key != 0 ? memory.get(key) : null;
+        if (icon != null) {
+            view.setImageBitmap(icon);
+            return;
+        }
+        view.setImageResource(placeholder);
+        if (key == 0 || missing.contains(key)) return;
+        
+        ArrayList<WeakReference<ImageView>> waiting = pending.get(key);
+        if (waiting != null) {
+            waiting.add(new WeakReference<>(view));
+            return;
+        }
+        waiting = new ArrayList<>(2);
+        waiting.add(new WeakReference<>(view));
+        pending.put(key, waiting);
+        
+        // A fling can push this out of the bounded read queue; forget the request then, so
+        // the next bind of the host tries again.
+        scheduler.submit(TaskScheduler.Lane.READ, new FutureTask<Void>(() -> decode(key), null) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    mainHandler.post(() -> pending.remove(key));
+                }
+            }
+        });
+    }
+    
+    private void decode(long key) {
+        File file = fileFor(key);
+        Bitmap decoded = file.exists() ? BitmapFactory.decodeFile(file.getPath()) : null;
+        if (decoded != null) {
+            memory.put(key, decoded);
+        }
+        mainHandler.post(() -> {
+            if (decoded == null) {
+                missing.add(key);
+            }
+            deliver(key, decoded);
+        });
+    }
+    
+    // Hands a finished decode to the rows still showing the host it was for.
+    private void deliver(long key, @Nullable Bitmap icon) {
+        ArrayList<WeakReference<ImageView>> waiting = pending.get(key);
+        if (waiting == null) return;
+        pending.remove(key);
+        if (icon == null) return;
+        for (WeakReference<ImageView> reference : waiting) {
+            ImageView view = reference.get();
+            long[] boundKey = view != null ? (long[]) view.getTag(R.id.favicon_key) : null;
+            if (boundKey != null && boundKey[0] == key) {
+                view.setImageBitmap(icon);
+            }
+        }
+    }
+    
+    private boolean write(long key, Bitmap icon) {
+        if (!directory.isDirectory() && !directory.mkdirs()) return false;
+        File file = fileFor(key);
+        File temp = new File(directory, file.getName() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            if (!icon.compress(Bitmap.CompressFormat.PNG, 100, output)) {
+                temp.delete();
+                return false;
+            }
+        } catch (IOException e) {
+            temp.delete();
+            return false;
+        }
+        return temp.renameTo(file);
+    }
+    
+    private File fileFor(long key) {
+        return new File(directory, Long.toHexString(key) + ".png");
+    }
+    
+    /** Fingerprint of the URL's host, computed in place, or 0 if it has none. */
+    static long hostKey(String url) {
+        UrlParser parser = UrlParser.forThread();
+        if (parser.parse(url) != UrlParser.TYPE_URL || !parser.hasHost()) return 0;
+        return FingerprintSet.fingerprint(url, parser.hostStart(), parser.hostEnd());
+    }
+}
@@ -0,0 +1,58 @@
+package com.browser.app.network;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.Dns;
+
+/**
+ * Remembers successful lookups for a fixed time, so the dozens of subresources a page pulls
+ * from the same few hosts resolve once. Failures are not cached. The table is cleared
+ * rather than evicted entry by entry when it fills up; it refills within one page load.
+ */
+class CachingDns implements Dns {
+    
+    private static final int MAX_ENTRIES = 256;
+    
+    private static final class Entry {
+        final List<InetAddress> addresses;
+        final long expiresAt;
+        
+        Entry(List<InetAddress> addresses, long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+    }
+    
+    private final Dns delegate;
+    private final long ttlMs;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    
+    CachingDns(Dns delegate, long ttlMs) {
+        this.delegate = delegate;
+        this.ttlMs = ttlMs;
+    }
+    
+    @NonNull
+    @Override
+    public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+        long now = SystemClock.elapsedRealtime();
+        Entry entry = entries.get(hostname);
+        if (entry != null && entry.expiresAt > now) {
+            return entry.addresses;
+        }
+        
+        List<InetAddress> addresses = delegate.lookup(hostname);
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+        entries.put(hostname, new Entry(addresses, now + ttlMs));
+        return addresses;
+    }
+}
@@ -0,0 +1,233 @@
+package com.browser.app.network;
+
+import android.content.Context;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dns;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Optionally serves a page's GET subresources through one shared OkHttp client instead of
+ * WebView's own network stack: one connection pool (HTTP/2 multiplexes a host's requests
+ * over a single connection), a size-bounded LRU disk cache and an in-memory DNS cache.
+ *
+ * Anything it does not handle, and any request that fails, returns null so WebView loads
+ * it the usual way.
+ */
+public class SubresourceLoader {
+    
+    /** Counters since process start. Bytes saved are those served from the cache. */
+    public static class Stats {
+        public final long hits;
+        public final long revalidated;
+        public final long misses;
+        public final long bytesSaved;
+        public final long bytesFetched;
+        
+        Stats(long hits, long revalidated, long misses, long bytesSaved, long bytesFetched) {
+            this.hits = hits;
+            this.revalidated = revalidated;
+            this.misses = misses;
+            this.bytesSaved = bytesSaved;
+            this.bytesFetched = bytesFetched;
+        }
+    }
+    
+    private static final String CACHE_DIR = "http";
+    private static final long CACHE_BYTES = 50L * 1024 * 1024;
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final long DNS_TTL_MS = TimeUnit.MINUTES.toMillis(1);
+    
+    // WebView-specific or cache-validation headers OkHttp must own; passing WebView's
+    // validators would yield 304s that WebResourceResponse cannot carry.
+    private static final String[] DROPPED_REQUEST_HEADERS = {
+        "accept-encoding", "if-none-match", "if-modified-since", "range", "cookie"
+    };
+    // Describe the wire encoding, not the decoded body WebView receives.
+    private static final String[] DROPPED_RESPONSE_HEADERS = {
+        "content-encoding", "content-length", "transfer-encoding", "set-cookie"
+    };
+    
+    private static SubresourceLoader instance;
+    
+    private final OkHttpClient client;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidated = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private final AtomicLong bytesFetched = new AtomicLong();
+    
+    private SubresourceLoader(Context context) {
+        this(new OkHttpClient.Builder()
+            .cache(new Cache(new File(context.getCacheDir(), CACHE_DIR), CACHE_BYTES))
+            .dns(new CachingDns(Dns.SYSTEM, DNS_TTL_MS))
+            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+            .cookieJar(new WebViewCookieJar())
+            .build());
+    }
+    
+    // Tests pass a client with its own cache directory.
+    SubresourceLoader(OkHttpClient client) {
+        this.client = client;
+    }
+    
+    public static synchronized SubresourceLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new SubresourceLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    /** Whether this loader would handle {@code request}: non-main-frame http(s) GETs. */
+    public static boolean isEligible(WebResourceRequest request) {
+        if (request.isForMainFrame() || !"GET".equals(request.getMethod())) return false;
+        String scheme = request.getUrl().getScheme();
+        if (!"http".equals(scheme) && !"https".equals(scheme)) return false;
+        // Media elements stream with range requests; leave those to WebView.
+        for (String name : request.getRequestHeaders().keySet()) {
+            if ("range".equalsIgnoreCase(name)) return false;
+        }
+        return true;
+    }
+    
+    /** Loads {@code request} through OkHttp, or returns null to let WebView load it. */
+    @WorkerThread
+    @Nullable
+    public WebResourceResponse load(WebResourceRequest request) {
+        if (!isEligible(request)) return null;
+        
+        Request.Builder builder = new Request.Builder().url(request.getUrl().toString());
+        for (Map.Entry<String, String> header : request.getRequestHeaders().entrySet()) {
+            if (!contains(DROPPED_REQUEST_HEADERS, header.getKey())) {
+                builder.header(header.getKey(), header.getValue());
+            }
+        }
+        
+        Response response;
+        try {
+            response = client.newCall(builder.build()).execute();
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        ResponseBody body = response.body();
+        int code = response.code();
+        // WebResourceResponse rejects redirect codes; OkHttp has already followed the
+        // ones it could, so hand anything left back to WebView.
+        if (body == null || code < 100 || code > 599 || code >= 300 && code < 400) {
+            response.close();
+            return null;
+        }
+        
+        // A failed revalidation still has a cacheResponse, but its body came over the network.
+        Response networkResponse = response.networkResponse();
+        boolean fromCache = response.cacheResponse() != null
+            && (networkResponse == null || networkResponse.code() == HttpURLConnection.HTTP_NOT_MODIFIED);
+        if (!fromCache) {
+            misses.incrementAndGet();
+        } else if (networkResponse == null) {
+            hits.incrementAndGet();
+        } else {
+            revalidated.incrementAndGet();
+        }
+        
+        MediaType contentType = body.contentType();
+        String mimeType = contentType != null
+            ? contentType.type() + "/" + contentType.subtype()
+            : "application/octet-stream";
+        String encoding = contentType != null && contentType.charset() != null
+            ? contentType.charset().name()
+            : null;
+        String reason = response.message().isEmpty() ? defaultReason(code) : response.message();
+        
+        InputStream data = new CountingStream(body.byteStream(), fromCache ? bytesSaved : bytesFetched);
+        return new WebResourceResponse(mimeType, encoding, code, reason,
+            responseHeaders(response.headers()), data);
+    }
+    
+    public Stats getStats() {
+        return new Stats(hits.get(), revalidated.get(), misses.get(), bytesSaved.get(), bytesFetched.get());
+    }
+    
+    private static Map<String, String> responseHeaders(Headers headers) {
+        Map<String, String> result = new HashMap<>();
+        for (String name : headers.names()) {
+            if (contains(DROPPED_RESPONSE_HEADERS, name)) continue;
+            List<String> values = headers.values(name);
+            result.put(name, values.size() == 1 ? values.get(0) : join(values));
+        }
+        return result;
+    }
+    
+    private static String join(List<String> values) {
+        StringBuilder builder = new StringBuilder();
+        for (String value : values) {
+            if (builder.length() > 0) builder.append(", ");
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+    
+    private static boolean contains(String[] lowerCaseNames, String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (String candidate : lowerCaseNames) {
+            if (candidate.equals(lower)) return true;
+        }
+        return false;
+    }
+    
+    // HTTP/2 has no reason phrases, but WebResourceResponse requires one.
+    private static String defaultReason(int code) {
+        if (code == 200) return "OK";
+        if (code == 204) return "No Content";
+        if (code == 404) return "Not Found";
+        return code < 400 ? "OK" : "Error";
+    }
+    
+    // Adds the bytes WebView actually reads to a counter.
+    private static class CountingStream extends FilterInputStream {
+        private final AtomicLong counter;
+        
+        CountingStream(InputStream in, AtomicLong counter) {
+            super(in);
+            this.counter = counter;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) counter.incrementAndGet();
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) counter.addAndGet(count);
+            return count;
+        }
+    }
+}
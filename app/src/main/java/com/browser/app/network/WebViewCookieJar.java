@@ -0,0 +1,50 @@
+package com.browser.app.network;
+
+import android.webkit.CookieManager;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.HttpUrl;
+
+/**
+ * Shares WebView's cookie store with OkHttp, so intercepted requests carry the same session
+ * as the page and cookies they set are visible to it.
+ */
+public class WebViewCookieJar implements CookieJar {
+    
+    @NonNull
+    @Override
+    public List<Cookie> loadForRequest(@NonNull HttpUrl url) {
+        CookieManager cookieManager = CookieManager.getInstance();
+        if (!cookieManager.acceptCookie()) return Collections.emptyList();
+        
+        String header = cookieManager.getCookie(url.toString());
+        if (header == null || header.isEmpty()) return Collections.emptyList();
+        
+        List<Cookie> cookies = new ArrayList<>();
+        for (String pair : header.split(";")) {
+            Cookie cookie = Cookie.parse(url, pair.trim());
+            if (cookie != null) {
+                cookies.add(cookie);
+            }
+        }
+        return cookies;
+    }
+    
+    @Override
+    public void saveFromResponse(@NonNull HttpUrl url, @NonNull List<Cookie> cookies) {
+        CookieManager cookieManager = CookieManager.getInstance();
+        if (!cookieManager.acceptCookie()) return;
+        
+        String target = url.toString();
+        for (Cookie cookie : cookies) {
+            cookieManager.setCookie(target, cookie.toString());
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.browser.app.search;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.browser.app.database.BrowserDatabase;
+import com.browser.app.database.Frecency;
+import com.browser.app.database.entities.Bookmark;
+import com.browser.app.database.entities.HistoryItem;
+import com.browser.app.utils.BrowserUtils;
+import com.browser.app.utils.FingerprintSet;
+import com.browser.app.utils.LongIntMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Omnibox completion over history and bookmarks, answered entirely from memory.
+ * Entries live in parallel arrays owned by a single engine thread; a sorted
+ * {@link AutocompleteIndex} covers most of them and entries recorded since the last
+ * rebuild are scanned linearly until the next background rebuild folds them in.
+ * Only the newest query is answered: older ones are dropped before or after running.
+ */
+public class AutocompleteEngine {
+    
+    public static class Completion {
+        public final String url;
+        public final String title;
+        // Whether the URL, rather than a title word, starts with what the user typed.
+        public final boolean urlMatch;
+        // Text to append after what the user typed, or null when there is nothing to complete.
+        @Nullable
+        public final String inlineCompletion;
+        
+        Completion(String url, String title, boolean urlMatch, @Nullable String inlineCompletion) {
+            this.url = url;
+            this.title = title;
+            this.urlMatch = urlMatch;
+            this.inlineCompletion = inlineCompletion;
+        }
+    }
+    
+    public interface Callback {
+        void onCompletions(String query, List<Completion> completions);
+    }
+    
+    private static final int MAX_PENDING_ENTRIES = 1024;
+    private static final float BOOKMARK_BONUS = 20f;
+    // Where an entry came from; an entry with neither has been removed.
+    private static final byte FROM_HISTORY = 1;
+    private static final byte FROM_BOOKMARK = 2;
+    
+    private static AutocompleteEngine instance;
+    
+    private final BrowserDatabase database;
+    private final ExecutorService engineThread = Executors.newSingleThreadExecutor();
+    private final ExecutorService buildThread = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger latestQuery = new AtomicInteger();
+    
+    // Engine-thread state.
+    private String[] urls = new String[0];
+    private String[] titles = new String[0];
+    // Frecency decayed to scoreTime; later visits are decayed to the same instant.
+    private float[] scores = new float[0];
+    private byte[] sources = new byte[0];
+    private long scoreTime;
+    private int entryCount;
+    private LongIntMap entryByUrl = new LongIntMap(16);
+    private AutocompleteIndex index;
+    private boolean rebuilding;
+    private int loadGeneration;
+    private long[] resultKeys = new long[16];
+    
+    private AutocompleteEngine(BrowserDatabase database) {
+        this.database = database;
+    }
+    
+    public static synchronized AutocompleteEngine getInstance(BrowserDatabase database) {
+        if (instance == null) {
+            instance = new AutocompleteEngine(database);
+            instance.reload();
+        }
+        return instance;
+    }
+    
+    /** Reloads every entry from the database, e.g. after history was deleted. */
+    public void reload() {
+        engineThread.execute(() -> {
+            int generation = ++loadGeneration;
+            scoreTime = System.currentTimeMillis();
+            List<HistoryItem> history = database.historyDao().getCompletionEntries();
+            List<Bookmark> bookmarks = database.bookmarkDao().getCompletionEntries();
+            
+            int capacity = history.size() + bookmarks.size() + MAX_PENDING_ENTRIES;
+            urls = new String[capacity];
+            titles = new String[capacity];
+            scores = new float[capacity];
+            sources = new byte[capacity];
+            entryCount = 0;
+            entryByUrl = new LongIntMap(capacity);
+            index = null;
+            rebuilding = true;
+            for (HistoryItem item : history) {
+                addOrUpdate(item.url, item.title, (float) Frecency.decayed(item.frecency, scoreTime), FROM_HISTORY);
+            }
+            for (Bookmark bookmark : bookmarks) {
+                addOrUpdate(bookmark.url, bookmark.title, BOOKMARK_BONUS, FROM_BOOKMARK);
+            }
+            rebuildIndex(generation);
+        });
+    }
+    
+    /** {@code visitType} is one of the {@link Frecency} VISIT_ constants. */
+    public void recordVisit(String url, @Nullable String title, int visitType) {
+        long now = System.currentTimeMillis();
+        engineThread.execute(() -> addOrUpdate(url, title,
+            (float) Frecency.decayed(Frecency.visitScore(visitType, now), scoreTime), FROM_HISTORY));
+    }
+    
+    public void recordBookmark(String url, @Nullable String title) {
+        engineThread.execute(() -> addOrUpdate(url, title, BOOKMARK_BONUS, FROM_BOOKMARK));
+    }
+    
+    /** Forgets the visits to {@code url}; it stays completable while bookmarked. */
+    public void removeHistory(String url) {
+        engineThread.execute(() -> removeSource(url, FROM_HISTORY));
+    }
+    
+    /** Forgets the bookmark of {@code url}; it stays completable while in history. */
+    public void removeBookmark(String url) {
+        engineThread.execute(() -> removeSource(url, FROM_BOOKMARK));
+    }
+    
+    /**
+     * Computes completions for {@code text} on the engine thread and delivers them on the
+     * main thread, unless a newer query was issued in the meantime.
+     */
+    public void query(String text, int limit, Callback callback) {
+        final int queryId = latestQuery.incrementAndGet();
+        engineThread.execute(() -> {
+            if (queryId != latestQuery.get()) return;
+            List<Completion> completions = complete(text, limit);
+            if (queryId != latestQuery.get()) return;
+            mainHandler.post(() -> {
+                if (queryId == latestQuery.get()) {
+                    callback.onCompletions(text, completions);
+                }
+            });
+        });
+    }
+    
+    /**
+     * What to complete inline for {@code completions}: the text after the best ranked URL
+     * match. Title matches can rank above it but have nothing to append; a URL typed out in
+     * full completes to nothing, rather than to a lower ranked longer one.
+     */
+    @Nullable
+    public static String inlineCompletion(List<Completion> completions) {
+        for (int i = 0; i < completions.size(); i++) {
+            Completion completion = completions.get(i);
+            if (completion.urlMatch) {
+                return completion.inlineCompletion;
+            }
+        }
+        return null;
+    }
+    
+    /** Drops any query still in flight. */
+    public void cancelQueries() {
+        latestQuery.incrementAndGet();
+    }
+    
+    @WorkerThread
+    List<Completion> complete(String text, int limit) {
+        String prefix = text.trim().toLowerCase(Locale.ROOT);
+        if (prefix.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        if (prefix.startsWith("http://") || prefix.startsWith("https://")) {
+            prefix = prefix.substring(prefix.indexOf("://") + 3);
+        }
+        if (prefix.startsWith("www.")) {
+            prefix = prefix.substring(4);
+        }
+        if (prefix.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        if (resultKeys.length < limit * 2) {
+            resultKeys = new long[limit * 2];
+        }
+        int found = index != null ? index.query(prefix, limit, scores, resultKeys) : 0;
+        found = mergePending(prefix, limit, found);
+        
+        List<Completion> completions = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            completions.add(toCompletion(resultKeys[i], prefix));
+        }
+        return completions;
+    }
+    
+    // Entries added since the last index build are few, so a linear scan is cheap.
+    private int mergePending(String prefix, int limit, int found) {
+        int indexed = index != null ? index.entryCount() : 0;
+        for (int entry = indexed; entry < entryCount; entry++) {
+            if (sources[entry] == 0) continue;
+            long key = matchingKey(entry, prefix);
+            if (key < 0) continue;
+            
+            int insertAt = found;
+            while (insertAt > 0 && scores[AutocompleteIndex.entryOf(resultKeys[insertAt - 1])] < scores[entry]) {
+                insertAt--;
+            }
+            if (insertAt >= limit) continue;
+            int last = Math.min(found, limit - 1);
+            System.arraycopy(resultKeys, insertAt, resultKeys, insertAt + 1, last - insertAt);
+            resultKeys[insertAt] = key;
+            found = Math.min(found + 1, limit);
+        }
+        return found;
+    }
+    
+    private long matchingKey(int entry, String prefix) {
+        String url = urls[entry];
+        if (url != null) {
+            int offset = AutocompleteIndex.urlKeyOffset(url);
+            if (AutocompleteIndex.startsWith(url, offset, prefix)) {
+                return AutocompleteIndex.key(entry, AutocompleteIndex.FIELD_URL, offset);
+            }
+        }
+        String title = titles[entry];
+        if (title != null) {
+            for (int i = 0; i < title.length(); i++) {
+                boolean wordStart = Character.isLetterOrDigit(title.charAt(i))
+                    && (i == 0 || !Character.isLetterOrDigit(title.charAt(i - 1)));
+                if (wordStart && AutocompleteIndex.startsWith(title, i, prefix)) {
+                    return AutocompleteIndex.key(entry, AutocompleteIndex.FIELD_TITLE, i);
+                }
+            }
+        }
+        return -1;
+    }
+    
+    private Completion toCompletion(long key, String prefix) {
+        int entry = AutocompleteIndex.entryOf(key);
+        String url = urls[entry];
+        String inline = null;
+        boolean urlMatch = AutocompleteIndex.fieldOf(key) == AutocompleteIndex.FIELD_URL;
+        if (urlMatch) {
+            // Complete to the end of the host first, then to the full URL.
+            int typedEnd = AutocompleteIndex.offsetOf(key) + prefix.length();
+            int hostEnd = url.indexOf('/', typedEnd);
+            if (hostEnd < 0) hostEnd = url.length();
+            int end = typedEnd < hostEnd ? hostEnd : url.length();
+            if (end > typedEnd) {
+                inline = url.substring(typedEnd, end);
+            }
+        }
+        return new Completion(url, titles[entry], urlMatch, inline);
+    }
+    
+    private void addOrUpdate(String url, @Nullable String title, float scoreDelta, byte source) {
+        if (url == null) return;
+        url = BrowserUtils.normalizeUrl(url);
+        long fingerprint = FingerprintSet.fingerprint(url);
+        int entry = entryByUrl.get(fingerprint);
+        if (entry != LongIntMap.NO_VALUE) {
+            // A bookmark counts once, however often it is re-added.
+            if (source != FROM_BOOKMARK || (sources[entry] & FROM_BOOKMARK) == 0) {
+                scores[entry] += scoreDelta;
+            }
+            sources[entry] |= source;
+            if (title != null) {
+                titles[entry] = title;
+            }
+            if (index != null) {
+                index.onScoreChanged(entry, scores);
+            }
+            return;
+        }
+        
+        if (entryCount == urls.length) {
+            int capacity = Math.max(16, urls.length * 2);
+            urls = Arrays.copyOf(urls, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+            sources = Arrays.copyOf(sources, capacity);
+        }
+        entry = entryCount++;
+        urls[entry] = url;
+        titles[entry] = title;
+        scores[entry] = scoreDelta;
+        sources[entry] = source;
+        entryByUrl.put(fingerprint, entry);
+        
+        int indexed = index != null ? index.entryCount() : 0;
+        if (entryCount - indexed > MAX_PENDING_ENTRIES && !rebuilding) {
+            rebuildIndex(loadGeneration);
+        }
+    }
+    
+    private void removeSource(String url, byte source) {
+        long fingerprint = FingerprintSet.fingerprint(BrowserUtils.normalizeUrl(url));
+        int entry = entryByUrl.get(fingerprint);
+        if (entry == LongIntMap.NO_VALUE || (sources[entry] & source) == 0) return;
+        sources[entry] &= ~source;
+        if (sources[entry] != 0) {
+            // What is left is the bookmark bonus, or the visits without it.
+            scores[entry] = source == FROM_HISTORY ? BOOKMARK_BONUS : scores[entry] - BOOKMARK_BONUS;
+            if (index != null) {
+                index.onScoreChanged(entry, scores);
+            }
+            return;
+        }
+        // The slot stays until the next reload; a later visit starts a new entry.
+        entryByUrl.remove(fingerprint);
+        if (index != null) {
+            index.remove(entry, scores);
+        }
+    }
+    
+    /**
+     * Sorts a snapshot of the entries on the build thread and swaps it in on the engine
+     * thread. Title changes made meanwhile only affect ranking text for already indexed
+     * keys until the next rebuild, which is acceptable for completion.
+     */
+    private void rebuildIndex(int generation) {
+        rebuilding = true;
+        final String[] urlSnapshot = urls;
+        final String[] titleSnapshot = titles.clone();
+        final int snapshotCount = entryCount;
+        buildThread.execute(() -> {
+            AutocompleteIndex built = new AutocompleteIndex(urlSnapshot, titleSnapshot, snapshotCount);
+            engineThread.execute(() -> {
+                rebuilding = false;
+                if (generation != loadGeneration) return;
+                for (int entry = 0; entry < snapshotCount; entry++) {
+                    if (sources[entry] == 0) {
+                        built.remove(entry, scores);
+                    }
+                }
+                built.buildTree(scores);
+                index = built;
+            });
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package com.browser.app.search;
+
+import androidx.annotation.WorkerThread;
+
+import com.browser.app.database.BrowserDatabase;
+import com.browser.app.database.dao.SearchDao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unified prefix search over history and bookmarks backed by the FTS4 shadow tables.
+ * Each source contributes a bounded set of candidates which {@link SearchRanking} ranks
+ * from their matchinfo statistics, so the cost per keystroke does not grow with the table
+ * size.
+ */
+public class BrowserSearch {
+    
+    private static final int CANDIDATE_LIMIT = 200;
+    
+    private final SearchDao searchDao;
+    
+    public BrowserSearch(BrowserDatabase database) {
+        this.searchDao = database.searchDao();
+    }
+    
+    /** History and bookmark matches, best first, with each URL listed once. */
+    @WorkerThread
+    public List<SearchResult> search(String query, int limit) {
+        return search(query, limit, true, true);
+    }
+    
+    @WorkerThread
+    public List<SearchResult> searchHistory(String query, int limit) {
+        return search(query, limit, true, false);
+    }
+    
+    @WorkerThread
+    public List<SearchResult> searchBookmarks(String query, int limit) {
+        return search(query, limit, false, true);
+    }
+    
+    private List<SearchResult> search(String query, int limit, boolean history, boolean bookmarks) {
+        String match = SearchRanking.toMatchExpression(query);
+        if (match.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        
+        long now = System.currentTimeMillis();
+        Map<String, SearchResult> byUrl = new HashMap<>();
+        if (bookmarks) {
+            for (SearchResult result : searchDao.searchBookmarks(match, CANDIDATE_LIMIT)) {
+                result.score = SearchRanking.rank(result.matchInfo, result.frecency, true, now);
+                byUrl.put(result.url, result);
+            }
+        }
+        if (history) {
+            for (SearchResult result : searchDao.searchHistory(match, CANDIDATE_LIMIT)) {
+                result.score = SearchRanking.rank(result.matchInfo, result.frecency, false, now);
+                SearchResult existing = byUrl.get(result.url);
+                if (existing == null) {
+                    byUrl.put(result.url, result);
+                } else if (!existing.isBookmark() && existing.score < result.score) {
+                    byUrl.put(result.url, result);
+                }
+            }
+        }
+        
+        List<SearchResult> results = new ArrayList<>(byUrl.values());
+        Collections.sort(results, (a, b) -> {
+            int byScore = Double.compare(b.score, a.score);
+            return byScore != 0 ? byScore : Long.compare(b.timestamp, a.timestamp);
+        });
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+}
@@ -0,0 +1,23 @@
+package com.browser.app.search;
+
+import androidx.room.Ignore;
+
+public class SearchResult {
+    public static final int SOURCE_HISTORY = 0;
+    public static final int SOURCE_BOOKMARK = 1;
+    
+    public int source;
+    public int id;
+    public String title;
+    public String url;
+    public long timestamp;
+    public double frecency;
+    public byte[] matchInfo;
+    
+    @Ignore
+    public double score;
+    
+    public boolean isBookmark() {
+        return source == SOURCE_BOOKMARK;
+    }
+}
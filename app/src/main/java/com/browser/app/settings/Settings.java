@@ -0,0 +1,47 @@
+package com.browser.app.settings;
+
+/**
+ * One immutable snapshot of the user's settings. Changes never touch a snapshot; the
+ * {@code with} methods return a new one for {@link SettingsStore#update} to publish.
+ */
+public final class Settings {
+    
+    public final String homepage;
+    public final boolean javaScriptEnabled;
+    public final boolean cookiesEnabled;
+    public final boolean networkCacheEnabled;
+    public final boolean largeDownloadsUnmeteredOnly;
+    
+    Settings(String homepage, boolean javaScriptEnabled, boolean cookiesEnabled,
+            boolean networkCacheEnabled, boolean largeDownloadsUnmeteredOnly) {
+        this.homepage = homepage;
+        this.javaScriptEnabled = javaScriptEnabled;
+        this.cookiesEnabled = cookiesEnabled;
+        this.networkCacheEnabled = networkCacheEnabled;
+        this.largeDownloadsUnmeteredOnly = largeDownloadsUnmeteredOnly;
+    }
+    
+    public Settings withHomepage(String homepage) {
+        return new Settings(homepage, javaScriptEnabled, cookiesEnabled, networkCacheEnabled,
+            largeDownloadsUnmeteredOnly);
+    }
+    
+    public Settings withJavaScriptEnabled(boolean enabled) {
+        return new Settings(homepage, enabled, cookiesEnabled, networkCacheEnabled,
+            largeDownloadsUnmeteredOnly);
+    }
+    
+    public Settings withCookiesEnabled(boolean enabled) {
+        return new Settings(homepage, javaScriptEnabled, enabled, networkCacheEnabled,
+            largeDownloadsUnmeteredOnly);
+    }
+    
+    public Settings withNetworkCacheEnabled(boolean enabled) {
+        return new Settings(homepage, javaScriptEnabled, cookiesEnabled, enabled,
+            largeDownloadsUnmeteredOnly);
+    }
+    
+    public Settings withLargeDownloadsUnmeteredOnly(boolean enabled) {
+        return new Settings(homepage, javaScriptEnabled, cookiesEnabled, networkCacheEnabled, enabled);
+    }
+}
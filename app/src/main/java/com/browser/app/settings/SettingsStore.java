@@ -0,0 +1,86 @@
+package com.browser.app.settings;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.MainThread;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Holds the current {@link Settings} in memory. Readers on any thread get the snapshot with
+ * a single volatile read; changes swap in a whole new snapshot, persist it and tell the
+ * listeners, so screens and WebViews pick them up without a restart.
+ */
+public final class SettingsStore {
+    
+    private static final String PREFS_NAME = "BrowserPrefs";
+    private static final String PREF_HOMEPAGE = "homepage";
+    private static final String PREF_JAVASCRIPT_ENABLED = "javascript_enabled";
+    private static final String PREF_COOKIES_ENABLED = "cookies_enabled";
+    private static final String PREF_NETWORK_CACHE_ENABLED = "network_cache_enabled";
+    private static final String PREF_LARGE_DOWNLOADS_UNMETERED = "large_downloads_unmetered";
+    
+    private static final String DEFAULT_HOMEPAGE = "https://www.google.com";
+    
+    private static SettingsStore instance;
+    
+    private final SharedPreferences prefs;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Settings current;
+    
+    public interface Listener {
+        /** Called on the main thread after {@code current} has replaced {@code previous}. */
+        @MainThread
+        void onSettingsChanged(Settings previous, Settings current);
+    }
+    
+    private SettingsStore(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        current = new Settings(
+            prefs.getString(PREF_HOMEPAGE, DEFAULT_HOMEPAGE),
+            prefs.getBoolean(PREF_JAVASCRIPT_ENABLED, true),
+            prefs.getBoolean(PREF_COOKIES_ENABLED, true),
+            prefs.getBoolean(PREF_NETWORK_CACHE_ENABLED, false),
+            prefs.getBoolean(PREF_LARGE_DOWNLOADS_UNMETERED, true));
+    }
+    
+    public static synchronized SettingsStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new SettingsStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    /** The current snapshot; safe to call from any thread. */
+    public Settings get() {
+        return current;
+    }
+    
+    /** Publishes {@code settings}, saves it in the background and notifies the listeners. */
+    @MainThread
+    public void update(Settings settings) {
+        Settings previous = current;
+        if (settings == previous) return;
+        current = settings;
+        prefs.edit()
+            .putString(PREF_HOMEPAGE, settings.homepage)
+            .putBoolean(PREF_JAVASCRIPT_ENABLED, settings.javaScriptEnabled)
+            .putBoolean(PREF_COOKIES_ENABLED, settings.cookiesEnabled)
+            .putBoolean(PREF_NETWORK_CACHE_ENABLED, settings.networkCacheEnabled)
+            .putBoolean(PREF_LARGE_DOWNLOADS_UNMETERED, settings.largeDownloadsUnmeteredOnly)
+            .apply();
+        for (Listener listener : listeners) {
+            listener.onSettingsChanged(previous, settings);
+        }
+    }
+    
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+}
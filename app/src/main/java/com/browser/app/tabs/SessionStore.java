@@ -0,0 +1,268 @@
+package com.browser.app.tabs;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.webkit.WebView;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+
+import com.browser.app.utils.TaskScheduler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Persists the open tabs so a killed process comes back to the same session.
+ *
+ * The snapshot is a small header (URL, title, scroll position per tab) followed by each
+ * tab's marshalled WebView state. It is written on a background thread to a temp file,
+ * synced and renamed over the previous one, so a crash mid-write leaves the old snapshot
+ * intact. On start the file is memory-mapped and only the header is parsed; restored tabs
+ * keep slices of the mapping and decode their state when first selected.
+ */
+public class SessionStore {
+    
+    public static class Session {
+        public final List<Tab> tabs;
+        public final int selectedIndex;
+        
+        Session(List<Tab> tabs, int selectedIndex) {
+            this.tabs = tabs;
+            this.selectedIndex = selectedIndex;
+        }
+        
+        @Nullable
+        public Tab getSelectedTab() {
+            if (tabs.isEmpty()) return null;
+            return tabs.get(Math.max(0, Math.min(selectedIndex, tabs.size() - 1)));
+        }
+    }
+    
+    private static final String FILE_NAME = "session.bin";
+    private static final int MAGIC = 0x53455353;
+    private static final int VERSION = 1;
+    private static final int MAX_TABS = 4096;
+    private static final long SAVE_DELAY_MS = 1000;
+    
+    private final File file;
+    private final File tempFile;
+    private final TabManager tabManager;
+    private final Executor writer = TaskScheduler.getInstance().executor(TaskScheduler.Lane.WRITE);
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable saveRunnable = this::saveNow;
+    
+    public SessionStore(Context context, TabManager tabManager) {
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+        this.tempFile = new File(context.getFilesDir(), FILE_NAME + ".tmp");
+        this.tabManager = tabManager;
+    }
+    
+    /** Saves the session a second after the last call, coalescing bursts of navigation. */
+    @MainThread
+    public void scheduleSave() {
+        handler.removeCallbacks(saveRunnable);
+        handler.postDelayed(saveRunnable, SAVE_DELAY_MS);
+    }
+    
+    /**
+     * Captures the tabs now and writes them in the background. Live WebViews can only be
+     * asked for their state on the main thread; everything after that is off it.
+     */
+    @MainThread
+    public void saveNow() {
+        handler.removeCallbacks(saveRunnable);
+        
+        List<Tab> tabs = tabManager.getTabs();
+        final int selectedIndex = tabs.indexOf(tabManager.getCurrentTab());
+        final List<Record> records = new ArrayList<>(tabs.size());
+        for (Tab tab : tabs) {
+            records.add(capture(tab));
+        }
+        writer.execute(() -> write(records, selectedIndex));
+    }
+    
+    /**
+     * Maps the last snapshot and returns its tabs, all hibernated, or null if there is no
+     * usable snapshot. Only the header is read here.
+     */
+    @Nullable
+    public Session load() {
+        if (!file.exists()) return null;
+        
+        try (RandomAccessFile input = new RandomAccessFile(file, "r");
+             FileChannel channel = input.getChannel()) {
+            // The mapping stays valid after the channel is closed.
+            ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.getInt() != MAGIC || map.getInt() != VERSION) return null;
+            // Parcel layout may change between platform releases; keep only the URLs then.
+            boolean statesUsable = map.getInt() == Build.VERSION.SDK_INT;
+            int selectedIndex = map.getInt();
+            int count = map.getInt();
+            if (count < 0 || count > MAX_TABS) return null;
+            
+            List<Tab> tabs = new ArrayList<>(count);
+            int[] offsets = new int[count];
+            int[] lengths = new int[count];
+            for (int i = 0; i < count; i++) {
+                Tab tab = new Tab(map.getInt(), readString(map));
+                tab.title = readString(map);
+                tab.scrollY = map.getInt();
+                offsets[i] = map.getInt();
+                lengths[i] = map.getInt();
+                tabs.add(tab);
+            }
+            
+            int statesStart = map.position();
+            for (int i = 0; i < count; i++) {
+                if (!statesUsable || lengths[i] <= 0) continue;
+                long end = (long) statesStart + offsets[i] + lengths[i];
+                if (offsets[i] < 0 || end > map.limit()) return null;
+                ByteBuffer state = map.duplicate();
+                state.position(statesStart + offsets[i]);
+                state.limit((int) end);
+                tabs.get(i).savedState = state.slice();
+            }
+            return new Session(tabs, selectedIndex);
+        } catch (IOException | RuntimeException e) {
+            // Unreadable snapshot: start a fresh session rather than fail to launch.
+            return null;
+        }
+    }
+    
+    static ByteBuffer marshall(Bundle state) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(state);
+            return ByteBuffer.wrap(parcel.marshall());
+        } finally {
+            parcel.recycle();
+        }
+    }
+    
+    @Nullable
+    static Bundle unmarshall(ByteBuffer state) {
+        byte[] bytes = new byte[state.remaining()];
+        state.duplicate().get(bytes);
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(bytes, 0, bytes.length);
+            parcel.setDataPosition(0);
+            return parcel.readBundle(SessionStore.class.getClassLoader());
+        } catch (RuntimeException e) {
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+    
+    private static class Record {
+        final int id;
+        final String url;
+        final String title;
+        final int scrollY;
+        @Nullable
+        final ByteBuffer state;
+        
+        Record(int id, String url, String title, int scrollY, @Nullable ByteBuffer state) {
+            this.id = id;
+            this.url = url;
+            this.title = title;
+            this.scrollY = scrollY;
+            this.state = state;
+        }
+    }
+    
+    private static Record capture(Tab tab) {
+        WebView webView = tab.webView;
+        if (webView == null) {
+            ByteBuffer state = tab.savedState != null ? tab.savedState.duplicate() : null;
+            return new Record(tab.id, tab.url, tab.title, tab.scrollY, state);
+        }
+        
+        Bundle bundle = new Bundle();
+        ByteBuffer state = webView.saveState(bundle) != null ? marshall(bundle) : null;
+        return new Record(tab.id, tab.url, tab.title, webView.getScrollY(), state);
+    }
+    
+    private void write(List<Record> records, int selectedIndex) {
+        try {
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream(64 + records.size() * 128);
+            DataOutputStream header = new DataOutputStream(headerBytes);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(Build.VERSION.SDK_INT);
+            header.writeInt(selectedIndex);
+            header.writeInt(records.size());
+            int offset = 0;
+            for (Record record : records) {
+                int length = record.state != null ? record.state.remaining() : 0;
+                header.writeInt(record.id);
+                writeString(header, record.url);
+                writeString(header, record.title);
+                header.writeInt(record.scrollY);
+                header.writeInt(offset);
+                header.writeInt(length);
+                offset += length;
+            }
+            header.flush();
+            
+            try (FileOutputStream output = new FileOutputStream(tempFile)) {
+                FileChannel channel = output.getChannel();
+                writeFully(channel, ByteBuffer.wrap(headerBytes.toByteArray()));
+                for (Record record : records) {
+                    if (record.state != null) {
+                        writeFully(channel, record.state);
+                    }
+                }
+                output.getFD().sync();
+            }
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+            }
+        } catch (IOException e) {
+            // Keep the previous snapshot; the next save will try again.
+            tempFile.delete();
+        }
+    }
+    
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    
+    private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    @Nullable
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        if (length > in.remaining()) throw new IllegalStateException("Truncated session file");
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,41 @@
+package com.browser.app.tabs;
+
+import android.webkit.WebView;
+
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One browser tab. A tab is either live, owning a {@link WebView}, or hibernated, in which
+ * case only its saved navigation state is kept and the WebView has been destroyed.
+ * Tabs restored from a session snapshot start out hibernated.
+ */
+public class Tab {
+    
+    public final int id;
+    public String url;
+    public String title;
+    long lastActive;
+    int scrollY;
+    
+    @Nullable
+    WebView webView;
+    // Marshalled WebView state of a hibernated tab; may be a slice of the mapped session file.
+    @Nullable
+    ByteBuffer savedState;
+    
+    Tab(int id, String url) {
+        this.id = id;
+        this.url = url;
+    }
+    
+    @Nullable
+    public WebView getWebView() {
+        return webView;
+    }
+    
+    public boolean isHibernated() {
+        return webView == null;
+    }
+}
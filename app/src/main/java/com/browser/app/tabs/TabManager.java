@@ -0,0 +1,258 @@
+package com.browser.app.tabs;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.view.ViewGroup;
+import android.webkit.WebView;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Owns the open tabs and their WebViews. Only the selected tab's WebView is attached to
+ * the container and running; background tabs are paused with their renderer priority
+ * waived, and once more tabs are live than the memory budget allows, the least recently
+ * used ones are hibernated: their state is saved to a Bundle and the WebView destroyed.
+ * Selecting a hibernated tab recreates its WebView and restores that state.
+ */
+public class TabManager {
+    
+    public interface Host {
+        /** Creates a fully configured WebView for a tab being opened or woken up. */
+        WebView createWebView();
+        
+        void onTabSelected(Tab tab);
+    }
+    
+    // Rough resident cost of a live WebView with an average page, renderer included.
+    private static final long ESTIMATED_TAB_BYTES = 48L * 1024 * 1024;
+    private static final int MIN_LIVE_TABS = 2;
+    
+    private final ViewGroup container;
+    private final Host host;
+    private final List<Tab> tabs = new ArrayList<>();
+    private int maxLiveTabs;
+    private int nextTabId = 1;
+    private Tab currentTab;
+    private boolean paused;
+    
+    public TabManager(ViewGroup container, Host host, long memoryBudgetBytes) {
+        this.container = container;
+        this.host = host;
+        this.maxLiveTabs = liveTabsFor(memoryBudgetBytes);
+    }
+    
+    /** An eighth of the device's RAM, halved again on low-RAM devices. */
+    public static long defaultMemoryBudget(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+        activityManager.getMemoryInfo(memoryInfo);
+        long budget = memoryInfo.totalMem / 8;
+        return activityManager.isLowRamDevice() ? budget / 2 : budget;
+    }
+    
+    public void setMemoryBudget(long memoryBudgetBytes) {
+        maxLiveTabs = liveTabsFor(memoryBudgetBytes);
+        trimLiveTabs(maxLiveTabs);
+    }
+    
+    public List<Tab> getTabs() {
+        return Collections.unmodifiableList(tabs);
+    }
+    
+    @Nullable
+    public Tab getCurrentTab() {
+        return currentTab;
+    }
+    
+    @Nullable
+    public Tab findTab(WebView webView) {
+        for (Tab tab : tabs) {
+            if (tab.webView == webView) return tab;
+        }
+        return null;
+    }
+    
+    /** Opens a tab for {@code url} and selects it. */
+    public Tab newTab(String url) {
+        Tab tab = new Tab(nextTabId++, url);
+        tabs.add(tab);
+        selectTab(tab);
+        return tab;
+    }
+    
+    /**
+     * Adds tabs restored from a session snapshot. They stay hibernated, so only the one
+     * that gets selected creates a WebView.
+     */
+    public void restoreTabs(List<Tab> restored) {
+        for (Tab tab : restored) {
+            tabs.add(tab);
+            nextTabId = Math.max(nextTabId, tab.id + 1);
+        }
+    }
+    
+    /** Call from the WebViewClient; puts a woken tab back at its saved scroll position. */
+    public void onPageFinished(WebView webView) {
+        Tab tab = findTab(webView);
+        if (tab != null && tab.scrollY > 0) {
+            webView.scrollTo(0, tab.scrollY);
+            tab.scrollY = 0;
+        }
+    }
+    
+    public void selectTab(Tab tab) {
+        if (tab == currentTab) return;
+        
+        if (currentTab != null && currentTab.webView != null) {
+            sendToBackground(currentTab.webView);
+            container.removeView(currentTab.webView);
+        }
+        
+        currentTab = tab;
+        tab.lastActive = SystemClock.uptimeMillis();
+        if (tab.webView == null) {
+            wake(tab);
+        }
+        container.addView(tab.webView, ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+        bringToForeground(tab.webView);
+        
+        host.onTabSelected(tab);
+        trimLiveTabs(maxLiveTabs);
+    }
+    
+    /**
+     * Closes {@code tab}. If it was selected, the tab next to it is selected; returns false
+     * when no tabs are left, in which case nothing is selected.
+     */
+    public boolean closeTab(Tab tab) {
+        int index = tabs.indexOf(tab);
+        if (index < 0) return !tabs.isEmpty();
+        
+        tabs.remove(index);
+        if (tab.webView != null) {
+            destroyWebView(tab.webView);
+            tab.webView = null;
+        }
+        tab.savedState = null;
+        
+        if (tab == currentTab) {
+            currentTab = null;
+            if (!tabs.isEmpty()) {
+                selectTab(tabs.get(Math.min(index, tabs.size() - 1)));
+            }
+        }
+        return !tabs.isEmpty();
+    }
+    
+    public void onPause() {
+        paused = true;
+        if (currentTab != null && currentTab.webView != null) {
+            currentTab.webView.onPause();
+            // Timers are process wide, so this also stops any background tab's JavaScript.
+            currentTab.webView.pauseTimers();
+        }
+    }
+    
+    public void onResume() {
+        paused = false;
+        if (currentTab != null && currentTab.webView != null) {
+            currentTab.webView.resumeTimers();
+            currentTab.webView.onResume();
+        }
+    }
+    
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimLiveTabs(1);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            trimLiveTabs(Math.max(1, maxLiveTabs / 2));
+        }
+    }
+    
+    public void destroy() {
+        for (Tab tab : tabs) {
+            if (tab.webView != null) {
+                destroyWebView(tab.webView);
+                tab.webView = null;
+            }
+        }
+        tabs.clear();
+        currentTab = null;
+    }
+    
+    private static int liveTabsFor(long memoryBudgetBytes) {
+        return (int) Math.max(MIN_LIVE_TABS, memoryBudgetBytes / ESTIMATED_TAB_BYTES);
+    }
+    
+    // Hibernates least recently used background tabs until at most maxLive are live.
+    private void trimLiveTabs(int maxLive) {
+        int live = 0;
+        for (Tab tab : tabs) {
+            if (tab.webView != null) live++;
+        }
+        while (live > maxLive) {
+            Tab oldest = null;
+            for (Tab tab : tabs) {
+                if (tab.webView != null && tab != currentTab
+                        && (oldest == null || tab.lastActive < oldest.lastActive)) {
+                    oldest = tab;
+                }
+            }
+            if (oldest == null) return;
+            hibernate(oldest);
+            live--;
+        }
+    }
+    
+    private void hibernate(Tab tab) {
+        WebView webView = tab.webView;
+        Bundle state = new Bundle();
+        tab.savedState = webView.saveState(state) != null ? SessionStore.marshall(state) : null;
+        tab.scrollY = webView.getScrollY();
+        if (webView.getUrl() != null) {
+            tab.url = webView.getUrl();
+        }
+        destroyWebView(webView);
+        tab.webView = null;
+    }
+    
+    private void wake(Tab tab) {
+        WebView webView = host.createWebView();
+        tab.webView = webView;
+        Bundle state = tab.savedState != null ? SessionStore.unmarshall(tab.savedState) : null;
+        if (state == null || webView.restoreState(state) == null) {
+            webView.loadUrl(tab.url);
+        }
+        tab.savedState = null;
+    }
+    
+    private void sendToBackground(WebView webView) {
+        webView.onPause();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            webView.setRendererPriorityPolicy(WebView.RENDERER_PRIORITY_WAIVED, true);
+        }
+    }
+    
+    private void bringToForeground(WebView webView) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            webView.setRendererPriorityPolicy(WebView.RENDERER_PRIORITY_IMPORTANT, true);
+        }
+        if (!paused) {
+            webView.onResume();
+        }
+    }
+    
+    private void destroyWebView(WebView webView) {
+        container.removeView(webView);
+        webView.stopLoading();
+        webView.destroy();
+    }
+}
@@ -0,0 +1,248 @@
+package com.browser.app.thumbnail;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LongSparseArray;
+import android.util.LruCache;
+import android.view.View;
+import android.widget.ImageView;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+
+import com.browser.app.R;
+import com.browser.app.utils.FingerprintSet;
+import com.browser.app.utils.TaskScheduler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Page snapshots for the tab switcher, keyed by URL. A snapshot is the visible top of the
+ * page drawn straight into a small RGB_565 bitmap, so the full-size frame is never
+ * copied; only that draw happens on the main thread. WebP encoding and the disk write run
+ * in the background, into {@code cache/thumbnails}, which is trimmed oldest-first past
+ * {@link #MAX_DISK_BYTES}. Decoded snapshots stay in a small LRU that holds a full
+ * switcher's worth and is shrunk or dropped in {@link #onTrimMemory}.
+ */
+public class ThumbnailCache {
+    
+    public static final int WIDTH = 320;
+    public static final int HEIGHT = 240;
+    
+    private static final String DIR_NAME = "thumbnails";
+    private static final long MAX_DISK_BYTES = 20L * 1024 * 1024;
+    private static final int WEBP_QUALITY = 70;
+    // Room for 24 snapshots, enough that a reopened switcher binds from memory.
+    private static final int MAX_MEMORY_BYTES = 24 * WIDTH * HEIGHT * 2;
+    
+    private static ThumbnailCache instance;
+    
+    private final File directory;
+    private final LruCache<Long, Bitmap> memory;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final TaskScheduler scheduler = TaskScheduler.getInstance();
+    
+    // Main thread only.
+    private final LongSparseArray<ArrayList<WeakReference<ImageView>>> pending = new LongSparseArray<>();
+    private final FingerprintSet missing = new FingerprintSet();
+    
+    // BACKGROUND lane only, which runs one task at a time; -1 until first measured.
+    private long diskBytes = -1;
+    
+    private ThumbnailCache(Context context) {
+        directory = new File(context.getCacheDir(), DIR_NAME);
+        int maxBytes = (int) Math.min(MAX_MEMORY_BYTES, Runtime.getRuntime().maxMemory() / 16);
+        memory = new LruCache<Long, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Long key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+    
+    public static synchronized ThumbnailCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new ThumbnailCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    /**
+     * Snapshots what {@code view} currently shows as the thumbnail of {@code url}. The view
+     * must be laid out and attached; hibernated or background tabs are not drawn.
+     */
+    @MainThread
+    public void capture(View view, @Nullable String url) {
+        if (url == null || view.getWidth() == 0 || view.getHeight() == 0) return;
+        
+        Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.RGB_565);
+        Canvas canvas = new Canvas(bitmap);
+        float scale = (float) WIDTH / view.getWidth();
+        canvas.scale(scale, scale);
+        canvas.translate(-view.getScrollX(), -view.getScrollY());
+        view.draw(canvas);
+        
+        long key = FingerprintSet.fingerprint(url);
+        memory.put(key, bitmap);
+        missing.remove(key);
+        deliver(key, bitmap);
+        
+        scheduler.submit(TaskScheduler.Lane.BACKGROUND, () -> write(key, bitmap));
+    }
+    
+    /** Shows the thumbnail of {@code url} in {@code view}, or {@code placeholder} until it is decoded. */
+    @MainThread
+    public void bind(ImageView view, @Nullable String url, @DrawableRes int placeholder) {
+        long key = url != null ? FingerprintSet.fingerprint(url) : 0;
+        view.setTag(R.id.thumbnail_key, key);
+        
+        Bitmap thumbnail = key != 0 ? memory.get(key) : null;
+        if (thumbnail != null) {
+            view.setImageBitmap(thumbnail);
+            return;
+        }
+        view.setImageResource(placeholder);
+        if (key == 0 || missing.contains(key)) return;
+        
+        ArrayList<WeakReference<ImageView>> waiting = pending.get(key);
+        if (waiting != null) {
+            waiting.add(new WeakReference<>(view));
+            return;
+        }
+        waiting = new ArrayList<>(2);
+        waiting.add(new WeakReference<>(view));
+        pending.put(key, waiting);
+        
+        scheduler.submit(TaskScheduler.Lane.READ, new FutureTask<Void>(() -> decode(key), null) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    mainHandler.post(() -> pending.remove(key));
+                }
+            }
+        });
+    }
+    
+    /** Halves the decoded snapshots once the UI is hidden, and drops them under real pressure. */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                && level < ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            memory.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            memory.trimToSize(memory.maxSize() / 2);
+        }
+    }
+    
+    private void decode(long key) {
+        File file = fileFor(key);
+        Bitmap decoded = null;
+        if (file.exists()) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+            decoded = BitmapFactory.decodeFile(file.getPath(), options);
+        }
+        if (decoded != null) {
+            memory.put(key, decoded);
+        }
+        Bitmap result = decoded;
+        mainHandler.post(() -> {
+            if (result == null) {
+                missing.add(key);
+            }
+            deliver(key, result);
+        });
+    }
+    
+    private void deliver(long key, @Nullable Bitmap thumbnail) {
+        ArrayList<WeakReference<ImageView>> waiting = pending.get(key);
+        if (waiting == null) return;
+        pending.remove(key);
+        if (thumbnail == null) return;
+        for (WeakReference<ImageView> reference : waiting) {
+            ImageView view = reference.get();
+            if (view != null && Long.valueOf(key).equals(view.getTag(R.id.thumbnail_key))) {
+                view.setImageBitmap(thumbnail);
+            }
+        }
+    }
+    
+    private void write(long key, Bitmap thumbnail) {
+        if (!directory.isDirectory() && !directory.mkdirs()) return;
+        File file = fileFor(key);
+        File temp = new File(directory, file.getName() + ".tmp");
+        long previous = file.length();
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            if (!thumbnail.compress(webpFormat(), WEBP_QUALITY, output)) {
+                temp.delete();
+                return;
+            }
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+        
+        if (diskBytes < 0) {
+            diskBytes = measure();
+        } else {
+            diskBytes += file.length() - previous;
+        }
+        if (diskBytes > MAX_DISK_BYTES) {
+            trimDisk();
+        }
+    }
+    
+    // Deletes least recently written snapshots until the cache is back under 3/4 of its limit.
+    private void trimDisk() {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        long target = MAX_DISK_BYTES * 3 / 4;
+        for (File file : files) {
+            if (diskBytes <= target) break;
+            long length = file.length();
+            if (file.delete()) {
+                diskBytes -= length;
+            }
+        }
+    }
+    
+    private long measure() {
+        File[] files = directory.listFiles();
+        long total = 0;
+        if (files != null) {
+            for (File file : files) {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+    
+    private File fileFor(long key) {
+        return new File(directory, Long.toHexString(key) + ".webp");
+    }
+    
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat webpFormat() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+            ? Bitmap.CompressFormat.WEBP_LOSSY
+            : Bitmap.CompressFormat.WEBP;
+    }
+}
@@ -0,0 +1,89 @@
+package com.browser.app.utils;
+
+import android.content.Context;
+
+import com.browser.app.R;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Short dates for list rows: "Today 14:02", "Yesterday", "Mar 14" earlier this year and
+ * "Mar 14, 2023" before that. The formatters and day boundaries are cached per thread, so
+ * rows can be labelled on whichever loader thread fetched them.
+ */
+public final class DateLabels {
+    
+    private final String today;
+    private final String yesterday;
+    private final ThreadLocal<Formatter> formatters = new ThreadLocal<Formatter>() {
+        @Override
+        protected Formatter initialValue() {
+            return new Formatter();
+        }
+    };
+    
+    public DateLabels(Context context) {
+        today = context.getString(R.string.date_today);
+        yesterday = context.getString(R.string.date_yesterday);
+    }
+    
+    public String format(long timestamp) {
+        return formatters.get().format(timestamp, System.currentTimeMillis());
+    }
+    
+    private final class Formatter {
+        private final Calendar calendar = Calendar.getInstance();
+        private final Date date = new Date();
+        private Locale locale;
+        private SimpleDateFormat time;
+        private SimpleDateFormat dayThisYear;
+        private SimpleDateFormat day;
+        // Starts of yesterday, today, tomorrow and this year; recomputed when now leaves today.
+        private long yesterdayStart;
+        private long todayStart;
+        private long tomorrowStart;
+        private long yearStart;
+        
+        String format(long timestamp, long now) {
+            Locale current = Locale.getDefault();
+            if (!current.equals(locale)) {
+                locale = current;
+                time = new SimpleDateFormat("HH:mm", current);
+                dayThisYear = new SimpleDateFormat("MMM d", current);
+                day = new SimpleDateFormat("MMM d, yyyy", current);
+            }
+            if (now < todayStart || now >= tomorrowStart) {
+                computeBoundaries(now);
+            }
+            
+            date.setTime(timestamp);
+            if (timestamp >= todayStart) {
+                return String.format(locale, today, time.format(date));
+            } else if (timestamp >= yesterdayStart) {
+                return yesterday;
+            } else if (timestamp >= yearStart) {
+                return dayThisYear.format(date);
+            }
+            return day.format(date);
+        }
+        
+        private void computeBoundaries(long now) {
+            calendar.setTimeInMillis(now);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            todayStart = calendar.getTimeInMillis();
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+            tomorrowStart = calendar.getTimeInMillis();
+            calendar.add(Calendar.DAY_OF_MONTH, -2);
+            yesterdayStart = calendar.getTimeInMillis();
+            calendar.setTimeInMillis(todayStart);
+            calendar.set(Calendar.DAY_OF_YEAR, 1);
+            yearStart = calendar.getTimeInMillis();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.browser.app.utils;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.StrictMode;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Debug-build diagnostics for disk reads and writes made on the main thread. Every
+ * violation goes to logcat. From Android 9 each one is also appended, with its stack
+ * trace, to {@code files/strictmode.log}; inspect it with
+ * {@code adb shell run-as com.browser.app cat files/strictmode.log}. Older releases have
+ * no listener penalty, so there they go to the system DropBox instead; read it with
+ * {@code adb shell dumpsys dropbox data_app_strictmode --print}.
+ */
+public final class StrictModeLog {
+    
+    private static final String TAG = "StrictModeLog";
+    private static final String FILE_NAME = "strictmode.log";
+    private static final long MAX_LOG_BYTES = 256 * 1024;
+    
+    private StrictModeLog() {
+    }
+    
+    public static void install(Context context) {
+        File log = new File(context.getFilesDir(), FILE_NAME);
+        StrictMode.ThreadPolicy.Builder policy = new StrictMode.ThreadPolicy.Builder()
+            .detectDiskReads()
+            .detectDiskWrites()
+            .penaltyLog();
+        
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            // Its own unbounded thread, so a burst of violations neither loses entries nor
+            // queues up behind, or delays, the app's background work.
+            ExecutorService writer = Executors.newSingleThreadExecutor(
+                runnable -> new Thread(runnable, "strictmode-log"));
+            policy.penaltyListener(writer, violation -> append(log, violation));
+        } else {
+            policy.penaltyDropBox();
+        }
+        StrictMode.setThreadPolicy(policy.build());
+    }
+    
+    // Writer thread only.
+    private static void append(File log, Throwable violation) {
+        if (log.length() > MAX_LOG_BYTES) {
+            log.renameTo(new File(log.getPath() + ".1"));
+        }
+        try (PrintWriter out = new PrintWriter(new FileWriter(log, true))) {
+            String time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US).format(new Date());
+            out.println(time + " " + violation.getClass().getSimpleName());
+            violation.printStackTrace(out);
+            out.println();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write " + log, e);
+        }
+    }
+}
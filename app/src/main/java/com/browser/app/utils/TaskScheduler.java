@@ -0,0 +1,298 @@
+package com.browser.app.utils;
+
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * One small worker pool for the whole app, with three priority lanes:
+ * <ul>
+ * <li>{@link Lane#READ}: reads a screen is waiting on. Served first.</li>
+ * <li>{@link Lane#WRITE}: user-initiated writes. Run one at a time in submission order,
+ * never dropped and never cancelled, so they always drain.</li>
+ * <li>{@link Lane#BACKGROUND}: maintenance and prefetch. At most one runs at a time, at
+ * background thread priority.</li>
+ * </ul>
+ * Reads cannot starve writes, and neither can starve background work: after a streak of
+ * higher-priority tasks the waiting lower lane gets a turn. The read and background
+ * queues are bounded; when full, their oldest queued {@link Future}, by then stale, is
+ * cancelled and dropped, so whoever holds it sees that it will not run. Plain runnables
+ * are never dropped, since nothing would tell their caller; they may take a queue past
+ * its bound. A task that throws, even an Error, is logged and does not take its worker
+ * down.
+ */
+public final class TaskScheduler {
+    
+    public enum Lane { READ, WRITE, BACKGROUND }
+    
+    public static final class Task {
+        private final TaskScheduler scheduler;
+        private final Lane lane;
+        private final Runnable runnable;
+        private final Scope scope;
+        private volatile boolean cancelled;
+        
+        private Task(TaskScheduler scheduler, Lane lane, Runnable runnable, Scope scope) {
+            this.scheduler = scheduler;
+            this.lane = lane;
+            this.runnable = runnable;
+            this.scope = scope;
+        }
+        
+        /** Removes the task if it has not started. Writes cannot be cancelled. */
+        public void cancel() {
+            if (lane == Lane.WRITE) return;
+            markCancelled();
+            scheduler.remove(this);
+        }
+        
+        public boolean isCancelled() {
+            return cancelled;
+        }
+        
+        private void markCancelled() {
+            cancelled = true;
+            if (runnable instanceof Future) {
+                ((Future<?>) runnable).cancel(false);
+            }
+        }
+    }
+    
+    /**
+     * Tasks submitted on behalf of a screen. When its lifecycle is destroyed, the scope's
+     * queued reads and background tasks are cancelled; its writes still run.
+     */
+    public static final class Scope implements LifecycleEventObserver {
+        private final TaskScheduler scheduler;
+        private volatile boolean destroyed;
+        
+        private Scope(TaskScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+        
+        public Task read(Runnable runnable) {
+            return scheduler.submit(Lane.READ, runnable, this);
+        }
+        
+        public Task write(Runnable runnable) {
+            return scheduler.submit(Lane.WRITE, runnable, this);
+        }
+        
+        public Task background(Runnable runnable) {
+            return scheduler.submit(Lane.BACKGROUND, runnable, this);
+        }
+        
+        public Executor executor(Lane lane) {
+            return command -> scheduler.submit(lane, command, this);
+        }
+        
+        public boolean isDestroyed() {
+            return destroyed;
+        }
+        
+        @Override
+        public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                destroyed = true;
+                source.getLifecycle().removeObserver(this);
+                scheduler.cancelAll(this);
+            }
+        }
+    }
+    
+    private static final String TAG = "TaskScheduler";
+    private static final int WORKER_COUNT = 3;
+    static final int READ_CAPACITY = 128;
+    static final int BACKGROUND_CAPACITY = 64;
+    private static final int MAX_READ_STREAK = 8;
+    private static final int MAX_FOREGROUND_STREAK = 16;
+    
+    private static TaskScheduler instance;
+    
+    private final Object lock = new Object();
+    private final ArrayDeque<Task> reads = new ArrayDeque<>();
+    private final ArrayDeque<Task> writes = new ArrayDeque<>();
+    private final ArrayDeque<Task> background = new ArrayDeque<>();
+    private boolean writeRunning;
+    private boolean backgroundRunning;
+    private int readStreak;
+    private int foregroundStreak;
+    
+    private TaskScheduler() {
+        this(WORKER_COUNT);
+    }
+    
+    // Tests run their own scheduler, with a known number of workers.
+    TaskScheduler(int workerCount) {
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::work, "scheduler-" + i);
+            worker.start();
+        }
+    }
+    
+    public static synchronized TaskScheduler getInstance() {
+        if (instance == null) {
+            instance = new TaskScheduler();
+        }
+        return instance;
+    }
+    
+    /** Creates a scope whose pending work is cancelled when {@code owner} is destroyed. */
+    @MainThread
+    public Scope scope(LifecycleOwner owner) {
+        Scope scope = new Scope(this);
+        owner.getLifecycle().addObserver(scope);
+        return scope;
+    }
+    
+    public Task submit(Lane lane, Runnable runnable) {
+        return submit(lane, runnable, null);
+    }
+    
+    /** An executor for components that take one, e.g. {@code HistoryWriter}. */
+    public Executor executor(Lane lane) {
+        return command -> submit(lane, command, null);
+    }
+    
+    private Task submit(Lane lane, Runnable runnable, Scope scope) {
+        Task task = new Task(this, lane, runnable, scope);
+        if (scope != null && scope.destroyed && lane != Lane.WRITE) {
+            task.markCancelled();
+            return task;
+        }
+        synchronized (lock) {
+            ArrayDeque<Task> queue = queueFor(lane);
+            if (lane == Lane.READ && queue.size() >= READ_CAPACITY
+                    || lane == Lane.BACKGROUND && queue.size() >= BACKGROUND_CAPACITY) {
+                dropOldestFuture(queue);
+            }
+            queue.add(task);
+            lock.notify();
+        }
+        return task;
+    }
+    
+    private static void dropOldestFuture(ArrayDeque<Task> queue) {
+        for (Iterator<Task> it = queue.iterator(); it.hasNext(); ) {
+            Task task = it.next();
+            if (task.runnable instanceof Future) {
+                task.markCancelled();
+                it.remove();
+                return;
+            }
+        }
+    }
+    
+    private void remove(Task task) {
+        synchronized (lock) {
+            queueFor(task.lane).remove(task);
+        }
+    }
+    
+    private void cancelAll(Scope scope) {
+        synchronized (lock) {
+            cancelAll(reads, scope);
+            cancelAll(background, scope);
+        }
+    }
+    
+    private static void cancelAll(ArrayDeque<Task> queue, Scope scope) {
+        for (Iterator<Task> it = queue.iterator(); it.hasNext(); ) {
+            Task task = it.next();
+            if (task.scope == scope) {
+                task.markCancelled();
+                it.remove();
+            }
+        }
+    }
+    
+    private ArrayDeque<Task> queueFor(Lane lane) {
+        switch (lane) {
+            case READ:
+                return reads;
+            case WRITE:
+                return writes;
+            default:
+                return background;
+        }
+    }
+    
+    private void work() {
+        while (true) {
+            Task task;
+            synchronized (lock) {
+                while ((task = next()) == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            
+            boolean lowPriority = task.lane == Lane.BACKGROUND;
+            if (lowPriority) {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            }
+            try {
+                if (!task.cancelled) {
+                    task.runnable.run();
+                }
+            } catch (Throwable e) {
+                Log.e(TAG, task.lane + " task failed", e);
+            } finally {
+                if (lowPriority) {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_DEFAULT);
+                }
+                synchronized (lock) {
+                    if (task.lane == Lane.WRITE) {
+                        writeRunning = false;
+                    } else if (lowPriority) {
+                        backgroundRunning = false;
+                    }
+                    // A serialized lane may have become runnable for a waiting worker.
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+    
+    // Picks the next runnable task under lock, or null if none may run now.
+    private Task next() {
+        boolean canWrite = !writeRunning && !writes.isEmpty();
+        boolean canBackground = !backgroundRunning && !background.isEmpty();
+        
+        if (canBackground && foregroundStreak >= MAX_FOREGROUND_STREAK) {
+            foregroundStreak = 0;
+            backgroundRunning = true;
+            return background.poll();
+        }
+        if (canWrite && (reads.isEmpty() || readStreak >= MAX_READ_STREAK)) {
+            readStreak = 0;
+            foregroundStreak++;
+            writeRunning = true;
+            return writes.poll();
+        }
+        if (!reads.isEmpty()) {
+            readStreak++;
+            foregroundStreak++;
+            return reads.poll();
+        }
+        if (canBackground) {
+            foregroundStreak = 0;
+            backgroundRunning = true;
+            return background.poll();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,244 @@
+package com.browser.app.adapters;
+
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class KeysetPagedListTest {
+    
+    private static final int PAGE_SIZE = KeysetPagedList.PAGE_SIZE;
+    
+    private static final class Item {
+        final int id;
+        final long timestamp;
+        final String title;
+        
+        Item(int id, long timestamp, String title) {
+            this.id = id;
+            this.timestamp = timestamp;
+            this.title = title;
+        }
+    }
+    
+    /** A table ordered by timestamp DESC, id DESC. */
+    private static final class Table implements KeysetPagedList.Source<Item> {
+        final List<Item> rows = new ArrayList<>();
+        int nextId = 1;
+        
+        void insertNewest(int count) {
+            for (int i = 0; i < count; i++) {
+                int id = nextId++;
+                rows.add(0, new Item(id, id, "item " + id));
+            }
+        }
+        
+        @Override
+        public int count() {
+            return rows.size();
+        }
+        
+        @Override
+        public List<Item> loadPage(long beforeTimestamp, int beforeId, int limit) {
+            List<Item> page = new ArrayList<>();
+            for (Item row : rows) {
+                boolean before = row.timestamp < beforeTimestamp
+                    || row.timestamp == beforeTimestamp && row.id < beforeId;
+                if (before && page.size() < limit) {
+                    page.add(row);
+                }
+            }
+            return page;
+        }
+        
+        @Override
+        public long timestampOf(Item item) {
+            return item.timestamp;
+        }
+        
+        @Override
+        public int idOf(Item item) {
+            return item.id;
+        }
+        
+        @Override
+        public boolean contentsEqual(Item oldItem, Item newItem) {
+            return oldItem.title.equals(newItem.title);
+        }
+    }
+    
+    /**
+     * What a RecyclerView would show: inserted and changed positions are rebound from the
+     * list on the next layout, every other position keeps the row it was bound to.
+     */
+    private static final class Screen implements ListUpdateCallback {
+        static final Object STALE = new Object();
+        final List<Object> shown = new ArrayList<>();
+        int changedRows;
+        
+        @Override
+        public void onInserted(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                shown.add(position, STALE);
+            }
+        }
+        
+        @Override
+        public void onRemoved(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                shown.remove(position);
+            }
+        }
+        
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            shown.add(toPosition, shown.remove(fromPosition));
+        }
+        
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            changedRows += count;
+            for (int i = 0; i < count; i++) {
+                shown.set(position + i, STALE);
+            }
+        }
+        
+        void layout(KeysetPagedList<Item> list) {
+            for (int i = 0; i < shown.size(); i++) {
+                if (shown.get(i) == STALE) {
+                    shown.set(i, list.peek(i));
+                }
+            }
+        }
+    }
+    
+    private Table table;
+    private KeysetPagedList<Item> list;
+    private Screen screen;
+    
+    @Before
+    public void setUp() {
+        table = new Table();
+        list = new KeysetPagedList<>(table, Runnable::run);
+        screen = new Screen();
+        list.setUpdateCallback(screen);
+    }
+    
+    @Test
+    public void unchangedRefreshLeavesFirstPageAlone() {
+        table.insertNewest(3 * PAGE_SIZE);
+        refresh();
+        screen.changedRows = 0;
+        
+        refresh();
+        assertEquals(0, changedRowsBelow(PAGE_SIZE));
+        assertScreenMatches();
+    }
+    
+    @Test
+    public void refreshInsertsOnlyNewRows() {
+        table.insertNewest(3 * PAGE_SIZE);
+        refresh();
+        Object firstShown = screen.shown.get(0);
+        screen.changedRows = 0;
+        
+        table.insertNewest(3);
+        refresh();
+        assertEquals(3 * PAGE_SIZE + 3, screen.shown.size());
+        // The old first row moved down without being rebound.
+        assertSame(firstShown, screen.shown.get(3));
+        assertEquals(0, changedRowsBelow(PAGE_SIZE));
+        assertScreenMatches();
+    }
+    
+    @Test
+    public void refreshRemovesOnlyDeletedRows() {
+        table.insertNewest(2 * PAGE_SIZE);
+        refresh();
+        
+        table.rows.remove(5);
+        table.rows.remove(0);
+        refresh();
+        assertEquals(2 * PAGE_SIZE - 2, screen.shown.size());
+        assertScreenMatches();
+    }
+    
+    @Test
+    public void removeAtShiftsResidentRows() {
+        table.insertNewest(2 * PAGE_SIZE + 10);
+        refresh();
+        
+        int position = list.positionOf(table.rows.get(7).id);
+        table.rows.remove(7);
+        list.removeAt(position);
+        idle();
+        assertEquals(2 * PAGE_SIZE + 9, list.size());
+        assertScreenMatches();
+    }
+    
+    @Test
+    public void itemIdsFollowTheirRows() {
+        table.insertNewest(3 * PAGE_SIZE);
+        refresh();
+        long firstId = list.itemId(0);
+        assertEquals(table.rows.get(0).id, firstId);
+        
+        table.insertNewest(3);
+        refresh();
+        assertEquals(firstId, list.itemId(3));
+        // Only the first pages are loaded; the rest are placeholders with ids of their own.
+        int last = list.size() - 1;
+        assertNull(list.peek(last));
+        assertTrue(list.itemId(last) < 0);
+        assertNotEquals(list.itemId(last), list.itemId(last - 1));
+    }
+    
+    private void refresh() {
+        list.refresh();
+        idle();
+        screen.layout(list);
+    }
+    
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+    
+    private int changedRowsBelow(int position) {
+        int changed = screen.changedRows;
+        // Rows of later pages turn from placeholders into rows as they load.
+        int laterPages = 0;
+        for (int i = position; i < screen.shown.size(); i++) {
+            if (list.peek(i) != null) laterPages++;
+        }
+        return Math.max(0, changed - laterPages);
+    }
+    
+    private void assertScreenMatches() {
+        screen.layout(list);
+        assertEquals(list.size(), screen.shown.size());
+        for (int i = 0; i < screen.shown.size(); i++) {
+            Item item = list.peek(i);
+            if (item == null) continue;
+            assertTrue("position " + i, screen.shown.get(i) instanceof Item);
+            Item shown = (Item) screen.shown.get(i);
+            assertEquals("position " + i, item.id, shown.id);
+            assertEquals("position " + i, item.title, shown.title);
+        }
+    }
+}
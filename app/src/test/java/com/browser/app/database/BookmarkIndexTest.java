@@ -0,0 +1,47 @@
+package com.browser.app.database;
+
+import com.browser.app.database.dao.BookmarkDao;
+import com.browser.app.database.entities.Bookmark;
+
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BookmarkIndexTest {
+    
+    // As saved before bookmark URLs were normalized.
+    private static final String LEGACY_URL = "HTTPS://Example.COM/Path";
+    
+    @Test
+    public void deletingALegacyRowClearsItsNormalizedFingerprint() {
+        BookmarkIndex index = new BookmarkIndex(dao());
+        index.loadAsync(Runnable::run);
+        assertTrue(index.contains("https://example.com/Path"));
+        
+        index.delete(new Bookmark("Example", LEGACY_URL, 100));
+        
+        assertFalse(index.contains(LEGACY_URL));
+        assertFalse(index.contains("https://example.com/Path"));
+    }
+    
+    @Test
+    public void insertAndDeleteByUrlAgreeOnTheNormalizedForm() {
+        BookmarkIndex index = new BookmarkIndex(dao());
+        index.loadAsync(Runnable::run);
+        
+        index.insert(new Bookmark("Other", "other.org", 100));
+        assertTrue(index.contains("https://other.org/"));
+        index.deleteByUrl("HTTPS://OTHER.ORG/");
+        assertFalse(index.contains("other.org"));
+    }
+    
+    private static BookmarkDao dao() {
+        return (BookmarkDao) Proxy.newProxyInstance(BookmarkDao.class.getClassLoader(),
+            new Class<?>[] {BookmarkDao.class}, (proxy, method, args) ->
+                method.getName().equals("getAllBookmarkUrls") ? Collections.singletonList(LEGACY_URL) : null);
+    }
+}
@@ -0,0 +1,97 @@
+package com.browser.app.database.async;
+
+import android.os.Looper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class AsyncDaoTest {
+    
+    private static final long TIMEOUT_MS = 5000;
+    
+    private static class TestDao extends AsyncDao {
+        TestDao() {
+            super(null);
+        }
+        
+        <T> Future<T> runRead(Callable<T> query, Callback<T> callback) {
+            return read(query, callback);
+        }
+        
+        <T> Future<T> runWrite(Callable<T> update, Callback<T> callback) {
+            return write(update, callback);
+        }
+    }
+    
+    private static class Recorder<T> implements AsyncDao.Callback<T> {
+        final AtomicReference<T> result = new AtomicReference<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        
+        @Override
+        public void onResult(T value) {
+            result.set(value);
+        }
+        
+        @Override
+        public void onError(Throwable failure) {
+            error.set(failure);
+        }
+        
+        boolean delivered() {
+            return result.get() != null || error.get() != null;
+        }
+    }
+    
+    @Test
+    public void resultIsDeliveredOnMainThread() throws Exception {
+        Recorder<String> callback = new Recorder<>();
+        Future<String> future = new TestDao().runRead(() -> "row", callback);
+        
+        assertEquals("row", future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        awaitDelivery(callback);
+        assertEquals("row", callback.result.get());
+        assertNull(callback.error.get());
+    }
+    
+    @Test
+    public void failureIsReportedToCallback() throws Exception {
+        IllegalStateException failure = new IllegalStateException("disk full");
+        Recorder<Void> callback = new Recorder<>();
+        Future<Void> future = new TestDao().runWrite(() -> {
+            throw failure;
+        }, callback);
+        
+        try {
+            future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            fail("write should have failed");
+        } catch (ExecutionException expected) {
+            assertSame(failure, expected.getCause());
+        }
+        awaitDelivery(callback);
+        assertSame(failure, callback.error.get());
+        assertNull(callback.result.get());
+    }
+    
+    // The callback is posted once the worker finishes, possibly after get() returned.
+    private static void awaitDelivery(Recorder<?> callback) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!callback.delivered() && System.currentTimeMillis() < deadline) {
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.sleep(10);
+        }
+    }
+}
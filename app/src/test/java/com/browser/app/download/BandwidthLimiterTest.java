@@ -0,0 +1,114 @@
+package com.browser.app.download;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BandwidthLimiterTest {
+    
+    private static final int CHUNK = 8 * 1024;
+    private static final long RATE = 512 * 1024;
+    
+    @Test
+    public void unlimitedNeverWaits() throws InterruptedException {
+        BandwidthLimiter limiter = new BandwidthLimiter();
+        long start = System.nanoTime();
+        for (int i = 0; i < 10000; i++) {
+            limiter.acquire(this, CHUNK);
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+    
+    @Test
+    public void throttledRateIsSharedPerDownloadNotPerConnection() throws InterruptedException {
+        BandwidthLimiter limiter = new BandwidthLimiter();
+        limiter.setRate(RATE);
+        Object wide = new Object();
+        Object narrow = new Object();
+        AtomicLong wideBytes = new AtomicLong();
+        AtomicLong narrowBytes = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        
+        List<Thread> connections = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            connections.add(reader(limiter, wide, wideBytes, running));
+        }
+        connections.add(reader(limiter, narrow, narrowBytes, running));
+        long start = System.nanoTime();
+        for (Thread connection : connections) {
+            connection.start();
+        }
+        Thread.sleep(2000);
+        running.set(false);
+        long elapsedNs = System.nanoTime() - start;
+        for (Thread connection : connections) {
+            connection.join(1000);
+        }
+        
+        // One grant each in turn, so four connections get the same share as one.
+        double share = (double) wideBytes.get() / (wideBytes.get() + narrowBytes.get());
+        assertEquals(0.5, share, 0.1);
+        // The total stays within the rate, plus one burst and a chunk per connection.
+        long allowed = (long) (RATE * elapsedNs / 1e9) + RATE / 10 + 5 * CHUNK;
+        long total = wideBytes.get() + narrowBytes.get();
+        assertTrue(total + " > " + allowed, total <= allowed);
+        assertTrue(total + " too slow", total >= RATE);
+    }
+    
+    @Test
+    public void foregroundLoadHoldsDownloadsUntilItEnds() throws InterruptedException {
+        BandwidthLimiter limiter = new BandwidthLimiter();
+        limiter.setForegroundLoading(true);
+        // Puts the bucket a megabyte in debt, four seconds at the foreground rate.
+        limiter.acquire(this, 1024 * 1024);
+        
+        CountDownLatch granted = new CountDownLatch(1);
+        Thread download = new Thread(() -> {
+            try {
+                limiter.acquire(this, CHUNK);
+                granted.countDown();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        download.start();
+        assertFalse(granted.await(300, TimeUnit.MILLISECONDS));
+        
+        limiter.setForegroundLoading(false);
+        assertTrue(granted.await(500, TimeUnit.MILLISECONDS));
+        download.join();
+    }
+    
+    @Test
+    public void foregroundCapsAHigherRate() throws InterruptedException {
+        BandwidthLimiter limiter = new BandwidthLimiter();
+        limiter.setRate(100L * 1024 * 1024);
+        limiter.setForegroundLoading(true);
+        long start = System.nanoTime();
+        // Half a second's worth at the 256 KiB/s foreground rate.
+        for (int i = 0; i < 16; i++) {
+            limiter.acquire(this, CHUNK);
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(300));
+    }
+    
+    private static Thread reader(BandwidthLimiter limiter, Object owner, AtomicLong bytes, AtomicBoolean running) {
+        return new Thread(() -> {
+            try {
+                while (running.get()) {
+                    limiter.acquire(owner, CHUNK);
+                    bytes.addAndGet(CHUNK);
+                }
+            } catch (InterruptedException ignored) {
+            }
+        });
+    }
+}
@@ -0,0 +1,261 @@
+package com.browser.app.download;
+
+import com.browser.app.database.dao.DownloadDao;
+import com.browser.app.database.entities.DownloadItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class DownloadTaskTest {
+    
+    private static final int MIB = 1024 * 1024;
+    
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    
+    private MockWebServer server;
+    private FileServer files;
+    private ExecutorService executor;
+    private ProgressTracker tracker;
+    
+    /** Serves one file, honouring Range and If-Range the way a typical CDN does. */
+    private static final class FileServer extends Dispatcher {
+        volatile byte[] content;
+        volatile String etag;
+        volatile boolean ranges = true;
+        final List<RecordedRequest> requests = new ArrayList<>();
+        
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            synchronized (requests) {
+                requests.add(request);
+            }
+            byte[] body = content;
+            MockResponse response = new MockResponse().setHeader("ETag", etag);
+            String range = request.getHeader("Range");
+            String ifRange = request.getHeader("If-Range");
+            if (!ranges || range == null || ifRange != null && !ifRange.equals(etag)) {
+                return response.setResponseCode(200).setBody(new Buffer().write(body));
+            }
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Math.min(body.length - 1, Integer.parseInt(bounds[1]));
+            return response.setResponseCode(206)
+                .setHeader("Content-Range", "bytes " + start + "-" + end + "/" + body.length)
+                .setBody(new Buffer().write(Arrays.copyOfRange(body, start, end + 1)));
+        }
+        
+        List<RecordedRequest> requests() {
+            synchronized (requests) {
+                return new ArrayList<>(requests);
+            }
+        }
+    }
+    
+    @Before
+    public void setUp() throws IOException {
+        files = new FileServer();
+        server = new MockWebServer();
+        server.setDispatcher(files);
+        server.start();
+        executor = Executors.newCachedThreadPool();
+        DownloadDao dao = (DownloadDao) Proxy.newProxyInstance(DownloadDao.class.getClassLoader(),
+            new Class<?>[] {DownloadDao.class}, (proxy, method, args) -> null);
+        tracker = new ProgressTracker(dao, Runnable::run);
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        server.shutdown();
+    }
+    
+    @Test
+    public void rangedDownloadFetchesSegmentsInParallel() throws Exception {
+        files.content = content(3 * MIB + 123, 1);
+        files.etag = "\"v1\"";
+        DownloadItem item = newItem();
+        
+        run(item);
+        
+        assertEquals(DownloadItem.STATUS_COMPLETED, item.status);
+        assertTrue(item.isCompleted);
+        assertEquals(files.content.length, item.fileSize);
+        assertEquals("\"v1\"", item.validator);
+        assertArrayEquals(files.content, Files.readAllBytes(new File(item.filePath).toPath()));
+        assertEquals(sha256(files.content), item.sha256);
+        assertNull(item.segments);
+        
+        List<RecordedRequest> requests = files.requests();
+        assertEquals("bytes=0-0", requests.get(0).getHeader("Range"));
+        assertEquals(4, requests.size());
+        for (RecordedRequest request : requests.subList(1, requests.size())) {
+            assertTrue(request.getHeader("Range").startsWith("bytes="));
+            assertEquals("\"v1\"", request.getHeader("If-Range"));
+        }
+    }
+    
+    @Test
+    public void serverWithoutRangesIsFetchedInOneRequest() throws Exception {
+        files.content = content(200000, 2);
+        files.etag = "\"v1\"";
+        files.ranges = false;
+        DownloadItem item = newItem();
+        
+        run(item);
+        
+        assertEquals(DownloadItem.STATUS_COMPLETED, item.status);
+        assertEquals(files.content.length, item.fileSize);
+        assertArrayEquals(files.content, Files.readAllBytes(new File(item.filePath).toPath()));
+        assertEquals(sha256(files.content), item.sha256);
+        
+        List<RecordedRequest> requests = files.requests();
+        assertEquals(2, requests.size());
+        assertNull(requests.get(1).getHeader("Range"));
+        assertNull(requests.get(1).getHeader("If-Range"));
+    }
+    
+    @Test
+    public void resumeRequestsOnlyTheMissingBytes() throws Exception {
+        files.content = content(3000, 3);
+        files.etag = "\"v1\"";
+        DownloadItem item = newItem();
+        item.fileSize = 3000;
+        item.validator = "\"v1\"";
+        item.segments = "0:1000:1999,2000:2000:2999";
+        // The first thousand bytes made it to disk and into the hash before the pause.
+        try (RandomAccessFile file = new RandomAccessFile(item.filePath, "rw")) {
+            file.setLength(3000);
+            file.write(files.content, 0, 1000);
+        }
+        Sha256 hash = new Sha256();
+        hash.update(files.content, 0, 1000);
+        item.hashState = hash.save();
+        item.downloadedBytes = 1000;
+        
+        run(item);
+        
+        assertEquals(DownloadItem.STATUS_COMPLETED, item.status);
+        assertArrayEquals(files.content, Files.readAllBytes(new File(item.filePath).toPath()));
+        assertEquals(sha256(files.content), item.sha256);
+        
+        List<RecordedRequest> requests = files.requests();
+        assertEquals(2, requests.size());
+        assertEquals("bytes=1000-1999", requests.get(0).getHeader("Range"));
+        assertEquals("bytes=2000-2999", requests.get(1).getHeader("Range"));
+    }
+    
+    @Test
+    public void changedFileRestartsFromZero() throws Exception {
+        byte[] old = content(3000, 4);
+        files.content = content(2500, 5);
+        files.etag = "\"v2\"";
+        DownloadItem item = newItem();
+        item.fileSize = 3000;
+        item.validator = "\"v1\"";
+        item.segments = "0:1500:2999";
+        try (RandomAccessFile file = new RandomAccessFile(item.filePath, "rw")) {
+            file.write(old);
+        }
+        
+        run(item);
+        
+        assertEquals(DownloadItem.STATUS_COMPLETED, item.status);
+        assertEquals("\"v2\"", item.validator);
+        assertEquals(2500, item.fileSize);
+        assertArrayEquals(files.content, Files.readAllBytes(new File(item.filePath).toPath()));
+        assertEquals(sha256(files.content), item.sha256);
+        
+        // The stale If-Range got the whole new file, which sent the task back to a probe.
+        List<RecordedRequest> requests = files.requests();
+        assertEquals("\"v1\"", requests.get(0).getHeader("If-Range"));
+        assertEquals("bytes=0-0", requests.get(1).getHeader("Range"));
+        assertEquals("\"v2\"", requests.get(2).getHeader("If-Range"));
+    }
+    
+    @Test
+    public void digestMismatchMarksCorrupted() throws Exception {
+        files.content = content(5000, 6);
+        files.etag = "\"v1\"";
+        DownloadItem item = newItem();
+        item.expectedSha256 = sha256(content(5000, 7));
+        
+        run(item);
+        
+        assertEquals(DownloadItem.STATUS_CORRUPTED, item.status);
+        assertEquals(sha256(files.content), item.sha256);
+    }
+    
+    private DownloadItem newItem() throws IOException {
+        File file = new File(folder.getRoot(), "file.bin");
+        DownloadItem item = new DownloadItem("file.bin", server.url("/file.bin").toString(),
+            file.getPath(), 0, -1, "application/octet-stream");
+        item.id = 1;
+        return item;
+    }
+    
+    private void run(DownloadItem item) {
+        DownloadTask task = new DownloadTask(item, new OkHttpClient(), executor, tracker, new BandwidthLimiter(),
+            DownloadTask.MAX_CONNECTIONS, "test", new DownloadTask.Callback() {
+                @Override
+                public String defaultUserAgent() {
+                    return "test";
+                }
+                
+                @Override
+                public boolean isAllowedOnNetwork(long fileSize) {
+                    return true;
+                }
+                
+                @Override
+                public void onFinished(DownloadTask finished) {
+                }
+            });
+        task.run();
+    }
+    
+    private static byte[] content(int length, long seed) {
+        byte[] content = new byte[length];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+    
+    private static String sha256(byte[] data) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package com.browser.app.favicon;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Looper;
+import android.widget.ImageView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class FaviconCacheTest {
+    
+    private static final String URL = "https://en.wikipedia.org/wiki/Main_Page";
+    private static final int BINDS = 10000;
+    private static final long TIMEOUT_MS = 5000;
+    
+    @Test
+    public void hostKeyDependsOnlyOnTheHost() {
+        long key = FaviconCache.hostKey(URL);
+        assertTrue(key != 0);
+        assertEquals(key, FaviconCache.hostKey("http://en.wikipedia.org/wiki/Other?x=1"));
+        assertEquals(0, FaviconCache.hostKey("not a url"));
+    }
+    
+    @Test
+    public void bindingACachedIconAllocatesNothing() throws InterruptedException {
+        FaviconCache cache = FaviconCache.getInstance(RuntimeEnvironment.getApplication());
+        ImageView view = new ImageView(RuntimeEnvironment.getApplication());
+        Bitmap icon = Bitmap.createBitmap(8, 8, Bitmap.Config.ARGB_8888);
+        cache.put(URL, icon);
+        awaitIcon(cache, view, icon);
+        
+        // What ImageView itself allocates to show the bitmap is not the cache's doing.
+        for (int i = 0; i < BINDS; i++) {
+            view.setImageBitmap(icon);
+            cache.bind(view, URL, 0);
+        }
+        long before = allocatedBytes();
+        for (int i = 0; i < BINDS; i++) {
+            view.setImageBitmap(icon);
+        }
+        long baseline = allocatedBytes() - before;
+        before = allocatedBytes();
+        for (int i = 0; i < BINDS; i++) {
+            cache.bind(view, URL, 0);
+        }
+        long binding = allocatedBytes() - before;
+        
+        // A boxed key alone would cost 16 bytes per bind.
+        double perBind = (double) (binding - baseline) / BINDS;
+        assertTrue(perBind + " bytes per bind", perBind < 4);
+        assertEquals(icon, shownBitmap(view));
+    }
+    
+    private static void awaitIcon(FaviconCache cache, ImageView view, Bitmap icon) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (true) {
+            shadowOf(Looper.getMainLooper()).idle();
+            cache.bind(view, URL, 0);
+            if (shownBitmap(view) == icon) return;
+            assertTrue("icon never cached", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+    
+    private static Bitmap shownBitmap(ImageView view) {
+        Drawable drawable = view.getDrawable();
+        return drawable instanceof BitmapDrawable ? ((BitmapDrawable) drawable).getBitmap() : null;
+    }
+    
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
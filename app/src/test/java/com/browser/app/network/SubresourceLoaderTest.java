@@ -0,0 +1,226 @@
+package com.browser.app.network;
+
+import android.net.Uri;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class SubresourceLoaderTest {
+    
+    private static final long CACHE_BYTES = 1024 * 1024;
+    
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    
+    private MockWebServer server;
+    private Cache cache;
+    private SubresourceLoader loader;
+    
+    private static final class Request implements WebResourceRequest {
+        final Uri url;
+        final boolean mainFrame;
+        final Map<String, String> headers = new HashMap<>();
+        
+        Request(String url, boolean mainFrame) {
+            this.url = Uri.parse(url);
+            this.mainFrame = mainFrame;
+        }
+        
+        @Override
+        public Uri getUrl() {
+            return url;
+        }
+        
+        @Override
+        public boolean isForMainFrame() {
+            return mainFrame;
+        }
+        
+        @Override
+        public boolean isRedirect() {
+            return false;
+        }
+        
+        @Override
+        public boolean hasGesture() {
+            return false;
+        }
+        
+        @Override
+        public String getMethod() {
+            return "GET";
+        }
+        
+        @Override
+        public Map<String, String> getRequestHeaders() {
+            return headers;
+        }
+    }
+    
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        cache = new Cache(folder.newFolder("http"), CACHE_BYTES);
+        loader = new SubresourceLoader(new OkHttpClient.Builder().cache(cache).build());
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+        cache.close();
+    }
+    
+    @Test
+    public void freshResponseIsServedFromCache() throws Exception {
+        server.enqueue(new MockResponse()
+            .setHeader("Content-Type", "text/css; charset=utf-8")
+            .setHeader("Cache-Control", "max-age=60")
+            .setBody("body{}"));
+        
+        WebResourceResponse first = load("/style.css");
+        assertEquals(200, first.getStatusCode());
+        assertEquals("text/css", first.getMimeType());
+        assertEquals("UTF-8", first.getEncoding());
+        assertEquals("body{}", read(first));
+        
+        WebResourceResponse second = load("/style.css");
+        assertEquals(200, second.getStatusCode());
+        assertEquals("body{}", read(second));
+        
+        assertEquals(1, server.getRequestCount());
+        SubresourceLoader.Stats stats = loader.getStats();
+        assertEquals(1, stats.misses);
+        assertEquals(1, stats.hits);
+        assertEquals(0, stats.revalidated);
+        assertEquals(6, stats.bytesFetched);
+        assertEquals(6, stats.bytesSaved);
+    }
+    
+    @Test
+    public void notModifiedServesCachedBody() throws Exception {
+        server.enqueue(new MockResponse()
+            .setHeader("Cache-Control", "no-cache")
+            .setHeader("ETag", "\"v1\"")
+            .setBody("cached"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        
+        assertEquals("cached", read(load("/app.js")));
+        WebResourceResponse revalidated = load("/app.js");
+        assertEquals(200, revalidated.getStatusCode());
+        assertEquals("cached", read(revalidated));
+        
+        server.takeRequest();
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+        SubresourceLoader.Stats stats = loader.getStats();
+        assertEquals(1, stats.misses);
+        assertEquals(1, stats.revalidated);
+        assertEquals(6, stats.bytesSaved);
+    }
+    
+    @Test
+    public void noStoreIsFetchedEveryTime() throws Exception {
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "no-store").setBody("one"));
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "no-store").setBody("two"));
+        
+        assertEquals("one", read(load("/feed")));
+        assertEquals("two", read(load("/feed")));
+        
+        assertEquals(2, server.getRequestCount());
+        SubresourceLoader.Stats stats = loader.getStats();
+        assertEquals(2, stats.misses);
+        assertEquals(0, stats.hits);
+        assertEquals(0, stats.bytesSaved);
+    }
+    
+    @Test
+    public void webViewValidatorsAreNotForwarded() throws Exception {
+        server.enqueue(new MockResponse().setBody("fresh"));
+        
+        Request request = new Request(server.url("/img.png").toString(), false);
+        request.headers.put("If-None-Match", "\"stale\"");
+        request.headers.put("Accept", "image/*");
+        WebResourceResponse response = loader.load(request);
+        
+        assertNotNull(response);
+        assertEquals(200, response.getStatusCode());
+        assertEquals("fresh", read(response));
+        RecordedRequest recorded = server.takeRequest();
+        assertNull(recorded.getHeader("If-None-Match"));
+        assertEquals("image/*", recorded.getHeader("Accept"));
+    }
+    
+    @Test
+    public void mainFrameIsLeftToWebView() {
+        assertNull(loader.load(new Request(server.url("/").toString(), true)));
+        assertEquals(0, server.getRequestCount());
+    }
+    
+    @Test
+    public void wireEncodingHeadersAreDropped() throws Exception {
+        server.enqueue(new MockResponse()
+            .setHeader("Content-Encoding", "gzip")
+            .setBody(new Buffer().write(gzip("zipped"))));
+        
+        WebResourceResponse response = load("/data.json");
+        assertEquals("zipped", read(response));
+        for (String name : response.getResponseHeaders().keySet()) {
+            assertFalse(name, name.equalsIgnoreCase("Content-Encoding"));
+            assertFalse(name, name.equalsIgnoreCase("Content-Length"));
+        }
+    }
+    
+    private WebResourceResponse load(String path) {
+        WebResourceResponse response = loader.load(new Request(server.url(path).toString(), false));
+        assertNotNull(path, response);
+        return response;
+    }
+    
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+            zip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+    
+    private static String read(WebResourceResponse response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        try (InputStream in = response.getData()) {
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,34 @@
+package com.browser.app.search;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AutocompleteEngineTest {
+    
+    @Test
+    public void inlineCompletionSkipsTitleMatchesRankedAboveAUrlMatch() {
+        AutocompleteEngine.Completion title = new AutocompleteEngine.Completion(
+            "https://news.org/", "Example Daily", false, null);
+        AutocompleteEngine.Completion url = new AutocompleteEngine.Completion(
+            "https://example.com/", "Example", true, "ample.com");
+        
+        assertEquals("ample.com", AutocompleteEngine.inlineCompletion(Arrays.asList(title, url)));
+    }
+    
+    @Test
+    public void inlineCompletionStopsAtTheFirstUrlMatch() {
+        // Typed out in full: nothing to append, and no lower ranked URL either.
+        AutocompleteEngine.Completion typed = new AutocompleteEngine.Completion(
+            "https://example.com/", "Example", true, null);
+        AutocompleteEngine.Completion longer = new AutocompleteEngine.Completion(
+            "https://example.com/docs", "Docs", true, "docs");
+        
+        assertNull(AutocompleteEngine.inlineCompletion(Arrays.asList(typed, longer)));
+        assertNull(AutocompleteEngine.inlineCompletion(Collections.emptyList()));
+    }
+}
@@ -0,0 +1,218 @@
+package com.browser.app.utils;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TaskSchedulerTest {
+    
+    private static final long TIMEOUT_S = 5;
+    
+    /** Holds a worker until released, so tasks can be queued behind it. */
+    private static final class Gate implements Runnable {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        
+        @Override
+        public void run() {
+            started.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        void awaitStarted() throws InterruptedException {
+            assertTrue(started.await(TIMEOUT_S, TimeUnit.SECONDS));
+        }
+        
+        void release() {
+            released.countDown();
+        }
+    }
+    
+    private static final class Owner implements LifecycleOwner {
+        final LifecycleRegistry lifecycle = LifecycleRegistry.createUnsafe(this);
+        
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return lifecycle;
+        }
+    }
+    
+    @Test
+    public void failingTasksDoNotStopWorkers() throws InterruptedException {
+        TaskScheduler scheduler = TaskScheduler.getInstance();
+        // More failures than workers, on every lane.
+        for (int i = 0; i < 4; i++) {
+            for (TaskScheduler.Lane lane : TaskScheduler.Lane.values()) {
+                scheduler.submit(lane, () -> {
+                    throw new IllegalStateException("boom");
+                });
+            }
+        }
+        
+        CountDownLatch ran = new CountDownLatch(3);
+        for (TaskScheduler.Lane lane : TaskScheduler.Lane.values()) {
+            scheduler.submit(lane, ran::countDown);
+        }
+        assertTrue(ran.await(TIMEOUT_S, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void errorsDoNotStopWorkers() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(1);
+        scheduler.submit(TaskScheduler.Lane.READ, () -> {
+            throw new StackOverflowError("deep");
+        });
+        
+        CountDownLatch ran = new CountDownLatch(1);
+        scheduler.submit(TaskScheduler.Lane.READ, ran::countDown);
+        assertTrue(ran.await(TIMEOUT_S, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void readsRunBeforeWritesAndWritesBeforeBackground() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(1);
+        Gate gate = new Gate();
+        scheduler.submit(TaskScheduler.Lane.READ, gate);
+        gate.awaitStarted();
+        
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(4);
+        scheduler.submit(TaskScheduler.Lane.BACKGROUND, record(order, "background", done));
+        scheduler.submit(TaskScheduler.Lane.WRITE, record(order, "write", done));
+        scheduler.submit(TaskScheduler.Lane.READ, record(order, "read 1", done));
+        scheduler.submit(TaskScheduler.Lane.READ, record(order, "read 2", done));
+        gate.release();
+        
+        assertTrue(done.await(TIMEOUT_S, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("read 1", "read 2", "write", "background"), order);
+    }
+    
+    @Test
+    public void fullQueueDropsItsOldestFutureOnly() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(1);
+        Gate gate = new Gate();
+        scheduler.submit(TaskScheduler.Lane.WRITE, gate);
+        gate.awaitStarted();
+        
+        // A plain runnable first: nothing would tell its caller it was dropped.
+        CountDownLatch plainRan = new CountDownLatch(1);
+        scheduler.submit(TaskScheduler.Lane.READ, plainRan::countDown);
+        List<FutureTask<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < TaskScheduler.READ_CAPACITY; i++) {
+            FutureTask<Void> future = new FutureTask<>(() -> { }, null);
+            futures.add(future);
+            scheduler.submit(TaskScheduler.Lane.READ, future);
+        }
+        
+        assertTrue(futures.get(0).isCancelled());
+        for (FutureTask<Void> future : futures.subList(1, futures.size())) {
+            assertFalse(future.isCancelled());
+        }
+        gate.release();
+        assertTrue(plainRan.await(TIMEOUT_S, TimeUnit.SECONDS));
+        for (FutureTask<Void> future : futures.subList(1, futures.size())) {
+            try {
+                future.get(TIMEOUT_S, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+    
+    @Test
+    public void destroyedScopeCancelsReadsAndBackgroundButKeepsWrites() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(1);
+        Owner owner = new Owner();
+        owner.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_CREATE);
+        TaskScheduler.Scope scope = scheduler.scope(owner);
+        Gate gate = new Gate();
+        scheduler.submit(TaskScheduler.Lane.WRITE, gate);
+        gate.awaitStarted();
+        
+        AtomicBoolean readRan = new AtomicBoolean();
+        AtomicBoolean backgroundRan = new AtomicBoolean();
+        CountDownLatch writeRan = new CountDownLatch(1);
+        TaskScheduler.Task read = scope.read(() -> readRan.set(true));
+        TaskScheduler.Task background = scope.background(() -> backgroundRan.set(true));
+        TaskScheduler.Task write = scope.write(writeRan::countDown);
+        owner.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        TaskScheduler.Task late = scope.read(() -> readRan.set(true));
+        
+        assertTrue(scope.isDestroyed());
+        assertTrue(read.isCancelled());
+        assertTrue(background.isCancelled());
+        assertTrue(late.isCancelled());
+        assertFalse(write.isCancelled());
+        gate.release();
+        assertTrue(writeRan.await(TIMEOUT_S, TimeUnit.SECONDS));
+        // Anything still queued would have run before a task submitted after it.
+        drain(scheduler, TaskScheduler.Lane.READ);
+        drain(scheduler, TaskScheduler.Lane.BACKGROUND);
+        assertFalse(readRan.get());
+        assertFalse(backgroundRan.get());
+    }
+    
+    @Test
+    public void writesRunOneAtATimeInSubmissionOrder() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(3);
+        int writes = 200;
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(writes);
+        for (int i = 0; i < writes; i++) {
+            int index = i;
+            scheduler.submit(TaskScheduler.Lane.WRITE, () -> {
+                if (running.incrementAndGet() > 1) {
+                    overlapped.set(true);
+                }
+                order.add(index);
+                running.decrementAndGet();
+                done.countDown();
+            });
+            // Reads compete for the same workers meanwhile.
+            scheduler.submit(TaskScheduler.Lane.READ, () -> { });
+        }
+        
+        assertTrue(done.await(TIMEOUT_S, TimeUnit.SECONDS));
+        assertFalse(overlapped.get());
+        for (int i = 0; i < writes; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+    
+    private static Runnable record(List<String> order, String name, CountDownLatch done) {
+        return () -> {
+            order.add(name);
+            done.countDown();
+        };
+    }
+    
+    private static void drain(TaskScheduler scheduler, TaskScheduler.Lane lane) throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        scheduler.submit(lane, ran::countDown);
+        assertTrue(ran.await(TIMEOUT_S, TimeUnit.SECONDS));
+    }
+}
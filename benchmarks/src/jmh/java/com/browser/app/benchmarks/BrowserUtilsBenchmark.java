@@ -0,0 +1,125 @@
+package com.browser.app.benchmarks;
+
+import com.browser.app.utils.BrowserUtils;
+import com.browser.app.utils.UrlParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * URL handling that runs on every navigation and keystroke, and the page helpers. URL
+ * benchmarks report the time per URL, averaged over a whole corpus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BrowserUtilsBenchmark {
+    
+    static final int CORPUS_SIZE = 1024;
+    
+    @State(Scope.Thread)
+    public static class Urls {
+        @Param({"typed", "links"})
+        public String corpus;
+        
+        String[] inputs;
+        
+        @Setup
+        public void setUp() {
+            inputs = corpus.equals("typed") ? Corpus.typed(CORPUS_SIZE) : Corpus.links(CORPUS_SIZE);
+        }
+    }
+    
+    @State(Scope.Thread)
+    public static class Pages {
+        @Param({"16384", "262144", "2097152"})
+        public int size;
+        
+        @Param({"true", "false"})
+        public boolean withTitle;
+        
+        String html;
+        
+        @Setup
+        public void setUp() {
+            html = Corpus.html(size, withTitle);
+        }
+    }
+    
+    @State(Scope.Thread)
+    public static class Sizes {
+        long[] bytes = new long[CORPUS_SIZE];
+        
+        @Setup
+        public void setUp() {
+            Random random = new Random(CORPUS_SIZE);
+            for (int i = 0; i < bytes.length; i++) {
+                // Spread evenly over B to GB.
+                bytes[i] = (long) Math.pow(2, random.nextDouble() * 34);
+            }
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void formatUrl(Urls urls, Blackhole blackhole) {
+        for (String input : urls.inputs) {
+            blackhole.consume(BrowserUtils.formatUrl(input));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void isValidUrl(Urls urls, Blackhole blackhole) {
+        for (String input : urls.inputs) {
+            blackhole.consume(BrowserUtils.isValidUrl(input));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void getDomainFromUrl(Urls urls, Blackhole blackhole) {
+        for (String input : urls.inputs) {
+            blackhole.consume(BrowserUtils.getDomainFromUrl(input));
+        }
+    }
+    
+    /** Classification alone, as the content blocker does for every subresource. */
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void parse(Urls urls, Blackhole blackhole) {
+        UrlParser parser = UrlParser.forThread();
+        for (String input : urls.inputs) {
+            blackhole.consume(parser.parse(input));
+        }
+    }
+    
+    @Benchmark
+    public String extractTitle(Pages pages) {
+        return BrowserUtils.extractTitle(pages.html);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void formatFileSize(Sizes sizes, Blackhole blackhole) {
+        for (long bytes : sizes.bytes) {
+            blackhole.consume(BrowserUtils.formatFileSize(bytes));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.browser.app.benchmarks;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic inputs shaped like what the browser sees: address bar text, link targets,
+ * history entries and web pages. Every corpus comes from a fixed seed, so runs compare.
+ */
+public final class Corpus {
+    
+    private static final long SEED = 0x5eedL;
+    
+    private static final String[] HOSTS = {
+        "google.com", "youtube.com", "wikipedia.org", "en.wikipedia.org", "github.com",
+        "stackoverflow.com", "reddit.com", "news.ycombinator.com", "amazon.com", "twitter.com",
+        "facebook.com", "instagram.com", "linkedin.com", "nytimes.com", "bbc.co.uk",
+        "theguardian.com", "developer.android.com", "docs.oracle.com", "medium.com",
+        "mail.google.com", "maps.google.com", "drive.google.com", "netflix.com", "spotify.com",
+        "weather.com", "imdb.com", "ebay.com", "craigslist.org", "dropbox.com", "apple.com",
+        // IDN hosts, typed in Unicode.
+        "b\u00fccher.de", "m\u00fcnchen.de", "\u043f\u0440\u0438\u043c\u0435\u0440.\u0440\u0444",
+        "localhost", "192.168.1.1",
+    };
+    
+    private static final String[] WORDS = {
+        "how", "to", "the", "best", "weather", "tomorrow", "recipe", "pasta", "android",
+        "java", "download", "free", "news", "today", "near", "me", "cheap", "flights", "review",
+        "2024", "python", "error", "install", "open", "source", "browser", "music", "video",
+        "what", "is", "a", "meaning", "of", "translate", "english", "spanish", "time", "in",
+    };
+    
+    private static final String[] PATH_SEGMENTS = {
+        "wiki", "watch", "questions", "r", "android", "comments", "search", "articles", "2024",
+        "05", "user", "settings", "docs", "reference", "java", "util", "item", "products",
+        "dp", "B08N5WRWNW", "status", "1790012345678901234", "Main_Page", "index.html",
+    };
+    
+    private static final String[] QUERY_KEYS = {
+        "q", "v", "id", "page", "ref", "utm_source", "utm_medium", "lang", "sort", "t",
+    };
+    
+    private Corpus() {
+    }
+    
+    /** What users type into the address bar: hosts, partial URLs and searches. */
+    public static String[] typed(int count) {
+        Random random = new Random(SEED);
+        String[] out = new String[count];
+        for (int i = 0; i < count; i++) {
+            switch (random.nextInt(8)) {
+                case 0:
+                case 1:
+                    out[i] = pick(random, HOSTS);
+                    break;
+                case 2:
+                    out[i] = "www." + pick(random, HOSTS).toUpperCase(Locale.ROOT);
+                    break;
+                case 3:
+                    out[i] = pick(random, HOSTS) + path(random);
+                    break;
+                case 4:
+                    out[i] = "  " + link(random) + " ";
+                    break;
+                case 5:
+                    out[i] = pick(random, WORDS);
+                    break;
+                default:
+                    out[i] = words(random, 2 + random.nextInt(5));
+                    break;
+            }
+        }
+        return out;
+    }
+    
+    /** Absolute URLs as links and redirects hand them over. */
+    public static String[] links(int count) {
+        Random random = new Random(SEED);
+        String[] out = new String[count];
+        for (int i = 0; i < count; i++) {
+            out[i] = link(random);
+        }
+        return out;
+    }
+    
+    /** History-like entries: {@code urls[i]} with page title {@code titles[i]}. */
+    public static void history(int count, String[] urls, String[] titles) {
+        Random random = new Random(SEED);
+        for (int i = 0; i < count; i++) {
+            urls[i] = link(random);
+            titles[i] = title(random);
+        }
+    }
+    
+    /** A link URL that differs from every other serial's, for tables with unique URLs. */
+    public static String uniqueLink(Random random, int serial) {
+        return link(random, serial);
+    }
+    
+    /** A capitalized page title of two to nine words. */
+    public static String title(Random random) {
+        String title = words(random, 2 + random.nextInt(8));
+        return Character.toUpperCase(title.charAt(0)) + title.substring(1);
+    }
+    
+    /**
+     * An HTML page of about {@code size} chars. The title, if any, sits in the head after
+     * the usual meta, style and script noise, as on most real pages.
+     */
+    public static String html(int size, boolean withTitle) {
+        Random random = new Random(SEED);
+        StringBuilder out = new StringBuilder(size + 1024);
+        out.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"utf-8\">\n")
+            .append("<meta name=\"viewport\" content=\"width=device-width, initial-scale=1\">\n");
+        for (int i = 0; i < 12; i++) {
+            out.append("<link rel=\"stylesheet\" href=\"").append(link(random)).append("\">\n");
+        }
+        out.append("<script>window.dataLayer = window.dataLayer || [];")
+            .append("function gtag(){dataLayer.push(arguments);}</script>\n");
+        if (withTitle) {
+            out.append("<TITLE>").append(words(random, 6)).append(" - Example</TITLE>\n");
+        }
+        out.append("</head>\n<body>\n");
+        while (out.length() < size) {
+            out.append("<div class=\"item\"><a href=\"").append(link(random)).append("\">")
+                .append(words(random, 4)).append("</a><p>").append(words(random, 24))
+                .append("</p></div>\n");
+        }
+        out.append("</body>\n</html>\n");
+        return out.toString();
+    }
+    
+    private static String link(Random random) {
+        return link(random, -1);
+    }
+    
+    // Serials below zero are left out.
+    private static String link(Random random, int serial) {
+        StringBuilder out = new StringBuilder(96);
+        out.append(random.nextInt(10) == 0 ? "http://" : "https://");
+        if (random.nextBoolean()) {
+            out.append("www.");
+        }
+        out.append(pick(random, HOSTS));
+        if (random.nextInt(12) == 0) {
+            out.append(':').append(8000 + random.nextInt(1000));
+        }
+        out.append(path(random));
+        if (serial >= 0) {
+            out.append('/').append(serial);
+        }
+        int params = random.nextInt(4);
+        for (int i = 0; i < params; i++) {
+            out.append(i == 0 ? '?' : '&').append(pick(random, QUERY_KEYS)).append('=')
+                .append(pick(random, WORDS));
+        }
+        if (random.nextInt(6) == 0) {
+            out.append('#').append(pick(random, WORDS));
+        }
+        return out.toString();
+    }
+    
+    private static String path(Random random) {
+        StringBuilder out = new StringBuilder();
+        int segments = random.nextInt(5);
+        for (int i = 0; i < segments; i++) {
+            out.append('/').append(pick(random, PATH_SEGMENTS));
+        }
+        return out.toString();
+    }
+    
+    private static String words(Random random, int count) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) out.append(' ');
+            out.append(pick(random, WORDS));
+        }
+        return out.toString();
+    }
+    
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,175 @@
+package com.browser.app.blocker;
+
+import com.browser.app.benchmarks.Corpus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subresource blocking against filter lists of EasyList size and beyond. Lists and requests
+ * are generated from a fixed seed: hosts-file and {@code ||host^} entries, path and
+ * wildcard rules, party and domain options and exceptions, in roughly the mix of the
+ * popular lists. About a quarter of the requests go to listed hosts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ContentBlockerBenchmark {
+    
+    private static final int REQUESTS = 4096;
+    private static final String[] TLDS = {"com", "net", "org", "io", "co.uk", "de", "ru"};
+    private static final String[] AD_WORDS = {
+        "ads", "adserver", "track", "pixel", "analytics", "metrics", "banner", "beacon",
+        "promo", "sponsor", "telemetry", "stats", "click", "affiliate", "popup", "tag",
+    };
+    private static final String[] ASSETS = {
+        "/static/js/app.js", "/assets/style.css", "/img/logo.png", "/fonts/roboto.woff2",
+        "/api/v1/feed?page=2", "/ads/banner_300x250.gif", "/pixel.gif?uid=123&ev=view",
+        "/js/analytics.min.js", "/track?event=load", "/sponsored/card.html",
+    };
+    
+    // Lines per list; one in twenty is a cosmetic rule, which the blocker skips.
+    @Param({"1000", "10000", "100000"})
+    public int rules;
+    
+    private String list;
+    private String[] hosts;
+    private String[] urls;
+    private String[] documentHosts;
+    private ContentBlocker blocker;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(rules);
+        hosts = new String[rules];
+        for (int i = 0; i < rules; i++) {
+            hosts[i] = pick(random, AD_WORDS) + (random.nextBoolean() ? "." : "-") + i + "."
+                + pick(random, TLDS);
+        }
+        list = list(random);
+        
+        String[] links = Corpus.links(REQUESTS);
+        urls = new String[REQUESTS];
+        documentHosts = new String[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            String link = links[i];
+            String page = link.substring(link.indexOf("://") + 3);
+            int slash = page.indexOf('/');
+            documentHosts[i] = slash >= 0 ? page.substring(0, slash) : page;
+            switch (random.nextInt(4)) {
+                case 0:
+                    urls[i] = "https://" + hosts[random.nextInt(rules)] + pick(random, ASSETS);
+                    break;
+                case 1:
+                    urls[i] = "https://cdn." + documentHosts[i] + pick(random, ASSETS);
+                    break;
+                default:
+                    urls[i] = link;
+                    break;
+            }
+        }
+        
+        blocker = load();
+    }
+    
+    /** One {@code shouldBlock} call per subresource, as WebView's network threads make them. */
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public void shouldBlock(Blackhole blackhole) {
+        for (int i = 0; i < REQUESTS; i++) {
+            blackhole.consume(blocker.shouldBlock(urls[i], documentHosts[i]));
+        }
+    }
+    
+    /** Parsing and compiling the lists, which runs on every start. */
+    @Benchmark
+    public ContentBlocker load() throws IOException {
+        ContentBlocker compiled = ContentBlocker.getInstance();
+        compiled.load(Collections.<Reader>singletonList(new StringReader(list)));
+        return compiled;
+    }
+    
+    private String list(Random random) {
+        StringBuilder out = new StringBuilder(rules * 32);
+        out.append("[Adblock Plus 2.0]\n! Title: Generated\n");
+        for (int i = 0; i < rules; i++) {
+            String host = hosts[i];
+            switch (random.nextInt(20)) {
+                case 0:
+                case 1:
+                case 2:
+                case 3:
+                case 4:
+                    out.append("0.0.0.0 ").append(host);
+                    break;
+                case 5:
+                case 6:
+                case 7:
+                case 8:
+                    out.append("||").append(host).append('^');
+                    break;
+                case 9:
+                case 10:
+                    out.append("||").append(host).append("^$third-party");
+                    break;
+                case 11:
+                case 12:
+                    out.append('/').append(pick(random, AD_WORDS)).append('/')
+                        .append(pick(random, AD_WORDS)).append(i).append("/*.gif");
+                    break;
+                case 13:
+                    out.append('-').append(pick(random, AD_WORDS)).append('-').append(i).append('.');
+                    break;
+                case 14:
+                    out.append("||").append(host).append("/*/").append(pick(random, AD_WORDS))
+                        .append(".js$script");
+                    break;
+                case 15:
+                    out.append('|').append("https://").append(host).append('/')
+                        .append(pick(random, AD_WORDS)).append('|');
+                    break;
+                case 16:
+                    out.append("||").append(host).append("^$domain=").append(pick(random, AD_WORDS))
+                        .append(i).append(".com|~").append(pick(random, AD_WORDS)).append(".org");
+                    break;
+                case 17:
+                    out.append("@@||").append(host).append("^$first-party");
+                    break;
+                case 18:
+                    out.append("||").append(host).append("^$important");
+                    break;
+                default:
+                    out.append("example.com##.ad-").append(i);
+                    break;
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+    
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
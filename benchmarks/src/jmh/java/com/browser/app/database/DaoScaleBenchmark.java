@@ -0,0 +1,286 @@
+package com.browser.app.database;
+
+import com.browser.app.benchmarks.Corpus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The history, bookmark and search DAO statements against {@link ScaleDatabase} at 10k, 100k
+ * and 1M history rows with 50k bookmarks. Queries are sampled, so the JSON results carry
+ * latency percentiles; the database size of each run goes to dao-size-ROWS.json next to
+ * them. Each statement is copied from its DAO method and has to be kept in step with it.
+ *
+ * Writes run in a transaction that is rolled back after each call, so every call sees the
+ * seeded database. Commit and fsync costs are therefore left out.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DaoScaleBenchmark {
+    
+    // HistoryWriter's largest batch.
+    private static final int VISIT_BATCH = 32;
+    // KeysetPagedList.PAGE_SIZE and BrowserSearch.CANDIDATE_LIMIT.
+    private static final int PAGE_SIZE = 50;
+    private static final int CANDIDATE_LIMIT = 200;
+    private static final int PROBES = 1024;
+    private static final String[] SEARCH_TERMS = {
+        "weather", "android", "github", "recipe", "wiki", "news", "python", "flights",
+    };
+    
+    // HistoryDao
+    private static final String GET_ALL_HISTORY = "SELECT * FROM history ORDER BY timestamp DESC";
+    private static final String GET_HISTORY_PAGE = "SELECT id, title, url, timestamp, visitCount FROM history " +
+        "WHERE timestamp <= ? AND (timestamp < ? OR id < ?) ORDER BY timestamp DESC, id DESC LIMIT ?";
+    private static final String GET_TOP_SITES = "SELECT id, title, url, timestamp, visitCount, frecency " +
+        "FROM history ORDER BY frecency DESC LIMIT ?";
+    private static final String ADD_VISITS = "UPDATE history SET visitCount = visitCount + ?, " +
+        "timestamp = MAX(timestamp, ?), frecency = frecency + ?, title = COALESCE(?, title) WHERE url = ?";
+    private static final String INSERT_HISTORY = "INSERT OR REPLACE INTO `history` " +
+        "(`id`,`title`,`url`,`timestamp`,`favicon`,`visitCount`,`frecency`) VALUES (nullif(?, 0),?,?,?,?,?,?)";
+    private static final String DELETE_OLDER_THAN = "DELETE FROM history WHERE timestamp < ?";
+    private static final String DELETE_ALL_HISTORY = "DELETE FROM history";
+    // BookmarkDao
+    private static final String GET_BOOKMARK_BY_URL = "SELECT * FROM bookmarks WHERE url = ? LIMIT 1";
+    // SearchDao
+    private static final String SEARCH_HISTORY_FTS = "SELECT 0 AS source, history.id, history.title, " +
+        "history.url, history.timestamp, history.frecency, matchinfo(history_fts, 'pcnx') AS matchInfo " +
+        "FROM history_fts JOIN history ON history.id = history_fts.docid " +
+        "WHERE history_fts MATCH ? ORDER BY history.frecency DESC LIMIT ?";
+    
+    @Param({"10000", "100000", "1000000"})
+    public int historyRows;
+    
+    private Connection db;
+    private PreparedStatement getAllHistory;
+    private PreparedStatement getHistoryPage;
+    private PreparedStatement getTopSites;
+    private PreparedStatement searchHistoryFts;
+    private PreparedStatement addVisits;
+    private PreparedStatement insertHistory;
+    private PreparedStatement deleteOlderThan;
+    private PreparedStatement deleteAllHistory;
+    private PreparedStatement getBookmarkByUrl;
+    
+    // Bookmarked URLs and URLs that were never bookmarked, interleaved.
+    private String[] bookmarkProbes;
+    // Timestamps to page back from, spread over the whole history.
+    private long[] pageProbes;
+    private String[] historyUrls;
+    private long oldestTenthCutoff;
+    private final Random random = new Random(1);
+    private int next;
+    private int nextSerial;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        File dir = new File(System.getProperty("dao.scale.dir", "build/dao-scale"));
+        db = ScaleDatabase.open(dir, historyRows);
+        File reportDir = new File(System.getProperty("dao.scale.report", dir.getPath()));
+        ScaleDatabase.writeSizeReport(db, historyRows, new File(reportDir, "dao-size-" + historyRows + ".json"));
+        
+        getAllHistory = db.prepareStatement(GET_ALL_HISTORY);
+        getHistoryPage = db.prepareStatement(GET_HISTORY_PAGE);
+        getTopSites = db.prepareStatement(GET_TOP_SITES);
+        searchHistoryFts = db.prepareStatement(SEARCH_HISTORY_FTS);
+        addVisits = db.prepareStatement(ADD_VISITS);
+        insertHistory = db.prepareStatement(INSERT_HISTORY);
+        deleteOlderThan = db.prepareStatement(DELETE_OLDER_THAN);
+        deleteAllHistory = db.prepareStatement(DELETE_ALL_HISTORY);
+        getBookmarkByUrl = db.prepareStatement(GET_BOOKMARK_BY_URL);
+        
+        int stride = Math.max(1, historyRows / PROBES);
+        List<String> urls = ScaleDatabase.sample(db,
+            "SELECT url FROM history WHERE id % " + stride + " = 0", PROBES);
+        historyUrls = urls.toArray(new String[0]);
+        List<String> bookmarked = ScaleDatabase.sample(db,
+            "SELECT url FROM bookmarks WHERE id % " + (ScaleDatabase.BOOKMARK_ROWS / PROBES) + " = 0", PROBES / 2);
+        bookmarkProbes = new String[bookmarked.size() * 2];
+        for (int i = 0; i < bookmarked.size(); i++) {
+            bookmarkProbes[i * 2] = bookmarked.get(i);
+            bookmarkProbes[i * 2 + 1] = bookmarked.get(i) + "?missing";
+        }
+        List<String> timestamps = ScaleDatabase.sample(db,
+            "SELECT timestamp FROM history WHERE id % " + stride + " = 0", PROBES);
+        pageProbes = new long[timestamps.size()];
+        for (int i = 0; i < pageProbes.length; i++) {
+            pageProbes[i] = Long.parseLong(timestamps.get(i));
+        }
+        oldestTenthCutoff = ScaleDatabase.queryLong(db,
+            "SELECT timestamp FROM history ORDER BY timestamp LIMIT 1 OFFSET " + historyRows / 10);
+        nextSerial = historyRows + ScaleDatabase.BOOKMARK_ROWS;
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        db.close();
+    }
+    
+    /** Wraps each call of the write benchmarks in a transaction that is rolled back after it. */
+    @State(Scope.Thread)
+    public static class RolledBack {
+        private Connection db;
+        
+        @Setup(Level.Invocation)
+        public void begin(DaoScaleBenchmark benchmark) throws SQLException {
+            db = benchmark.db;
+            db.setAutoCommit(false);
+        }
+        
+        @TearDown(Level.Invocation)
+        public void rollback() throws SQLException {
+            db.rollback();
+            db.setAutoCommit(true);
+        }
+    }
+    
+    /**
+     * HistoryDao.recordVisits with a full batch, half of it revisits. Reported per visit,
+     * as throughput.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(VISIT_BATCH)
+    public void recordVisits(RolledBack transaction) throws SQLException {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < VISIT_BATCH; i++) {
+            boolean revisit = (i & 1) == 0;
+            String url = revisit ? historyUrls[random.nextInt(historyUrls.length)]
+                : Corpus.uniqueLink(random, nextSerial++);
+            double frecency = Frecency.visitScore(Frecency.VISIT_LINK, now);
+            addVisits.setInt(1, 1);
+            addVisits.setLong(2, now);
+            addVisits.setDouble(3, frecency);
+            addVisits.setString(4, null);
+            addVisits.setString(5, url);
+            if (addVisits.executeUpdate() == 0) {
+                insertHistory.setInt(1, 0);
+                insertHistory.setString(2, url);
+                insertHistory.setString(3, url);
+                insertHistory.setLong(4, now);
+                insertHistory.setString(5, null);
+                insertHistory.setInt(6, 1);
+                insertHistory.setDouble(7, frecency);
+                insertHistory.executeUpdate();
+            }
+        }
+    }
+    
+    @Benchmark
+    public void getAllHistory(Blackhole blackhole) throws SQLException {
+        readHistory(getAllHistory, blackhole);
+    }
+    
+    /** What the history screen actually loads: one keyset page. */
+    @Benchmark
+    public void getHistoryPage(Blackhole blackhole) throws SQLException {
+        long before = pageProbes[next++ % pageProbes.length];
+        getHistoryPage.setLong(1, before);
+        getHistoryPage.setLong(2, before);
+        getHistoryPage.setInt(3, Integer.MAX_VALUE);
+        getHistoryPage.setInt(4, PAGE_SIZE);
+        readRows(getHistoryPage, blackhole);
+    }
+    
+    /** HistoryDao.getTopSites, read straight off the frecency index. */
+    @Benchmark
+    public void getTopSites(Blackhole blackhole) throws SQLException {
+        getTopSites.setInt(1, PAGE_SIZE);
+        readRows(getTopSites, blackhole);
+    }
+    
+    /** SearchDao.searchHistory, the FTS query behind address bar and history search. */
+    @Benchmark
+    public void searchHistoryFts(Blackhole blackhole) throws SQLException {
+        searchHistoryFts.setString(1, SEARCH_TERMS[next++ % SEARCH_TERMS.length] + "*");
+        searchHistoryFts.setInt(2, CANDIDATE_LIMIT);
+        readRows(searchHistoryFts, blackhole);
+    }
+    
+    @Benchmark
+    public void getBookmarkByUrl(Blackhole blackhole) throws SQLException {
+        getBookmarkByUrl.setString(1, bookmarkProbes[next++ % bookmarkProbes.length]);
+        readRows(getBookmarkByUrl, blackhole);
+    }
+    
+    /** Clears the oldest tenth of history. */
+    @Benchmark
+    public int deleteOlderThan(RolledBack transaction) throws SQLException {
+        deleteOlderThan.setLong(1, oldestTenthCutoff);
+        return deleteOlderThan.executeUpdate();
+    }
+    
+    @Benchmark
+    public int deleteAll(RolledBack transaction) throws SQLException {
+        return deleteAllHistory.executeUpdate();
+    }
+    
+    // Materializes every row the way Room's generated code fills a List<HistoryItem>.
+    private static void readHistory(PreparedStatement query, Blackhole blackhole) throws SQLException {
+        List<HistoryRow> rows = new ArrayList<>();
+        try (ResultSet cursor = query.executeQuery()) {
+            while (cursor.next()) {
+                HistoryRow row = new HistoryRow();
+                row.id = cursor.getInt(1);
+                row.title = cursor.getString(2);
+                row.url = cursor.getString(3);
+                row.timestamp = cursor.getLong(4);
+                row.favicon = cursor.getString(5);
+                row.visitCount = cursor.getInt(6);
+                row.frecency = cursor.getDouble(7);
+                rows.add(row);
+            }
+        }
+        blackhole.consume(rows);
+    }
+    
+    private static void readRows(PreparedStatement query, Blackhole blackhole) throws SQLException {
+        try (ResultSet cursor = query.executeQuery()) {
+            int columns = cursor.getMetaData().getColumnCount();
+            while (cursor.next()) {
+                for (int i = 1; i <= columns; i++) {
+                    blackhole.consume(cursor.getObject(i));
+                }
+            }
+        }
+    }
+    
+    private static final class HistoryRow {
+        int id;
+        String title;
+        String url;
+        long timestamp;
+        String favicon;
+        int visitCount;
+        double frecency;
+    }
+}
@@ -0,0 +1,245 @@
+package com.browser.app.database;
+
+import com.browser.app.benchmarks.Corpus;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The browser database at production sizes, on SQLite through JDBC so it runs on a desktop
+ * JVM. The schema is the one Room exported for BrowserDatabase version {@link #VERSION},
+ * FTS tables and sync triggers included, run statement for statement as Room creates it.
+ *
+ * Seeding a million rows takes a while, so each size is seeded once into a template file
+ * named after the schema, and every trial works on a fresh copy of it. Delete the
+ * templates after changing how rows are seeded.
+ */
+final class ScaleDatabase {
+    
+    static final int BOOKMARK_ROWS = 50000;
+    
+    private static final long SEED = 0xdb5eedL;
+    // Two years of history, denser towards the present.
+    private static final long HISTORY_SPAN_MS = 2 * 365L * 24 * 60 * 60 * 1000;
+    private static final int MAX_VISITS = 500;
+    private static final int SEED_BATCH = 10000;
+    
+    private static final int VERSION = 9;
+    // app/schemas, which the build adds to the benchmark resources.
+    private static final String SCHEMA_RESOURCE = "/com.browser.app.database.BrowserDatabase/" + VERSION + ".json";
+    private static final String TABLE_NAME = "${TABLE_NAME}";
+    
+    private ScaleDatabase() {
+    }
+    
+    /**
+     * Opens a fresh copy of the database with {@code historyRows} history rows and
+     * {@link #BOOKMARK_ROWS} bookmarks, seeding the template first if needed.
+     */
+    static Connection open(File dir, int historyRows) throws IOException, SQLException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        List<String> schema = loadSchema();
+        String name = "browser-v" + VERSION + "-" + Integer.toHexString(schema.hashCode()) + "-" + historyRows;
+        File template = new File(dir, name + ".db");
+        if (!template.exists()) {
+            File seeding = new File(dir, name + ".seeding");
+            delete(seeding);
+            try (Connection db = connect(seeding)) {
+                seed(db, schema, historyRows);
+            }
+            if (!seeding.renameTo(template)) {
+                throw new IOException("Cannot rename " + seeding);
+            }
+        }
+        
+        File work = new File(dir, "work-" + historyRows + ".db");
+        delete(work);
+        delete(new File(work.getPath() + "-wal"));
+        delete(new File(work.getPath() + "-shm"));
+        copy(template, work);
+        Connection db = connect(work);
+        // As BrowserDatabase configures Room.
+        execute(db, "PRAGMA journal_mode=WAL");
+        return db;
+    }
+    
+    /** Writes the on-disk size of the database file as JSON to {@code report}. */
+    static void writeSizeReport(Connection db, int historyRows, File report) throws IOException, SQLException {
+        execute(db, "PRAGMA wal_checkpoint(TRUNCATE)");
+        long pageSize = queryLong(db, "PRAGMA page_size");
+        long pageCount = queryLong(db, "PRAGMA page_count");
+        long freePages = queryLong(db, "PRAGMA freelist_count");
+        File parent = report.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(report), StandardCharsets.UTF_8)) {
+            out.write("{\"historyRows\": " + historyRows
+                + ", \"bookmarkRows\": " + BOOKMARK_ROWS
+                + ", \"pageSize\": " + pageSize
+                + ", \"pageCount\": " + pageCount
+                + ", \"freePages\": " + freePages
+                + ", \"bytes\": " + pageSize * pageCount + "}\n");
+        }
+    }
+    
+    static void execute(Connection db, String sql) throws SQLException {
+        try (Statement statement = db.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+    
+    static long queryLong(Connection db, String sql) throws SQLException {
+        try (Statement statement = db.createStatement(); ResultSet rows = statement.executeQuery(sql)) {
+            return rows.next() ? rows.getLong(1) : 0;
+        }
+    }
+    
+    /** The first {@code count} values of column 1 of {@code sql}. */
+    static List<String> sample(Connection db, String sql, int count) throws SQLException {
+        List<String> out = new ArrayList<>(count);
+        try (Statement statement = db.createStatement(); ResultSet rows = statement.executeQuery(sql)) {
+            while (out.size() < count && rows.next()) {
+                out.add(rows.getString(1));
+            }
+        }
+        return out;
+    }
+    
+    // Every statement Room runs to create the database, in its order: each table with its
+    // indices, then the FTS sync triggers, then the setup queries.
+    private static List<String> loadSchema() throws IOException {
+        JsonObject database;
+        try (InputStream in = ScaleDatabase.class.getResourceAsStream(SCHEMA_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("Missing " + SCHEMA_RESOURCE);
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                database = JsonParser.parseReader(reader).getAsJsonObject().getAsJsonObject("database");
+            }
+        }
+        List<String> statements = new ArrayList<>();
+        List<String> triggers = new ArrayList<>();
+        for (JsonElement element : database.getAsJsonArray("entities")) {
+            JsonObject entity = element.getAsJsonObject();
+            String table = entity.get("tableName").getAsString();
+            statements.add(entity.get("createSql").getAsString().replace(TABLE_NAME, table));
+            for (JsonElement index : entity.getAsJsonArray("indices")) {
+                statements.add(index.getAsJsonObject().get("createSql").getAsString().replace(TABLE_NAME, table));
+            }
+            addAll(triggers, entity.getAsJsonArray("contentSyncTriggers"));
+        }
+        statements.addAll(triggers);
+        addAll(statements, database.getAsJsonArray("setupQueries"));
+        return statements;
+    }
+    
+    private static void addAll(List<String> out, JsonArray strings) {
+        if (strings == null) return;
+        for (JsonElement string : strings) {
+            out.add(string.getAsString());
+        }
+    }
+    
+    private static Connection connect(File file) throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+    }
+    
+    // History as a browser accumulates it: a few heavily visited pages and a long tail of
+    // single visits. Half of the bookmarks are pages from history, the rest were never visited.
+    private static void seed(Connection db, List<String> schema, int historyRows) throws SQLException {
+        for (String sql : schema) {
+            execute(db, sql);
+        }
+        execute(db, "PRAGMA synchronous=OFF");
+        
+        Random random = new Random(SEED);
+        long now = System.currentTimeMillis();
+        int visitedBookmarks = Math.min(BOOKMARK_ROWS / 2, historyRows);
+        int bookmarkStride = historyRows / visitedBookmarks;
+        List<String> bookmarkUrls = new ArrayList<>(BOOKMARK_ROWS);
+        
+        db.setAutoCommit(false);
+        try (PreparedStatement insert = db.prepareStatement(
+                "INSERT INTO history (title, url, timestamp, visitCount, frecency) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < historyRows; i++) {
+                String url = Corpus.uniqueLink(random, i);
+                double age = random.nextDouble();
+                long timestamp = now - (long) (age * age * HISTORY_SPAN_MS);
+                int visits = (int) Math.min(MAX_VISITS, 1 / Math.pow(1 - random.nextDouble(), 1.5));
+                insert.setString(1, Corpus.title(random));
+                insert.setString(2, url);
+                insert.setLong(3, timestamp);
+                insert.setInt(4, visits);
+                insert.setDouble(5, visits * Frecency.visitScore(Frecency.VISIT_LINK, timestamp));
+                insert.addBatch();
+                if (i % bookmarkStride == 0 && bookmarkUrls.size() < visitedBookmarks) {
+                    bookmarkUrls.add(url);
+                }
+                if ((i + 1) % SEED_BATCH == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        for (int i = bookmarkUrls.size(); i < BOOKMARK_ROWS; i++) {
+            // Serials past the history ones keep these URLs out of history.
+            bookmarkUrls.add(Corpus.uniqueLink(random, historyRows + i));
+        }
+        try (PreparedStatement insert = db.prepareStatement(
+                "INSERT INTO bookmarks (title, url, timestamp) VALUES (?, ?, ?)")) {
+            for (String url : bookmarkUrls) {
+                double age = random.nextDouble();
+                insert.setString(1, Corpus.title(random));
+                insert.setString(2, url);
+                insert.setLong(3, now - (long) (age * HISTORY_SPAN_MS));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        db.commit();
+        db.setAutoCommit(true);
+        execute(db, "ANALYZE");
+        execute(db, "VACUUM");
+    }
+    
+    private static void copy(File from, File to) throws IOException {
+        try (FileInputStream in = new FileInputStream(from);
+             FileOutputStream out = new FileOutputStream(to)) {
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+    
+    private static void delete(File file) throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot delete " + file);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.browser.app.search;
+
+import com.browser.app.benchmarks.Corpus;
+import com.browser.app.database.Frecency;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Address bar completion over history of different sizes. Lives in the index's package,
+ * which the benchmark shares on the classpath, so it can drive the index directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AutocompleteIndexBenchmark {
+    
+    private static final int LIMIT = 8;
+    private static final int PREFIXES = 256;
+    // A year of visits, so scores spread over many half-lives.
+    private static final long HISTORY_SPAN_MS = 365L * 24 * 60 * 60 * 1000;
+    
+    @Param({"1000", "10000", "100000"})
+    public int entries;
+    
+    private String[] urls;
+    private String[] titles;
+    private long[] visits;
+    private float[] scores;
+    private String[] prefixes;
+    private AutocompleteIndex index;
+    private final long[] results = new long[LIMIT];
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        urls = new String[entries];
+        titles = new String[entries];
+        Corpus.history(entries, urls, titles);
+        
+        Random random = new Random(entries);
+        long now = System.currentTimeMillis();
+        visits = new long[entries];
+        scores = new float[entries];
+        for (int i = 0; i < entries; i++) {
+            visits[i] = now - (long) (random.nextDouble() * HISTORY_SPAN_MS);
+            scores[i] = (float) Frecency.decayed(
+                Frecency.visitScore(random.nextInt(3), visits[i]), now);
+        }
+        
+        // Prefixes as typed, one to six characters of an entry's host or title word.
+        String[] typed = Corpus.typed(PREFIXES);
+        prefixes = new String[PREFIXES];
+        for (int i = 0; i < PREFIXES; i++) {
+            String source = typed[i].trim().toLowerCase(Locale.ROOT);
+            if (source.startsWith("www.")) {
+                source = source.substring(4);
+            }
+            prefixes[i] = source.substring(0, Math.min(source.length(), 1 + random.nextInt(6)));
+        }
+        
+        index = new AutocompleteIndex(urls, titles, entries);
+        index.buildTree(scores);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(PREFIXES)
+    public void query(Blackhole blackhole) {
+        for (String prefix : prefixes) {
+            blackhole.consume(index.query(prefix, LIMIT, scores, results));
+        }
+    }
+    
+    /** What every history reload pays before the first query. */
+    @Benchmark
+    public AutocompleteIndex build() {
+        AutocompleteIndex built = new AutocompleteIndex(urls, titles, entries);
+        built.buildTree(scores);
+        return built;
+    }
+    
+    /** Ranking a reload's rows, as done for every history entry. */
+    @Benchmark
+    public float[] score() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < entries; i++) {
+            scores[i] = (float) Frecency.decayed(Frecency.visitScore(Frecency.VISIT_LINK, visits[i]), now);
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,170 @@
+package com.browser.app.blocker;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.browser.app.utils.UrlParser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Decides which subresource requests to block, from EasyList-style filter lists and hosts
+ * files in a local directory. Lists are compiled once, off the main thread, into three
+ * {@link FilterMatcher}s: {@code $important} blocks, exceptions ({@code @@}) and ordinary
+ * blocks. Until they are ready every request is allowed.
+ *
+ * {@link #shouldBlock} runs on WebView's network threads; it reads one volatile field
+ * and allocates nothing.
+ */
+public final class ContentBlocker {
+    
+    private static final class Filters {
+        final FilterMatcher important;
+        final FilterMatcher exceptions;
+        final FilterMatcher blocks;
+        
+        Filters(List<FilterRule> important, List<FilterRule> exceptions, List<FilterRule> blocks) {
+            this.important = new FilterMatcher(important);
+            this.exceptions = new FilterMatcher(exceptions);
+            this.blocks = new FilterMatcher(blocks);
+        }
+    }
+    
+    private static ContentBlocker instance;
+    
+    private volatile Filters filters;
+    
+    private ContentBlocker() {
+    }
+    
+    public static synchronized ContentBlocker getInstance() {
+        if (instance == null) {
+            instance = new ContentBlocker();
+        }
+        return instance;
+    }
+    
+    /** Compiles every {@code .txt} list in {@code directory} on {@code executor}. */
+    public void loadAsync(File directory, Executor executor) {
+        executor.execute(() -> load(directory));
+    }
+    
+    @WorkerThread
+    public void load(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".txt"));
+        if (files == null) return;
+        Arrays.sort(files);
+        
+        List<Reader> readers = new ArrayList<>(files.length);
+        try {
+            for (File file : files) {
+                readers.add(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+            }
+            load(readers);
+        } catch (IOException e) {
+            // Keep whatever lists were compiled before.
+        } finally {
+            for (Reader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+    
+    /** Compiles the given lists and swaps them in, replacing any loaded before. */
+    @WorkerThread
+    public void load(List<Reader> lists) throws IOException {
+        List<FilterRule> important = new ArrayList<>();
+        List<FilterRule> exceptions = new ArrayList<>();
+        List<FilterRule> blocks = new ArrayList<>();
+        for (Reader list : lists) {
+            BufferedReader reader = new BufferedReader(list);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                FilterRule rule = FilterParser.parse(line);
+                if (rule == null) continue;
+                if (rule.exception) {
+                    exceptions.add(rule);
+                } else if (rule.important) {
+                    important.add(rule);
+                } else {
+                    blocks.add(rule);
+                }
+            }
+        }
+        filters = new Filters(important, exceptions, blocks);
+    }
+    
+    public int getRuleCount() {
+        Filters current = filters;
+        return current == null ? 0
+            : current.important.size() + current.exceptions.size() + current.blocks.size();
+    }
+    
+    /**
+     * Whether a subresource request for {@code url} should be blocked. {@code documentHost}
+     * is the lower-case host of the page that made it, or null if unknown, in which case
+     * the request counts as first-party.
+     */
+    public boolean shouldBlock(String url, @Nullable String documentHost) {
+        Filters current = filters;
+        if (current == null) return false;
+        
+        UrlParser parser = UrlParser.forThread();
+        if (parser.parse(url) != UrlParser.TYPE_URL || !parser.hasHost() || !isNetworkScheme(parser)) {
+            return false;
+        }
+        int hostStart = parser.hostStart();
+        int hostEnd = parser.hostEnd();
+        
+        boolean thirdParty = documentHost != null
+            && !sameSite(url, hostStart, hostEnd, documentHost);
+        if (current.important.matches(url, hostStart, hostEnd, documentHost, thirdParty)) return true;
+        if (!current.blocks.matches(url, hostStart, hostEnd, documentHost, thirdParty)) return false;
+        return !current.exceptions.matches(url, hostStart, hostEnd, documentHost, thirdParty);
+    }
+    
+    private static boolean isNetworkScheme(UrlParser parser) {
+        return parser.isScheme("https") || parser.isScheme("http")
+            || parser.isScheme("wss") || parser.isScheme("ws");
+    }
+    
+    /**
+     * Compares the registrable domains of the request host and the page host. Without the
+     * public suffix list this takes the last two labels, or three when they look like
+     * {@code co.uk}: a second-level label of at most three characters under a two-letter
+     * country code.
+     */
+    private static boolean sameSite(String url, int hostStart, int hostEnd, String documentHost) {
+        int siteStart = siteStart(url, hostStart, hostEnd);
+        int documentSiteStart = siteStart(documentHost, 0, documentHost.length());
+        int length = hostEnd - siteStart;
+        return length == documentHost.length() - documentSiteStart
+            && url.regionMatches(true, siteStart, documentHost, documentSiteStart, length);
+    }
+    
+    private static int siteStart(String host, int start, int end) {
+        int lastDot = host.lastIndexOf('.', end - 1);
+        if (lastDot < start) return start;
+        int secondDot = host.lastIndexOf('.', lastDot - 1);
+        if (secondDot < start) return start;
+        boolean countryCode = end - lastDot - 1 == 2;
+        if (countryCode && lastDot - secondDot - 1 <= 3) {
+            int thirdDot = host.lastIndexOf('.', secondDot - 1);
+            return thirdDot < start ? start : thirdDot + 1;
+        }
+        return secondDot + 1;
+    }
+}
@@ -0,0 +1,66 @@
+package com.browser.app.blocker;
+
+import com.browser.app.utils.FingerprintSet;
+import com.browser.app.utils.LongIntMap;
+
+import java.util.Arrays;
+
+/**
+ * Trie over domain labels, read right to left, so {@code ads.example.com} is stored as
+ * com, example, ads. Edges are keyed by (parent node, label fingerprint) in one
+ * primitive map, which keeps a hundred thousand domains to a few megabytes. Looking up a
+ * host walks its labels from the top-level domain down without allocating.
+ */
+final class DomainTrie {
+    
+    static final int NONE = -1;
+    
+    private final LongIntMap edges;
+    private int[] values;
+    private int nodeCount = 1;
+    
+    DomainTrie(int expectedDomains) {
+        edges = new LongIntMap(expectedDomains * 2);
+        values = new int[Math.max(16, expectedDomains * 2)];
+        Arrays.fill(values, NONE);
+    }
+    
+    /** Stores {@code value} at {@code domain}'s node and returns the value it replaces. */
+    int put(String domain, int value) {
+        int node = 0;
+        int end = domain.length();
+        while (end > 0) {
+            int start = domain.lastIndexOf('.', end - 1) + 1;
+            long key = edgeKey(node, domain, start, end);
+            int child = edges.get(key);
+            if (child == LongIntMap.NO_VALUE) {
+                child = nodeCount++;
+                if (child == values.length) {
+                    values = Arrays.copyOf(values, values.length * 2);
+                    Arrays.fill(values, child, values.length, NONE);
+                }
+                edges.put(key, child);
+            }
+            node = child;
+            end = start - 1;
+        }
+        int previous = values[node];
+        values[node] = value;
+        return previous;
+    }
+    
+    /** The child of {@code node} for the label {@code host[start, end)}, or {@link #NONE}. */
+    int child(int node, String host, int start, int end) {
+        int child = edges.get(edgeKey(node, host, start, end));
+        return child == LongIntMap.NO_VALUE ? NONE : child;
+    }
+    
+    int valueAt(int node) {
+        return values[node];
+    }
+    
+    private static long edgeKey(int node, String host, int start, int end) {
+        long key = FingerprintSet.fingerprint(host, start, end) ^ (node * 0x9e3779b97f4a7c15L);
+        return key == 0 ? 1 : key;
+    }
+}
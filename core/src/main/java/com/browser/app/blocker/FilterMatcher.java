@@ -0,0 +1,319 @@
+package com.browser.app.blocker;
+
+import androidx.annotation.Nullable;
+
+import com.browser.app.utils.LongIntMap;
+
+import java.util.List;
+
+/**
+ * A compiled, immutable set of network filters. {@code ||domain^} rules, the bulk of any
+ * list, live in a {@link DomainTrie} keyed by the request host. Every other rule is
+ * indexed under one token of its pattern, the one shared with the fewest other rules, so
+ * a request only verifies the rules filed under tokens its URL actually contains. Rules
+ * without a usable token are checked against every request; real lists have few of them.
+ *
+ * Matching allocates nothing and is safe from any thread once construction is published.
+ */
+final class FilterMatcher {
+    
+    private static final int MIN_TOKEN_LENGTH = 2;
+    // Tokens nearly every URL contains make for huge candidate lists; avoid indexing by them.
+    private static final String[] COMMON_TOKENS = {"http", "https", "www", "com", "net", "org", "js"};
+    private static final int COMMON_TOKEN_PENALTY = 1 << 20;
+    private static final long HASH_OFFSET = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+    
+    private final FilterRule[] rules;
+    private final DomainTrie domains;
+    private final int[] nextSameDomain;
+    private final LongIntMap tokenBuckets;
+    private final int[] bucketStarts;
+    private final int[] bucketRules;
+    private final int[] untokenized;
+    
+    FilterMatcher(List<FilterRule> ruleList) {
+        int count = ruleList.size();
+        rules = ruleList.toArray(new FilterRule[0]);
+        nextSameDomain = new int[count];
+        
+        int domainCount = 0;
+        for (FilterRule rule : rules) {
+            if (rule.isPlainDomain()) domainCount++;
+        }
+        domains = new DomainTrie(domainCount);
+        
+        // First pass: how many rules could be filed under each token.
+        LongIntMap tokenCounts = new LongIntMap(count);
+        for (FilterRule rule : rules) {
+            if (rule.isPlainDomain()) continue;
+            String pattern = rule.pattern;
+            for (int start = nextToken(rule, 0); start >= 0; start = nextToken(rule, tokenEnd(pattern, start))) {
+                long hash = tokenHash(pattern, start, tokenEnd(pattern, start));
+                int seen = tokenCounts.get(hash);
+                tokenCounts.put(hash, seen == LongIntMap.NO_VALUE ? 1 : seen + 1);
+            }
+        }
+        for (String token : COMMON_TOKENS) {
+            long hash = tokenHash(token, 0, token.length());
+            int seen = tokenCounts.get(hash);
+            tokenCounts.put(hash, (seen == LongIntMap.NO_VALUE ? 0 : seen) + COMMON_TOKEN_PENALTY);
+        }
+        
+        // Second pass: file each rule under its rarest token.
+        long[] ruleTokens = new long[count];
+        int untokenizedCount = 0;
+        for (int id = 0; id < count; id++) {
+            FilterRule rule = rules[id];
+            if (rule.isPlainDomain()) {
+                String pattern = rule.pattern;
+                nextSameDomain[id] = domains.put(pattern.substring(0, pattern.length() - 1), id);
+                continue;
+            }
+            String pattern = rule.pattern;
+            int best = -1;
+            int bestCount = Integer.MAX_VALUE;
+            for (int start = nextToken(rule, 0); start >= 0; start = nextToken(rule, tokenEnd(pattern, start))) {
+                int tokenCount = tokenCounts.get(tokenHash(pattern, start, tokenEnd(pattern, start)));
+                if (tokenCount < bestCount) {
+                    best = start;
+                    bestCount = tokenCount;
+                }
+            }
+            if (best < 0) {
+                untokenizedCount++;
+                continue;
+            }
+            ruleTokens[id] = tokenHash(pattern, best, tokenEnd(pattern, best));
+            rule.tokenOffset = pattern.lastIndexOf('*', best) < 0 ? best : -1;
+        }
+        
+        // Lay the buckets out back to back: bucketRules[bucketStarts[b], bucketStarts[b + 1]).
+        tokenBuckets = new LongIntMap(count);
+        int[] bucketSizes = new int[count + 1];
+        int bucketCount = 0;
+        for (int id = 0; id < count; id++) {
+            if (ruleTokens[id] == 0) continue;
+            int bucket = tokenBuckets.get(ruleTokens[id]);
+            if (bucket == LongIntMap.NO_VALUE) {
+                bucket = bucketCount++;
+                tokenBuckets.put(ruleTokens[id], bucket);
+            }
+            bucketSizes[bucket]++;
+        }
+        bucketStarts = new int[bucketCount + 1];
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            bucketStarts[bucket + 1] = bucketStarts[bucket] + bucketSizes[bucket];
+        }
+        bucketRules = new int[bucketStarts[bucketCount]];
+        untokenized = new int[untokenizedCount];
+        int[] fill = new int[bucketCount];
+        int untokenizedFill = 0;
+        for (int id = 0; id < count; id++) {
+            if (ruleTokens[id] != 0) {
+                int bucket = tokenBuckets.get(ruleTokens[id]);
+                bucketRules[bucketStarts[bucket] + fill[bucket]++] = id;
+            } else if (!rules[id].isPlainDomain()) {
+                untokenized[untokenizedFill++] = id;
+            }
+        }
+    }
+    
+    int size() {
+        return rules.length;
+    }
+    
+    /**
+     * Whether any rule matches {@code url}, whose host is {@code url[hostStart, hostEnd)}.
+     * {@code documentHost} is the host of the page making the request, if known.
+     */
+    boolean matches(String url, int hostStart, int hostEnd, @Nullable String documentHost, boolean thirdParty) {
+        if (matchesDomain(url, hostStart, hostEnd, documentHost, thirdParty)) return true;
+        
+        int end = url.length();
+        int tokenStart = -1;
+        long hash = HASH_OFFSET;
+        for (int i = 0; i <= end; i++) {
+            if (i < end) {
+                char c = lower(url.charAt(i));
+                if (isTokenChar(c)) {
+                    if (tokenStart < 0) {
+                        tokenStart = i;
+                        hash = HASH_OFFSET;
+                    }
+                    hash = (hash ^ c) * HASH_PRIME;
+                    continue;
+                }
+            }
+            if (tokenStart >= 0) {
+                if (i - tokenStart >= MIN_TOKEN_LENGTH) {
+                    int bucket = tokenBuckets.get(finish(hash));
+                    if (bucket != LongIntMap.NO_VALUE) {
+                        for (int r = bucketStarts[bucket]; r < bucketStarts[bucket + 1]; r++) {
+                            if (verify(rules[bucketRules[r]], url, tokenStart, hostStart, hostEnd,
+                                    documentHost, thirdParty)) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+                tokenStart = -1;
+            }
+        }
+        
+        for (int id : untokenized) {
+            if (verify(rules[id], url, -1, hostStart, hostEnd, documentHost, thirdParty)) return true;
+        }
+        return false;
+    }
+    
+    private boolean matchesDomain(String url, int hostStart, int hostEnd,
+                                  @Nullable String documentHost, boolean thirdParty) {
+        int node = 0;
+        int labelEnd = hostEnd;
+        while (labelEnd > hostStart) {
+            int labelStart = labelEnd - 1;
+            while (labelStart > hostStart && url.charAt(labelStart - 1) != '.') {
+                labelStart--;
+            }
+            node = domains.child(node, url, labelStart, labelEnd);
+            if (node == DomainTrie.NONE) return false;
+            for (int id = domains.valueAt(node); id != DomainTrie.NONE; id = nextSameDomain[id]) {
+                if (rules[id].appliesTo(documentHost, thirdParty)) return true;
+            }
+            labelEnd = labelStart - 1;
+        }
+        return false;
+    }
+    
+    // tokenStart is where the rule's indexed token was found in the URL, or -1.
+    private static boolean verify(FilterRule rule, String url, int tokenStart, int hostStart, int hostEnd,
+                                  @Nullable String documentHost, boolean thirdParty) {
+        if (!rule.appliesTo(documentHost, thirdParty)) return false;
+        
+        int end = url.length();
+        if (rule.anchorStart) return matchAt(rule, url, 0, end);
+        
+        boolean fixedStart = tokenStart >= 0 && rule.tokenOffset >= 0;
+        int start = tokenStart - rule.tokenOffset;
+        if (rule.anchorHost) {
+            if (fixedStart) {
+                return isLabelStart(url, start, hostStart, hostEnd) && matchAt(rule, url, start, end);
+            }
+            for (int s = hostStart; s < hostEnd; s++) {
+                if (isLabelStart(url, s, hostStart, hostEnd) && matchAt(rule, url, s, end)) return true;
+            }
+            return false;
+        }
+        if (fixedStart) {
+            return start >= 0 && matchAt(rule, url, start, end);
+        }
+        for (int s = 0; s <= end; s++) {
+            if (matchAt(rule, url, s, end)) return true;
+        }
+        return false;
+    }
+    
+    private static boolean isLabelStart(String url, int position, int hostStart, int hostEnd) {
+        return position >= hostStart && position < hostEnd
+            && (position == hostStart || url.charAt(position - 1) == '.');
+    }
+    
+    /**
+     * Matches the pattern against {@code url} from {@code start}. {@code *} backtracks to
+     * the most recent wildcard only, which is enough because every other pattern character
+     * consumes exactly one URL character, except {@code ^} at the very end of the URL.
+     */
+    private static boolean matchAt(FilterRule rule, String url, int start, int end) {
+        String pattern = rule.pattern;
+        int length = pattern.length();
+        int p = 0;
+        int u = start;
+        int starP = -1;
+        int starU = 0;
+        while (true) {
+            if (p < length) {
+                char pc = pattern.charAt(p);
+                if (pc == '*') {
+                    starP = p++;
+                    starU = u;
+                    continue;
+                }
+                if (u < end) {
+                    char uc = url.charAt(u);
+                    if (pc == '^' ? isSeparator(uc) : pc == (rule.matchCase ? uc : lower(uc))) {
+                        p++;
+                        u++;
+                        continue;
+                    }
+                } else if (pc == '^') {
+                    p++;
+                    continue;
+                }
+            } else if (!rule.anchorEnd || u == end) {
+                return true;
+            }
+            if (starP < 0 || starU >= end) return false;
+            p = starP + 1;
+            u = ++starU;
+        }
+    }
+    
+    // Returns the start of the next token in the pattern at or after from that is also
+    // guaranteed to be a whole token of any URL the rule matches, or -1.
+    private static int nextToken(FilterRule rule, int from) {
+        String pattern = rule.pattern;
+        int length = pattern.length();
+        int start = from;
+        while (start < length) {
+            if (!isTokenChar(lower(pattern.charAt(start)))) {
+                start++;
+                continue;
+            }
+            int end = tokenEnd(pattern, start);
+            boolean boundedBefore = start == 0
+                ? rule.anchorStart || rule.anchorHost
+                : pattern.charAt(start - 1) != '*';
+            boolean boundedAfter = end == length
+                ? rule.anchorEnd
+                : pattern.charAt(end) != '*';
+            if (boundedBefore && boundedAfter && end - start >= MIN_TOKEN_LENGTH) return start;
+            start = end;
+        }
+        return -1;
+    }
+    
+    private static int tokenEnd(String pattern, int start) {
+        int end = start;
+        while (end < pattern.length() && isTokenChar(lower(pattern.charAt(end)))) {
+            end++;
+        }
+        return end;
+    }
+    
+    private static long tokenHash(String value, int start, int end) {
+        long hash = HASH_OFFSET;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ lower(value.charAt(i))) * HASH_PRIME;
+        }
+        return finish(hash);
+    }
+    
+    private static long finish(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+    
+    private static boolean isTokenChar(char c) {
+        return c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '%';
+    }
+    
+    // The ^ placeholder: anything but a letter, digit or one of _ - . %
+    private static boolean isSeparator(char c) {
+        return !(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+            || c == '_' || c == '-' || c == '.' || c == '%' || c > 0x7f);
+    }
+    
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+    }
+}
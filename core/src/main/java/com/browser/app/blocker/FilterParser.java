@@ -0,0 +1,174 @@
+package com.browser.app.blocker;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parses the network rules of EasyList-style (Adblock Plus syntax) lists and hosts files.
+ * Cosmetic rules, regular-expression rules and rules with options that cannot be honoured
+ * from {@code shouldInterceptRequest} (redirect, csp, popup, ...) are skipped. Resource-type
+ * options are ignored, since WebView does not report the request type.
+ */
+final class FilterParser {
+    
+    private FilterParser() {
+    }
+    
+    @Nullable
+    static FilterRule parse(String line) {
+        line = line.trim();
+        if (line.isEmpty() || line.charAt(0) == '!' || line.charAt(0) == '[') return null;
+        if (line.contains("##") || line.contains("#@#") || line.contains("#?#")
+                || line.contains("#$#") || line.contains("#%#")) {
+            return null;
+        }
+        
+        String hostsEntry = parseHostsLine(line);
+        if (hostsEntry != null) {
+            return new FilterRule(hostsEntry + "^", false, false, false, true, false, false,
+                FilterRule.ANY_PARTY, null, null);
+        }
+        
+        boolean exception = line.startsWith("@@");
+        if (exception) {
+            line = line.substring(2);
+        }
+        
+        boolean matchCase = false;
+        boolean important = false;
+        int party = FilterRule.ANY_PARTY;
+        String[] includeDomains = null;
+        String[] excludeDomains = null;
+        
+        int dollar = line.lastIndexOf('$');
+        if (dollar >= 0 && dollar < line.length() - 1) {
+            for (String option : line.substring(dollar + 1).split(",")) {
+                option = option.trim().toLowerCase(Locale.ROOT);
+                switch (option) {
+                    case "third-party":
+                    case "3p":
+                        party = FilterRule.THIRD_PARTY;
+                        break;
+                    case "~third-party":
+                    case "first-party":
+                    case "1p":
+                        party = FilterRule.FIRST_PARTY;
+                        break;
+                    case "match-case":
+                        matchCase = true;
+                        break;
+                    case "important":
+                        important = true;
+                        break;
+                    default:
+                        if (option.startsWith("domain=")) {
+                            List<String> include = new ArrayList<>();
+                            List<String> exclude = new ArrayList<>();
+                            for (String domain : option.substring(7).split("\\|")) {
+                                if (domain.startsWith("~")) {
+                                    exclude.add(domain.substring(1));
+                                } else if (!domain.isEmpty()) {
+                                    include.add(domain);
+                                }
+                            }
+                            includeDomains = include.isEmpty() ? null : include.toArray(new String[0]);
+                            excludeDomains = exclude.isEmpty() ? null : exclude.toArray(new String[0]);
+                        } else if (!isResourceType(option)) {
+                            return null;
+                        }
+                }
+            }
+            line = line.substring(0, dollar);
+        }
+        
+        if (line.length() > 2 && line.startsWith("/") && line.endsWith("/")) return null;
+        
+        boolean anchorHost = line.startsWith("||");
+        boolean anchorStart = !anchorHost && line.startsWith("|");
+        String pattern = line.substring(anchorHost ? 2 : anchorStart ? 1 : 0);
+        boolean anchorEnd = pattern.endsWith("|");
+        if (anchorEnd) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+        
+        pattern = collapseWildcards(pattern);
+        if (pattern.startsWith("*")) {
+            pattern = pattern.substring(1);
+            anchorStart = false;
+            anchorHost = false;
+        }
+        if (pattern.endsWith("*")) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+            anchorEnd = false;
+        }
+        // An empty pattern matches every request; only accept it when options narrow it down.
+        if (pattern.isEmpty() && includeDomains == null && party == FilterRule.ANY_PARTY) return null;
+        if (!matchCase) {
+            pattern = pattern.toLowerCase(Locale.ROOT);
+        }
+        return new FilterRule(pattern, exception, anchorStart, anchorEnd, anchorHost, matchCase,
+            important, party, includeDomains, excludeDomains);
+    }
+    
+    // "0.0.0.0 ads.example.com" and "127.0.0.1 ads.example.com" lines of hosts files.
+    @Nullable
+    private static String parseHostsLine(String line) {
+        String host;
+        if (line.startsWith("0.0.0.0 ") || line.startsWith("0.0.0.0\t")) {
+            host = line.substring(8).trim();
+        } else if (line.startsWith("127.0.0.1 ") || line.startsWith("127.0.0.1\t")) {
+            host = line.substring(10).trim();
+        } else {
+            return null;
+        }
+        int comment = host.indexOf('#');
+        if (comment >= 0) {
+            host = host.substring(0, comment).trim();
+        }
+        if (host.isEmpty() || host.indexOf(' ') >= 0 || host.indexOf('\t') >= 0
+                || host.indexOf('.') < 0 || host.equals("0.0.0.0")) {
+            return null;
+        }
+        return host.toLowerCase(Locale.ROOT);
+    }
+    
+    private static boolean isResourceType(String option) {
+        if (option.startsWith("~")) {
+            option = option.substring(1);
+        }
+        switch (option) {
+            case "script":
+            case "image":
+            case "stylesheet":
+            case "css":
+            case "object":
+            case "xmlhttprequest":
+            case "xhr":
+            case "subdocument":
+            case "frame":
+            case "ping":
+            case "media":
+            case "font":
+            case "websocket":
+            case "other":
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    private static String collapseWildcards(String pattern) {
+        if (!pattern.contains("**")) return pattern;
+        StringBuilder builder = new StringBuilder(pattern.length());
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c != '*' || builder.length() == 0 || builder.charAt(builder.length() - 1) != '*') {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
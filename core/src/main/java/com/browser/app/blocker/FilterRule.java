@@ -0,0 +1,87 @@
+package com.browser.app.blocker;
+
+import androidx.annotation.Nullable;
+
+/**
+ * One network filter, parsed from an EasyList-style line. The pattern has its anchors and
+ * options stripped and is lower-cased unless the rule is {@code match-case}; it may still
+ * contain the {@code *} wildcard and the {@code ^} separator placeholder.
+ */
+final class FilterRule {
+    
+    static final int ANY_PARTY = 0;
+    static final int THIRD_PARTY = 1;
+    static final int FIRST_PARTY = 2;
+    
+    final String pattern;
+    final boolean exception;
+    final boolean anchorStart;
+    final boolean anchorEnd;
+    /** {@code ||}: the pattern starts at the beginning of the host or one of its labels. */
+    final boolean anchorHost;
+    final boolean matchCase;
+    final boolean important;
+    final int party;
+    @Nullable
+    final String[] includeDomains;
+    @Nullable
+    final String[] excludeDomains;
+    
+    /** Offset of the indexed token in the pattern, or -1 when a wildcard precedes it. */
+    int tokenOffset = -1;
+    
+    FilterRule(String pattern, boolean exception, boolean anchorStart, boolean anchorEnd,
+               boolean anchorHost, boolean matchCase, boolean important, int party,
+               @Nullable String[] includeDomains, @Nullable String[] excludeDomains) {
+        this.pattern = pattern;
+        this.exception = exception;
+        this.anchorStart = anchorStart;
+        this.anchorEnd = anchorEnd;
+        this.anchorHost = anchorHost;
+        this.matchCase = matchCase;
+        this.important = important;
+        this.party = party;
+        this.includeDomains = includeDomains;
+        this.excludeDomains = excludeDomains;
+    }
+    
+    /** True for the common {@code ||example.com^} form, which the domain trie handles. */
+    boolean isPlainDomain() {
+        if (!anchorHost || anchorEnd || pattern.length() < 2) return false;
+        int last = pattern.length() - 1;
+        if (pattern.charAt(last) != '^') return false;
+        for (int i = 0; i < last; i++) {
+            char c = pattern.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '.' || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return pattern.charAt(0) != '.' && pattern.charAt(last - 1) != '.';
+    }
+    
+    /** Whether the rule's party and domain= options allow it on this page. */
+    boolean appliesTo(@Nullable String documentHost, boolean thirdParty) {
+        if (party == THIRD_PARTY && !thirdParty || party == FIRST_PARTY && thirdParty) {
+            return false;
+        }
+        if (includeDomains == null && excludeDomains == null) return true;
+        if (documentHost == null) return includeDomains == null;
+        
+        if (excludeDomains != null) {
+            for (String domain : excludeDomains) {
+                if (isSubdomain(documentHost, domain)) return false;
+            }
+        }
+        if (includeDomains == null) return true;
+        for (String domain : includeDomains) {
+            if (isSubdomain(documentHost, domain)) return true;
+        }
+        return false;
+    }
+    
+    static boolean isSubdomain(String host, String domain) {
+        int offset = host.length() - domain.length();
+        return offset >= 0 && host.startsWith(domain, offset)
+            && (offset == 0 || host.charAt(offset - 1) == '.');
+    }
+}
@@ -0,0 +1,53 @@
+package com.browser.app.database;
+
+/**
+ * Frecency: visits weighted by how they happened and decayed exponentially with age.
+ *
+ * Rather than decaying every stored score over time, each visit is scaled up by
+ * {@code 2^((time - EPOCH_MS) / HALF_LIFE_MS)} when it is recorded. All rows share the
+ * same epoch offset, so comparing stored values compares the decayed scores at any
+ * instant, a visit only ever adds to its own row, and nothing is rewritten as time
+ * passes. A double holds this scale for roughly 80 years past the epoch.
+ */
+public final class Frecency {
+    
+    public static final int VISIT_LINK = 0;
+    public static final int VISIT_TYPED = 1;
+    public static final int VISIT_BOOKMARK = 2;
+    
+    // 2024-01-01T00:00:00Z
+    static final long EPOCH_MS = 1704067200000L;
+    static final long HALF_LIFE_MS = 30L * 24 * 60 * 60 * 1000;
+    
+    private static final double LINK_WEIGHT = 1.0;
+    private static final double TYPED_WEIGHT = 2.0;
+    private static final double BOOKMARK_WEIGHT = 1.5;
+    
+    private Frecency() {
+    }
+    
+    /** Stored-scale contribution of one visit of the given type at {@code timestamp}. */
+    public static double visitScore(int visitType, long timestamp) {
+        return weight(visitType) * scale(timestamp);
+    }
+    
+    /** Converts a stored score to its decayed value at {@code now}, for display or mixing. */
+    public static double decayed(double stored, long now) {
+        return stored / scale(now);
+    }
+    
+    private static double weight(int visitType) {
+        switch (visitType) {
+            case VISIT_TYPED:
+                return TYPED_WEIGHT;
+            case VISIT_BOOKMARK:
+                return BOOKMARK_WEIGHT;
+            default:
+                return LINK_WEIGHT;
+        }
+    }
+    
+    private static double scale(long timestamp) {
+        return Math.pow(2.0, (double) (timestamp - EPOCH_MS) / HALF_LIFE_MS);
+    }
+}
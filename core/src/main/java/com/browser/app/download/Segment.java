@@ -0,0 +1,75 @@
+package com.browser.app.download;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A byte range of a download, [start, end] inclusive, of which [start, next) is on disk.
+ * Stored in {@code DownloadItem.segments} as {@code start:next:end} triples separated by
+ * commas. Mutated only under the owning {@link DownloadTask}'s lock.
+ */
+final class Segment {
+    
+    final long start;
+    long next;
+    long end;
+    
+    Segment(long start, long next, long end) {
+        this.start = start;
+        this.next = next;
+        this.end = end;
+    }
+    
+    long remaining() {
+        return end - next + 1;
+    }
+    
+    boolean isDone() {
+        return next > end;
+    }
+    
+    /** Splits {@code total} bytes into {@code count} equal segments. */
+    static List<Segment> split(long total, int count) {
+        List<Segment> segments = new ArrayList<>(count);
+        long size = total / count;
+        long start = 0;
+        for (int i = 0; i < count; i++) {
+            long end = i == count - 1 ? total - 1 : start + size - 1;
+            segments.add(new Segment(start, start, end));
+            start = end + 1;
+        }
+        return segments;
+    }
+    
+    static String encode(List<Segment> segments) {
+        StringBuilder builder = new StringBuilder(segments.size() * 24);
+        for (Segment segment : segments) {
+            if (builder.length() > 0) builder.append(',');
+            builder.append(segment.start).append(':').append(segment.next).append(':').append(segment.end);
+        }
+        return builder.toString();
+    }
+    
+    /** Parses {@link #encode} output; returns null if it is missing or malformed. */
+    @Nullable
+    static List<Segment> decode(@Nullable String encoded) {
+        if (encoded == null || encoded.isEmpty()) return null;
+        List<Segment> segments = new ArrayList<>();
+        try {
+            for (String triple : encoded.split(",")) {
+                String[] parts = triple.split(":");
+                if (parts.length != 3) return null;
+                long start = Long.parseLong(parts[0]);
+                long next = Long.parseLong(parts[1]);
+                long end = Long.parseLong(parts[2]);
+                if (start < 0 || next < start || next > end + 1) return null;
+                segments.add(new Segment(start, next, end));
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return segments;
+    }
+}
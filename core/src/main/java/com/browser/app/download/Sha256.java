@@ -0,0 +1,154 @@
+package com.browser.app.download;
+
+import androidx.annotation.Nullable;
+
+/**
+ * SHA-256 whose running state can be saved and restored, which
+ * {@link java.security.MessageDigest} does not allow. A download stores it with each
+ * checkpoint, so hashing resumes where it stopped instead of re-reading the file.
+ */
+final class Sha256 {
+    
+    private static final int[] K = {
+        0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+        0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+        0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+        0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+        0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+        0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+        0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+        0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+    };
+    private static final int[] INITIAL = {
+        0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+    };
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private final int[] state = INITIAL.clone();
+    private final int[] words = new int[64];
+    private final byte[] block = new byte[64];
+    private long count;
+    
+    /** Bytes hashed so far. */
+    long count() {
+        return count;
+    }
+    
+    void update(byte[] input, int offset, int length) {
+        int buffered = (int) (count & 63);
+        count += length;
+        if (buffered > 0) {
+            int take = Math.min(length, 64 - buffered);
+            System.arraycopy(input, offset, block, buffered, take);
+            offset += take;
+            length -= take;
+            if (buffered + take < 64) return;
+            compress(block, 0);
+        }
+        while (length >= 64) {
+            compress(input, offset);
+            offset += 64;
+            length -= 64;
+        }
+        if (length > 0) {
+            System.arraycopy(input, offset, block, 0, length);
+        }
+    }
+    
+    /** Finishes the hash and returns it in lowercase hex; the instance is spent afterwards. */
+    String digestHex() {
+        long bits = count << 3;
+        byte[] padding = new byte[(int) (64 - ((count + 8) & 63)) + 8];
+        padding[0] = (byte) 0x80;
+        for (int i = 0; i < 8; i++) {
+            padding[padding.length - 1 - i] = (byte) (bits >>> (8 * i));
+        }
+        update(padding, 0, padding.length);
+        StringBuilder hex = new StringBuilder(64);
+        for (int word : state) {
+            appendHex(hex, word);
+        }
+        return hex.toString();
+    }
+    
+    /** The running state as {@code count:state:buffered}, all but count in hex. */
+    String save() {
+        int buffered = (int) (count & 63);
+        StringBuilder saved = new StringBuilder(88 + 2 * buffered);
+        saved.append(count).append(':');
+        for (int word : state) {
+            appendHex(saved, word);
+        }
+        saved.append(':');
+        for (int i = 0; i < buffered; i++) {
+            saved.append(HEX[(block[i] >> 4) & 0xf]).append(HEX[block[i] & 0xf]);
+        }
+        return saved.toString();
+    }
+    
+    /** Rebuilds a hash from {@link #save} output; null if it is missing or malformed. */
+    @Nullable
+    static Sha256 restore(@Nullable String saved) {
+        if (saved == null) return null;
+        String[] parts = saved.split(":", -1);
+        if (parts.length != 3 || parts[1].length() != 64) return null;
+        Sha256 sha = new Sha256();
+        try {
+            sha.count = Long.parseLong(parts[0]);
+            if (sha.count < 0 || parts[2].length() != 2 * (sha.count & 63)) return null;
+            for (int i = 0; i < 8; i++) {
+                sha.state[i] = (int) Long.parseLong(parts[1].substring(8 * i, 8 * i + 8), 16);
+            }
+            for (int i = 0; i < parts[2].length() / 2; i++) {
+                sha.block[i] = (byte) Integer.parseInt(parts[2].substring(2 * i, 2 * i + 2), 16);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return sha;
+    }
+    
+    private void compress(byte[] input, int offset) {
+        int[] w = words;
+        for (int i = 0; i < 16; i++, offset += 4) {
+            w[i] = (input[offset] << 24) | ((input[offset + 1] & 0xff) << 16)
+                | ((input[offset + 2] & 0xff) << 8) | (input[offset + 3] & 0xff);
+        }
+        for (int i = 16; i < 64; i++) {
+            int s0 = Integer.rotateRight(w[i - 15], 7) ^ Integer.rotateRight(w[i - 15], 18) ^ (w[i - 15] >>> 3);
+            int s1 = Integer.rotateRight(w[i - 2], 17) ^ Integer.rotateRight(w[i - 2], 19) ^ (w[i - 2] >>> 10);
+            w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+        }
+        
+        int a = state[0], b = state[1], c = state[2], d = state[3];
+        int e = state[4], f = state[5], g = state[6], h = state[7];
+        for (int i = 0; i < 64; i++) {
+            int s1 = Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25);
+            int t1 = h + s1 + ((e & f) ^ (~e & g)) + K[i] + w[i];
+            int s0 = Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22);
+            int t2 = s0 + ((a & b) ^ (a & c) ^ (b & c));
+            h = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+        state[0] += a;
+        state[1] += b;
+        state[2] += c;
+        state[3] += d;
+        state[4] += e;
+        state[5] += f;
+        state[6] += g;
+        state[7] += h;
+    }
+    
+    private static void appendHex(StringBuilder builder, int word) {
+        for (int shift = 28; shift >= 0; shift -= 4) {
+            builder.append(HEX[(word >>> shift) & 0xf]);
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.browser.app.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted-array prefix index over the URLs and title words of a fixed set of entries.
+ * Keys are packed (entry, field, offset) references into the entry strings, so no
+ * substrings are created. A range-max tree over the sorted keys yields the best-scored
+ * entries of any prefix range in O(limit * log n), independent of how many keys match.
+ *
+ * Building sorts on a background thread; the tree, queries and removals belong to the
+ * thread that owns the entry arrays.
+ */
+class AutocompleteIndex {
+    
+    static final int FIELD_URL = 0;
+    static final int FIELD_TITLE = 1;
+    
+    private static final int MAX_TITLE_WORDS = 4;
+    
+    private final String[] urls;
+    private final String[] titles;
+    private final int entryCount;
+    private final long[] keys;
+    // Positions of each entry's keys in the sorted array (CSR layout).
+    private final int[] entryKeyStart;
+    private final int[] entryKeyPositions;
+    private final boolean[] removed;
+    private int[] tree;
+    private int treeSize;
+    
+    // Scratch space for the top-N search, reused between queries.
+    private int[] heapLo = new int[16];
+    private int[] heapHi = new int[16];
+    private int[] heapBest = new int[16];
+    
+    AutocompleteIndex(String[] urls, String[] titles, int entryCount) {
+        this.urls = urls;
+        this.titles = titles;
+        this.entryCount = entryCount;
+        
+        int keyCount = 0;
+        for (int entry = 0; entry < entryCount; entry++) {
+            keyCount += countKeys(entry);
+        }
+        long[] unsorted = new long[keyCount];
+        int next = 0;
+        for (int entry = 0; entry < entryCount; entry++) {
+            next = addKeys(entry, unsorted, next);
+        }
+        keys = sort(unsorted);
+        
+        entryKeyStart = new int[entryCount + 1];
+        for (long key : keys) {
+            entryKeyStart[entryOf(key) + 1]++;
+        }
+        for (int entry = 0; entry < entryCount; entry++) {
+            entryKeyStart[entry + 1] += entryKeyStart[entry];
+        }
+        entryKeyPositions = new int[keys.length];
+        removed = new boolean[entryCount];
+        int[] fill = new int[entryCount];
+        for (int position = 0; position < keys.length; position++) {
+            int entry = entryOf(keys[position]);
+            entryKeyPositions[entryKeyStart[entry] + fill[entry]++] = position;
+        }
+    }
+    
+    int entryCount() {
+        return entryCount;
+    }
+    
+    /** (Re)builds the range-max tree from the current scores. */
+    void buildTree(float[] scores) {
+        treeSize = Math.max(1, keys.length);
+        tree = new int[treeSize * 2];
+        for (int i = 0; i < treeSize; i++) {
+            tree[treeSize + i] = i < keys.length && !removed[entryOf(keys[i])] ? i : -1;
+        }
+        for (int node = treeSize - 1; node > 0; node--) {
+            tree[node] = better(tree[node * 2], tree[node * 2 + 1], scores);
+        }
+    }
+    
+    /** Call after an indexed entry's score changed. */
+    void onScoreChanged(int entry, float[] scores) {
+        if (entry >= entryCount || tree == null) return;
+        for (int i = entryKeyStart[entry]; i < entryKeyStart[entry + 1]; i++) {
+            updatePath(entryKeyPositions[i] + treeSize, scores);
+        }
+    }
+    
+    /** Stops returning the entry from queries. Its keys stay in place until the next build. */
+    void remove(int entry, float[] scores) {
+        if (entry >= entryCount || removed[entry]) return;
+        removed[entry] = true;
+        if (tree == null) return;
+        for (int i = entryKeyStart[entry]; i < entryKeyStart[entry + 1]; i++) {
+            int leaf = entryKeyPositions[i] + treeSize;
+            tree[leaf] = -1;
+            updatePath(leaf, scores);
+        }
+    }
+    
+    /**
+     * Writes up to {@code limit} distinct entries whose URL or a title word starts with
+     * {@code prefix} (already lowercased) into {@code outKeys}, best score first.
+     * Returns how many were written.
+     */
+    int query(String prefix, int limit, float[] scores, long[] outKeys) {
+        if (tree == null || keys.length == 0 || limit <= 0) return 0;
+        
+        int lo = lowerBound(prefix, false);
+        int hi = lowerBound(prefix, true);
+        if (lo >= hi) return 0;
+        
+        int best = rangeMax(lo, hi, scores);
+        if (best < 0) return 0;
+        int heapSize = push(0, lo, hi, best, scores);
+        int found = 0;
+        while (heapSize > 0 && found < limit) {
+            int rangeLo = heapLo[0];
+            int rangeHi = heapHi[0];
+            best = heapBest[0];
+            heapSize = pop(heapSize, scores);
+            
+            long key = keys[best];
+            if (!containsEntry(outKeys, found, entryOf(key))) {
+                outKeys[found++] = key;
+            }
+            heapSize = pushRange(heapSize, rangeLo, best, scores);
+            heapSize = pushRange(heapSize, best + 1, rangeHi, scores);
+        }
+        return found;
+    }
+    
+    static int entryOf(long key) {
+        return (int) (key >>> 32);
+    }
+    
+    static int fieldOf(long key) {
+        return (int) ((key >>> 31) & 1);
+    }
+    
+    static int offsetOf(long key) {
+        return (int) (key & 0x7fffffffL);
+    }
+    
+    static long key(int entry, int field, int offset) {
+        return ((long) entry << 32) | ((long) field << 31) | offset;
+    }
+    
+    /** Start of the part of a URL users type: after the scheme and a leading "www.". */
+    static int urlKeyOffset(String url) {
+        int offset = 0;
+        int scheme = url.indexOf("://");
+        if (scheme > 0 && scheme < 16) {
+            offset = scheme + 3;
+        }
+        if (url.regionMatches(true, offset, "www.", 0, 4)) {
+            offset += 4;
+        }
+        return offset;
+    }
+    
+    /**
+     * Whether the text at {@code offset} of {@code text} starts with {@code prefix},
+     * comparing case-insensitively against an already lowercased prefix.
+     */
+    static boolean startsWith(String text, int offset, String prefix) {
+        if (text.length() - offset < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toLowerCase(text.charAt(offset + i)) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private int countKeys(int entry) {
+        int count = urls[entry] != null ? 1 : 0;
+        String title = titles[entry];
+        if (title != null) {
+            int words = 0;
+            for (int i = 0; i < title.length() && words < MAX_TITLE_WORDS; i++) {
+                if (isWordStart(title, i)) words++;
+            }
+            count += words;
+        }
+        return count;
+    }
+    
+    private int addKeys(int entry, long[] out, int next) {
+        if (urls[entry] != null) {
+            out[next++] = key(entry, FIELD_URL, urlKeyOffset(urls[entry]));
+        }
+        String title = titles[entry];
+        if (title != null) {
+            int words = 0;
+            for (int i = 0; i < title.length() && words < MAX_TITLE_WORDS; i++) {
+                if (isWordStart(title, i)) {
+                    out[next++] = key(entry, FIELD_TITLE, i);
+                    words++;
+                }
+            }
+        }
+        return next;
+    }
+    
+    private static boolean isWordStart(String text, int i) {
+        return Character.isLetterOrDigit(text.charAt(i))
+            && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)));
+    }
+    
+    private String textOf(long key) {
+        return fieldOf(key) == FIELD_URL ? urls[entryOf(key)] : titles[entryOf(key)];
+    }
+    
+    private int compareKeys(long a, long b) {
+        String textA = textOf(a);
+        String textB = textOf(b);
+        int i = offsetOf(a);
+        int j = offsetOf(b);
+        while (i < textA.length() && j < textB.length()) {
+            char ca = Character.toLowerCase(textA.charAt(i++));
+            char cb = Character.toLowerCase(textB.charAt(j++));
+            if (ca != cb) return ca - cb;
+        }
+        return (textA.length() - i) - (textB.length() - j);
+    }
+    
+    // <0 if the key sorts before every key starting with prefix, 0 if it starts with it, >0 after.
+    private int comparePrefix(long key, String prefix) {
+        String text = textOf(key);
+        int offset = offsetOf(key);
+        int length = Math.min(prefix.length(), text.length() - offset);
+        for (int i = 0; i < length; i++) {
+            char c = Character.toLowerCase(text.charAt(offset + i));
+            char p = prefix.charAt(i);
+            if (c != p) return c - p;
+        }
+        return length < prefix.length() ? -1 : 0;
+    }
+    
+    // First position whose key compares >= prefix (or > prefix when upper is set).
+    private int lowerBound(String prefix, boolean upper) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = comparePrefix(keys[mid], prefix);
+            if (cmp < 0 || (upper && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+    
+    private void updatePath(int leaf, float[] scores) {
+        for (int node = leaf / 2; node > 0; node /= 2) {
+            tree[node] = better(tree[node * 2], tree[node * 2 + 1], scores);
+        }
+    }
+    
+    private int rangeMax(int lo, int hi, float[] scores) {
+        int best = -1;
+        for (int l = lo + treeSize, r = hi + treeSize; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) best = better(best, tree[l++], scores);
+            if ((r & 1) == 1) best = better(best, tree[--r], scores);
+        }
+        return best;
+    }
+    
+    private int better(int a, int b, float[] scores) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        return scores[entryOf(keys[b])] > scores[entryOf(keys[a])] ? b : a;
+    }
+    
+    private static boolean containsEntry(long[] found, int count, int entry) {
+        for (int i = 0; i < count; i++) {
+            if (entryOf(found[i]) == entry) return true;
+        }
+        return false;
+    }
+    
+    private void ensureHeapCapacity(int capacity) {
+        if (heapLo.length < capacity) {
+            int grown = Math.max(capacity, heapLo.length * 2);
+            heapLo = Arrays.copyOf(heapLo, grown);
+            heapHi = Arrays.copyOf(heapHi, grown);
+            heapBest = Arrays.copyOf(heapBest, grown);
+        }
+    }
+    
+    private float heapScore(int i, float[] scores) {
+        return scores[entryOf(keys[heapBest[i]])];
+    }
+    
+    // Pushes the range if it holds any entry not removed.
+    private int pushRange(int size, int lo, int hi, float[] scores) {
+        if (lo >= hi) return size;
+        int best = rangeMax(lo, hi, scores);
+        return best >= 0 ? push(size, lo, hi, best, scores) : size;
+    }
+    
+    private int push(int size, int lo, int hi, int best, float[] scores) {
+        ensureHeapCapacity(size + 1);
+        int i = size;
+        heapLo[i] = lo;
+        heapHi[i] = hi;
+        heapBest[i] = best;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heapScore(parent, scores) >= heapScore(i, scores)) break;
+            swap(i, parent);
+            i = parent;
+        }
+        return size + 1;
+    }
+    
+    private int pop(int size, float[] scores) {
+        size--;
+        heapLo[0] = heapLo[size];
+        heapHi[0] = heapHi[size];
+        heapBest[0] = heapBest[size];
+        int i = 0;
+        while (true) {
+            int left = i * 2 + 1;
+            int largest = i;
+            if (left < size && heapScore(left, scores) > heapScore(largest, scores)) largest = left;
+            if (left + 1 < size && heapScore(left + 1, scores) > heapScore(largest, scores)) largest = left + 1;
+            if (largest == i) break;
+            swap(i, largest);
+            i = largest;
+        }
+        return size;
+    }
+    
+    private void swap(int a, int b) {
+        int lo = heapLo[a]; heapLo[a] = heapLo[b]; heapLo[b] = lo;
+        int hi = heapHi[a]; heapHi[a] = heapHi[b]; heapHi[b] = hi;
+        int best = heapBest[a]; heapBest[a] = heapBest[b]; heapBest[b] = best;
+    }
+    
+    // Bottom-up merge sort on primitive keys, so sorting a large index does not box.
+    private long[] sort(long[] input) {
+        long[] source = input;
+        long[] target = new long[input.length];
+        for (int width = 1; width < input.length; width *= 2) {
+            for (int lo = 0; lo < input.length; lo += width * 2) {
+                int mid = Math.min(lo + width, input.length);
+                int hi = Math.min(lo + width * 2, input.length);
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                while (i < mid && j < hi) {
+                    target[k++] = compareKeys(source[i], source[j]) <= 0 ? source[i++] : source[j++];
+                }
+                while (i < mid) target[k++] = source[i++];
+                while (j < hi) target[k++] = source[j++];
+            }
+            long[] swap = source;
+            source = target;
+            target = swap;
+        }
+        return source;
+    }
+}
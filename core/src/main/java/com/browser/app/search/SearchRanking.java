@@ -0,0 +1,94 @@
+package com.browser.app.search;
+
+import com.browser.app.database.Frecency;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+
+/**
+ * Query building and ranking for the FTS search over history and bookmarks. Kept apart from
+ * the DAO so it runs and is tested on the JVM.
+ */
+final class SearchRanking {
+    
+    private static final int MAX_TERMS = 8;
+    
+    // Column order of history_fts / bookmarks_fts: title, url.
+    private static final double TITLE_WEIGHT = 2.0;
+    private static final double URL_WEIGHT = 1.0;
+    static final double BOOKMARK_BOOST = 1.5;
+    
+    private SearchRanking() {
+    }
+    
+    /**
+     * Turns free text into an FTS prefix query: every word becomes {@code word*} and the
+     * words are ANDed. Punctuation splits words, so "github.com/and" matches the URL tokens
+     * github, com and and*. Terms are lowercased so they are never read as FTS operators.
+     */
+    static String toMatchExpression(String query) {
+        if (query == null || query.isEmpty()) return "";
+        
+        StringBuilder match = new StringBuilder(query.length() + 8);
+        int terms = 0;
+        int i = 0;
+        int length = query.length();
+        while (i < length && terms < MAX_TERMS) {
+            while (i < length && !Character.isLetterOrDigit(query.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(query.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                if (terms > 0) match.append(' ');
+                match.append(query.substring(start, i).toLowerCase(Locale.ROOT)).append('*');
+                terms++;
+            }
+        }
+        return match.toString();
+    }
+    
+    /** Text score times frecency boost, and the bookmark boost for bookmark rows. */
+    static double rank(byte[] matchInfo, double frecency, boolean bookmark, long now) {
+        double rank = score(matchInfo) * frecencyBoost(frecency, now);
+        return bookmark ? rank * BOOKMARK_BOOST : rank;
+    }
+    
+    // Logarithmic, so a heavily used page cannot bury a much better text match.
+    static double frecencyBoost(double frecency, long now) {
+        return 1 + Math.log1p(Frecency.decayed(frecency, now));
+    }
+    
+    /**
+     * BM25-style score from a matchinfo('pcnx') blob: term hits per column weighted by
+     * column and by how rare the term is across the index.
+     */
+    static double score(byte[] matchInfo) {
+        if (matchInfo == null || matchInfo.length < 12) return 0;
+        
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt(0);
+        int columns = buffer.getInt(4);
+        double documents = buffer.getInt(8);
+        
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int base = 12 + 12 * (phrase * columns + column);
+                if (base + 12 > matchInfo.length) return score;
+                
+                int hitsInRow = buffer.getInt(base);
+                int rowsWithHits = buffer.getInt(base + 8);
+                if (hitsInRow == 0) continue;
+                
+                double idf = Math.log(1 + (documents - rowsWithHits + 0.5) / (rowsWithHits + 0.5));
+                double weight = column == 0 ? TITLE_WEIGHT : URL_WEIGHT;
+                score += weight * idf * hitsInRow / (hitsInRow + 1.0);
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,85 @@
+package com.browser.app.utils;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public class BrowserUtils {
+    
+    private static final String DEFAULT_SEARCH_ENGINE = "https://www.google.com/search?q=";
+    private static final String DEFAULT_USER_AGENT = "Mozilla/5.0 (Linux; Android 10; Mobile) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.114 Mobile Safari/537.36";
+    
+    public static boolean isValidUrl(String url) {
+        if (url == null) return false;
+        int type = UrlParser.forThread().parse(url);
+        return type == UrlParser.TYPE_URL || type == UrlParser.TYPE_HOST;
+    }
+    
+    /** Turns address bar text into a URL to load: the normalized URL, or a search for the text. */
+    public static String formatUrl(String url) {
+        if (url == null) return "";
+        
+        UrlParser parser = UrlParser.forThread();
+        switch (parser.parse(url)) {
+            case UrlParser.TYPE_EMPTY:
+                return "";
+            case UrlParser.TYPE_SEARCH:
+                StringBuilder search = new StringBuilder(getSearchEngine());
+                parser.appendQueryEncoded(search);
+                return search.toString();
+            default:
+                return parser.normalize();
+        }
+    }
+    
+    /**
+     * The form URLs are stored and compared in: normalized when {@code url} parses as a URL
+     * or host, otherwise unchanged. History, bookmarks and autocomplete all key on this.
+     */
+    public static String normalizeUrl(String url) {
+        if (url == null) return null;
+        UrlParser parser = UrlParser.forThread();
+        parser.parse(url);
+        String normalized = parser.normalize();
+        return normalized != null ? normalized : url;
+    }
+    
+    public static String getDomainFromUrl(String url) {
+        if (url == null) return "";
+        
+        UrlParser parser = UrlParser.forThread();
+        int type = parser.parse(url);
+        String host = type == UrlParser.TYPE_URL || type == UrlParser.TYPE_HOST ? parser.host() : null;
+        return host != null ? host : "";
+    }
+    
+    public static String formatFileSize(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        int exp = (int) (Math.log(bytes) / Math.log(1024));
+        String pre = "KMGTPE".charAt(exp - 1) + "";
+        return String.format(Locale.getDefault(), "%.1f %sB", bytes / Math.pow(1024, exp), pre);
+    }
+    
+    public static String getSearchEngine() {
+        return DEFAULT_SEARCH_ENGINE;
+    }
+    
+    public static String getUserAgent() {
+        return DEFAULT_USER_AGENT;
+    }
+    
+    public static String extractTitle(String html) {
+        if (html == null || html.isEmpty()) return "";
+        
+        try {
+            Pattern pattern = Pattern.compile("<title>(.*?)</title>", Pattern.CASE_INSENSITIVE);
+            java.util.regex.Matcher matcher = pattern.matcher(html);
+            if (matcher.find()) {
+                return matcher.group(1).trim();
+            }
+        } catch (Exception e) {
+            // Ignore
+        }
+        
+        return "";
+    }
+}
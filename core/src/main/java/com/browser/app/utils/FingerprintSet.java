@@ -0,0 +1,138 @@
+package com.browser.app.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing set of 64-bit string fingerprints backed by primitive arrays.
+ * Lookups allocate nothing, which keeps it usable on the UI thread's hot paths.
+ * Not thread-safe; callers synchronize.
+ */
+public class FingerprintSet {
+    
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 16;
+    
+    private long[] keys;
+    private int size;
+    
+    public FingerprintSet() {
+        this(MIN_CAPACITY);
+    }
+    
+    public FingerprintSet(int expectedSize) {
+        keys = new long[tableSizeFor(expectedSize)];
+    }
+    
+    /** FNV-1a over the UTF-16 chars followed by a 64-bit finalizer; never returns 0. */
+    public static long fingerprint(CharSequence value) {
+        return fingerprint(value, 0, value.length());
+    }
+    
+    /** The fingerprint of {@code value.subSequence(start, end)}, without creating it. */
+    public static long fingerprint(CharSequence value, int start, int end) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1L : hash;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean contains(long fingerprint) {
+        return indexOf(fingerprint) >= 0;
+    }
+    
+    /** Returns false if the fingerprint was already present. */
+    public boolean add(long fingerprint) {
+        int mask = keys.length - 1;
+        int slot = mix(fingerprint) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == fingerprint) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = fingerprint;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+    
+    /** Returns false if the fingerprint was not present. */
+    public boolean remove(long fingerprint) {
+        int slot = indexOf(fingerprint);
+        if (slot < 0) return false;
+        removeSlot(slot);
+        return true;
+    }
+    
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+    
+    private int indexOf(long fingerprint) {
+        int mask = keys.length - 1;
+        int slot = mix(fingerprint) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == fingerprint) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+    
+    // Backward-shift deletion keeps probe chains intact without tombstones.
+    private void removeSlot(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+    
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        keys = new long[capacity];
+        int mask = capacity - 1;
+        for (long key : oldKeys) {
+            if (key == EMPTY) continue;
+            int slot = mix(key) & mask;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+        }
+    }
+    
+    private static int mix(long fingerprint) {
+        return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+    
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
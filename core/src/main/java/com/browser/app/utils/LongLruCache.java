@@ -0,0 +1,159 @@
+package com.browser.app.utils;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * LRU cache keyed by non-zero 64-bit fingerprints and bounded by the total size of its
+ * values, like {@code android.util.LruCache} but without boxing a key on every lookup.
+ * Entries sit in parallel arrays linked into a recency list, and a {@link LongIntMap}
+ * finds their slot, so hits allocate nothing. Thread-safe.
+ */
+public class LongLruCache<V> {
+    
+    private static final int NONE = -1;
+    private static final int INITIAL_SLOTS = 16;
+    
+    private final int maxSize;
+    private final LongIntMap slots = new LongIntMap(INITIAL_SLOTS);
+    private long[] keys = new long[INITIAL_SLOTS];
+    private Object[] values = new Object[INITIAL_SLOTS];
+    private int[] sizes = new int[INITIAL_SLOTS];
+    // Recency list, most recent first. Released slots are chained through next.
+    private int[] previous = new int[INITIAL_SLOTS];
+    private int[] next = new int[INITIAL_SLOTS];
+    private int head = NONE;
+    private int tail = NONE;
+    private int free = NONE;
+    private int used;
+    private int size;
+    
+    public LongLruCache(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0");
+        this.maxSize = maxSize;
+    }
+    
+    /** Size of an entry in the units of maxSize; 1 unless overridden. */
+    protected int sizeOf(long key, V value) {
+        return 1;
+    }
+    
+    /** Returns the value for {@code key} and makes it the most recently used. */
+    @Nullable
+    public synchronized V get(long key) {
+        int slot = slots.get(key);
+        if (slot == LongIntMap.NO_VALUE) return null;
+        if (slot != head) {
+            unlink(slot);
+            linkFirst(slot);
+        }
+        return value(slot);
+    }
+    
+    /** Adds or replaces the value for {@code key}, evicting the least recently used as needed. */
+    @Nullable
+    public synchronized V put(long key, V value) {
+        if (value == null) throw new NullPointerException("value == null");
+        int entrySize = sizeOf(key, value);
+        V replaced = null;
+        int slot = slots.get(key);
+        if (slot != LongIntMap.NO_VALUE) {
+            replaced = value(slot);
+            size -= sizes[slot];
+            unlink(slot);
+        } else {
+            slot = allocate();
+            keys[slot] = key;
+            slots.put(key, slot);
+        }
+        values[slot] = value;
+        sizes[slot] = entrySize;
+        size += entrySize;
+        linkFirst(slot);
+        trimTo(maxSize);
+        return replaced;
+    }
+    
+    @Nullable
+    public synchronized V remove(long key) {
+        int slot = slots.remove(key);
+        if (slot == LongIntMap.NO_VALUE) return null;
+        V removed = value(slot);
+        release(slot);
+        return removed;
+    }
+    
+    public synchronized void evictAll() {
+        trimTo(-1);
+    }
+    
+    /** Total size of the entries, in the units of {@link #sizeOf}. */
+    public synchronized int size() {
+        return size;
+    }
+    
+    private void trimTo(int max) {
+        while (size > max && tail != NONE) {
+            int slot = tail;
+            slots.remove(keys[slot]);
+            release(slot);
+        }
+    }
+    
+    private int allocate() {
+        if (free != NONE) {
+            int slot = free;
+            free = next[slot];
+            return slot;
+        }
+        if (used == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        return used++;
+    }
+    
+    private void release(int slot) {
+        size -= sizes[slot];
+        unlink(slot);
+        values[slot] = null;
+        next[slot] = free;
+        free = slot;
+    }
+    
+    private void linkFirst(int slot) {
+        previous[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) {
+            previous[head] = slot;
+        } else {
+            tail = slot;
+        }
+        head = slot;
+    }
+    
+    private void unlink(int slot) {
+        int before = previous[slot];
+        int after = next[slot];
+        if (before != NONE) {
+            next[before] = after;
+        } else {
+            head = after;
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        } else {
+            tail = before;
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private V value(int slot) {
+        return (V) values[slot];
+    }
+}
@@ -0,0 +1,407 @@
+package com.browser.app.utils;
+
+import androidx.annotation.Nullable;
+
+import java.net.IDN;
+
+/**
+ * Classifies address bar text and URLs in one forward scan, recording the scheme, host and
+ * port as offsets into the input rather than substrings. {@link #parse} allocates nothing,
+ * and {@link #normalize} returns the input itself when it is already in normal form, which
+ * is the common case for URLs coming back from WebView.
+ *
+ * An instance holds the result of the last parse, so it must stay on one thread; use
+ * {@link #forThread} where there is no natural owner.
+ */
+public final class UrlParser {
+    
+    public static final int TYPE_EMPTY = 0;
+    /** Has an explicit scheme, hierarchical ({@code http://...}) or opaque ({@code about:blank}). */
+    public static final int TYPE_URL = 1;
+    /** A host with no scheme, such as {@code example.com/path}; https is implied. */
+    public static final int TYPE_HOST = 2;
+    /** Anything else, to be handed to the search engine. */
+    public static final int TYPE_SEARCH = 3;
+    
+    // Schemes that are URLs even without "//". javascript: is left out on purpose so that
+    // pasted script runs as a search rather than in the current page.
+    private static final String[] OPAQUE_SCHEMES = {
+        "about", "blob", "content", "data", "file", "mailto", "sms", "tel", "view-source"
+    };
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    
+    private static final ThreadLocal<UrlParser> PARSERS = new ThreadLocal<UrlParser>() {
+        @Override
+        protected UrlParser initialValue() {
+            return new UrlParser();
+        }
+    };
+    
+    private CharSequence input;
+    private int type;
+    // Trimmed bounds of the input.
+    private int start;
+    private int end;
+    // Index of the ':' after the scheme, or -1 if there is none.
+    private int schemeEnd;
+    private boolean schemeUpper;
+    private boolean hierarchical;
+    private int hostStart;
+    private int hostEnd;
+    private boolean hostUpper;
+    private boolean hostNonAscii;
+    // Port number, or -1 if absent or not numeric; the authority ends at pathStart.
+    private int port;
+    private int pathStart;
+    
+    /** A parser owned by the calling thread; its result is valid until that thread parses again. */
+    public static UrlParser forThread() {
+        return PARSERS.get();
+    }
+    
+    /** Parses {@code input} and returns one of the TYPE_ constants. */
+    public int parse(CharSequence input) {
+        this.input = input;
+        int end = input.length();
+        int start = 0;
+        while (start < end && input.charAt(start) <= ' ') start++;
+        while (end > start && input.charAt(end - 1) <= ' ') end--;
+        this.start = start;
+        this.end = end;
+        schemeEnd = -1;
+        schemeUpper = false;
+        hierarchical = false;
+        hostStart = hostEnd = pathStart = start;
+        hostUpper = hostNonAscii = false;
+        port = -1;
+        if (start == end) return type = TYPE_EMPTY;
+        
+        // scheme = ALPHA *( ALPHA / DIGIT / "+" / "-" / "." )
+        int i = start;
+        boolean upper = false;
+        while (i < end) {
+            char c = input.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                upper = true;
+            } else if (!(c >= 'a' && c <= 'z')
+                    && (i == start || !(c >= '0' && c <= '9' || c == '+' || c == '-' || c == '.'))) {
+                break;
+            }
+            i++;
+        }
+        if (i > start && i < end && input.charAt(i) == ':') {
+            if (i + 2 < end && input.charAt(i + 1) == '/' && input.charAt(i + 2) == '/') {
+                schemeEnd = i;
+                schemeUpper = upper;
+                hierarchical = true;
+                if (parseAuthority(i + 3, false)) return type = TYPE_URL;
+                schemeEnd = -1;
+                schemeUpper = hierarchical = false;
+            }
+            if (isOpaqueScheme(start, i)) {
+                schemeEnd = i;
+                schemeUpper = upper;
+                pathStart = i + 1;
+                return type = TYPE_URL;
+            }
+            // Otherwise "localhost:8080" or a sentence with a colon in it.
+        }
+        if (parseAuthority(start, true)) return type = TYPE_HOST;
+        hostStart = hostEnd = pathStart = start;
+        hostUpper = hostNonAscii = false;
+        port = -1;
+        return type = TYPE_SEARCH;
+    }
+    
+    /**
+     * Scans the authority from {@code from}, setting the host and port, and returns whether
+     * it is well formed: no whitespace or stray punctuation in the host, no label starting or
+     * ending with '-', brackets closed and the port numeric. Only file URLs may have an empty
+     * host. When {@code bare} it must also look enough like a host to navigate to: a dotted
+     * name ending in a letter label, an IPv4 or bracketed IPv6 address, or localhost, with an
+     * optional port.
+     */
+    private boolean parseAuthority(int from, boolean bare) {
+        CharSequence s = input;
+        int hostStart = from;
+        int colon = -1;
+        boolean bracket = false;
+        boolean upper = false;
+        boolean nonAscii = false;
+        boolean validHost = true;
+        int dots = 0;
+        int labelLength = 0;
+        boolean labelLetters = true;
+        boolean labelDigits = true;
+        boolean numericLabels = true;
+        char last = 0;
+        int i = from;
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '/' || c == '?' || c == '#' || (c == '\\' && hierarchical)) break;
+            if (c == '@') {
+                if (bare) return false;
+                hostStart = i + 1;
+                colon = -1;
+                upper = nonAscii = false;
+                validHost = labelLetters = labelDigits = numericLabels = true;
+                dots = labelLength = 0;
+                last = 0;
+                continue;
+            }
+            if (colon >= 0) continue;
+            if (c == ':' && !bracket) {
+                colon = i;
+                continue;
+            }
+            if (c == '[' && i == hostStart) {
+                bracket = true;
+            } else if (c == ']' && bracket) {
+                bracket = false;
+            } else if (c == '.' && !bracket) {
+                if (labelLength == 0 || last == '-') validHost = false;
+                numericLabels &= labelDigits;
+                dots++;
+                labelLength = 0;
+                labelLetters = labelDigits = true;
+                continue;
+            } else if (c >= 'a' && c <= 'z') {
+                labelDigits = false;
+            } else if (c >= 'A' && c <= 'Z') {
+                upper = true;
+                labelDigits = false;
+            } else if (c >= '0' && c <= '9') {
+                labelLetters = false;
+            } else if (c == '-' || c == '_') {
+                if (c == '-' && labelLength == 0 && !bracket) validHost = false;
+                labelLetters = labelDigits = false;
+            } else if (c >= 0x80 && Character.isLetterOrDigit(c)) {
+                nonAscii = true;
+                labelLetters &= Character.isLetter(c);
+                labelDigits = false;
+            } else if (!bracket) {
+                validHost = false;
+            }
+            last = c;
+            labelLength++;
+        }
+        if (last == '-') validHost = false;
+        
+        this.hostStart = hostStart;
+        this.hostEnd = colon >= 0 ? colon : i;
+        this.hostUpper = upper;
+        this.hostNonAscii = nonAscii;
+        this.pathStart = i;
+        boolean portValid = true;
+        if (colon >= 0) {
+            int digits = i - colon - 1;
+            int value = 0;
+            portValid = digits > 0 && digits <= 5;
+            for (int p = colon + 1; p < i && portValid; p++) {
+                char c = s.charAt(p);
+                portValid = c >= '0' && c <= '9';
+                value = value * 10 + (c - '0');
+            }
+            portValid &= value <= 65535;
+            port = portValid ? value : -1;
+        }
+        int hostLength = hostEnd - hostStart;
+        if (!portValid || !validHost || bracket) return false;
+        if (hostLength > 0 && s.charAt(hostStart) == '[' && s.charAt(hostEnd - 1) != ']') {
+            return false;
+        }
+        if (!bare) {
+            return hostLength > 0
+                || colon < 0 && schemeEnd - start == 4 && regionMatches(start, "file");
+        }
+        
+        if (hostLength == 0) return false;
+        if (s.charAt(hostStart) == '[') return true;
+        if (dots == 0) {
+            return hostLength == 9 && regionMatches(hostStart, "localhost");
+        }
+        if (labelLength == 0) return false;
+        if (dots == 3 && numericLabels && labelDigits) return true;
+        return labelLetters && labelLength >= 2;
+    }
+    
+    public int type() {
+        return type;
+    }
+    
+    /** Whether the last parse found a host, which {@link #hostStart} and {@link #hostEnd} delimit. */
+    public boolean hasHost() {
+        return hostEnd > hostStart;
+    }
+    
+    public int hostStart() {
+        return hostStart;
+    }
+    
+    public int hostEnd() {
+        return hostEnd;
+    }
+    
+    /** Index of the ':' ending the scheme, or -1 for a bare host, search or empty input. */
+    public int schemeEnd() {
+        return schemeEnd;
+    }
+    
+    /** Whether the scheme, or the implied https of a bare host, is {@code scheme}, given in lower case. */
+    public boolean isScheme(String scheme) {
+        if (type == TYPE_HOST) return scheme.equals("https");
+        return schemeEnd - start == scheme.length() && regionMatches(start, scheme);
+    }
+    
+    /** Port number, or -1 if the URL has none or it is not numeric. */
+    public int port() {
+        return port;
+    }
+    
+    /** The host in normal form, lower case and ASCII, or null if there is none. */
+    @Nullable
+    public String host() {
+        if (!hasHost()) return null;
+        if (!hostUpper && !hostNonAscii) {
+            return input.subSequence(hostStart, hostEnd).toString();
+        }
+        StringBuilder host = new StringBuilder(hostEnd - hostStart);
+        appendHost(host);
+        return host.toString();
+    }
+    
+    /**
+     * The URL in normal form: trimmed, scheme and host in lower case, IDN hosts in punycode,
+     * the default port dropped and an empty http(s) path written as "/". Bare hosts get
+     * https. Returns the input itself if nothing changes, and null for searches and empty
+     * input.
+     */
+    @Nullable
+    public String normalize() {
+        if (type == TYPE_EMPTY || type == TYPE_SEARCH) return null;
+        boolean trimmed = start > 0 || end < input.length();
+        if (!hierarchical && type == TYPE_URL) {
+            if (!schemeUpper && !trimmed) return input.toString();
+            StringBuilder url = new StringBuilder(end - start);
+            appendLowerCase(url, start, schemeEnd);
+            url.append(input, schemeEnd, end);
+            return url.toString();
+        }
+        
+        boolean web = isScheme("http") || isScheme("https") || isScheme("ws") || isScheme("wss");
+        boolean dropPort = port >= 0 && port == defaultPort();
+        boolean addSlash = web && (pathStart == end || input.charAt(pathStart) != '/');
+        if (type == TYPE_URL && !trimmed && !schemeUpper && !hostUpper && !hostNonAscii
+                && !dropPort && !addSlash && input instanceof String) {
+            return (String) input;
+        }
+        
+        StringBuilder url = new StringBuilder(end - start + 9);
+        int authorityStart;
+        if (type == TYPE_HOST) {
+            url.append("https://");
+            authorityStart = start;
+        } else {
+            appendLowerCase(url, start, schemeEnd);
+            url.append("://");
+            authorityStart = schemeEnd + 3;
+        }
+        url.append(input, authorityStart, hostStart);
+        appendHost(url);
+        if (!dropPort) {
+            url.append(input, hostEnd, pathStart);
+        }
+        if (addSlash) {
+            url.append('/');
+        }
+        url.append(input, pathStart, end);
+        return url.toString();
+    }
+    
+    /**
+     * Appends the trimmed input as a form-encoded query value, the way
+     * {@link java.net.URLEncoder} does with UTF-8.
+     */
+    public void appendQueryEncoded(StringBuilder out) {
+        CharSequence s = input;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                    || c == '-' || c == '_' || c == '.' || c == '*') {
+                out.append(c);
+            } else if (c == ' ') {
+                out.append('+');
+            } else if (c < 0x80) {
+                appendEscaped(out, c);
+            } else if (c < 0x800) {
+                appendEscaped(out, 0xc0 | (c >> 6));
+                appendEscaped(out, 0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                appendEscaped(out, 0xf0 | (codePoint >> 18));
+                appendEscaped(out, 0x80 | ((codePoint >> 12) & 0x3f));
+                appendEscaped(out, 0x80 | ((codePoint >> 6) & 0x3f));
+                appendEscaped(out, 0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates cannot be encoded; URLEncoder writes '?' for them.
+                appendEscaped(out, '?');
+            } else {
+                appendEscaped(out, 0xe0 | (c >> 12));
+                appendEscaped(out, 0x80 | ((c >> 6) & 0x3f));
+                appendEscaped(out, 0x80 | (c & 0x3f));
+            }
+        }
+    }
+    
+    private int defaultPort() {
+        if (isScheme("http") || isScheme("ws")) return 80;
+        if (isScheme("https") || isScheme("wss")) return 443;
+        return -1;
+    }
+    
+    private void appendHost(StringBuilder out) {
+        if (hostNonAscii) {
+            String host = input.subSequence(hostStart, hostEnd).toString();
+            try {
+                host = IDN.toASCII(host, IDN.ALLOW_UNASSIGNED);
+            } catch (IllegalArgumentException e) {
+                // Not a valid IDN; keep it as typed and let WebView reject it.
+            }
+            for (int i = 0; i < host.length(); i++) {
+                out.append(Character.toLowerCase(host.charAt(i)));
+            }
+        } else {
+            appendLowerCase(out, hostStart, hostEnd);
+        }
+    }
+    
+    private void appendLowerCase(StringBuilder out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = input.charAt(i);
+            out.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+    }
+    
+    private boolean isOpaqueScheme(int from, int to) {
+        for (String scheme : OPAQUE_SCHEMES) {
+            if (to - from == scheme.length() && regionMatches(from, scheme)) return true;
+        }
+        return false;
+    }
+    
+    // Case-insensitive match of the input at offset against a lower-case ASCII string.
+    private boolean regionMatches(int offset, String lower) {
+        if (input.length() - offset < lower.length()) return false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = input.charAt(offset + i);
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            if (c != lower.charAt(i)) return false;
+        }
+        return true;
+    }
+    
+    private static void appendEscaped(StringBuilder out, int b) {
+        out.append('%').append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+    }
+}
@@ -0,0 +1,53 @@
+package com.browser.app.download;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentTest {
+    
+    @Test
+    public void splitCoversEveryByteOnce() {
+        List<Segment> segments = Segment.split(1003, 4);
+        assertEquals(4, segments.size());
+        long expectedStart = 0;
+        long total = 0;
+        for (Segment segment : segments) {
+            assertEquals(expectedStart, segment.start);
+            assertEquals(segment.start, segment.next);
+            total += segment.remaining();
+            expectedStart = segment.end + 1;
+        }
+        assertEquals(1003, total);
+        assertEquals(1002, segments.get(3).end);
+    }
+    
+    @Test
+    public void encodeDecodeKeepsProgress() {
+        List<Segment> segments = Segment.split(1000, 3);
+        segments.get(0).next = 120;
+        segments.get(1).next = segments.get(1).end + 1;
+        
+        List<Segment> resumed = Segment.decode(Segment.encode(segments));
+        assertEquals("0:120:332,333:666:665,666:666:999", Segment.encode(resumed));
+        assertEquals(213, resumed.get(0).remaining());
+        assertTrue(resumed.get(1).isDone());
+        assertFalse(resumed.get(2).isDone());
+    }
+    
+    @Test
+    public void decodeRejectsMalformedProgress() {
+        assertNull(Segment.decode(null));
+        assertNull(Segment.decode(""));
+        assertNull(Segment.decode("0:10"));
+        assertNull(Segment.decode("0:x:10"));
+        assertNull(Segment.decode("5:4:10"));
+        assertNull(Segment.decode("0:12:10"));
+        assertNull(Segment.decode("-1:0:10"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.browser.app.download;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class Sha256Test {
+    
+    @Test
+    public void knownDigests() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", hex(""));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", hex("abc"));
+        assertEquals("248d6a61d20638b8e5c026930c3e6039a33ce45964ff2167f6ecedd419db06c1",
+            hex("abcdbcdecdefdefgefghfghighijhijkijkljklmklmnlmnomnopnopq"));
+    }
+    
+    @Test
+    public void matchesMessageDigestInUnevenChunks() throws Exception {
+        Random random = new Random(17);
+        byte[] data = new byte[100003];
+        random.nextBytes(data);
+        
+        Sha256 hash = new Sha256();
+        int offset = 0;
+        while (offset < data.length) {
+            int length = Math.min(data.length - offset, random.nextInt(200));
+            hash.update(data, offset, length);
+            offset += length;
+        }
+        assertEquals(data.length, hash.count());
+        assertEquals(expected(data), hash.digestHex());
+    }
+    
+    @Test
+    public void saveAndRestoreResumesAtEveryBlockOffset() throws Exception {
+        byte[] data = new byte[300];
+        new Random(3).nextBytes(data);
+        
+        // Cut points before, at and inside block boundaries exercise the buffered tail.
+        for (int cut = 0; cut <= data.length; cut += 7) {
+            Sha256 first = new Sha256();
+            first.update(data, 0, cut);
+            Sha256 resumed = Sha256.restore(first.save());
+            assertEquals(cut, resumed.count());
+            resumed.update(data, cut, data.length - cut);
+            assertEquals("cut " + cut, expected(data), resumed.digestHex());
+        }
+    }
+    
+    @Test
+    public void restoreRejectsMalformedState() {
+        assertNull(Sha256.restore(null));
+        assertNull(Sha256.restore(""));
+        assertNull(Sha256.restore("nonsense"));
+        assertNull(Sha256.restore("1:zz:"));
+        // Five bytes hashed must come with five buffered bytes.
+        assertNull(Sha256.restore(new Sha256().save().replace("0:", "5:")));
+    }
+    
+    private static String hex(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        Sha256 hash = new Sha256();
+        hash.update(bytes, 0, bytes.length);
+        return hash.digestHex();
+    }
+    
+    private static String expected(byte[] data) throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.browser.app.search;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class AutocompleteIndexTest {
+    
+    private static final String[] URLS = {
+        "https://www.example.com/",
+        "https://example.org/docs",
+        "https://news.example.net/today",
+        "https://exhibit.com/",
+        "https://other.com/example",
+    };
+    private static final String[] TITLES = {
+        "Example Domain",
+        "Example docs",
+        null,
+        "Exhibit",
+        "Examples elsewhere",
+    };
+    
+    @Test
+    public void returnsBestScoredMatchesFirst() {
+        float[] scores = {5f, 1f, 3f, 4f, 2f};
+        AutocompleteIndex index = build(scores);
+        
+        assertArrayEquals(new int[] {0, 3, 4, 1}, query(index, "ex", scores, 8));
+        assertArrayEquals(new int[] {0, 4}, query(index, "example", scores, 2));
+        assertArrayEquals(new int[] {2}, query(index, "news", scores, 8));
+        assertArrayEquals(new int[0], query(index, "zzz", scores, 8));
+    }
+    
+    @Test
+    public void followsScoreChanges() {
+        float[] scores = {5f, 1f, 3f, 4f, 2f};
+        AutocompleteIndex index = build(scores);
+        
+        scores[1] = 10f;
+        index.onScoreChanged(1, scores);
+        assertArrayEquals(new int[] {1, 0, 3, 4}, query(index, "ex", scores, 8));
+    }
+    
+    @Test
+    public void removedEntriesAreNotReturned() {
+        float[] scores = {5f, 1f, 3f, 4f, 2f};
+        AutocompleteIndex index = build(scores);
+        
+        index.remove(0, scores);
+        assertArrayEquals(new int[] {3, 4, 1}, query(index, "ex", scores, 8));
+        index.remove(3, scores);
+        index.remove(4, scores);
+        index.remove(1, scores);
+        assertArrayEquals(new int[0], query(index, "ex", scores, 8));
+        assertArrayEquals(new int[] {2}, query(index, "news", scores, 8));
+    }
+    
+    @Test
+    public void removalBeforeBuildingTreeIsKept() {
+        float[] scores = {5f, 1f, 3f, 4f, 2f};
+        AutocompleteIndex index = new AutocompleteIndex(URLS, TITLES.clone(), URLS.length);
+        index.remove(3, scores);
+        index.buildTree(scores);
+        
+        assertArrayEquals(new int[] {0, 4, 1}, query(index, "ex", scores, 8));
+    }
+    
+    @Test
+    public void keyPacksEntryFieldAndOffset() {
+        long key = AutocompleteIndex.key(123456, AutocompleteIndex.FIELD_TITLE, 789);
+        assertEquals(123456, AutocompleteIndex.entryOf(key));
+        assertEquals(AutocompleteIndex.FIELD_TITLE, AutocompleteIndex.fieldOf(key));
+        assertEquals(789, AutocompleteIndex.offsetOf(key));
+        assertEquals(12, AutocompleteIndex.urlKeyOffset("https://www.example.com/"));
+    }
+    
+    private static AutocompleteIndex build(float[] scores) {
+        AutocompleteIndex index = new AutocompleteIndex(URLS, TITLES.clone(), URLS.length);
+        index.buildTree(scores);
+        return index;
+    }
+    
+    private static int[] query(AutocompleteIndex index, String prefix, float[] scores, int limit) {
+        long[] keys = new long[limit];
+        int found = index.query(prefix, limit, scores, keys);
+        int[] entries = new int[found];
+        for (int i = 0; i < found; i++) {
+            entries[i] = AutocompleteIndex.entryOf(keys[i]);
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,64 @@
+package com.browser.app.search;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchRankingTest {
+    
+    @Test
+    public void buildsPrefixQueries() {
+        assertEquals("github* com* and*", SearchRanking.toMatchExpression("GitHub.com/and"));
+        assertEquals("near* or*", SearchRanking.toMatchExpression("  near OR  "));
+        assertEquals("", SearchRanking.toMatchExpression("--- ..."));
+        assertEquals("", SearchRanking.toMatchExpression(null));
+        assertEquals("a* b* c* d* e* f* g* h*",
+            SearchRanking.toMatchExpression("a b c d e f g h i j"));
+    }
+    
+    @Test
+    public void titleHitsOutrankUrlHits() {
+        byte[] inTitle = matchInfo(1000, new int[][] {{1, 10}, {0, 0}});
+        byte[] inUrl = matchInfo(1000, new int[][] {{0, 0}, {1, 10}});
+        assertTrue(SearchRanking.score(inTitle) > SearchRanking.score(inUrl));
+    }
+    
+    @Test
+    public void rareTermsOutrankCommonOnes() {
+        byte[] rare = matchInfo(1000, new int[][] {{1, 2}, {0, 0}});
+        byte[] common = matchInfo(1000, new int[][] {{1, 900}, {0, 0}});
+        assertTrue(SearchRanking.score(rare) > SearchRanking.score(common));
+    }
+    
+    @Test
+    public void toleratesShortBlobs() {
+        assertEquals(0, SearchRanking.score(null), 0);
+        assertEquals(0, SearchRanking.score(new byte[8]), 0);
+        byte[] full = matchInfo(10, new int[][] {{1, 1}, {1, 1}});
+        byte[] truncated = new byte[full.length - 4];
+        System.arraycopy(full, 0, truncated, 0, truncated.length);
+        assertTrue(SearchRanking.score(truncated) < SearchRanking.score(full));
+    }
+    
+    @Test
+    public void bookmarksAreBoosted() {
+        byte[] info = matchInfo(100, new int[][] {{1, 5}, {0, 0}});
+        long now = System.currentTimeMillis();
+        assertEquals(SearchRanking.rank(info, 0, false, now) * SearchRanking.BOOKMARK_BOOST,
+            SearchRanking.rank(info, 0, true, now), 1e-9);
+    }
+    
+    // A one-phrase matchinfo('pcnx') blob; hits[column] is {hits in row, rows with hits}.
+    private static byte[] matchInfo(int documents, int[][] hits) {
+        ByteBuffer buffer = ByteBuffer.allocate(12 + 12 * hits.length).order(ByteOrder.nativeOrder());
+        buffer.putInt(1).putInt(hits.length).putInt(documents);
+        for (int[] column : hits) {
+            buffer.putInt(column[0]).putInt(column[0]).putInt(column[1]);
+        }
+        return buffer.array();
+    }
+}
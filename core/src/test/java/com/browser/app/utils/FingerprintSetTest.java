@@ -0,0 +1,63 @@
+package com.browser.app.utils;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FingerprintSetTest {
+    
+    @Test
+    public void addAndRemoveAreSetOperations() {
+        FingerprintSet set = new FingerprintSet();
+        long key = FingerprintSet.fingerprint("https://example.com/");
+        
+        assertTrue(set.add(key));
+        assertFalse(set.add(key));
+        assertEquals(1, set.size());
+        assertTrue(set.contains(key));
+        
+        assertTrue(set.remove(key));
+        assertFalse(set.remove(key));
+        assertFalse(set.contains(key));
+        assertEquals(0, set.size());
+    }
+    
+    @Test
+    public void matchesHashSetUnderRandomChurn() {
+        FingerprintSet set = new FingerprintSet();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            // A small key space, so adds collide with present keys and removes hit.
+            long key = FingerprintSet.fingerprint("k" + random.nextInt(5000));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), set.remove(key));
+            } else {
+                assertEquals(expected.add(key), set.add(key));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (int i = 0; i < 5000; i++) {
+            long key = FingerprintSet.fingerprint("k" + i);
+            assertEquals(expected.contains(key), set.contains(key));
+        }
+        
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.contains(FingerprintSet.fingerprint("k0")));
+    }
+    
+    @Test
+    public void rangeFingerprintMatchesSubstring() {
+        String url = "https://news.example.com/path";
+        assertEquals(FingerprintSet.fingerprint("news.example.com"), FingerprintSet.fingerprint(url, 8, 24));
+        assertNotEquals(0L, FingerprintSet.fingerprint(""));
+    }
+}
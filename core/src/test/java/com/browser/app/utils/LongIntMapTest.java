@@ -0,0 +1,49 @@
+package com.browser.app.utils;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class LongIntMapTest {
+    
+    @Test
+    public void putGetAndRemove() {
+        LongIntMap map = new LongIntMap(4);
+        map.put(7L, 1);
+        map.put(7L, 2);
+        assertEquals(1, map.size());
+        assertEquals(2, map.get(7L));
+        
+        assertEquals(2, map.remove(7L));
+        assertEquals(LongIntMap.NO_VALUE, map.remove(7L));
+        assertEquals(LongIntMap.NO_VALUE, map.get(7L));
+        assertEquals(0, map.size());
+    }
+    
+    @Test
+    public void matchesHashMapUnderRandomChurn() {
+        LongIntMap map = new LongIntMap(16);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            long key = FingerprintSet.fingerprint("k" + random.nextInt(3000));
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertEquals(removed != null ? removed : LongIntMap.NO_VALUE, map.remove(key));
+            } else {
+                expected.put(key, i);
+                map.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int i = 0; i < 3000; i++) {
+            long key = FingerprintSet.fingerprint("k" + i);
+            Integer value = expected.get(key);
+            assertEquals(value != null ? value : LongIntMap.NO_VALUE, map.get(key));
+        }
+    }
+}
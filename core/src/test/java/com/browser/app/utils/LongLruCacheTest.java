@@ -0,0 +1,86 @@
+package com.browser.app.utils;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LongLruCacheTest {
+    
+    private static class SizedCache extends LongLruCache<String> {
+        SizedCache(int maxSize) {
+            super(maxSize);
+        }
+        
+        @Override
+        protected int sizeOf(long key, String value) {
+            return value.length();
+        }
+    }
+    
+    @Test
+    public void evictsLeastRecentlyUsedBySize() {
+        SizedCache cache = new SizedCache(10);
+        cache.put(1L, "aaaa");
+        cache.put(2L, "bbbb");
+        assertEquals("aaaa", cache.get(1L));
+        cache.put(3L, "cccc");
+        
+        assertNull(cache.get(2L));
+        assertEquals("aaaa", cache.get(1L));
+        assertEquals("cccc", cache.get(3L));
+        assertEquals(8, cache.size());
+    }
+    
+    @Test
+    public void replaceAndRemoveAdjustSize() {
+        SizedCache cache = new SizedCache(10);
+        assertNull(cache.put(1L, "aa"));
+        assertEquals("aa", cache.put(1L, "aaaaa"));
+        assertEquals(5, cache.size());
+        assertEquals("aaaaa", cache.remove(1L));
+        assertNull(cache.remove(1L));
+        assertEquals(0, cache.size());
+        
+        // An entry larger than the whole cache does not stay.
+        cache.put(2L, "bbbbbbbbbbbb");
+        assertNull(cache.get(2L));
+        assertEquals(0, cache.size());
+    }
+    
+    @Test
+    public void matchesAccessOrderedLinkedHashMap() {
+        int capacity = 100;
+        LongLruCache<Integer> cache = new LongLruCache<>(capacity);
+        Map<Long, Integer> expected = new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+                return size() > capacity;
+            }
+        };
+        Random random = new Random(11);
+        for (int i = 0; i < 200000; i++) {
+            long key = FingerprintSet.fingerprint("k" + random.nextInt(300));
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertEquals(expected.remove(key), cache.remove(key));
+                    break;
+                case 1:
+                    expected.put(key, i);
+                    cache.put(key, i);
+                    break;
+                default:
+                    assertEquals(expected.get(key), cache.get(key));
+                    break;
+            }
+            assertEquals(expected.size(), cache.size());
+        }
+        
+        cache.evictAll();
+        assertEquals(0, cache.size());
+    }
+}